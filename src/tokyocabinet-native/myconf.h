@@ -98,7 +98,7 @@
  *************************************************************************************************/
 
 
-#if defined(NDEBUG)
+#if defined(NDEBUG) && defined(_MYNOCOUNT)
 #define TCDODEBUG(TC_expr) \
   do { \
   } while(false)
@@ -4112,6 +4112,35 @@ static TCLIST *tcadbmulmisc(ADBMUL *mul, const char *name, const TCLIST *args){
       }
     }
     tclistdel(targs);
+  } else if(*name == '$'){
+    name++;
+    int anum = TCLISTNUM(args);
+    if(anum < 1){
+      tclistdel(rv);
+      return NULL;
+    }
+    const char *ibuf;
+    int isiz;
+    TCLISTVAL(ibuf, args, 0, isiz);
+    char numbuf[TCNUMBUFSIZ];
+    if(isiz >= TCNUMBUFSIZ) isiz = TCNUMBUFSIZ - 1;
+    memcpy(numbuf, ibuf, isiz);
+    numbuf[isiz] = '\0';
+    int idx = tcatoi(numbuf);
+    if(isiz < 1 || idx < 0 || idx >= num){
+      tclistdel(rv);
+      return NULL;
+    }
+    TCLIST *targs = tclistnew2(anum);
+    for(int i = 1; i < anum; i++){
+      const char *vbuf;
+      int vsiz;
+      TCLISTVAL(vbuf, args, i, vsiz);
+      TCLISTPUSH(targs, vbuf, vsiz);
+    }
+    tclistdel(rv);
+    rv = tcadbmisc(adbs[idx], name, targs);
+    tclistdel(targs);
   } else {
     for(int i = 0; i < num; i++){
       TCLIST *res = tcadbmisc(adbs[i], name, args);
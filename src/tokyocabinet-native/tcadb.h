@@ -474,7 +474,12 @@ bool tcadbsetskel(TCADB *adb, ADBSKEL *skel);
 /* Set the multiple database skeleton to an abstract database object.
    `adb' specifies the abstract database object.
    `num' specifies the number of inner databases.
-   If successful, the return value is true, else, it is false. */
+   If successful, the return value is true, else, it is false.
+   The function `tcadbmisc' of the multiple database dispatches a name prefixed with "@" to the
+   inner databases of the keys given as the arguments, and a name prefixed with "%" to those of
+   the keys of the key and value pairs given as the arguments.  A name prefixed with "$" is
+   called on the single inner database whose decimal index is the first argument, with the rest
+   of the arguments. */
 bool tcadbsetskelmulti(TCADB *adb, int num);
 
 
@@ -180,6 +180,10 @@ static bool tchdbvanishimpl(TCHDB *hdb);
 static bool tchdbcopyimpl(TCHDB *hdb, const char *path);
 static bool tchdbdefragimpl(TCHDB *hdb, int64_t step);
 static bool tchdbiterjumpimpl(TCHDB *hdb, const char *kbuf, int ksiz);
+static void tchdbitermove(TCHDB *hdb, uint64_t off, uint64_t noff);
+static void tchdbitertrunc(TCHDB *hdb);
+static void tchdbiterinval(TCHDB *hdb);
+static bool tchdbiterahead(TCHDB *hdb, uint64_t off);
 static bool tchdbforeachimpl(TCHDB *hdb, TCITER iter, void *op);
 static bool tchdblockmethod(TCHDB *hdb, bool wr);
 static bool tchdbunlockmethod(TCHDB *hdb);
@@ -223,6 +227,14 @@ TCHDB *tchdbnew(void){
 void tchdbdel(TCHDB *hdb){
   assert(hdb);
   if(hdb->fd >= 0) tchdbclose(hdb);
+  if(hdb->xiters){
+    int xinum = TCPTRLISTNUM(hdb->xiters);
+    for(int i = 0; i < xinum; i++){
+      TCHDBITER *iter = TCPTRLISTVAL(hdb->xiters, i);
+      iter->hdb = NULL;
+    }
+    tcptrlistdel(hdb->xiters);
+  }
   if(hdb->mmtx){
     pthread_key_delete(*(pthread_key_t *)hdb->eckey);
     pthread_mutex_destroy(hdb->wmtx);
@@ -1199,6 +1211,7 @@ bool tchdbtranabort(TCHDB *hdb){
   }
   hdb->dfcur = hdb->frec;
   hdb->iter = 0;
+  tchdbiterinval(hdb);
   hdb->xfsiz = 0;
   hdb->fbpnum = 0;
   if(hdb->recc) tcmdbvanish(hdb->recc);
@@ -1766,6 +1779,95 @@ bool tchdbiterinit3(TCHDB *hdb, const char *kstr){
 }
 
 
+/* Create an external iterator object of a hash database object. */
+TCHDBITER *tchdbiternew(TCHDB *hdb){
+  assert(hdb);
+  if(!HDBLOCKMETHOD(hdb, true)) return NULL;
+  if(hdb->fd < 0){
+    tchdbsetecode(hdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    HDBUNLOCKMETHOD(hdb);
+    return NULL;
+  }
+  if(hdb->async && !tchdbflushdrp(hdb)){
+    HDBUNLOCKMETHOD(hdb);
+    return NULL;
+  }
+  TCHDBITER *iter;
+  TCMALLOC(iter, sizeof(*iter));
+  iter->hdb = hdb;
+  iter->off = hdb->frec;
+  iter->end = hdb->fsiz;
+  if(!hdb->xiters) hdb->xiters = tcptrlistnew();
+  tcptrlistpush(hdb->xiters, iter);
+  HDBUNLOCKMETHOD(hdb);
+  return iter;
+}
+
+
+/* Delete an external iterator object. */
+void tchdbiterdel(TCHDBITER *iter){
+  assert(iter);
+  TCHDB *hdb = iter->hdb;
+  if(hdb){
+    bool lock = HDBLOCKMETHOD(hdb, true);
+    int xinum = TCPTRLISTNUM(hdb->xiters);
+    for(int i = 0; i < xinum; i++){
+      if(TCPTRLISTVAL(hdb->xiters, i) == iter){
+        tcptrlistremove(hdb->xiters, i);
+        break;
+      }
+    }
+    if(lock) HDBUNLOCKMETHOD(hdb);
+  }
+  TCFREE(iter);
+}
+
+
+/* Get the next key of an external iterator of a hash database object. */
+void *tchdbiternext4(TCHDBITER *iter, int *sp){
+  assert(iter && sp);
+  TCHDB *hdb = iter->hdb;
+  if(!hdb) return NULL;
+  if(!HDBLOCKMETHOD(hdb, true)) return NULL;
+  if(hdb->fd < 0 || iter->off < 1){
+    tchdbsetecode(hdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    HDBUNLOCKMETHOD(hdb);
+    return NULL;
+  }
+  if(hdb->async && !tchdbflushdrp(hdb)){
+    HDBUNLOCKMETHOD(hdb);
+    return NULL;
+  }
+  TCHREC rec;
+  char rbuf[HDBIOBUFSIZ];
+  char *rv = NULL;
+  bool err = false;
+  while(!rv && !err && iter->off < iter->end){
+    rec.off = iter->off;
+    if(!tchdbreadrec(hdb, &rec, rbuf)){
+      err = true;
+      break;
+    }
+    iter->off += rec.rsiz;
+    if(rec.magic == HDBMAGICREC){
+      if(rec.kbuf){
+        *sp = rec.ksiz;
+        TCMEMDUP(rv, rec.kbuf, rec.ksiz);
+      } else if(tchdbreadrecbody(hdb, &rec)){
+        rec.bbuf[rec.ksiz] = '\0';
+        *sp = rec.ksiz;
+        rv = rec.bbuf;
+      } else {
+        err = true;
+      }
+    }
+  }
+  if(!rv && !err) tchdbsetecode(hdb, TCENOREC, __FILE__, __LINE__, __func__);
+  HDBUNLOCKMETHOD(hdb);
+  return rv;
+}
+
+
 /* Process each record atomically of a hash database object. */
 bool tchdbforeach(TCHDB *hdb, TCITER iter, void *op){
   assert(hdb && iter);
@@ -2055,6 +2157,7 @@ static void tchdbclear(TCHDB *hdb){
   hdb->frec = 0;
   hdb->dfcur = 0;
   hdb->iter = 0;
+  hdb->xiters = NULL;
   hdb->map = NULL;
   hdb->msiz = 0;
   hdb->xmsiz = HDBDEFXMSIZ;
@@ -2379,7 +2482,7 @@ static void tchdbfbpmerge(TCHDB *hdb){
       HDBFB *next = cur + 1;
       if(cur->off + cur->rsiz == next->off && cur->rsiz + next->rsiz <= HDBFBMAXSIZ){
         if(hdb->dfcur == next->off) hdb->dfcur += next->rsiz;
-        if(hdb->iter == next->off) hdb->iter += next->rsiz;
+        tchdbitermove(hdb, next->off, next->off + next->rsiz);
         cur->rsiz += next->rsiz;
         next->off = 0;
       }
@@ -2476,6 +2579,9 @@ static bool tchdbfbpsearch(TCHDB *hdb, TCHREC *rec){
     }
     i = (left + right) / 2;
   }
+  while(cand >= 0 && tchdbiterahead(hdb, pv[cand].off)){
+    if(++cand >= num) cand = -1;
+  }
   if(cand >= 0){
     pv += cand;
     if(pv->rsiz > rsiz * 2){
@@ -2525,7 +2631,7 @@ static bool tchdbfbpsplice(TCHDB *hdb, TCHREC *rec, uint32_t nsiz){
     while(pv < ep){
       if(pv->off == off && rsiz + pv->rsiz >= nsiz){
         if(hdb->dfcur == pv->off) hdb->dfcur += pv->rsiz;
-        if(hdb->iter == pv->off) hdb->iter += pv->rsiz;
+        tchdbitermove(hdb, pv->off, pv->off + pv->rsiz);
         rec->rsiz += pv->rsiz;
         memmove(pv, pv + 1, sizeof(*pv) * ((ep - pv) - 1));
         hdb->fbpnum--;
@@ -2543,7 +2649,7 @@ static bool tchdbfbpsplice(TCHDB *hdb, TCHREC *rec, uint32_t nsiz){
     if(!tchdbreadrec(hdb, &nrec, nbuf)) return false;
     if(nrec.magic != HDBMAGICFB) break;
     if(hdb->dfcur == off) hdb->dfcur += nrec.rsiz;
-    if(hdb->iter == off) hdb->iter += nrec.rsiz;
+    tchdbitermove(hdb, off, off + nrec.rsiz);
     off += nrec.rsiz;
   }
   uint32_t jsiz = off - rec->off;
@@ -3473,6 +3579,7 @@ static bool tchdbopenimpl(TCHDB *hdb, const char *path, int omode){
   hdb->omode = omode;
   hdb->dfcur = hdb->frec;
   hdb->iter = 0;
+  tchdbiterinval(hdb);
   hdb->map = map;
   hdb->msiz = msiz;
   hdb->xfsiz = 0;
@@ -4714,7 +4821,7 @@ static bool tchdbdefragimpl(TCHDB *hdb, int64_t step){
   uint64_t base = hdb->dfcur;
   uint64_t dest = base;
   uint64_t cur = base;
-  if(hdb->iter == cur) hdb->iter += rec.rsiz;
+  tchdbitermove(hdb, cur, cur + rec.rsiz);
   cur += rec.rsiz;
   uint64_t fbsiz = cur - dest;
   step++;
@@ -4730,11 +4837,11 @@ static bool tchdbdefragimpl(TCHDB *hdb, int64_t step){
         fbsiz += diff;
       }
       if(!tchdbshiftrec(hdb, &rec, rbuf, dest)) return false;
-      if(hdb->iter == cur) hdb->iter = dest;
+      tchdbitermove(hdb, cur, dest);
       dest += rec.rsiz;
       step--;
     } else {
-      if(hdb->iter == cur) hdb->iter += rec.rsiz;
+      tchdbitermove(hdb, cur, cur + rec.rsiz);
       fbsiz += rec.rsiz;
     }
     cur += rsiz;
@@ -4767,6 +4874,7 @@ static bool tchdbdefragimpl(TCHDB *hdb, int64_t step){
     llnum = TCHTOILL(llnum);
     memcpy(hdb->map + HDBFSIZOFF, &llnum, sizeof(llnum));
     if(hdb->iter >= hdb->fsiz) hdb->iter = UINT64_MAX;
+    tchdbitertrunc(hdb);
     if(!hdb->tran){
       if(ftruncate(hdb->fd, hdb->fsiz) == -1){
         tchdbsetecode(hdb, TCETRUNC, __FILE__, __LINE__, __func__);
@@ -4822,6 +4930,68 @@ static bool tchdbiterjumpimpl(TCHDB *hdb, const char *kbuf, int ksiz){
 }
 
 
+/* Move the iterators at an offset of a hash database object.
+   `hdb' specifies the hash database object.
+   `off' specifies the offset of the iterators to be moved.
+   `noff' specifies the new offset of the iterators. */
+static void tchdbitermove(TCHDB *hdb, uint64_t off, uint64_t noff){
+  assert(hdb);
+  if(hdb->iter == off) hdb->iter = noff;
+  if(!hdb->xiters) return;
+  int xinum = TCPTRLISTNUM(hdb->xiters);
+  for(int i = 0; i < xinum; i++){
+    TCHDBITER *iter = TCPTRLISTVAL(hdb->xiters, i);
+    if(iter->off == off) iter->off = noff;
+    if(iter->end == off) iter->end = noff;
+  }
+}
+
+
+/* Move the external iterators behind the end of the file of a hash database object.
+   `hdb' specifies the hash database object. */
+static void tchdbitertrunc(TCHDB *hdb){
+  assert(hdb);
+  if(!hdb->xiters) return;
+  int xinum = TCPTRLISTNUM(hdb->xiters);
+  for(int i = 0; i < xinum; i++){
+    TCHDBITER *iter = TCPTRLISTVAL(hdb->xiters, i);
+    if(iter->off > hdb->fsiz) iter->off = hdb->fsiz;
+    if(iter->end > hdb->fsiz) iter->end = hdb->fsiz;
+  }
+}
+
+
+/* Invalidate the external iterators of a hash database object.
+   `hdb' specifies the hash database object. */
+static void tchdbiterinval(TCHDB *hdb){
+  assert(hdb);
+  if(!hdb->xiters) return;
+  int xinum = TCPTRLISTNUM(hdb->xiters);
+  for(int i = 0; i < xinum; i++){
+    TCHDBITER *iter = TCPTRLISTVAL(hdb->xiters, i);
+    iter->off = 0;
+    iter->end = 0;
+  }
+}
+
+
+/* Check whether an offset is ahead of an external iterator of a hash database object.
+   `hdb' specifies the hash database object.
+   `off' specifies the offset.
+   The return value is true if the offset is to be traversed by an external iterator, else, it
+   is false. */
+static bool tchdbiterahead(TCHDB *hdb, uint64_t off){
+  assert(hdb);
+  if(!hdb->xiters) return false;
+  int xinum = TCPTRLISTNUM(hdb->xiters);
+  for(int i = 0; i < xinum; i++){
+    TCHDBITER *iter = TCPTRLISTVAL(hdb->xiters, i);
+    if(off >= iter->off && off < iter->end) return true;
+  }
+  return false;
+}
+
+
 /* Process each record atomically of a hash database object.
    `hdb' specifies the hash database object.
    `func' specifies the pointer to the iterator function called for each record.
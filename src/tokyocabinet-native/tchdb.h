@@ -57,6 +57,7 @@ typedef struct {                         /* type of structure for a hash databas
   uint64_t frec;                         /* offset of the first record */
   uint64_t dfcur;                        /* offset of the cursor for defragmentation */
   uint64_t iter;                         /* offset of the iterator */
+  TCPTRLIST *xiters;                     /* external iterators */
   char *map;                             /* pointer to the mapped memory */
   uint64_t msiz;                         /* size of the mapped memory */
   uint64_t xmsiz;                        /* size of the extra mapped memory */
@@ -841,6 +842,48 @@ bool tchdbiterinit2(TCHDB *hdb, const void *kbuf, int ksiz);
 bool tchdbiterinit3(TCHDB *hdb, const char *kstr);
 
 
+typedef struct {                         /* type of structure for an external iterator */
+  TCHDB *hdb;                            /* database object or `NULL' if it has been deleted */
+  uint64_t off;                          /* offset of the next record */
+  uint64_t end;                          /* offset of the end of the iteration */
+} TCHDBITER;
+
+
+/* Create an external iterator object of a hash database object.
+   `hdb' specifies the hash database object.
+   If successful, the return value is the new external iterator object, else, it is `NULL'.
+   The iterator traverses the records from the first record to the end of the file at the time
+   of the creation, and records stored after the creation are not retrieved.  Unlike the
+   iterator of the database object, any number of external iterators can be used concurrently.
+   The offsets of each external iterator follow the records moved by defragmentation and the
+   free blocks merged by updating, and the free blocks ahead of the iterator are not reused while
+   the iteration is running, so that a record enlarged by updating is not retrieved twice.
+   Because the object of the return value is allocated by the function, it should be deleted
+   with the function `tchdbiterdel' when it is no longer in use. */
+TCHDBITER *tchdbiternew(TCHDB *hdb);
+
+
+/* Delete an external iterator object.
+   `iter' specifies the external iterator object.
+   The iterator object can be deleted even after the database object has been deleted. */
+void tchdbiterdel(TCHDBITER *iter);
+
+
+/* Get the next key of an external iterator of a hash database object.
+   `iter' specifies the external iterator object.
+   `sp' specifies the pointer to the variable into which the size of the region of the return
+   value is assigned.
+   If successful, the return value is the pointer to the region of the next key, else, it is
+   `NULL'.  `NULL' is returned when no record is to be get out of the iterator.
+   Because an additional zero code is appended at the end of the region of the return value,
+   the return value can be treated as a character string.  Because the region of the return
+   value is allocated with the `malloc' call, it should be released with the `free' call when
+   it is no longer in use.  A record which is not retrieved yet is not retrieved if it is moved
+   before the iterator or to the end of the file by updating.  If the database is reopened or a
+   transaction is aborted, the iterator becomes invalid and the iteration fails. */
+void *tchdbiternext4(TCHDBITER *iter, int *sp);
+
+
 /* Process each record atomically of a hash database object.
    `hdb' specifies the hash database object.
    `iter' specifies the pointer to the iterator function called for each record.  It receives
@@ -46,6 +46,7 @@
 #define TDBNUMCOLMAX   16                // maximum number of columns of the long double
 #define TDBHINTUSIZ    256               // unit size of the hint string
 #define TDBORDRATIO    0.2               // ratio of records to use the order index
+#define TDBQRYCURUNIT  1024              // unit number of the result of a query cursor
 
 enum {                                   // enumeration for duplication behavior
   TDBPDOVER,                             // overwrite an existing value
@@ -156,6 +157,12 @@ static bool tctdbdefragimpl(TCTDB *tdb, int64_t step);
 static bool tctdbcacheclearimpl(TCTDB *tdb);
 static bool tctdbforeachimpl(TCTDB *tdb, TCITER iter, void *op);
 static int tctdbqryprocoutcb(const void *pkbuf, int pksiz, TCMAP *cols, void *op);
+static bool tctdbqrycursetup(TDBQRYCUR *cur);
+static bool tctdbqrycuridxcheck(TDBQRYCUR *cur);
+static char *tctdbqrycuridxnext(TDBQRYCUR *cur, int *sp);
+static char *tctdbqrycurscannext(TDBQRYCUR *cur, int *sp);
+static bool tctdbqrycurmatch(TDBQRY *qry, const char *pkbuf, int pksiz);
+static int64_t tctdbqrycurwalk(TDBQRYCUR *cur, int64_t num, TCLIST *res);
 static bool tctdblockmethod(TCTDB *tdb, bool wr);
 static bool tctdbunlockmethod(TCTDB *tdb);
 
@@ -1559,6 +1566,33 @@ bool tctdbputproc(TCTDB *tdb, const void *pkbuf, int pksiz, const void *cbuf, in
 }
 
 
+/* Process a record atomically in a table database object. */
+bool tctdbrecproc(TCTDB *tdb, const void *pkbuf, int pksiz, TDBQRYPROC proc, void *op){
+  assert(tdb && pkbuf && pksiz >= 0 && proc);
+  if(!TDBLOCKMETHOD(tdb, true)) return false;
+  if(!tdb->open || !tdb->wmode){
+    tctdbsetecode(tdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    TDBUNLOCKMETHOD(tdb);
+    return false;
+  }
+  bool err = false;
+  TCMAP *cols = tctdbgetimpl(tdb, pkbuf, pksiz);
+  if(cols){
+    int flags = proc(pkbuf, pksiz, cols, op);
+    if(flags & TDBQPPUT){
+      if(!tctdbputimpl(tdb, pkbuf, pksiz, cols, TDBPDOVER)) err = true;
+    } else if(flags & TDBQPOUT){
+      if(!tctdboutimpl(tdb, pkbuf, pksiz)) err = true;
+    }
+    tcmapdel(cols);
+  } else {
+    err = true;
+  }
+  TDBUNLOCKMETHOD(tdb);
+  return !err;
+}
+
+
 /* Retrieve the value of a column of a record in a table database object. */
 char *tctdbget4(TCTDB *tdb, const void *pkbuf, int pksiz, const void *nbuf, int nsiz, int *sp){
   assert(tdb && pkbuf && pksiz >= 0 && nbuf && nsiz >= 0 && sp);
@@ -1754,6 +1788,57 @@ int tctdbqrycount(TDBQRY *qry){
 }
 
 
+/* Create a cursor of a query object. */
+TDBQRYCUR *tctdbqrycurnew(TDBQRY *qry){
+  assert(qry);
+  TDBQRYCUR *cur;
+  TCMALLOC(cur, sizeof(*cur));
+  cur->qry = qry;
+  cur->mode = TDBQCURSCAN;
+  cur->cidx = -1;
+  cur->idb = NULL;
+  cur->icur = NULL;
+  cur->upper = 0;
+  cur->iter = NULL;
+  cur->res = NULL;
+  cur->skip = qry->skip;
+  cur->left = qry->max;
+  cur->snum = 0;
+  cur->ready = false;
+  cur->end = false;
+  return cur;
+}
+
+
+/* Delete a cursor of a query object. */
+void tctdbqrycurdel(TDBQRYCUR *cur){
+  assert(cur);
+  if(cur->res) tclistdel(cur->res);
+  if(cur->icur) tcbdbcurdel(cur->icur);
+  if(cur->iter) tchdbiterdel(cur->iter);
+  TCFREE(cur);
+}
+
+
+/* Fetch the primary keys of the next corresponding records of a cursor of a query object. */
+TCLIST *tctdbqrycurfetch(TDBQRYCUR *cur, int max){
+  assert(cur);
+  TCLIST *res = tclistnew2(tclmin(tclmax(max, 1), TDBQRYCURUNIT));
+  if(tctdbqrycurwalk(cur, max, res) < 0){
+    tclistdel(res);
+    return NULL;
+  }
+  return res;
+}
+
+
+/* Skip the next corresponding records of a cursor of a query object. */
+int64_t tctdbqrycurskip(TDBQRYCUR *cur, int64_t num){
+  assert(cur);
+  return tctdbqrycurwalk(cur, num, NULL);
+}
+
+
 /* Generate keyword-in-context strings from a query object. */
 TCLIST *tctdbqrykwic(TDBQRY *qry, TCMAP *cols, const char *name, int width, int opts){
   assert(qry && cols && width >= 0);
@@ -6133,6 +6218,340 @@ static int tctdbqryprocoutcb(const void *pkbuf, int pksiz, TCMAP *cols, void *op
 }
 
 
+/* Set up the evaluation of a cursor of a query object.
+   `cur' specifies the cursor object.
+   If successful, the return value is true, else, it is false. */
+static bool tctdbqrycursetup(TDBQRYCUR *cur){
+  assert(cur);
+  TDBQRY *qry = cur->qry;
+  TCTDB *tdb = qry->tdb;
+  TDBIDX *idxs = tdb->idxs;
+  int inum = tdb->inum;
+  TDBCOND *conds = qry->conds;
+  int cnum = qry->cnum;
+  TCXSTR *hint = qry->hint;
+  cur->ready = true;
+  TDBCOND *mcond = NULL;
+  TDBIDX *midx = NULL;
+  bool walk = false;
+  for(int i = 0; !mcond && i < cnum; i++){
+    TDBCOND *cond = conds + i;
+    if(!cond->sign || cond->noidx) continue;
+    for(int j = 0; !mcond && j < inum; j++){
+      TDBIDX *idx = idxs + j;
+      if(strcmp(cond->name, idx->name)) continue;
+      switch(idx->type){
+        case TDBITLEXICAL:
+          switch(cond->op){
+            case TDBQCSTREQ:
+            case TDBQCSTRBW:
+              walk = true;
+            case TDBQCSTROREQ:
+              mcond = cond;
+              midx = idx;
+              break;
+          }
+          break;
+        case TDBITDECIMAL:
+          switch(cond->op){
+            case TDBQCNUMEQ:
+            case TDBQCNUMGT:
+            case TDBQCNUMGE:
+            case TDBQCNUMLT:
+            case TDBQCNUMLE:
+            case TDBQCNUMBT:
+              walk = true;
+            case TDBQCNUMOREQ:
+              mcond = cond;
+              midx = idx;
+              break;
+          }
+          break;
+        case TDBITTOKEN:
+          if(cond->op == TDBQCSTRAND || cond->op == TDBQCSTROR){
+            mcond = cond;
+            midx = idx;
+          }
+          break;
+        case TDBITQGRAM:
+          if(cond->op == TDBQCFTSPH){
+            mcond = cond;
+            midx = idx;
+          }
+          break;
+      }
+    }
+  }
+  if(qry->oname || (mcond && !walk)){
+    cur->mode = TDBQCURSEARCH;
+    cur->res = tctdbqrysearchimpl(qry);
+    cur->skip = 0;
+    cur->left = INT_MAX;
+    return true;
+  }
+  tcxstrclear(hint);
+  if(!mcond){
+    cur->mode = TDBQCURSCAN;
+    cur->iter = tchdbiternew(tdb->hdb);
+    if(!cur->iter){
+      tctdbsetecode(tdb, tchdbecode(tdb->hdb), __FILE__, __LINE__, __func__);
+      cur->end = true;
+      return false;
+    }
+    tcxstrprintf(hint, "scanning the whole table incrementally\n");
+    return true;
+  }
+  cur->mode = TDBQCURINDEX;
+  cur->cidx = mcond - conds;
+  cur->idb = midx->db;
+  cur->icur = tcbdbcurnew(midx->db);
+  const char *expr = mcond->expr;
+  int esiz = mcond->esiz;
+  const char *oname = "NUMGT/NUMGE";
+  switch(mcond->op){
+    case TDBQCSTREQ:
+    case TDBQCSTRBW:
+      oname = (mcond->op == TDBQCSTREQ) ? "STREQ" : "STRBW";
+      tcbdbcurjump(cur->icur, expr, esiz + (*midx->name != '\0'));
+      break;
+    case TDBQCNUMLT:
+    case TDBQCNUMLE:
+      oname = "NUMLT/NUMLE";
+      cur->upper = tctdbatof(expr);
+      tcbdbcurfirst(cur->icur);
+      break;
+    case TDBQCNUMBT: {
+      oname = "NUMBT";
+      while(*expr == ' ' || *expr == ','){
+        expr++;
+      }
+      const char *pv = expr;
+      while(*pv != '\0' && *pv != ' ' && *pv != ','){
+        pv++;
+      }
+      esiz = pv - expr;
+      if(*pv != ' ' && *pv != ',') pv = " ";
+      pv++;
+      while(*pv == ' ' || *pv == ','){
+        pv++;
+      }
+      long double lower = tctdbatof(expr);
+      cur->upper = tctdbatof(pv);
+      if(lower > cur->upper){
+        cur->upper = lower;
+        expr = pv;
+        esiz = strlen(expr);
+      }
+      tctdbqryidxcurjumpnum(cur->icur, expr, esiz, true);
+      break;
+    }
+    default:
+      if(mcond->op == TDBQCNUMEQ) oname = "NUMEQ";
+      cur->upper = tctdbatof(expr);
+      tctdbqryidxcurjumpnum(cur->icur, expr, esiz, true);
+      break;
+  }
+  tcxstrprintf(hint, "using an index incrementally: \"%s\" asc (%s)\n", mcond->name, oname);
+  return true;
+}
+
+
+/* Check whether the index walked by a cursor of a query object is still available.
+   `cur' specifies the cursor object.
+   If the index is available, the return value is true, else, it is false. */
+static bool tctdbqrycuridxcheck(TDBQRYCUR *cur){
+  assert(cur);
+  TDBQRY *qry = cur->qry;
+  TCTDB *tdb = qry->tdb;
+  if(cur->cidx >= qry->cnum) return false;
+  TDBCOND *cond = qry->conds + cur->cidx;
+  for(int i = 0; i < tdb->inum; i++){
+    TDBIDX *idx = tdb->idxs + i;
+    if(idx->db == cur->idb && !strcmp(idx->name, cond->name) &&
+       (idx->type == TDBITLEXICAL || idx->type == TDBITDECIMAL)) return true;
+  }
+  return false;
+}
+
+
+/* Get the primary key of the next candidate from the index walked by a cursor of a query object.
+   `cur' specifies the cursor object.
+   `sp' specifies the pointer to the variable into which the size of the region of the return
+   value is assigned.
+   If successful, the return value is the pointer to the region of the primary key, else, it is
+   `NULL'.  If the cursor reaches the end of the range, the end flag of the cursor is set. */
+static char *tctdbqrycuridxnext(TDBQRYCUR *cur, int *sp){
+  assert(cur && sp);
+  TDBQRY *qry = cur->qry;
+  TDBCOND *cond = qry->conds + cur->cidx;
+  int ksiz;
+  const char *kbuf = tcbdbcurkey3(cur->icur, &ksiz);
+  if(!kbuf){
+    int ecode = tcbdbecode(cur->idb);
+    if(ecode == TCENOREC){
+      cur->end = true;
+    } else {
+      tctdbsetecode(qry->tdb, ecode, __FILE__, __LINE__, __func__);
+    }
+    return NULL;
+  }
+  if(*cond->name != '\0') ksiz -= 3;
+  bool hit = true;
+  switch(cond->op){
+    case TDBQCSTREQ:
+      hit = ksiz == cond->esiz && !memcmp(kbuf, cond->expr, cond->esiz);
+      break;
+    case TDBQCSTRBW:
+      hit = ksiz >= cond->esiz && !memcmp(kbuf, cond->expr, cond->esiz);
+      break;
+    case TDBQCNUMEQ:
+      hit = tctdbatof(kbuf) == cur->upper;
+      break;
+    case TDBQCNUMLT:
+      hit = tctdbatof(kbuf) < cur->upper;
+      break;
+    case TDBQCNUMLE:
+    case TDBQCNUMBT:
+      hit = tctdbatof(kbuf) <= cur->upper;
+      break;
+  }
+  if(!hit){
+    cur->end = true;
+    return NULL;
+  }
+  int vsiz;
+  const char *vbuf = tcbdbcurval3(cur->icur, &vsiz);
+  if(!vbuf){
+    tctdbsetecode(qry->tdb, tcbdbecode(cur->idb), __FILE__, __LINE__, __func__);
+    return NULL;
+  }
+  char *rv;
+  TCMEMDUP(rv, vbuf, vsiz);
+  *sp = vsiz;
+  tcbdbcurnext(cur->icur);
+  return rv;
+}
+
+
+/* Get the primary key of the next candidate from the table scanned by a cursor of a query object.
+   `cur' specifies the cursor object.
+   `sp' specifies the pointer to the variable into which the size of the region of the return
+   value is assigned.
+   If successful, the return value is the pointer to the region of the primary key, else, it is
+   `NULL'.  If the cursor reaches the end of the table, the end flag of the cursor is set. */
+static char *tctdbqrycurscannext(TDBQRYCUR *cur, int *sp){
+  assert(cur && sp);
+  TCHDB *hdb = cur->qry->tdb->hdb;
+  char *rv = tchdbiternext4(cur->iter, sp);
+  if(!rv && tchdbecode(hdb) == TCENOREC) cur->end = true;
+  return rv;
+}
+
+
+/* Check matching of every condition of a query object and a record.
+   `qry' specifies the query object.
+   `pkbuf' specifies the pointer to the region of the primary key.
+   `pksiz' specifies the size of the region of the primary key.
+   If they matches, the return value is true, else it is false.  Unlike `tctdbqryallcondmatch',
+   this function does not refer to the alive flags set by the last search. */
+static bool tctdbqrycurmatch(TDBQRY *qry, const char *pkbuf, int pksiz){
+  assert(qry && pkbuf && pksiz >= 0);
+  TDBCOND *conds = qry->conds;
+  int cnum = qry->cnum;
+  int csiz;
+  char *cbuf = tchdbget(qry->tdb->hdb, pkbuf, pksiz, &csiz);
+  if(!cbuf) return false;
+  TCMAP *cols = tcmapload(cbuf, csiz);
+  bool ok = true;
+  for(int i = 0; i < cnum; i++){
+    TDBCOND *cond = conds + i;
+    if(cond->nsiz < 1){
+      if(tctdbqrycondmatch(cond, pkbuf, pksiz) != cond->sign){
+        ok = false;
+        break;
+      }
+    } else {
+      int vsiz;
+      const char *vbuf = tcmapget(cols, cond->name, cond->nsiz, &vsiz);
+      if(vbuf){
+        if(tctdbqrycondmatch(cond, vbuf, vsiz) != cond->sign){
+          ok = false;
+          break;
+        }
+      } else {
+        if(cond->sign){
+          ok = false;
+          break;
+        }
+      }
+    }
+  }
+  tcmapdel(cols);
+  TCFREE(cbuf);
+  return ok;
+}
+
+
+/* Evaluate the next corresponding records of a cursor of a query object.
+   `cur' specifies the cursor object.
+   `num' specifies the maximum number of records to be evaluated.
+   `res' specifies a list object into which the primary keys are pushed.  If it is `NULL', the
+   primary keys are not stored.
+   If successful, the return value is the number of corresponding records, else, it is -1. */
+static int64_t tctdbqrycurwalk(TDBQRYCUR *cur, int64_t num, TCLIST *res){
+  assert(cur);
+  TDBQRY *qry = cur->qry;
+  TCTDB *tdb = qry->tdb;
+  if(!TDBLOCKMETHOD(tdb, false)) return -1;
+  if(!tdb->open){
+    tctdbsetecode(tdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    TDBUNLOCKMETHOD(tdb);
+    return -1;
+  }
+  bool err = false;
+  if(!cur->ready && !tctdbqrycursetup(cur)) err = true;
+  int64_t cnt = 0;
+  if(cur->mode == TDBQCURSEARCH){
+    while(cnt < num && TCLISTNUM(cur->res) > 0){
+      int pksiz;
+      char *pkbuf = tclistshift(cur->res, &pksiz);
+      if(res) TCLISTPUSH(res, pkbuf, pksiz);
+      TCFREE(pkbuf);
+      cnt++;
+    }
+    if(TCLISTNUM(cur->res) < 1) cur->end = true;
+  } else {
+    if(cur->mode == TDBQCURINDEX && !cur->end && !tctdbqrycuridxcheck(cur)){
+      tctdbsetecode(tdb, TCEINVALID, __FILE__, __LINE__, __func__);
+      err = true;
+    }
+    while(!err && !cur->end && cnt < num && cur->left > 0){
+      int pksiz;
+      char *pkbuf = (cur->mode == TDBQCURINDEX) ?
+        tctdbqrycuridxnext(cur, &pksiz) : tctdbqrycurscannext(cur, &pksiz);
+      if(!pkbuf){
+        if(!cur->end) err = true;
+        break;
+      }
+      cur->snum++;
+      if(tctdbqrycurmatch(qry, pkbuf, pksiz)){
+        if(cur->skip > 0){
+          cur->skip--;
+        } else {
+          if(res) TCLISTPUSH(res, pkbuf, pksiz);
+          cur->left--;
+          cnt++;
+        }
+      }
+      TCFREE(pkbuf);
+    }
+    if(cur->left < 1) cur->end = true;
+  }
+  TDBUNLOCKMETHOD(tdb);
+  return err ? -1 : cnt;
+}
+
+
 /* Lock a method of the table database object.
    `tdb' specifies the table database object.
    `wr' specifies whether the lock is writer or not.
@@ -955,6 +955,22 @@ bool tctdbputproc(TCTDB *tdb, const void *pkbuf, int pksiz, const void *cbuf, in
                   TCPDPROC proc, void *op);
 
 
+/* Process a record atomically in a table database object.
+   `tdb' specifies the table database object connected as a writer.
+   `pkbuf' specifies the pointer to the region of the primary key.
+   `pksiz' specifies the size of the region of the primary key.
+   `proc' specifies the pointer to the processing function.  It receives the same parameters and
+   returns the same flags as the one of `tctdbqryproc' except that `TDBQPSTOP' is ignored.
+   `op' specifies an arbitrary pointer to be given as a parameter of the processing function.  If
+   it is not needed, `NULL' can be specified.
+   If successful, the return value is true, else, it is false.  False is returned if there is no
+   record corresponding the primary key.
+   Note that the processing function can not perform any database operation because the
+   function is called in the critical section guarded by the same locks of database
+   operations. */
+bool tctdbrecproc(TCTDB *tdb, const void *pkbuf, int pksiz, TDBQRYPROC proc, void *op);
+
+
 /* Retrieve the value of a column of a record in a table database object.
    `tdb' specifies the table database object.
    `pkbuf' specifies the pointer to the region of the primary key.
@@ -1043,6 +1059,72 @@ int tctdbstrtometasearcytype(const char *str);
 int tctdbqrycount(TDBQRY *qry);
 
 
+typedef struct {                         /* type of structure for a query cursor */
+  TDBQRY *qry;                           /* query object */
+  int mode;                              /* mode of evaluation */
+  int cidx;                              /* index of the condition of the walked index */
+  TCBDB *idb;                            /* database of the walked index */
+  BDBCUR *icur;                          /* cursor of the walked index */
+  long double upper;                     /* upper bound of the walked index */
+  TCHDBITER *iter;                       /* iterator of the scanned table */
+  TCLIST *res;                           /* result of the whole search */
+  int skip;                              /* number of records to be skipped */
+  int left;                              /* number of records to be retrieved */
+  int64_t snum;                          /* number of scanned records */
+  bool ready;                            /* whether the evaluation is set up */
+  bool end;                              /* whether the cursor reaches the end */
+} TDBQRYCUR;
+
+enum {                                   /* enumeration for modes of a query cursor */
+  TDBQCURSCAN,                           /* scanning the whole table */
+  TDBQCURINDEX,                          /* walking an index */
+  TDBQCURSEARCH                          /* executing the whole search */
+};
+
+
+/* Create a cursor of a query object.
+   `qry' specifies the query object.  It should not be modified or deleted while the cursor is
+   in use.
+   The return value is the new cursor object.
+   Because the object of the return value is allocated by the function, it should be deleted
+   with the function `tctdbqrycurdel' when it is no longer in use.  The conditions are evaluated
+   one record at a time while the table or an index of the condition of `STREQ', `STRBW' or a
+   numeric comparison is walked, so that the first record is available without evaluating the
+   whole search and the memory usage does not depend on the number of corresponding records.
+   If the order is set or the search is done with an index of another type, the whole search is
+   executed when the first record is fetched. */
+TDBQRYCUR *tctdbqrycurnew(TDBQRY *qry);
+
+
+/* Delete a cursor of a query object.
+   `cur' specifies the cursor object. */
+void tctdbqrycurdel(TDBQRYCUR *cur);
+
+
+/* Fetch the primary keys of the next corresponding records of a cursor of a query object.
+   `cur' specifies the cursor object.
+   `max' specifies the maximum number of records to be fetched.
+   If successful, the return value is a list object of the primary keys of the next records,
+   else, it is `NULL'.  An empty list is returned when the cursor reaches the end.
+   Because the object of the return value is created with the function `tclistnew', it should
+   be deleted with the function `tclistdel' when it is no longer in use.  The database is
+   locked only while each call is running, so that records modified or removed between calls
+   are evaluated in the state at the time of the call which reaches them.  If the table is
+   scanned, a record stored after the first call is not retrieved, and a record which is not
+   retrieved yet may be skipped if it is moved in the file by updating between calls.  If the
+   index walked by the cursor is removed or the database is closed, the function fails. */
+TCLIST *tctdbqrycurfetch(TDBQRYCUR *cur, int max);
+
+
+/* Skip the next corresponding records of a cursor of a query object.
+   `cur' specifies the cursor object.
+   `num' specifies the maximum number of records to be skipped.
+   If successful, the return value is the number of skipped records, else, it is -1.
+   This function evaluates the records in the same way as `tctdbqrycurfetch' but does not
+   store the primary keys. */
+int64_t tctdbqrycurskip(TDBQRYCUR *cur, int64_t num);
+
+
 /* Generate keyword-in-context strings from a query object.
    `qry' specifies the query object.
    `cols' specifies a map object containing columns.
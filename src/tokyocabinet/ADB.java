@@ -17,6 +17,7 @@
 package tokyocabinet;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
@@ -48,10 +49,21 @@ public class ADB implements DBM {
    */
   private static native void init();
   //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** prefix of the file names of the inner databases of the multiple database mode */
+  private static final String MULPREFIX = "adbmul-";
+  //----------------------------------------------------------------
   // private fields
   //----------------------------------------------------------------
   /** pointer to the native object */
   private long ptr = 0;
+  /** number of the inner databases given to the multiple database skeleton or 0 */
+  private int mulskel = 0;
+  /** number of the inner databases of the multiple database mode or 0 */
+  private int mulnum = 0;
+  /** executor service running the operations on the inner databases */
+  private ExecutorService mulexec = null;
   //----------------------------------------------------------------
   // constructors and finalizers
   //----------------------------------------------------------------
@@ -65,6 +77,7 @@ public class ADB implements DBM {
    * Release resources.
    */
   protected void finalize(){
+    shutdown();
     destruct();
   }
   //----------------------------------------------------------------
@@ -96,14 +109,66 @@ public class ADB implements DBM {
    * database file is "casket.tch", and the bucket number is 1000000, and the options are large
    * and Deflate.
    */
-  public native boolean open(String name);
+  public boolean open(String name){
+    if(!openimpl(name)) return false;
+    if(mulskel > 0){
+      int hidx = name.indexOf('#');
+      mulnum = Math.max(mulcount(hidx >= 0 ? name.substring(0, hidx) : name), 1);
+    } else {
+      mulnum = 0;
+    }
+    return true;
+  }
+  /**
+   * Set the multiple database skeleton.
+   * @param num the number of inner databases.  It should be between 1 and 127.
+   * @return If successful, it is true, else, it is false.
+   * @note The skeleton should be set before the database is opened.  The name given to `open' is
+   * then the path of a directory, in which the inner databases are stored in files whose names
+   * are "adbmul-" followed by the serial number and the suffix of the path.  Each record is
+   * stored in one of the inner databases selected by the hash value of the key.
+   * @see #openmulti(String, int, String)
+   */
+  public boolean setskelmulti(int num){
+    if(!setskelmultiimpl(num)) return false;
+    mulskel = num;
+    return true;
+  }
+  /**
+   * Open a multiple database.
+   * @param path the path of the directory of the inner databases.  Its suffix specifies the type
+   * of the inner databases as with `open'.
+   * @param num the number of inner databases.  If the directory has inner databases already, it
+   * must be the number of them.
+   * @param params the tuning parameters of the inner databases as with `open', for example
+   * "#bnum=1000000#opts=l".  If it is `null', no parameter is specified.
+   * @return If successful, it is true, else, it is false.  It is false also if the directory has
+   * a different number of inner databases, since the keys would be routed to wrong ones.
+   * @note The inner databases are opened with their own locks, so that operations on different
+   * inner databases run in parallel.  `putlist', `outlist', `getlist', and `range' process each
+   * inner database in a separate thread.
+   * @see #setskelmulti(int)
+   */
+  public boolean openmulti(String path, int num, String params){
+    int cnum = mulcount(path);
+    if(cnum > 0 && cnum != num) return false;
+    if(params == null) params = "";
+    if(params.length() > 0 && !params.startsWith("#")) params = "#" + params;
+    return setskelmulti(num) && open(path + params);
+  }
   /**
    * Close the database.
    * @return If successful, it is true, else, it is false.
    * @note Update of a database is assured to be written when the database is closed.  If a
    * writer opens a database but does not close it appropriately, the database will be broken.
+   * The worker threads of the multiple database mode are stopped as well.
    */
-  public native boolean close();
+  public boolean close(){
+    boolean rv = closeimpl();
+    mulnum = 0;
+    shutdown();
+    return rv;
+  }
   /**
    * Store a record.
    * @param key the key.
@@ -111,7 +176,9 @@ public class ADB implements DBM {
    * @return If successful, it is true, else, it is false.
    * @note If a record with the same key exists in the database, it is overwritten.
    */
-  public native boolean put(byte[] key, byte[] value);
+  public boolean put(byte[] key, byte[] value){
+    return putimpl(key, value);
+  }
   /**
    * Store a record.
    * The same as `put(key.getBytes(), value.getBytes())'.
@@ -157,7 +224,9 @@ public class ADB implements DBM {
    * @param key the key.
    * @return If successful, it is true, else, it is false.
    */
-  public native boolean out(byte[] key);
+  public boolean out(byte[] key){
+    return outimpl(key);
+  }
   /**
    * Remove a record.
    * The same as `out(key.getBytes())'.
@@ -384,9 +453,228 @@ public class ADB implements DBM {
     }
     return null;
   }
+  /**
+   * Store records.
+   * @param recs a list object of the keys and the values of the records alternately.
+   * @return If successful, it is true, else, it is false.
+   * @note In the multiple database mode, the records of different inner databases are stored in
+   * parallel.
+   */
+  public boolean putlist(List<byte[]> recs){
+    if(mulnum < 2) return misc("putlist", recs) != null;
+    return multi(recs, 2, new Batch(){
+        List<byte[]> run(List<byte[]> group){
+          for(int i = 0; i + 1 < group.size(); i += 2){
+            if(!putimpl(group.get(i), group.get(i + 1))) return null;
+          }
+          return new ArrayList<byte[]>(0);
+        }
+      }) != null;
+  }
+  /**
+   * Remove records.
+   * @param keys a list object of the keys.
+   * @return If successful, it is true, else, it is false.
+   * @note In the multiple database mode, the records of different inner databases are removed in
+   * parallel.
+   */
+  public boolean outlist(List<byte[]> keys){
+    if(mulnum < 2) return misc("outlist", keys) != null;
+    return multi(keys, 1, new Batch(){
+        List<byte[]> run(List<byte[]> group){
+          for(byte[] key : group){
+            if(!outimpl(key) && vsiz(key) >= 0) return null;
+          }
+          return new ArrayList<byte[]>(0);
+        }
+      }) != null;
+  }
+  /**
+   * Retrieve records.
+   * @param keys a list object of the keys.
+   * @return a list object of the keys and the values of the existing records alternately, or
+   * `null' on failure.
+   * @note In the multiple database mode, the records of different inner databases are retrieved
+   * in parallel and the result is in the order of the inner databases.
+   */
+  public List<byte[]> getlist(List<byte[]> keys){
+    if(mulnum < 2) return misc("getlist", keys);
+    return multi(keys, 1, new Batch(){
+        List<byte[]> run(List<byte[]> group){
+          // the native dispatcher ignores the last argument
+          group.add(new byte[0]);
+          byte[][] args = group.toArray(new byte[group.size()][]);
+          byte[][] res = miscimpl("@getlist", args);
+          return res != null ? Arrays.asList(res) : null;
+        }
+      });
+  }
+  /**
+   * Get ranged records.
+   * @param bkey the key of the beginning border, which is inclusive.  If it is `null', the first
+   * record is specified.
+   * @param ekey the key of the ending border, which is exclusive.  If it is `null', the last
+   * record is specified.
+   * @param max the maximum number of records.  If it is negative, no limit is specified.
+   * @return a list object of the keys and the values of the records alternately in the ascending
+   * order of the keys, or `null' on failure.  Only on-memory tree database and B+ tree database
+   * support this method.
+   * @note In the multiple database mode, the results of the inner databases are merged.
+   */
+  public List<byte[]> range(byte[] bkey, byte[] ekey, int max){
+    List<byte[]> args = new ArrayList<byte[]>(3);
+    args.add(bkey != null ? bkey : new byte[0]);
+    args.add(String.valueOf(max < 0 ? 0 : max).getBytes());
+    if(ekey != null) args.add(ekey);
+    if(mulnum < 2) return misc("range", args);
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(mulnum);
+    for(int i = 0; i < mulnum; i++){
+      // the native dispatcher calls "$" names on the inner database of the first argument
+      final byte[][] targs = new byte[args.size()+1][];
+      targs[0] = String.valueOf(i).getBytes();
+      for(int j = 0; j < args.size(); j++){
+        targs[j+1] = args.get(j);
+      }
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            byte[][] res = miscimpl("$range", targs);
+            return res != null ? Arrays.asList(res) : null;
+          }
+        });
+    }
+    List<byte[]> res = invoke(tasks);
+    if(res == null) return null;
+    List<byte[][]> recs = new ArrayList<byte[][]>(res.size() / 2);
+    for(int i = 0; i + 1 < res.size(); i += 2){
+      recs.add(new byte[][] { res.get(i), res.get(i + 1) });
+    }
+    Collections.sort(recs, new Comparator<byte[][]>(){
+        public int compare(byte[][] a, byte[][] b){
+          return Util.cmpbytes(a[0], b[0]);
+        }
+      });
+    if(max >= 0 && recs.size() > max) recs = recs.subList(0, max);
+    List<byte[]> rv = new ArrayList<byte[]>(recs.size() * 2);
+    for(byte[][] rec : recs){
+      rv.add(rec[0]);
+      rv.add(rec[1]);
+    }
+    return rv;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the opaque region of the database file.
+   * @return a copy of the region, or `null' if the database is not opened or is not a database
+   * file of a concrete type.
+   */
+  native byte[] opaque();
+  /**
+   * Overwrite the head of the opaque region of the database file.
+   * @param buf the data, which is truncated to the size of the region.
+   * @return If successful, it is true, else, it is false.
+   * @note The region is a part of the header, so it is restored by the abort of a transaction.
+   */
+  native boolean setopaque(byte[] buf);
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Count the inner databases in the directory of a multiple database.
+   */
+  private static int mulcount(String path){
+    int eidx = path.lastIndexOf('.');
+    String ext = eidx >= 0 ? path.substring(eidx) : "";
+    String[] names = new File(path).list();
+    int cnum = 0;
+    for(int i = 0; names != null && i < names.length; i++){
+      if(names[i].startsWith(MULPREFIX) && names[i].endsWith(ext)) cnum++;
+    }
+    return cnum;
+  }
+  /**
+   * Get the index of the inner database of a key in the same way as the native library.
+   */
+  private static int mulidx(byte[] key, int num){
+    long hash = 20090810;
+    for(int i = key.length - 1; i >= 0; i--){
+      hash = ((hash * 29) ^ (key[i] & 0xff)) & 0xffffffffL;
+    }
+    return (int)(hash % num);
+  }
   //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
+  /**
+   * Process records in the inner databases in parallel.
+   * @param args the arguments, each group of which begins with a key.
+   * @param width the number of arguments of each group.
+   * @param batch the operation on the arguments of each inner database.
+   * @return the concatenated results or `null' on failure.
+   */
+  private List<byte[]> multi(List<byte[]> args, int width, final Batch batch){
+    List<List<byte[]>> groups = new ArrayList<List<byte[]>>(mulnum);
+    for(int i = 0; i < mulnum; i++){
+      groups.add(new ArrayList<byte[]>());
+    }
+    for(int i = 0; i + width <= args.size(); i += width){
+      List<byte[]> group = groups.get(mulidx(args.get(i), mulnum));
+      for(int j = 0; j < width; j++){
+        group.add(args.get(i + j));
+      }
+    }
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(mulnum);
+    for(final List<byte[]> group : groups){
+      if(group.isEmpty()) continue;
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            return batch.run(group);
+          }
+        });
+    }
+    return invoke(tasks);
+  }
+  /**
+   * Run tasks on the inner databases in parallel.
+   * @param tasks the tasks, each of which returns its results or `null' on failure.
+   * @return the concatenated results or `null' on failure.
+   */
+  private List<byte[]> invoke(List<Callable<List<byte[]>>> tasks){
+    List<byte[]> res = new ArrayList<byte[]>();
+    try {
+      for(Future<List<byte[]>> future : executor().invokeAll(tasks)){
+        List<byte[]> gres = future.get();
+        if(gres == null) return null;
+        res.addAll(gres);
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      return null;
+    } catch(ExecutionException e){
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause.toString());
+    }
+    return res;
+  }
+  /**
+   * Get the executor service of the inner databases, starting it if needed.
+   */
+  private synchronized ExecutorService executor(){
+    if(mulexec == null) mulexec = Executors.newCachedThreadPool(new Workers());
+    return mulexec;
+  }
+  /**
+   * Stop the worker threads of the inner databases.
+   */
+  private synchronized void shutdown(){
+    if(mulexec != null){
+      mulexec.shutdown();
+      mulexec = null;
+    }
+  }
   /**
    * Initialize the object.
    */
@@ -399,6 +687,49 @@ public class ADB implements DBM {
    * Call a versatile function for miscellaneous operations.
    */
   private native byte[][] miscimpl(String name, byte[][] args);
+  /**
+   * Open a database.
+   */
+  private native boolean openimpl(String name);
+  /**
+   * Set the multiple database skeleton.
+   */
+  private native boolean setskelmultiimpl(int num);
+  /**
+   * Close the database.
+   */
+  private native boolean closeimpl();
+  /**
+   * Store a record.
+   */
+  private native boolean putimpl(byte[] key, byte[] value);
+  /**
+   * Remove a record.
+   */
+  private native boolean outimpl(byte[] key);
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Operation on the records of an inner database.
+   */
+  private static abstract class Batch {
+    /**
+     * Process the arguments of an inner database.
+     * @return the results or `null' on failure.
+     */
+    abstract List<byte[]> run(List<byte[]> group);
+  }
+  /**
+   * Factory of the daemon worker threads of the inner databases.
+   */
+  private static class Workers implements ThreadFactory {
+    public Thread newThread(Runnable r){
+      Thread th = new Thread(r, "ADB");
+      th.setDaemon(true);
+      return th;
+    }
+  }
 }
 
 
@@ -399,6 +399,96 @@ class ADBTest {
       eprint(adb, "vanish");
       err = true;
     }
+    STDOUT.println("checking on-memory databases:");
+    DBM[] odbms = { new MDB(), new NDB() };
+    for(int i = 0; i < odbms.length; i++){
+      List<byte[]> orecs = new ArrayList<byte[]>();
+      List<byte[]> okeys = new ArrayList<byte[]>();
+      for(int j = 1; j <= rnum; j++){
+        byte[] buf = Util.itoa(j, 8, '0').getBytes();
+        orecs.add(buf);
+        orecs.add(buf);
+        okeys.add(buf);
+      }
+      List<byte[]> ores;
+      if(odbms[i] instanceof MDB){
+        MDB mdb = (MDB)odbms[i];
+        mdb.capacity(rnum, 0);
+        mdb.putlist(orecs);
+        ores = mdb.getlist(okeys);
+        mdb.get(okeys.get(0));
+        mdb.capacity(rnum / 2, 0);
+      } else {
+        NDB ndb = (NDB)odbms[i];
+        ndb.putlist(orecs);
+        ores = ndb.getlist(okeys);
+        ndb.capacity(rnum / 2, 0);
+      }
+      if(ores.size() != rnum * 2 || odbms[i].rnum() > rnum / 2 ||
+         (odbms[i] instanceof MDB && odbms[i].get(okeys.get(0)) == null)){
+        STDERR.println(ADBTest.class.getName() + ": " + odbms[i].getClass().getName() +
+                       ": (validation)");
+        err = true;
+      }
+    }
+    STDOUT.println("checking multiple database:");
+    ADB madb = new ADB();
+    String mpath = adb.path() + "-mul.tcb";
+    if(!madb.openmulti(mpath, 4, "mode=wct")){
+      eprint(madb, "openmulti");
+      err = true;
+    }
+    List<byte[]> mrecs = new ArrayList<byte[]>();
+    List<byte[]> mkeys = new ArrayList<byte[]>();
+    for(int i = 1; i <= rnum; i++){
+      byte[] buf = Util.itoa(i, 8, '0').getBytes();
+      mrecs.add(buf);
+      mrecs.add(buf);
+      mkeys.add(buf);
+    }
+    if(!madb.putlist(mrecs)){
+      eprint(madb, "putlist");
+      err = true;
+    }
+    List<byte[]> mres = madb.getlist(mkeys);
+    List<byte[]> mrange = madb.range(null, null, 10);
+    if(madb.rnum() != rnum || mres == null || mres.size() != rnum * 2 || mrange == null ||
+       mrange.size() != Math.min(rnum, 10) * 2 || !Arrays.equals(mrange.get(0), mkeys.get(0))){
+      eprint(madb, "(validation)");
+      err = true;
+    }
+    if(!madb.outlist(mkeys.subList(0, rnum / 2)) || madb.rnum() != rnum - rnum / 2 ||
+       madb.get(mkeys.get(0)) != null){
+      eprint(madb, "outlist");
+      err = true;
+    }
+    if(!madb.close()){
+      eprint(madb, "close");
+      err = true;
+    }
+    if(!madb.open(mpath + "#mode=r")){
+      eprint(madb, "open");
+      err = true;
+    }
+    if(madb.putlist(mrecs) || madb.outlist(mkeys) || madb.rnum() != rnum - rnum / 2){
+      eprint(madb, "(read only)");
+      err = true;
+    }
+    if(!madb.close()){
+      eprint(madb, "close");
+      err = true;
+    }
+    if(madb.openmulti(mpath, 3, "mode=r")){
+      eprint(madb, "openmulti (mismatch)");
+      madb.close();
+      err = true;
+    }
+    File mdir = new File(mpath);
+    String[] mfiles = mdir.list();
+    for(int i = 0; mfiles != null && i < mfiles.length; i++){
+      new File(mdir, mfiles[i]).delete();
+    }
+    mdir.delete();
     STDOUT.println("checking transaction commit:");
     if(!adb.tranbegin()){
       eprint(adb, "tranbegin");
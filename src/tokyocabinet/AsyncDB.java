@@ -0,0 +1,280 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Common base of the asynchronous facades.  Blocking native calls are run on a dedicated pool
+ * of platform threads, and queued retrievals are gathered into one task.  Each thread serves a
+ * lane of its own and operations on a key are always queued into the same lane, so that they
+ * are done in the order in which they are called.  An operation without a key holds every lane
+ * while it runs, so that it follows all the operations queued before it and precedes all the
+ * operations queued after it.
+ */
+abstract class AsyncDB<V> {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** maximum number of retrievals gathered into one native call */
+  private static final int FETCHMAX = 256;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** executor services of the lanes running the native calls */
+  private ExecutorService[] lanes;
+  /** queued retrievals of each lane */
+  private List<ConcurrentLinkedQueue<Fetch<V>>> fetches;
+  /** number of the writes queued into each lane */
+  private long[] epochs;
+  /** counter to spread the operations without a key over the lanes */
+  private AtomicInteger turn;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a facade object.
+   * @param threads the number of threads running the native calls.
+   * @param name the name of the threads.
+   */
+  AsyncDB(int threads, String name){
+    if(threads < 1) throw new IllegalArgumentException("illegal number of threads: " + threads);
+    ThreadFactory factory = new Workers(name);
+    lanes = new ExecutorService[threads];
+    fetches = new ArrayList<ConcurrentLinkedQueue<Fetch<V>>>(threads);
+    epochs = new long[threads];
+    for(int i = 0; i < threads; i++){
+      lanes[i] = Executors.newSingleThreadExecutor(factory);
+      fetches.add(new ConcurrentLinkedQueue<Fetch<V>>());
+    }
+    turn = new AtomicInteger();
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    shutdown();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Retrieve records at once.
+   * @param keys the keys.
+   * @return a list of the values in the order of the keys.
+   */
+  abstract List<V> getrecs(List<byte[]> keys);
+  /**
+   * Run a task without a key on any lane while the other lanes are held.
+   */
+  <T> Future<T> submit(final Callable<T> task){
+    int idx = (turn.getAndIncrement() & Integer.MAX_VALUE) % lanes.length;
+    if(lanes.length < 2) return lanes[idx].submit(task);
+    final CountDownLatch ready = new CountDownLatch(lanes.length - 1);
+    final CountDownLatch done = new CountDownLatch(1);
+    Runnable barrier = new Runnable(){
+        public void run(){
+          ready.countDown();
+          await(done);
+        }
+      };
+    // the barriers of tasks are queued in the same order into every lane to avoid deadlocks
+    synchronized(lanes){
+      try {
+        for(int i = 0; i < lanes.length; i++){
+          if(i != idx) lanes[i].execute(barrier);
+        }
+        return lanes[idx].submit(new Callable<T>(){
+            public T call() throws Exception {
+              try {
+                await(ready);
+                return task.call();
+              } finally {
+                done.countDown();
+              }
+            }
+          });
+      } catch(RejectedExecutionException e){
+        done.countDown();
+        throw e;
+      }
+    }
+  }
+  /**
+   * Run a writing task on the lane of a key.
+   */
+  <T> Future<T> submit(byte[] key, Callable<T> task){
+    int idx = lane(key);
+    synchronized(fetches.get(idx)){
+      epochs[idx]++;
+      return lanes[idx].submit(task);
+    }
+  }
+  /**
+   * Queue a retrieval to be gathered with other queued retrievals of the same lane.
+   */
+  Future<V> fetch(byte[] key){
+    final int idx = lane(key);
+    synchronized(fetches.get(idx)){
+      final Fetch<V> fetch = new Fetch<V>(key, epochs[idx]);
+      fetches.get(idx).add(fetch);
+      lanes[idx].execute(new Runnable(){
+          public void run(){
+            drain(idx, fetch.epoch);
+          }
+        });
+      return fetch;
+    }
+  }
+  /**
+   * Stop the threads after the queued tasks are done.
+   */
+  void shutdown(){
+    for(ExecutorService lane : lanes){
+      lane.shutdown();
+    }
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Wait for a latch regardless of interruption.
+   */
+  private static void await(CountDownLatch latch){
+    boolean intr = false;
+    while(true){
+      try {
+        latch.await();
+        break;
+      } catch(InterruptedException e){
+        intr = true;
+      }
+    }
+    if(intr) Thread.currentThread().interrupt();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the index of the lane of a key.
+   */
+  private int lane(byte[] key){
+    return (Arrays.hashCode(key) & Integer.MAX_VALUE) % lanes.length;
+  }
+  /**
+   * Run the queued retrievals of a lane at once.
+   * @param idx the index of the lane.
+   * @param epoch the number of the writes done in the lane.  Retrievals queued after later
+   * writes are left for the tasks following the writes.
+   */
+  private void drain(int idx, long epoch){
+    ConcurrentLinkedQueue<Fetch<V>> queue = fetches.get(idx);
+    List<Fetch<V>> batch = new ArrayList<Fetch<V>>();
+    Fetch<V> fetch;
+    while(batch.size() < FETCHMAX && (fetch = queue.peek()) != null && fetch.epoch <= epoch){
+      batch.add(queue.poll());
+    }
+    if(batch.isEmpty()) return;
+    List<byte[]> keys = new ArrayList<byte[]>(batch.size());
+    for(Fetch<V> elem : batch){
+      keys.add(elem.key);
+    }
+    try {
+      List<V> vals = getrecs(keys);
+      for(int i = 0; i < batch.size(); i++){
+        batch.get(i).finish(vals.get(i), null);
+      }
+    } catch(RuntimeException e){
+      for(Fetch<V> elem : batch){
+        elem.finish(null, e);
+      }
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Future of a queued retrieval.
+   */
+  private static class Fetch<V> implements Future<V> {
+    /** key */
+    byte[] key;
+    /** number of the writes queued into the lane before */
+    long epoch;
+    /** latch released on completion */
+    CountDownLatch latch;
+    /** value */
+    volatile V value;
+    /** exception thrown by the native call */
+    volatile Throwable error;
+    Fetch(byte[] key, long epoch){
+      this.key = key;
+      this.epoch = epoch;
+      this.latch = new CountDownLatch(1);
+    }
+    void finish(V value, Throwable error){
+      this.value = value;
+      this.error = error;
+      latch.countDown();
+    }
+    public boolean cancel(boolean interrupt){
+      return false;
+    }
+    public boolean isCancelled(){
+      return false;
+    }
+    public boolean isDone(){
+      return latch.getCount() == 0;
+    }
+    public V get() throws InterruptedException, ExecutionException {
+      latch.await();
+      if(error != null) throw new ExecutionException(error);
+      return value;
+    }
+    public V get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+      if(!latch.await(timeout, unit)) throw new TimeoutException();
+      if(error != null) throw new ExecutionException(error);
+      return value;
+    }
+  }
+  /**
+   * Factory of the daemon threads of the lanes.
+   */
+  private static class Workers implements ThreadFactory {
+    /** name of the threads */
+    private String name;
+    Workers(String name){
+      this.name = name;
+    }
+    public Thread newThread(Runnable r){
+      Thread th = new Thread(r, name);
+      th.setDaemon(true);
+      return th;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
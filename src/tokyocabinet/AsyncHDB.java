@@ -0,0 +1,197 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Asynchronous hash database is a facade which runs the methods of a hash database object on a
+ * dedicated pool of platform threads and returns future objects.  The caller is not blocked
+ * during native calls, which also keeps virtual threads from pinning their carrier threads.
+ * Retrievals queued at the same time are gathered into one native call.
+ * Operations on the same key are done in the order in which they are called, and the keys and
+ * the values are copied so that the caller can reuse the arrays at once.
+ * @note The number of threads should be about the number of concurrent I/O requests the storage
+ * device can serve.
+ */
+public class AsyncHDB extends AsyncDB<byte[]> {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private HDB hdb;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an asynchronous facade.
+   * @param hdb the hash database object.
+   * @param threads the number of threads running the native calls.
+   */
+  public AsyncHDB(HDB hdb, int threads){
+    super(threads, "AsyncHDB");
+    this.hdb = hdb;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the database object.
+   * @return the hash database object behind the facade.
+   */
+  public HDB hdb(){
+    return hdb;
+  }
+  /**
+   * Store a record.
+   * @return a future object of the result of `HDB#put(byte[], byte[])'.
+   * @see HDB#put(byte[], byte[])
+   */
+  public Future<Boolean> put(byte[] key, byte[] value){
+    final byte[] kbuf = key.clone();
+    final byte[] vbuf = value.clone();
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.put(kbuf, vbuf);
+        }
+      });
+  }
+  /**
+   * Store a new record.
+   * @return a future object of the result of `HDB#putkeep(byte[], byte[])'.
+   * @see HDB#putkeep(byte[], byte[])
+   */
+  public Future<Boolean> putkeep(byte[] key, byte[] value){
+    final byte[] kbuf = key.clone();
+    final byte[] vbuf = value.clone();
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.putkeep(kbuf, vbuf);
+        }
+      });
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @return a future object of the result of `HDB#putcat(byte[], byte[])'.
+   * @see HDB#putcat(byte[], byte[])
+   */
+  public Future<Boolean> putcat(byte[] key, byte[] value){
+    final byte[] kbuf = key.clone();
+    final byte[] vbuf = value.clone();
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.putcat(kbuf, vbuf);
+        }
+      });
+  }
+  /**
+   * Remove a record.
+   * @return a future object of the result of `HDB#out(byte[])'.
+   * @see HDB#out(byte[])
+   */
+  public Future<Boolean> out(byte[] key){
+    final byte[] kbuf = key.clone();
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.out(kbuf);
+        }
+      });
+  }
+  /**
+   * Retrieve a record.
+   * @return a future object of the result of `HDB#get(byte[])'.
+   * @see HDB#get(byte[])
+   * @note Retrievals queued while the threads are busy are done in one native call.
+   */
+  public Future<byte[]> get(byte[] key){
+    return fetch(key.clone());
+  }
+  /**
+   * Get forward matching keys.
+   * @return a future object of the result of `HDB#fwmkeys(byte[], int)'.
+   * @see HDB#fwmkeys(byte[], int)
+   */
+  public Future<List<byte[]>> fwmkeys(byte[] prefix, final int max){
+    final byte[] pbuf = prefix.clone();
+    return submit(new Callable<List<byte[]>>(){
+        public List<byte[]> call(){
+          return hdb.fwmkeys(pbuf, max);
+        }
+      });
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @return a future object of the result of `HDB#sync()'.
+   * @see HDB#sync()
+   */
+  public Future<Boolean> sync(){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.sync();
+        }
+      });
+  }
+  /**
+   * Optimize the file.
+   * @return a future object of the result of `HDB#optimize()'.
+   * @see HDB#optimize()
+   */
+  public Future<Boolean> optimize(){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.optimize();
+        }
+      });
+  }
+  /**
+   * Copy the database file.
+   * @return a future object of the result of `HDB#copy(String)'.
+   * @see HDB#copy(String)
+   */
+  public Future<Boolean> copy(final String path){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return hdb.copy(path);
+        }
+      });
+  }
+  /**
+   * Stop the threads after the queued tasks are done.
+   * @note The database object is not closed.
+   */
+  public void shutdown(){
+    super.shutdown();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Retrieve records in one native call.
+   */
+  List<byte[]> getrecs(List<byte[]> keys){
+    return Arrays.asList(hdb.getrecs(keys.toArray(new byte[keys.size()][])));
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,231 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Asynchronous table database is a facade which runs the methods of a table database object and
+ * of its query objects on a dedicated pool of platform threads and returns future objects.  The
+ * caller is not blocked during native calls, which also keeps virtual threads from pinning
+ * their carrier threads.  Retrievals queued at the same time are gathered into one task.
+ * Operations on the same key are done in the order in which they are called, and the keys and
+ * the values are copied so that the caller can reuse the arrays at once.
+ * @note The number of threads should be about the number of concurrent I/O requests the storage
+ * device can serve.
+ */
+public class AsyncTDB extends AsyncDB<Map<String, byte[]>> {
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Copy a map object of columns so that the caller can reuse it.
+   */
+  private static Map copycols(Map cols){
+    Map<Object, Object> ccols = new LinkedHashMap<Object, Object>();
+    for(Object elem : cols.entrySet()){
+      Map.Entry ent = (Map.Entry)elem;
+      Object value = ent.getValue();
+      ccols.put(ent.getKey(), value instanceof byte[] ? ((byte[])value).clone() : value);
+    }
+    return ccols;
+  }
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private TDB tdb;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an asynchronous facade.
+   * @param tdb the table database object.
+   * @param threads the number of threads running the native calls.
+   */
+  public AsyncTDB(TDB tdb, int threads){
+    super(threads, "AsyncTDB");
+    this.tdb = tdb;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the database object.
+   * @return the table database object behind the facade.
+   */
+  public TDB tdb(){
+    return tdb;
+  }
+  /**
+   * Store a record.
+   * @return a future object of the result of `TDB#put(byte[], Map)'.
+   * @see TDB#put(byte[], Map)
+   */
+  public Future<Boolean> put(byte[] pkey, Map cols){
+    final byte[] kbuf = pkey.clone();
+    final Map ccols = copycols(cols);
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.put(kbuf, ccols);
+        }
+      });
+  }
+  /**
+   * Store a new record.
+   * @return a future object of the result of `TDB#putkeep(byte[], Map)'.
+   * @see TDB#putkeep(byte[], Map)
+   */
+  public Future<Boolean> putkeep(byte[] pkey, Map cols){
+    final byte[] kbuf = pkey.clone();
+    final Map ccols = copycols(cols);
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.putkeep(kbuf, ccols);
+        }
+      });
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @return a future object of the result of `TDB#putcat(byte[], Map)'.
+   * @see TDB#putcat(byte[], Map)
+   */
+  public Future<Boolean> putcat(byte[] pkey, Map cols){
+    final byte[] kbuf = pkey.clone();
+    final Map ccols = copycols(cols);
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.putcat(kbuf, ccols);
+        }
+      });
+  }
+  /**
+   * Remove a record.
+   * @return a future object of the result of `TDB#out(byte[])'.
+   * @see TDB#out(byte[])
+   */
+  public Future<Boolean> out(byte[] pkey){
+    final byte[] kbuf = pkey.clone();
+    return submit(kbuf, new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.out(kbuf);
+        }
+      });
+  }
+  /**
+   * Retrieve a record.
+   * @return a future object of the result of `TDB#get(byte[])'.
+   * @see TDB#get(byte[])
+   * @note Retrievals queued while the threads are busy are done in one task.
+   */
+  public Future<Map<String, byte[]>> get(byte[] pkey){
+    return fetch(pkey.clone());
+  }
+  /**
+   * Execute a search.
+   * @param qry the query object of the database.
+   * @return a future object of the result of `TDBQRY#search()'.
+   * @see TDBQRY#search()
+   * @note The query object should not be modified until the search is done.
+   */
+  public Future<List<byte[]>> search(final TDBQRY qry){
+    return submit(new Callable<List<byte[]>>(){
+        public List<byte[]> call(){
+          return qry.search();
+        }
+      });
+  }
+  /**
+   * Remove each record corresponding to a query.
+   * @param qry the query object of the database.
+   * @return a future object of the result of `TDBQRY#searchout()'.
+   * @see TDBQRY#searchout()
+   * @note The query object should not be modified until the search is done.
+   */
+  public Future<Boolean> searchout(final TDBQRY qry){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return qry.searchout();
+        }
+      });
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @return a future object of the result of `TDB#sync()'.
+   * @see TDB#sync()
+   */
+  public Future<Boolean> sync(){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.sync();
+        }
+      });
+  }
+  /**
+   * Optimize the file.
+   * @return a future object of the result of `TDB#optimize()'.
+   * @see TDB#optimize()
+   */
+  public Future<Boolean> optimize(){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.optimize();
+        }
+      });
+  }
+  /**
+   * Copy the database file.
+   * @return a future object of the result of `TDB#copy(String)'.
+   * @see TDB#copy(String)
+   */
+  public Future<Boolean> copy(final String path){
+    return submit(new Callable<Boolean>(){
+        public Boolean call(){
+          return tdb.copy(path);
+        }
+      });
+  }
+  /**
+   * Stop the threads after the queued tasks are done.
+   * @note The database object is not closed.
+   */
+  public void shutdown(){
+    super.shutdown();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Retrieve records one by one in the same task.
+   */
+  List<Map<String, byte[]>> getrecs(List<byte[]> pkeys){
+    List<Map<String, byte[]>> recs = new ArrayList<Map<String, byte[]>>(pkeys.size());
+    for(byte[] pkey : pkeys){
+      recs.add(tdb.get(pkey));
+    }
+    return recs;
+  }
+}
+
+
+
+/* END OF FILE */
@@ -134,7 +134,25 @@ public class BDBCUR {
    * at invalid position.
    * @note After insertion, the cursor is moved to the inserted record.
    */
-  public native boolean put(byte[] value, int cpmode);
+  public boolean put(byte[] value, int cpmode){
+    Rebuilder rb = bdb.rebuilder();
+    ChangeLog log = bdb.changelog();
+    if(rb == null && log == null) return putimpl(value, cpmode);
+    if(rb != null) rb.enter();
+    if(log != null) log.lock();
+    try {
+      byte[] key = key();
+      boolean rv = putimpl(value, cpmode);
+      if(rv && key != null){
+        if(rb != null) rb.touch(key);
+        if(log != null) log.list(bdb, key);
+      }
+      return rv;
+    } finally {
+      if(log != null) log.unlock();
+      if(rb != null) rb.leave();
+    }
+  }
   /**
    * Insert a record around the cursor.
    * The same as `put(value.getBytes(), cpmode)'.
@@ -149,7 +167,25 @@ public class BDBCUR {
    * at invalid position.
    * @note After deletion, the cursor is moved to the next record if possible.
    */
-  public native boolean out();
+  public boolean out(){
+    Rebuilder rb = bdb.rebuilder();
+    ChangeLog log = bdb.changelog();
+    if(rb == null && log == null) return outimpl();
+    if(rb != null) rb.enter();
+    if(log != null) log.lock();
+    try {
+      byte[] key = key();
+      boolean rv = outimpl();
+      if(rv && key != null){
+        if(rb != null) rb.touch(key);
+        if(log != null) log.list(bdb, key);
+      }
+      return rv;
+    } finally {
+      if(log != null) log.unlock();
+      if(rb != null) rb.leave();
+    }
+  }
   /**
    * Get the key of the record where the cursor is.
    * @return If successful, it is the key, else, it is `null'.  'null' is returned when the
@@ -181,6 +217,18 @@ public class BDBCUR {
     return tval != null ? Util.otos(tval) : null;
   }
   //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get records from the cursor forward in one native call.
+   * @param max the maximum number of records.
+   * @param skey the key at which to stop, or `null' to read up to the end of the database.
+   * @return an array of the keys and the values of the records alternately.  The cursor is moved
+   * to the record after the last one.  If it is shorter than twice of `max', the end of the
+   * database or the stop key is reached, or the cursor is at invalid position.
+   */
+  native byte[][] recs(int max, byte[] skey);
+  //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
   /**
@@ -191,6 +239,14 @@ public class BDBCUR {
    * Release resources.
    */
   private native void destruct();
+  /**
+   * Insert a record around the cursor.
+   */
+  private native boolean putimpl(byte[] value, int cpmode);
+  /**
+   * Remove the record where the cursor is.
+   */
+  private native boolean outimpl();
 }
 
 
@@ -556,6 +556,377 @@ class BDBTest {
       eprint(bdb, "tranbegin");
       err = true;
     }
+    STDOUT.println("checking sharded database:");
+    byte[][] sbounds = { Util.itoa(rnum / 3, 8, '0').getBytes(),
+                         Util.itoa(rnum / 3 * 2, 8, '0').getBytes() };
+    for(int i = 0; i < 2; i++){
+      BDB[] sbdbs = { new BDB(), new BDB(), new BDB() };
+      ShardedDBM sdbm = i == 0 ? new ShardedDBM(sbdbs) : new ShardedDBM(sbdbs, sbounds);
+      String spath = path + "-s";
+      if(!sdbm.open(spath, BDB.OWRITER | BDB.OCREAT | BDB.OTRUNC | omode)){
+        eprint(bdb, "sharded::open");
+        err = true;
+      }
+      List<byte[]> srecs = new ArrayList<byte[]>();
+      for(int j = rnum; j >= 1; j--){
+        byte[] buf = Util.itoa(j, 8, '0').getBytes();
+        srecs.add(buf);
+        srecs.add(buf);
+      }
+      if(!sdbm.putlist(srecs)){
+        eprint(bdb, "sharded::putlist");
+        err = true;
+      }
+      String fkey = Util.itoa(1, 8, '0');
+      String lkey = Util.itoa(rnum, 8, '0');
+      List<String> sfkeys = sdbm.fwmkeys("0", -1);
+      List<String> srkeys = sdbm.range(fkey, false, lkey, true, -1);
+      List<byte[]> sgrecs = sdbm.getlist(Util.stringsAsBytes(sfkeys));
+      if(sdbm.rnum() != rnum || !fkey.equals(sdbm.get(fkey)) || sfkeys.size() != rnum ||
+         !sfkeys.get(0).equals(fkey) || srkeys.size() != rnum - 1 ||
+         !srkeys.get(srkeys.size() - 1).equals(lkey) || sgrecs.size() != rnum * 2){
+        eprint(bdb, "(validation)");
+        err = true;
+      }
+      if(!sdbm.iterinit()){
+        eprint(bdb, "sharded::iterinit");
+        err = true;
+      }
+      String pkey = null;
+      inum = 0;
+      while((key = sdbm.iternext2()) != null){
+        if(pkey != null && pkey.compareTo(key) >= 0){
+          eprint(bdb, "sharded::iternext");
+          err = true;
+          break;
+        }
+        pkey = key;
+        inum++;
+      }
+      long smnum = 0;
+      long sminrnum = rnum;
+      for(ShardedDBM.Stat stat : sdbm.stats()){
+        smnum += stat.mnum();
+        sminrnum = Math.min(sminrnum, stat.rnum());
+      }
+      if(inum != rnum || smnum != rnum || (rnum >= 10 && sminrnum < 1)){
+        eprint(bdb, "(validation)");
+        err = true;
+      }
+      if(!sdbm.close()){
+        eprint(bdb, "sharded::close");
+        err = true;
+      }
+      for(int j = 0; j < sdbm.snum(); j++){
+        new File(spath + "-" + j).delete();
+      }
+    }
+    STDOUT.println("checking group commit:");
+    final BDB gbdb = bdb;
+    final GroupCommit gc = new GroupCommit(bdb, 8, 1000);
+    final boolean[] gerrs = new boolean[4];
+    Thread[] gths = new Thread[gerrs.length];
+    for(int i = 0; i < gths.length; i++){
+      final int tid = i;
+      final int tnum = rnum / gths.length;
+      gths[i] = new Thread(){
+          public void run(){
+            for(int j = 1; j <= tnum; j++){
+              final String buf = "<" + tid + ":" + Util.itoa(j, 8, '0') + ">";
+              boolean ok = gc.commit(new GroupCommit.Task(){
+                  public boolean proc(){
+                    return gbdb.put(buf, buf);
+                  }
+                });
+              if(!ok) gerrs[tid] = true;
+            }
+          }
+        };
+      gths[i].start();
+    }
+    for(int i = 0; i < gths.length; i++){
+      try {
+        gths[i].join();
+      } catch(InterruptedException e){
+        err = true;
+      }
+      if(gerrs[i]){
+        eprint(bdb, "group::commit");
+        err = true;
+      }
+    }
+    boolean gok = gc.commit(new GroupCommit.Task(){
+        public boolean proc(){
+          gbdb.put("<x>", "x");
+          return false;
+        }
+      });
+    if(gok || bdb.get("<x>") != null || gc.gnum() < 1 || gc.tnum() > gc.gnum() * 8 ||
+       gc.tnum() != rnum / gths.length * gths.length ||
+       bdb.fwmkeys("<", -1).size() != gc.tnum()){
+      eprint(bdb, "(validation)");
+      err = true;
+    }
+    Iterator git = bdb.fwmkeys("<", -1).iterator();
+    while(git.hasNext()){
+      bdb.out((String)git.next());
+    }
+    STDOUT.println("checking record publisher:");
+    for(int i = 1; i <= rnum; i++){
+      String buf = "{" + Util.itoa(i, 8, '0') + "}";
+      bdb.put(buf, buf);
+    }
+    final List<byte[]> pkeys = new ArrayList<byte[]>();
+    final int[] pcnts = new int[3];
+    final Subscription[] psubs = new Subscription[1];
+    RecordPublisher.range(bdb, "{".getBytes(), true, "}".getBytes(), false).subscribe(
+      new Subscriber<Map.Entry<byte[], byte[]>>(){
+        public void onSubscribe(Subscription subscription){
+          psubs[0] = subscription;
+        }
+        public void onNext(Map.Entry<byte[], byte[]> rec){
+          if(!Arrays.equals(rec.getKey(), rec.getValue())) pcnts[1]++;
+          pkeys.add(rec.getKey());
+          if(pkeys.size() % 7 == 0) psubs[0].request(7);
+        }
+        public void onError(Throwable error){
+          pcnts[1]++;
+        }
+        public void onComplete(){
+          pcnts[0]++;
+        }
+      });
+    psubs[0].request(7);
+    if(pkeys.size() != rnum || pcnts[0] != 1 || pcnts[1] != 0 ||
+       !new String(pkeys.get(rnum - 1)).equals("{" + Util.itoa(rnum, 8, '0') + "}")){
+      eprint(bdb, "(validation)");
+      err = true;
+    }
+    pkeys.clear();
+    RecordPublisher.range(bdb, null, true, null, true).subscribe(
+      new Subscriber<Map.Entry<byte[], byte[]>>(){
+        public void onSubscribe(Subscription subscription){
+          psubs[0] = subscription;
+        }
+        public void onNext(Map.Entry<byte[], byte[]> rec){
+          pkeys.add(rec.getKey());
+          if(pkeys.size() == 10) psubs[0].cancel();
+        }
+        public void onError(Throwable error){
+          pcnts[2]++;
+        }
+        public void onComplete(){
+          pcnts[2]++;
+        }
+      });
+    psubs[0].request(Long.MAX_VALUE);
+    psubs[0].request(5);
+    if(pkeys.size() != 10 || pcnts[2] != 0){
+      eprint(bdb, "(validation)");
+      err = true;
+    }
+    for(int i = 1; i <= 20; i++){
+      bdb.putdup("{dup}", Util.itoa(i, 2, '0'));
+    }
+    final List<byte[]> pdups = new ArrayList<byte[]>();
+    RecordPublisher.range(bdb, "{dup}".getBytes(), true, "{dup}".getBytes(), true).subscribe(
+      new Subscriber<Map.Entry<byte[], byte[]>>(){
+        public void onSubscribe(Subscription subscription){
+          psubs[0] = subscription;
+        }
+        public void onNext(Map.Entry<byte[], byte[]> rec){
+          pdups.add(rec.getValue());
+          if(pdups.size() % 7 == 0) psubs[0].request(7);
+        }
+        public void onError(Throwable error){
+          pcnts[2]++;
+        }
+        public void onComplete(){}
+      });
+    psubs[0].request(7);
+    if(pdups.size() != 20 || pcnts[2] != 0 || !new String(pdups.get(19)).equals("20")){
+      eprint(bdb, "(validation)");
+      err = true;
+    }
+    bdb.outlist("{dup}");
+    for(int i = 1; i <= rnum; i++){
+      bdb.out("{" + Util.itoa(i, 8, '0') + "}");
+    }
+    STDOUT.println("checking statistics:");
+    Stats bstats = bdb.stats();
+    if(bstats.get("rnum") != bdb.rnum() || bstats.get("lnum") < 1 || bstats.get("nnum") < 0 ||
+       bstats.get("leafc") > bstats.get("lnum") || bstats.get("hdb.rnum") < 1 ||
+       bstats.get("hdb.bnumused") < 1){
+      eprint(bdb, "(validation)");
+      err = true;
+    }
+    STDOUT.println("checking online rebuild:");
+    String orpath = path + "-r";
+    final OnlineBDB obdb = new OnlineBDB();
+    if(!obdb.open(orpath, BDB.OWRITER | BDB.OCREAT | BDB.OTRUNC | omode)){
+      eprint(obdb, "open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      obdb.put(buf, buf + buf + buf + buf + buf + buf + buf + buf);
+    }
+    for(int i = 1; i <= rnum; i += 2){
+      obdb.out(Util.itoa(i, 8, '0'));
+    }
+    if(!obdb.sync()){
+      eprint(obdb, "sync");
+      err = true;
+    }
+    long rbfsiz = obdb.fsiz();
+    final int rbrnum = rnum;
+    Thread writer = new Thread(){
+        public void run(){
+          for(int i = 1; i <= rbrnum; i++){
+            String buf = Util.itoa(i, 8, '0');
+            if(i % 4 == 0){
+              obdb.out(buf);
+            } else if(i % 2 == 0){
+              obdb.putdup(buf, buf);
+            }
+          }
+        }
+      };
+    writer.start();
+    if(!obdb.rebuild()){
+      eprint(obdb, "rebuild");
+      err = true;
+    }
+    try {
+      writer.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    if(!obdb.sync()){
+      eprint(obdb, "sync");
+      err = true;
+    }
+    if(obdb.rnum() != (rnum / 4 + rnum % 4 / 2) * 2 || obdb.fsiz() >= rbfsiz){
+      eprint(obdb, "(validation)");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      List<byte[]> rbvals = obdb.getlist(buf.getBytes());
+      boolean ok;
+      if(i % 4 == 0 || i % 2 == 1){
+        ok = rbvals == null;
+      } else {
+        ok = rbvals != null && rbvals.size() == 2 && rbvals.get(0).length == 64 &&
+          new String(rbvals.get(1)).equals(buf);
+      }
+      if(!ok){
+        eprint(obdb, "getlist");
+        err = true;
+        break;
+      }
+    }
+    if(!obdb.close()){
+      eprint(obdb, "close");
+      err = true;
+    }
+    new File(orpath).delete();
+    STDOUT.println("checking change log:");
+    String clpath = path + "-l";
+    String clrpath = path + "-b";
+    new File(clpath).delete();
+    ChangeLog log = new ChangeLog(32, 10);
+    if(!log.open(clpath)){
+      eprint(bdb, "(log open)");
+      err = true;
+    }
+    LoggedBDB lbdb = new LoggedBDB(log);
+    if(!lbdb.open(orpath, BDB.OWRITER | BDB.OCREAT | BDB.OTRUNC | omode)){
+      eprint(lbdb, "open");
+      err = true;
+    }
+    BDB rbdb = new BDB();
+    if(!rbdb.open(clrpath, BDB.OWRITER | BDB.OCREAT | BDB.OTRUNC | omode)){
+      eprint(rbdb, "open");
+      err = true;
+    }
+    Replica replica = new Replica(clpath, rbdb, 0);
+    replica.start(10);
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(i % 4 == 0){
+        lbdb.putdup(Util.itoa(i / 8, 8, '0'), buf);
+      } else if(i % 4 == 1){
+        List<String> clvals = new ArrayList<String>();
+        clvals.add(buf);
+        clvals.add(buf + buf);
+        lbdb.putlist(buf, clvals);
+      } else {
+        lbdb.put(buf, buf);
+      }
+    }
+    BDBCUR clcur = new BDBCUR(lbdb);
+    clcur.first();
+    for(int i = 1; clcur.key() != null; i++){
+      if(i % 3 == 0){
+        clcur.out();
+      } else if(i % 3 == 1){
+        clcur.put(Util.itoa(i, 8, '0'), BDBCUR.CPAFTER);
+        clcur.next();
+        clcur.next();
+      } else {
+        clcur.put("+", BDBCUR.CPCURRENT);
+        clcur.next();
+      }
+    }
+    for(int i = 1; i <= rnum; i += 5){
+      lbdb.outlist(Util.itoa(i, 8, '0'));
+    }
+    if(!log.flush()){
+      eprint(lbdb, "(log flush)");
+      err = true;
+    }
+    for(int i = 0; i < 1000 && replica.seq() < log.seq(); i++){
+      try {
+        Thread.sleep(10);
+      } catch(InterruptedException e){
+        err = true;
+      }
+    }
+    replica.shutdown();
+    if(replica.apply() < 0 || replica.seq() != log.seq() || rbdb.rnum() != lbdb.rnum()){
+      eprint(rbdb, "(apply) " + replica.errmsg());
+      err = true;
+    }
+    clcur = new BDBCUR(lbdb);
+    BDBCUR clrcur = new BDBCUR(rbdb);
+    clcur.first();
+    clrcur.first();
+    while(clcur.key() != null){
+      if(!Arrays.equals(clcur.key(), clrcur.key()) || !Arrays.equals(clcur.val(), clrcur.val())){
+        eprint(rbdb, "(validation)");
+        err = true;
+        break;
+      }
+      clcur.next();
+      clrcur.next();
+    }
+    replica.close();
+    if(!rbdb.close()){
+      eprint(rbdb, "close");
+      err = true;
+    }
+    if(!lbdb.close()){
+      eprint(lbdb, "close");
+      err = true;
+    }
+    if(!log.close()){
+      eprint(bdb, "(log close)");
+      err = true;
+    }
+    new File(clrpath).delete();
+    new File(clpath).delete();
+    new File(orpath).delete();
     STDOUT.println("checking common interface:");
     DBM dbm = bdb;
     for(int i = 1; i <= rnum; i++){
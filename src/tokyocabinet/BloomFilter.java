@@ -0,0 +1,211 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Bloom filter is a set of keys which may answer false positives but never false negatives.
+ * Keys can be added concurrently by multiple threads.  Keys can not be removed.
+ */
+public class BloomFilter {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** magic data of the serialized form */
+  private static final int MAGIC = 0x54434246;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** words of the bit array */
+  private AtomicLongArray words;
+  /** number of bits */
+  private long bnum;
+  /** number of hash functions */
+  private int hnum;
+  /** number of added keys */
+  private AtomicLong anum;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a Bloom filter object.
+   * @param expnum the expected number of keys.
+   * @param fprate the false positive rate expected when the number of keys reaches `expnum'.
+   */
+  public BloomFilter(long expnum, double fprate){
+    if(expnum < 1) expnum = 1;
+    if(!(fprate > 0.0 && fprate < 1.0))
+      throw new IllegalArgumentException("illegal false positive rate: " + fprate);
+    double ln2 = Math.log(2.0);
+    long bits = (long)Math.ceil(-expnum * Math.log(fprate) / (ln2 * ln2));
+    int hashes = (int)Math.round((double)bits / expnum * ln2);
+    init(bits, Math.max(hashes, 1));
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Add a key.
+   * @param key the key.
+   */
+  public void add(byte[] key){
+    long hash = hash(key);
+    long h1 = hash >>> 32;
+    long h2 = (hash & 0xffffffffL) | 1;
+    for(int i = 0; i < hnum; i++){
+      long idx = (h1 + i * h2) % bnum;
+      int widx = (int)(idx >>> 6);
+      long mask = 1L << (idx & 63);
+      while(true){
+        long word = words.get(widx);
+        if((word & mask) != 0 || words.compareAndSet(widx, word, word | mask)) break;
+      }
+    }
+    anum.incrementAndGet();
+  }
+  /**
+   * Check whether a key may have been added.
+   * @param key the key.
+   * @return If the key may have been added, it is true.  If the key has never been added, it is
+   * false.
+   */
+  public boolean check(byte[] key){
+    long hash = hash(key);
+    long h1 = hash >>> 32;
+    long h2 = (hash & 0xffffffffL) | 1;
+    for(int i = 0; i < hnum; i++){
+      long idx = (h1 + i * h2) % bnum;
+      if((words.get((int)(idx >>> 6)) & (1L << (idx & 63))) == 0) return false;
+    }
+    return true;
+  }
+  /**
+   * Get the number of bits.
+   * @return the number of bits of the bit array.
+   */
+  public long bnum(){
+    return bnum;
+  }
+  /**
+   * Get the number of hash functions.
+   * @return the number of bits set for each key.
+   */
+  public int hnum(){
+    return hnum;
+  }
+  /**
+   * Get the number of added keys.
+   * @return the number of keys added, including duplicated keys.
+   */
+  public long anum(){
+    return anum.get();
+  }
+  /**
+   * Get the estimated false positive rate.
+   * @return the probability that a key never added is reported to be added, estimated by the
+   * ratio of the bits set.
+   */
+  public double fprate(){
+    long set = 0;
+    for(int i = 0; i < words.length(); i++){
+      set += Long.bitCount(words.get(i));
+    }
+    return Math.pow((double)set / bnum, hnum);
+  }
+  /**
+   * Get the size of used memory.
+   * @return the size of the bit array in bytes.
+   */
+  public long msiz(){
+    return words.length() * 8L;
+  }
+  /**
+   * Write the filter into a stream.
+   * @param out the output stream.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void save(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeLong(bnum);
+    out.writeInt(hnum);
+    out.writeLong(anum.get());
+    for(int i = 0; i < words.length(); i++){
+      out.writeLong(words.get(i));
+    }
+  }
+  /**
+   * Read a filter from a stream.
+   * @param in the input stream.
+   * @return the filter object.
+   * @throws IOException if an I/O error occurs or the data is broken.
+   */
+  public static BloomFilter load(DataInputStream in) throws IOException {
+    if(in.readInt() != MAGIC) throw new IOException("invalid magic data");
+    long bnum = in.readLong();
+    int hnum = in.readInt();
+    if(bnum < 64 || bnum > (long)Integer.MAX_VALUE * 64 || hnum < 1)
+      throw new IOException("broken header");
+    BloomFilter filter = new BloomFilter(1, 0.5);
+    filter.init(bnum, hnum);
+    filter.anum.set(in.readLong());
+    for(int i = 0; i < filter.words.length(); i++){
+      filter.words.set(i, in.readLong());
+    }
+    return filter;
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Get the 64-bit hash value of a key.
+   */
+  private static long hash(byte[] key){
+    long hash = 0xcbf29ce484222325L;
+    for(int i = 0; i < key.length; i++){
+      hash = (hash ^ (key[i] & 0xff)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the fields.
+   */
+  private void init(long bnum, int hnum){
+    int wnum = (int)Math.min((bnum + 63) / 64, Integer.MAX_VALUE);
+    this.words = new AtomicLongArray(Math.max(wnum, 1));
+    this.bnum = this.words.length() * 64L;
+    this.hnum = hnum;
+    this.anum = new AtomicLong();
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,529 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Cached DBM is a read-through cache of records in front of a database object.  Retrieved
+ * records are kept in the Java heap so that retrieving a hot record does not cross the native
+ * interface.  The cache is partitioned into stripes, each of which evicts records by the CLOCK
+ * algorithm.  Cache hits take no lock.  Concurrent misses on the same key are coalesced so that
+ * the database is read only once.  Storing and removing records through this object
+ * invalidates the cached records.
+ * @note Records modified through the database object directly are not reflected to the cache.
+ * Call `clear' after modifying the database object directly, for example by `vanish'.
+ */
+public class CachedDBM implements DBM {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** maximum number of stripes */
+  private static final int STRIPENUM = 16;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private DBM dbm;
+  /** whether to cache missing records */
+  private boolean negative;
+  /** cached records */
+  private ConcurrentHashMap<Key, Entry> entries;
+  /** retrievals in progress */
+  private ConcurrentHashMap<Key, FutureTask<byte[]>> loads;
+  /** stripes of the cache */
+  private Stripe[] stripes;
+  /** number of cache hits */
+  private AtomicLong hitnum;
+  /** number of cache misses */
+  private AtomicLong missnum;
+  /** number of retrievals from the database */
+  private AtomicLong loadnum;
+  /** number of evicted records */
+  private AtomicLong evictnum;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a cached DBM object.
+   * The same as `CachedDBM(dbm, capacity, true)'.
+   * @see #CachedDBM(DBM, int, boolean)
+   */
+  public CachedDBM(DBM dbm, int capacity){
+    this(dbm, capacity, true);
+  }
+  /**
+   * Create a cached DBM object.
+   * @param dbm the database object.
+   * @param capacity the maximum number of cached records.
+   * @param negative whether to cache the absence of missing records.
+   */
+  public CachedDBM(DBM dbm, int capacity, boolean negative){
+    if(capacity < 1) throw new IllegalArgumentException("illegal capacity: " + capacity);
+    this.dbm = dbm;
+    this.negative = negative;
+    int snum = 1;
+    while(snum < STRIPENUM && snum * 2 <= capacity){
+      snum *= 2;
+    }
+    entries = new ConcurrentHashMap<Key, Entry>(capacity + capacity / 3 + 1, 0.75f, snum);
+    loads = new ConcurrentHashMap<Key, FutureTask<byte[]>>(16, 0.75f, snum);
+    stripes = new Stripe[snum];
+    for(int i = 0; i < snum; i++){
+      stripes[i] = new Stripe(capacity / snum + (i < capacity % snum ? 1 : 0));
+    }
+    hitnum = new AtomicLong();
+    missnum = new AtomicLong();
+    loadnum = new AtomicLong();
+    evictnum = new AtomicLong();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the database object.
+   * @return the database object behind the cache.
+   */
+  public DBM dbm(){
+    return dbm;
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    boolean rv = dbm.put(key, value);
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(String, String)
+   */
+  public boolean put(String key, String value){
+    return put(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    boolean rv = dbm.putkeep(key, value);
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(String, String)
+   */
+  public boolean putkeep(String key, String value){
+    return putkeep(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @param key the key.
+   * @param value the value.
+   * @return If successful, it is true, else, it is false.
+   * @note If there is no corresponding record, a new record is created.  If the database object
+   * does not support concatenation, the record is retrieved and stored again.
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    boolean rv;
+    if(dbm instanceof HDB){
+      rv = ((HDB)dbm).putcat(key, value);
+    } else if(dbm instanceof BDB){
+      rv = ((BDB)dbm).putcat(key, value);
+    } else if(dbm instanceof FDB){
+      rv = ((FDB)dbm).putcat(key, value);
+    } else if(dbm instanceof ADB){
+      rv = ((ADB)dbm).putcat(key, value);
+    } else if(dbm instanceof MDB){
+      rv = ((MDB)dbm).putcat(key, value);
+    } else if(dbm instanceof NDB){
+      rv = ((NDB)dbm).putcat(key, value);
+    } else {
+      byte[] ovalue = dbm.get(key);
+      if(ovalue != null){
+        byte[] nvalue = new byte[ovalue.length+value.length];
+        System.arraycopy(ovalue, 0, nvalue, 0, ovalue.length);
+        System.arraycopy(value, 0, nvalue, ovalue.length, value.length);
+        value = nvalue;
+      }
+      rv = dbm.put(key, value);
+    }
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * The same as `putcat(key.getBytes(), value.getBytes())'.
+   * @see #putcat(byte[], byte[])
+   */
+  public boolean putcat(String key, String value){
+    return putcat(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(byte[])
+   */
+  public boolean out(byte[] key){
+    boolean rv = dbm.out(key);
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(String)
+   */
+  public boolean out(String key){
+    return out(key.getBytes());
+  }
+  /**
+   * Retrieve a record.
+   * @param key the key.
+   * @return If successful, it is the value of the corresponding record.  `null' is returned if
+   * no record corresponds.
+   * @note If the record is not cached, it is retrieved from the database object and cached.
+   * While a record is being retrieved, other threads retrieving the same key wait for the result
+   * instead of reading the database object.
+   */
+  public byte[] get(byte[] key){
+    Key ckey = new Key(key);
+    Entry entry = entries.get(ckey);
+    if(entry != null){
+      entry.ref = true;
+      hitnum.incrementAndGet();
+      return entry.value != null ? entry.value.clone() : null;
+    }
+    missnum.incrementAndGet();
+    FutureTask<byte[]> task = loads.get(ckey);
+    if(task == null){
+      final byte[] kbuf = key.clone();
+      FutureTask<byte[]> ntask = new FutureTask<byte[]>(new Callable<byte[]>(){
+          public byte[] call(){
+            loadnum.incrementAndGet();
+            return dbm.get(kbuf);
+          }
+        });
+      ckey = new Key(kbuf);
+      task = loads.putIfAbsent(ckey, ntask);
+      if(task == null){
+        task = ntask;
+        ntask.run();
+        Stripe stripe = stripe(ckey);
+        synchronized(stripe){
+          if(loads.remove(ckey, ntask)){
+            byte[] value = await(ntask);
+            if(value != null || negative) store(stripe, ckey, value);
+          }
+        }
+      }
+    }
+    byte[] value = await(task);
+    return value != null ? value.clone() : null;
+  }
+  /**
+   * Retrieve a record.
+   * @see DBM#get(String)
+   */
+  public String get(String key){
+    byte[] value = get(key.getBytes());
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Initialize the iterator.
+   * @see DBM#iterinit()
+   */
+  public boolean iterinit(){
+    return dbm.iterinit();
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext()
+   */
+  public byte[] iternext(){
+    return dbm.iternext();
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext2()
+   */
+  public String iternext2(){
+    return dbm.iternext2();
+  }
+  /**
+   * Get forward matching keys.
+   * @see DBM#fwmkeys(byte[], int)
+   */
+  public List fwmkeys(byte[] prefix, int max){
+    return dbm.fwmkeys(prefix, max);
+  }
+  /**
+   * Get forward matching keys.
+   * @see DBM#fwmkeys(String, int)
+   */
+  public List fwmkeys(String prefix, int max){
+    return dbm.fwmkeys(prefix, max);
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    int rv = dbm.addint(key, num);
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(String, int)
+   */
+  public int addint(String key, int num){
+    return addint(key.getBytes(), num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    double rv = dbm.adddouble(key, num);
+    invalidate(key);
+    return rv;
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(String, double)
+   */
+  public double adddouble(String key, double num){
+    return adddouble(key.getBytes(), num);
+  }
+  /**
+   * Get the number of records.
+   * @see DBM#rnum()
+   */
+  public long rnum(){
+    return dbm.rnum();
+  }
+  /**
+   * Get the size of the database file.
+   * @see DBM#fsiz()
+   */
+  public long fsiz(){
+    return dbm.fsiz();
+  }
+  /**
+   * Remove all cached records.
+   * @note Retrievals in progress are not cached either.
+   */
+  public void clear(){
+    for(Stripe stripe : stripes){
+      synchronized(stripe){
+        for(int i = 0; i < stripe.num; i++){
+          entries.remove(stripe.ring[i].key);
+          stripe.ring[i] = null;
+        }
+        stripe.num = 0;
+        stripe.hand = 0;
+        Iterator<Key> it = loads.keySet().iterator();
+        while(it.hasNext()){
+          if(stripe(it.next()) == stripe) it.remove();
+        }
+      }
+    }
+  }
+  /**
+   * Get the number of cached records.
+   * @return the number of cached records including the cached absence of missing records.
+   */
+  public long cnum(){
+    return entries.size();
+  }
+  /**
+   * Get the number of cache hits.
+   * @return the number of retrievals answered by the cache since the object was created.
+   */
+  public long hitnum(){
+    return hitnum.get();
+  }
+  /**
+   * Get the number of cache misses.
+   * @return the number of retrievals not answered by the cache since the object was created.
+   */
+  public long missnum(){
+    return missnum.get();
+  }
+  /**
+   * Get the number of retrievals from the database object.
+   * @return the number of retrievals from the database object since the object was created.  It
+   * is less than the number of cache misses when concurrent misses are coalesced.
+   */
+  public long loadnum(){
+    return loadnum.get();
+  }
+  /**
+   * Get the number of evicted records.
+   * @return the number of records evicted from the cache since the object was created.
+   */
+  public long evictnum(){
+    return evictnum.get();
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Wait for the result of a retrieval.
+   */
+  private static byte[] await(FutureTask<byte[]> task){
+    try {
+      return task.get();
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted");
+    } catch(ExecutionException e){
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause.toString());
+    }
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the stripe of a key.
+   */
+  private Stripe stripe(Key key){
+    int hash = key.hash;
+    return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+  }
+  /**
+   * Remove the cached record of a key and cancel caching of the retrieval in progress.
+   */
+  private void invalidate(byte[] key){
+    Key ckey = new Key(key);
+    Stripe stripe = stripe(ckey);
+    synchronized(stripe){
+      loads.remove(ckey);
+      Entry entry = entries.remove(ckey);
+      if(entry != null){
+        int last = --stripe.num;
+        if(entry.slot != last){
+          stripe.ring[entry.slot] = stripe.ring[last];
+          stripe.ring[entry.slot].slot = entry.slot;
+        }
+        stripe.ring[last] = null;
+        if(stripe.hand >= stripe.num) stripe.hand = 0;
+      }
+    }
+  }
+  /**
+   * Store a record into a stripe evicting a record if the stripe is full.
+   * @note The caller must hold the lock of the stripe.
+   */
+  private void store(Stripe stripe, Key key, byte[] value){
+    Entry entry = new Entry(key, value);
+    Entry[] ring = stripe.ring;
+    Entry old = entries.get(key);
+    if(old != null){
+      entry.slot = old.slot;
+    } else if(stripe.num < ring.length){
+      entry.slot = stripe.num++;
+    } else {
+      while(true){
+        Entry victim = ring[stripe.hand];
+        if(victim.ref){
+          victim.ref = false;
+          stripe.hand = (stripe.hand + 1) % ring.length;
+        } else {
+          entries.remove(victim.key, victim);
+          evictnum.incrementAndGet();
+          entry.slot = stripe.hand;
+          stripe.hand = (stripe.hand + 1) % ring.length;
+          break;
+        }
+      }
+    }
+    ring[entry.slot] = entry;
+    entries.put(key, entry);
+  }
+  //----------------------------------------------------------------
+  // package classes
+  //----------------------------------------------------------------
+  /**
+   * Key of a record comparable by the content.
+   */
+  static class Key {
+    /** region of the key */
+    byte[] buf;
+    /** hash value */
+    int hash;
+    Key(byte[] buf){
+      this.buf = buf;
+      this.hash = Arrays.hashCode(buf);
+    }
+    public boolean equals(Object obj){
+      return obj instanceof Key && Arrays.equals(buf, ((Key)obj).buf);
+    }
+    public int hashCode(){
+      return hash;
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Cached record.
+   */
+  private static class Entry {
+    /** key */
+    Key key;
+    /** value or `null' for a missing record */
+    byte[] value;
+    /** index in the ring of the stripe */
+    int slot;
+    /** whether the record has been referred since the hand passed */
+    volatile boolean ref;
+    Entry(Key key, byte[] value){
+      this.key = key;
+      this.value = value;
+    }
+  }
+  /**
+   * Stripe of the cache.
+   */
+  private static class Stripe {
+    /** ring of the cached records */
+    Entry[] ring;
+    /** number of the cached records */
+    int num;
+    /** position of the clock hand */
+    int hand;
+    Stripe(int capacity){
+      ring = new Entry[capacity];
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,753 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Change log is an append-only file recording the updates of a database object, so that they
+ * can be applied to another database file by a replica.  Each entry has a sequence number, and
+ * the boundaries of transactions are recorded as entries as well.  Entries are buffered and
+ * written to the file in batches, when the batch is full, when the interval elapses, or when the
+ * log is flushed explicitly.
+ * @note A change log is attached to a database object by the constructor of a logged database
+ * class, such as `LoggedHDB', and should not be shared by more than one database object.
+ * Entries still in the buffer are lost if the process crashes, so the file lags behind the
+ * database by up to the interval.  Updates of different keys are made concurrently, so their
+ * entries may be in a different order from the updates, which does not change the result of
+ * applying them.  Once the file fails to be written, updates of the logged database throw
+ * `IllegalStateException' until the log is reopened, and replicas should be made again from a
+ * backup.
+ * @see Replica
+ */
+public class ChangeLog {
+  //----------------------------------------------------------------
+  // package constants
+  //----------------------------------------------------------------
+  /** operation: store a record */
+  static final int OPPUT = 1;
+  /** operation: concatenate a value */
+  static final int OPPUTCAT = 2;
+  /** operation: store a duplicated record */
+  static final int OPPUTDUP = 3;
+  /** operation: store duplicated records */
+  static final int OPPUTLIST = 4;
+  /** operation: remove a record */
+  static final int OPOUT = 5;
+  /** operation: remove duplicated records */
+  static final int OPOUTLIST = 6;
+  /** operation: add an integer */
+  static final int OPADDINT = 7;
+  /** operation: add a real number */
+  static final int OPADDDOUBLE = 8;
+  /** operation: remove all records */
+  static final int OPVANISH = 9;
+  /** operation: set a column index */
+  static final int OPSETINDEX = 10;
+  /** operation: generate a unique ID number */
+  static final int OPGENUID = 11;
+  /** operation: call a versatile function */
+  static final int OPMISC = 12;
+  /** operation: begin a transaction */
+  static final int OPTRANBEGIN = 13;
+  /** operation: commit a transaction */
+  static final int OPTRANCOMMIT = 14;
+  /** operation: abort a transaction */
+  static final int OPTRANABORT = 15;
+  /** magic data at the head of the file */
+  static final byte[] MAGIC = { 'T', 'C', 'J', 'L', 'O', 'G', '1', '\n' };
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** number of the locks of keys */
+  private static final int STRIPENUM = 64;
+  /** names of the versatile functions which update the database */
+  private static final Set<String> MISCWRITES = new HashSet<String>(Arrays.asList(new String[] {
+        "put", "putkeep", "putcat", "putdup", "putdupback", "out", "putlist", "outlist",
+        "vanish", "setindex", "genuid" }));
+  //----------------------------------------------------------------
+  // package static methods
+  //----------------------------------------------------------------
+  /**
+   * Check whether a call of a versatile function updates the database.
+   */
+  static boolean miscwrite(String name, byte[][] args){
+    if(MISCWRITES.contains(name)) return true;
+    if(!name.equals("search")) return false;
+    for(byte[] arg : args){
+      int len = 0;
+      while(len < arg.length && arg[len] != 0){
+        len++;
+      }
+      String cmd = new String(arg, 0, len);
+      if(cmd.equals("out") || cmd.equals("remove")) return true;
+    }
+    return false;
+  }
+  /**
+   * Split serialized columns into the names and the values alternately.
+   */
+  static List<byte[]> rowcols(byte[] row, int rsiz){
+    List<byte[]> cols = new ArrayList<byte[]>();
+    int[] rp = new int[1];
+    while(rp[0] < rsiz){
+      for(int i = 0; i < 2; i++){
+        int size = Util.readvnum(row, rp);
+        byte[] col = new byte[size];
+        System.arraycopy(row, rp[0], col, 0, size);
+        cols.add(col);
+        rp[0] += size;
+      }
+    }
+    return cols;
+  }
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** maximum number of entries in a batch */
+  private int batch;
+  /** interval of the writing of the buffer in milliseconds */
+  private long interval;
+  /** path of the file */
+  private String path;
+  /** file object */
+  private RandomAccessFile file;
+  /** buffer of the entries not written yet */
+  private byte[] buf;
+  /** size of the used region of the buffer */
+  private int len;
+  /** number of the entries in the buffer */
+  private int bnum;
+  /** sequence number of the last entry */
+  private long seq;
+  /** checksum calculator */
+  private CRC32 crc;
+  /** lock of the buffer and the file */
+  private ReentrantLock lock;
+  /** gate of the updates, whose shared side is held by updates of a key */
+  private ReentrantReadWriteLock gate;
+  /** locks of keys, held while an update of a key and its entry are made */
+  private ReentrantLock[] stripes;
+  /** depth of the logged calls of each thread */
+  private ThreadLocal<int[]> depth;
+  /** permit of the transaction */
+  private Semaphore permit;
+  /** whether the permit of the transaction is taken */
+  private volatile boolean tran;
+  /** executor service writing the buffer periodically */
+  private ScheduledExecutorService exec;
+  /** last error */
+  private volatile IOException error;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a change log object.
+   * @param batch the maximum number of entries buffered before they are written at once.
+   * @param interval the maximum time in milliseconds for which entries stay in the buffer.  If it
+   * is not more than 0, the buffer is written only when the batch is full or the log is flushed.
+   */
+  public ChangeLog(int batch, long interval){
+    this.batch = Math.max(batch, 1);
+    this.interval = interval;
+    path = null;
+    file = null;
+    buf = new byte[8192];
+    len = 0;
+    bnum = 0;
+    seq = 0;
+    crc = new CRC32();
+    lock = new ReentrantLock();
+    gate = new ReentrantReadWriteLock();
+    stripes = new ReentrantLock[STRIPENUM];
+    for(int i = 0; i < stripes.length; i++){
+      stripes[i] = new ReentrantLock();
+    }
+    depth = new ThreadLocal<int[]>(){
+        protected int[] initialValue(){
+          return new int[1];
+        }
+      };
+    permit = new Semaphore(1);
+    tran = false;
+    exec = null;
+    error = null;
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    close();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Open a log file.
+   * @param path the path of the file.  If it exists, new entries are appended to it.
+   * @return If successful, it is true, else, it is false.
+   * @note An incomplete or broken entry left at the end of an existing file by a crash is
+   * truncated.  A broken entry followed by other data is not a trace of a crash, so the file
+   * is not opened and left intact, and `error' tells the position of the entry.  The sequence
+   * numbers continue from the last entry.
+   */
+  public boolean open(String path){
+    lock.lock();
+    try {
+      if(file != null) return false;
+      RandomAccessFile nfile = null;
+      try {
+        nfile = new RandomAccessFile(path, "rw");
+        Reader reader = new Reader(nfile);
+        long nseq = 0;
+        if(nfile.length() < MAGIC.length){
+          nfile.setLength(0);
+          nfile.write(MAGIC);
+        } else {
+          while(true){
+            Entry entry;
+            try {
+              entry = reader.next();
+            } catch(IOException e){
+              if(!reader.tail()) throw e;
+              entry = null;
+            }
+            if(entry == null) break;
+            nseq = entry.seq;
+          }
+          nfile.setLength(reader.pos());
+        }
+        nfile.seek(nfile.length());
+        file = nfile;
+        nfile = null;
+        this.path = path;
+        seq = nseq;
+        len = 0;
+        bnum = 0;
+        error = null;
+      } catch(IOException e){
+        error = e;
+        return false;
+      } finally {
+        if(nfile != null){
+          try {
+            nfile.close();
+          } catch(IOException e){}
+        }
+      }
+      if(interval > 0){
+        exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+            public Thread newThread(Runnable r){
+              Thread th = new Thread(r, "ChangeLog");
+              th.setDaemon(true);
+              return th;
+            }
+          });
+        exec.scheduleWithFixedDelay(new Runnable(){
+            public void run(){
+              flush();
+            }
+          }, interval, interval, TimeUnit.MILLISECONDS);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Close the log file.
+   * @return If successful, it is true, else, it is false.
+   * @note The buffered entries are written before the file is closed.  It is harmless to call
+   * this method more than once.
+   */
+  public boolean close(){
+    lock.lock();
+    try {
+      if(file == null) return false;
+      if(exec != null){
+        exec.shutdown();
+        exec = null;
+      }
+      boolean err = !flush();
+      try {
+        file.close();
+      } catch(IOException e){
+        error = e;
+        err = true;
+      }
+      file = null;
+      return !err;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Write the buffered entries to the file.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean flush(){
+    lock.lock();
+    try {
+      if(file == null) return false;
+      if(len < 1) return true;
+      try {
+        file.write(buf, 0, len);
+      } catch(IOException e){
+        error = e;
+        return false;
+      }
+      len = 0;
+      bnum = 0;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Write the buffered entries and synchronize the file with the device.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean sync(){
+    lock.lock();
+    try {
+      if(!flush()) return false;
+      try {
+        file.getFD().sync();
+      } catch(IOException e){
+        error = e;
+        return false;
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Remove the leading entries which are no longer needed.
+   * @param seq the sequence number of the last entry to be removed, such as the one returned by
+   * the method `backup' of the logged database class.
+   * @return If successful, it is true, else, it is false.
+   * @note The entries of a transaction which is not finished at the entry are kept.  The rest
+   * entries are copied into a new file which replaces the old one, and replicas reading the log
+   * find it by themselves.  Entries needed by a replica should not be removed.
+   */
+  public boolean truncate(long seq){
+    lock.lock();
+    try {
+      if(!flush()) return false;
+      String tpath = path + ".tmp";
+      RandomAccessFile tfile = null;
+      try {
+        Reader reader = new Reader(file);
+        long start = -1;
+        long tpos = -1;
+        while(true){
+          long epos = reader.pos();
+          Entry entry = reader.next();
+          if(entry == null || entry.seq > seq){
+            start = tpos >= 0 ? tpos : epos;
+            break;
+          }
+          if(entry.op == OPTRANBEGIN){
+            tpos = epos;
+          } else if(entry.op == OPTRANCOMMIT || entry.op == OPTRANABORT){
+            tpos = -1;
+          }
+        }
+        if(start <= MAGIC.length) return true;
+        tfile = new RandomAccessFile(tpath, "rw");
+        tfile.setLength(0);
+        tfile.write(MAGIC);
+        byte[] cbuf = new byte[8192];
+        file.seek(start);
+        int rsiz;
+        while((rsiz = file.read(cbuf)) > 0){
+          tfile.write(cbuf, 0, rsiz);
+        }
+        tfile.getFD().sync();
+        tfile.close();
+        tfile = null;
+        if(!new File(tpath).renameTo(new File(path)))
+          throw new IOException("renaming failed: " + tpath);
+        file.close();
+        file = new RandomAccessFile(path, "rw");
+        return true;
+      } catch(IOException e){
+        error = e;
+        return false;
+      } finally {
+        if(tfile != null){
+          try {
+            tfile.close();
+          } catch(IOException e){}
+          new File(tpath).delete();
+        }
+        try {
+          file.seek(file.length());
+        } catch(IOException e){
+          error = e;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Get the path of the log file.
+   * @return the path of the log file or `null' if it is not opened.
+   */
+  public String path(){
+    return path;
+  }
+  /**
+   * Get the sequence number of the last entry.
+   * @return the sequence number of the last entry, or 0 if no entry has been recorded.
+   */
+  public long seq(){
+    lock.lock();
+    try {
+      return seq;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Get the last error of the file.
+   * @return the last exception of the input and output of the file, or `null' if no error has
+   * occurred.
+   */
+  public IOException error(){
+    return error;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Lock the log exclusively while an update without a key is made.
+   * @throws IllegalStateException if the file has failed to be written.
+   * @note A call nested in another locked call does nothing but count the depth.
+   */
+  void lock(){
+    int[] cnt = depth.get();
+    if(cnt[0] > 0){
+      cnt[0]++;
+      return;
+    }
+    check();
+    gate.writeLock().lock();
+    cnt[0]++;
+  }
+  /**
+   * Lock a key while an update of it is made.
+   * @param key the key, or `null' to lock the log exclusively.
+   * @throws IllegalStateException if the file has failed to be written.
+   */
+  void lock(byte[] key){
+    if(key == null){
+      lock();
+      return;
+    }
+    int[] cnt = depth.get();
+    if(cnt[0] > 0){
+      cnt[0]++;
+      return;
+    }
+    check();
+    gate.readLock().lock();
+    stripes[stripe(key)].lock();
+    cnt[0]++;
+  }
+  /**
+   * Unlock the log locked exclusively.
+   */
+  void unlock(){
+    int[] cnt = depth.get();
+    if(--cnt[0] > 0) return;
+    gate.writeLock().unlock();
+  }
+  /**
+   * Unlock a key.
+   */
+  void unlock(byte[] key){
+    if(key == null){
+      unlock();
+      return;
+    }
+    int[] cnt = depth.get();
+    if(--cnt[0] > 0) return;
+    stripes[stripe(key)].unlock();
+    gate.readLock().unlock();
+  }
+  /**
+   * Check whether the log or a key is locked by the calling thread.
+   */
+  boolean held(){
+    return depth.get()[0] > 0;
+  }
+  /**
+   * Wait until no transaction is open and take the permit of the transaction.
+   */
+  void tranenter(){
+    permit.acquireUninterruptibly();
+    tran = true;
+  }
+  /**
+   * Release the permit of the transaction.
+   */
+  void tranleave(){
+    if(!tran) return;
+    tran = false;
+    permit.release();
+  }
+  /**
+   * Append an entry.
+   * @param op the operation.
+   * @param args the arguments.
+   * @note It should be called while the log or the key is locked.  Calls nested in another
+   * logged call are ignored, since the outermost call records the whole update.  Nothing is
+   * recorded while the file is not opened.
+   */
+  void append(int op, byte[]... args){
+    append(op, null, Arrays.asList(args));
+  }
+  /**
+   * Append an entry of a key and arguments.
+   * @param op the operation.
+   * @param key the first argument.  If it is `null', it is omitted.
+   * @param args the rest arguments.
+   */
+  void append(int op, byte[] key, List<byte[]> args){
+    if(depth.get()[0] != 1) return;
+    int size = 8 + 1 + 4 + (key != null ? 4 + key.length : 0);
+    for(byte[] arg : args){
+      size += 4 + arg.length;
+    }
+    lock.lock();
+    try {
+      if(file == null) return;
+      reserve(size + 8);
+      int off = len;
+      putint(size);
+      putlong(++seq);
+      buf[len++] = (byte)op;
+      putint(args.size() + (key != null ? 1 : 0));
+      if(key != null) putbytes(key);
+      for(byte[] arg : args){
+        putbytes(arg);
+      }
+      crc.reset();
+      crc.update(buf, off + 4, size);
+      putint((int)crc.getValue());
+      if(++bnum >= batch) flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Append entries of the current states of records of a table database.
+   */
+  void rows(TDB tdb, List<byte[]> pkeys){
+    for(byte[] pkey : pkeys){
+      Map<String, byte[]> cols = tdb.get(pkey);
+      if(cols != null){
+        append(OPPUT, pkey, Arrays.asList(Util.maptostrary(cols)));
+      } else {
+        append(OPOUT, pkey);
+      }
+    }
+  }
+  /**
+   * Append entries of the current state of the records of a key of a B+ tree database.
+   */
+  void list(BDB bdb, byte[] key){
+    append(OPOUTLIST, key);
+    List<byte[]> vals = bdb.getlist(key);
+    if(vals != null) append(OPPUTLIST, key, vals);
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Refuse an update if the file has failed to be written, since its entry would be lost.
+   */
+  private void check(){
+    IOException error = this.error;
+    if(error != null && file != null)
+      throw new IllegalStateException("change log is broken: " + error.getMessage());
+  }
+  /**
+   * Get the index of the lock of a key.
+   */
+  private int stripe(byte[] key){
+    return (Arrays.hashCode(key) & Integer.MAX_VALUE) % stripes.length;
+  }
+  /**
+   * Make room for additional bytes.
+   */
+  private void reserve(int size){
+    if(len + size <= buf.length) return;
+    int nsiz = buf.length * 2;
+    while(nsiz < len + size){
+      nsiz *= 2;
+    }
+    byte[] nbuf = new byte[nsiz];
+    System.arraycopy(buf, 0, nbuf, 0, len);
+    buf = nbuf;
+  }
+  /**
+   * Write a 32-bit integer in the big endian order.
+   */
+  private void putint(int num){
+    buf[len++] = (byte)(num >>> 24);
+    buf[len++] = (byte)(num >>> 16);
+    buf[len++] = (byte)(num >>> 8);
+    buf[len++] = (byte)num;
+  }
+  /**
+   * Write a 64-bit integer in the big endian order.
+   */
+  private void putlong(long num){
+    putint((int)(num >>> 32));
+    putint((int)num);
+  }
+  /**
+   * Write a byte array with its size.
+   */
+  private void putbytes(byte[] data){
+    putint(data.length);
+    System.arraycopy(data, 0, buf, len, data.length);
+    len += data.length;
+  }
+  //----------------------------------------------------------------
+  // package classes
+  //----------------------------------------------------------------
+  /**
+   * Entry of a change log.
+   */
+  static class Entry {
+    /** sequence number */
+    long seq;
+    /** operation */
+    int op;
+    /** arguments */
+    byte[][] args;
+    /** position of the end in the file */
+    long end;
+  }
+  /**
+   * Sequential reader of a log file.
+   */
+  static class Reader {
+    /** file object */
+    private RandomAccessFile file;
+    /** position of the next entry */
+    private long pos;
+    /** checksum calculator */
+    private CRC32 crc;
+    /**
+     * Create a reader and check the magic data.
+     * @throws IOException if the file is not a change log.
+     */
+    Reader(RandomAccessFile file) throws IOException {
+      this.file = file;
+      this.crc = new CRC32();
+      this.pos = MAGIC.length;
+      if(file.length() < MAGIC.length) return;
+      byte[] magic = new byte[MAGIC.length];
+      file.seek(0);
+      file.readFully(magic);
+      if(!Arrays.equals(magic, MAGIC)) throw new IOException("not a change log: " + file);
+    }
+    /**
+     * Get the position of the next entry.
+     */
+    long pos(){
+      return pos;
+    }
+    /**
+     * Set the position of the next entry.
+     */
+    void seek(long pos){
+      this.pos = pos;
+    }
+    /**
+     * Read the next entry.
+     * @return the entry, or `null' if no complete entry follows.
+     * @throws IOException if the entry is broken.
+     */
+    Entry next() throws IOException {
+      long flen = file.length();
+      if(pos + 4 > flen) return null;
+      file.seek(pos);
+      int size = file.readInt();
+      if(size < 13) throw new IOException("broken entry at " + pos);
+      if(pos + 4 + size + 4 > flen) return null;
+      byte[] body = new byte[size];
+      file.readFully(body);
+      int sum = file.readInt();
+      crc.reset();
+      crc.update(body, 0, size);
+      if((int)crc.getValue() != sum) throw new IOException("checksum mismatch at " + pos);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+      Entry entry = new Entry();
+      entry.seq = in.readLong();
+      entry.op = in.readUnsignedByte();
+      entry.args = new byte[in.readInt()][];
+      for(int i = 0; i < entry.args.length; i++){
+        entry.args[i] = new byte[in.readInt()];
+        in.readFully(entry.args[i]);
+      }
+      pos += 4 + size + 4;
+      entry.end = pos;
+      return entry;
+    }
+    /**
+     * Check whether the data from the next entry is the torn tail of an interrupted write.
+     * @return true if the entry ends at the end of the file or the data are all zero.
+     */
+    boolean tail() throws IOException {
+      long flen = file.length();
+      if(pos + 4 <= flen){
+        file.seek(pos);
+        if(pos + 4 + (file.readInt() & 0xffffffffL) + 4 == flen) return true;
+      }
+      file.seek(pos);
+      byte[] rbuf = new byte[8192];
+      long rest = flen - pos;
+      while(rest > 0){
+        int rsiz = (int)Math.min(rest, rbuf.length);
+        file.readFully(rbuf, 0, rsiz);
+        for(int i = 0; i < rsiz; i++){
+          if(rbuf[i] != 0) return false;
+        }
+        rest -= rsiz;
+      }
+      return true;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
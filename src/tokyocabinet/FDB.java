@@ -483,6 +483,31 @@ public class FDB implements DBM {
    * file.
    */
   public native long fsiz();
+  /**
+   * Get the internal statistics.
+   * @return a snapshot of the statistics.  "min" and "max" are the minimum and maximum ID
+   * numbers, "limid" is the limit ID number, and the counters of the engine such as
+   * "cnt_readrec" follow.
+   * @see Stats
+   */
+  public Stats stats(){
+    return new Stats(statsimpl(true));
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the opaque region of the database file.
+   * @return a copy of the region, or `null' if the database is not opened.
+   */
+  native byte[] opaque();
+  /**
+   * Overwrite the head of the opaque region of the database file.
+   * @param buf the data, which is truncated to the size of the region.
+   * @return If successful, it is true, else, it is false.
+   * @note The region is a part of the header, so it is restored by the abort of a transaction.
+   */
+  native boolean setopaque(byte[] buf);
   //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
@@ -494,6 +519,11 @@ public class FDB implements DBM {
    * Release resources.
    */
   private native void destruct();
+  /**
+   * Get the names and the values of the internal statistics.
+   * @param full whether to include the statistics which need scanning.
+   */
+  private native byte[][] statsimpl(boolean full);
 }
 
 
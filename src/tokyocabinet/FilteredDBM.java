@@ -0,0 +1,523 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Filtered DBM is a hash database or a B+ tree database with a Bloom filter of its keys.  The
+ * filter is checked before retrieving a record so that looking up a missing key does not cross
+ * the native interface in most cases.  The filter is loaded from the file whose path is the
+ * path of the database followed by ".bloom" when the database is opened, or it is built by
+ * scanning the keys if the file is missing or stale.  The file is removed when the database is
+ * opened as a writer and the filter is saved into it again when the database is closed, so that
+ * a database which is not closed properly leaves no file behind.
+ * @note Records stored into the database object directly or by other processes are not
+ * reflected to the filter.  Call `rebuild' after modifying the database object directly.  The
+ * keys of a hash database are scanned with its iterator, so the iterator must not be used while
+ * the filter is rebuilt.
+ */
+public class FilteredDBM implements DBM {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** suffix of the path of the filter file */
+  private static final String SUFFIX = ".bloom";
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private DBM dbm;
+  /** expected number of keys */
+  private long expnum;
+  /** expected false positive rate */
+  private double fprate;
+  /** path of the filter file */
+  private String fpath;
+  /** whether the database is opened as a writer */
+  private boolean writer;
+  /** current state of the filters */
+  private volatile State state;
+  /** number of retrievals skipped by the filter */
+  private AtomicLong skipnum;
+  /** number of retrievals passed by the filter for missing records */
+  private AtomicLong fpnum;
+  /** whether an automatic rebuild is scheduled or running */
+  private AtomicBoolean rebuilding;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a filtered DBM object over a hash database.
+   * @param hdb the hash database object.
+   * @param expnum the expected number of records.
+   * @param fprate the expected false positive rate of the filter.
+   */
+  public FilteredDBM(HDB hdb, long expnum, double fprate){
+    this((DBM)hdb, expnum, fprate);
+  }
+  /**
+   * Create a filtered DBM object over a B+ tree database.
+   * @param bdb the B+ tree database object.
+   * @param expnum the expected number of records.
+   * @param fprate the expected false positive rate of the filter.
+   */
+  public FilteredDBM(BDB bdb, long expnum, double fprate){
+    this((DBM)bdb, expnum, fprate);
+  }
+  /**
+   * Create a filtered DBM object.
+   */
+  private FilteredDBM(DBM dbm, long expnum, double fprate){
+    if(!(fprate > 0.0 && fprate < 1.0))
+      throw new IllegalArgumentException("illegal false positive rate: " + fprate);
+    this.dbm = dbm;
+    this.expnum = Math.max(expnum, 1);
+    this.fprate = fprate;
+    this.fpath = null;
+    this.writer = false;
+    this.state = new State(new BloomFilter(this.expnum, fprate), this.expnum, null);
+    this.skipnum = new AtomicLong();
+    this.fpnum = new AtomicLong();
+    this.rebuilding = new AtomicBoolean();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the database object.
+   * @return the database object behind the filter.
+   */
+  public DBM dbm(){
+    return dbm;
+  }
+  /**
+   * Get the filter.
+   * @return the Bloom filter object currently in use.
+   */
+  public BloomFilter filter(){
+    return state.filter;
+  }
+  /**
+   * Open a database file and load or build the filter.
+   * @param path the path of the database file.
+   * @param omode the connection mode of the database object.
+   * @return If successful, it is true, else, it is false.
+   */
+  public synchronized boolean open(String path, int omode){
+    boolean rv = dbm instanceof HDB ?
+      ((HDB)dbm).open(path, omode) : ((BDB)dbm).open(path, omode);
+    if(!rv) return false;
+    fpath = path + SUFFIX;
+    writer = (omode & HDB.OWRITER) != 0;
+    BloomFilter loaded = load();
+    if(writer) new File(fpath).delete();
+    if(loaded != null){
+      state = new State(loaded, Math.max(expnum, loaded.anum()), null);
+    } else {
+      rebuild();
+    }
+    return true;
+  }
+  /**
+   * Save the filter and close the database file.
+   * @return If successful, it is true, else, it is false.
+   * @note The filter file is removed if it can not be saved, so that it is not loaded stale.
+   * A running rebuild of the filter is waited for, and a scheduled one is done before saving.
+   */
+  public synchronized boolean close(){
+    if(writer){
+      if(state.filter.anum() > state.limit) rebuild();
+      boolean rv = dbm instanceof HDB ? ((HDB)dbm).sync() : ((BDB)dbm).sync();
+      if(!rv || !save()) new File(fpath).delete();
+    }
+    return dbm instanceof HDB ? ((HDB)dbm).close() : ((BDB)dbm).close();
+  }
+  /**
+   * Rebuild the filter by scanning the keys of the database.
+   * @note The filter is sized for the expected number of records or twice the current number
+   * of records, whichever is larger.  Records stored while scanning are added to the new filter
+   * as well.  The keys are scanned one by one, so that they are not held in memory at once.
+   * The filter is rebuilt automatically by a background thread when more keys than it is sized
+   * for are added, and the current filter keeps being used until the new one is complete.
+   */
+  public synchronized void rebuild(){
+    long num = Math.max(expnum, dbm.rnum() * 2);
+    BloomFilter nfilter = new BloomFilter(num, fprate);
+    State cstate = state;
+    state = new State(cstate.filter, cstate.limit, nfilter);
+    scan(nfilter);
+    state = new State(nfilter, num, null);
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    boolean rv = dbm.put(key, value);
+    if(rv) add(key);
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(String, String)
+   */
+  public boolean put(String key, String value){
+    return put(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    boolean rv = dbm.putkeep(key, value);
+    if(rv) add(key);
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(String, String)
+   */
+  public boolean putkeep(String key, String value){
+    return putkeep(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @param key the key.
+   * @param value the value.
+   * @return If successful, it is true, else, it is false.
+   * @note If there is no corresponding record, a new record is created.
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    boolean rv = dbm instanceof HDB ?
+      ((HDB)dbm).putcat(key, value) : ((BDB)dbm).putcat(key, value);
+    if(rv) add(key);
+    return rv;
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * The same as `putcat(key.getBytes(), value.getBytes())'.
+   * @see #putcat(byte[], byte[])
+   */
+  public boolean putcat(String key, String value){
+    return putcat(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(byte[])
+   * @note The key is not removed from the filter, which keeps answering positive for it until
+   * the filter is rebuilt.
+   */
+  public boolean out(byte[] key){
+    if(!state.filter.check(key)){
+      skipnum.incrementAndGet();
+      return false;
+    }
+    return dbm.out(key);
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(String)
+   */
+  public boolean out(String key){
+    return out(key.getBytes());
+  }
+  /**
+   * Retrieve a record.
+   * @see DBM#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    if(!state.filter.check(key)){
+      skipnum.incrementAndGet();
+      return null;
+    }
+    byte[] value = dbm.get(key);
+    if(value == null) fpnum.incrementAndGet();
+    return value;
+  }
+  /**
+   * Retrieve a record.
+   * @see DBM#get(String)
+   */
+  public String get(String key){
+    byte[] value = get(key.getBytes());
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Get the size of the value of a record.
+   * @param key the key.
+   * @return If successful, it is the size of the value of the corresponding record, else, it
+   * is -1.
+   */
+  public int vsiz(byte[] key){
+    if(!state.filter.check(key)){
+      skipnum.incrementAndGet();
+      return -1;
+    }
+    int vsiz = dbm instanceof HDB ? ((HDB)dbm).vsiz(key) : ((BDB)dbm).vsiz(key);
+    if(vsiz < 0) fpnum.incrementAndGet();
+    return vsiz;
+  }
+  /**
+   * Get the size of the value of a record.
+   * The same as `vsiz(key.getBytes())'.
+   * @see #vsiz(byte[])
+   */
+  public int vsiz(String key){
+    return vsiz(key.getBytes());
+  }
+  /**
+   * Initialize the iterator.
+   * @see DBM#iterinit()
+   */
+  public boolean iterinit(){
+    return dbm.iterinit();
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext()
+   */
+  public byte[] iternext(){
+    return dbm.iternext();
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext2()
+   */
+  public String iternext2(){
+    return dbm.iternext2();
+  }
+  /**
+   * Get forward matching keys.
+   * @see DBM#fwmkeys(byte[], int)
+   */
+  public List fwmkeys(byte[] prefix, int max){
+    return dbm.fwmkeys(prefix, max);
+  }
+  /**
+   * Get forward matching keys.
+   * @see DBM#fwmkeys(String, int)
+   */
+  public List fwmkeys(String prefix, int max){
+    return dbm.fwmkeys(prefix, max);
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    int rv = dbm.addint(key, num);
+    if(rv != Integer.MIN_VALUE) add(key);
+    return rv;
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(String, int)
+   */
+  public int addint(String key, int num){
+    return addint(key.getBytes(), num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    double rv = dbm.adddouble(key, num);
+    if(!Double.isNaN(rv)) add(key);
+    return rv;
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(String, double)
+   */
+  public double adddouble(String key, double num){
+    return adddouble(key.getBytes(), num);
+  }
+  /**
+   * Get the number of records.
+   * @see DBM#rnum()
+   */
+  public long rnum(){
+    return dbm.rnum();
+  }
+  /**
+   * Get the size of the database file.
+   * @see DBM#fsiz()
+   */
+  public long fsiz(){
+    return dbm.fsiz();
+  }
+  /**
+   * Get the number of skipped retrievals.
+   * @return the number of retrievals and removals answered by the filter without accessing the
+   * database since the object was created.
+   */
+  public long skipnum(){
+    return skipnum.get();
+  }
+  /**
+   * Get the number of false positives.
+   * @return the number of retrievals passed by the filter but finding no record since the
+   * object was created.
+   */
+  public long fpnum(){
+    return fpnum.get();
+  }
+  /**
+   * Get the estimated false positive rate of the filter.
+   * The same as `filter().fprate()'.
+   * @see BloomFilter#fprate()
+   */
+  public double fprate(){
+    return state.filter.fprate();
+  }
+  /**
+   * Get the size of memory used by the filter.
+   * The same as `filter().msiz()'.
+   * @see BloomFilter#msiz()
+   */
+  public long msiz(){
+    return state.filter.msiz();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Add a key to the filter and to the filter being rebuilt, and schedule a rebuild if the filter
+   * is full.
+   */
+  private void add(byte[] key){
+    State cstate = state;
+    cstate.filter.add(key);
+    if(cstate.pending != null){
+      cstate.pending.add(key);
+    } else if(cstate.filter.anum() > cstate.limit && rebuilding.compareAndSet(false, true)){
+      final State tstate = cstate;
+      Thread th = new Thread("FilteredDBM"){
+          public void run(){
+            try {
+              synchronized(FilteredDBM.this){
+                // skip if the database has been reopened or the filter has been rebuilt
+                if(state == tstate) rebuild();
+              }
+            } finally {
+              rebuilding.set(false);
+            }
+          }
+        };
+      th.setDaemon(true);
+      th.start();
+    }
+  }
+  /**
+   * Add every key of the database to a filter.
+   */
+  private void scan(BloomFilter filter){
+    if(dbm instanceof BDB){
+      BDBCUR cur = new BDBCUR((BDB)dbm);
+      if(!cur.first()) return;
+      do {
+        byte[] key = cur.key();
+        if(key != null) filter.add(key);
+      } while(cur.next());
+    } else {
+      if(!dbm.iterinit()) return;
+      byte[] key;
+      while((key = dbm.iternext()) != null){
+        filter.add(key);
+      }
+    }
+  }
+  /**
+   * Load the filter from the filter file.
+   * @return the filter object or `null' if the file is missing or stale.
+   */
+  private BloomFilter load(){
+    File file = new File(fpath);
+    if(!file.isFile()) return null;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      long rnum = in.readLong();
+      long fsiz = in.readLong();
+      if(rnum != dbm.rnum() || fsiz != dbm.fsiz()) return null;
+      return BloomFilter.load(in);
+    } catch(IOException e){
+      return null;
+    } finally {
+      if(in != null){
+        try {
+          in.close();
+        } catch(IOException e){}
+      }
+    }
+  }
+  /**
+   * Save the filter into the filter file.
+   * @return If successful, it is true, else, it is false.
+   */
+  private boolean save(){
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fpath)));
+      out.writeLong(dbm.rnum());
+      out.writeLong(dbm.fsiz());
+      state.filter.save(out);
+      out.close();
+      out = null;
+      return true;
+    } catch(IOException e){
+      return false;
+    } finally {
+      if(out != null){
+        try {
+          out.close();
+        } catch(IOException e){}
+      }
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * State of the filters, which is replaced as a whole so that a key is never added to a filter
+   * which has been discarded already.
+   */
+  private static class State {
+    /** current filter */
+    final BloomFilter filter;
+    /** number of keys for which the current filter is sized */
+    final long limit;
+    /** filter being rebuilt or `null' */
+    final BloomFilter pending;
+    /** Create a state object. */
+    State(BloomFilter filter, long limit, BloomFilter pending){
+      this.filter = filter;
+      this.limit = limit;
+      this.pending = pending;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,263 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Group commit is a coordinator which commits the tasks of concurrent threads in one
+ * transaction.  The first thread to commit becomes the leader, waits for other threads up to the
+ * delay or until the batch is full, and runs all the tasks in one transaction.  If the database
+ * is opened with the `OTSYNC' option, one synchronization of the file acknowledges all of them.
+ * The other threads are blocked until the transaction including their tasks is committed.
+ * @note If a task fails, the whole transaction is aborted and each task is run again in its own
+ * transaction, so that a failing task does not affect the others.  Tasks should therefore touch
+ * nothing but the database.
+ */
+public class GroupCommit {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private Object db;
+  /** maximum number of tasks in a transaction */
+  private int batch;
+  /** maximum delay in nanoseconds */
+  private long delay;
+  /** lock of the queue */
+  private ReentrantLock lock;
+  /** condition signaled when the batch is full */
+  private Condition arrived;
+  /** condition signaled when a transaction is finished */
+  private Condition finished;
+  /** tasks waiting for the next transaction */
+  private List<Request> queue;
+  /** whether a leader is running */
+  private boolean leading;
+  /** number of committed transactions */
+  private AtomicLong gnum;
+  /** number of committed tasks */
+  private AtomicLong tnum;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a group commit coordinator of a hash database.
+   * @param hdb the hash database object, which should be opened as a writer.
+   * @param batch the maximum number of tasks in a transaction.
+   * @param delay the maximum time in microseconds for which the leader waits for other tasks.
+   */
+  public GroupCommit(HDB hdb, int batch, long delay){
+    this((Object)hdb, batch, delay);
+  }
+  /**
+   * Create a group commit coordinator of a B+ tree database.
+   * @see #GroupCommit(HDB, int, long)
+   */
+  public GroupCommit(BDB bdb, int batch, long delay){
+    this((Object)bdb, batch, delay);
+  }
+  /**
+   * Create a group commit coordinator of a fixed-length database.
+   * @see #GroupCommit(HDB, int, long)
+   */
+  public GroupCommit(FDB fdb, int batch, long delay){
+    this((Object)fdb, batch, delay);
+  }
+  /**
+   * Create a group commit coordinator of a table database.
+   * @see #GroupCommit(HDB, int, long)
+   */
+  public GroupCommit(TDB tdb, int batch, long delay){
+    this((Object)tdb, batch, delay);
+  }
+  /**
+   * Create a group commit coordinator.
+   */
+  private GroupCommit(Object db, int batch, long delay){
+    this.db = db;
+    this.batch = Math.max(batch, 1);
+    this.delay = Math.max(delay, 0) * 1000;
+    lock = new ReentrantLock();
+    arrived = lock.newCondition();
+    finished = lock.newCondition();
+    queue = new ArrayList<Request>();
+    leading = false;
+    gnum = new AtomicLong();
+    tnum = new AtomicLong();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Run a task in a transaction shared with concurrent tasks and wait for the commit.
+   * @param task the task object.
+   * @return If the task succeeds and the transaction is committed, it is true, else, it is false.
+   * @note If the task throws a runtime exception, it is thrown again by this method after the
+   * transaction is aborted.
+   */
+  public boolean commit(Task task){
+    Request req = new Request(task);
+    lock.lock();
+    try {
+      queue.add(req);
+      if(queue.size() >= batch) arrived.signal();
+      while(!req.done){
+        if(leading){
+          finished.awaitUninterruptibly();
+          continue;
+        }
+        leading = true;
+        long nanos = delay;
+        try {
+          while(queue.size() < batch && nanos > 0){
+            nanos = arrived.awaitNanos(nanos);
+          }
+        } catch(InterruptedException e){
+          Thread.currentThread().interrupt();
+        }
+        List<Request> group;
+        if(queue.size() > batch){
+          // the rest is taken by the next leader, which may be this thread again
+          List<Request> head = queue.subList(0, batch);
+          group = new ArrayList<Request>(head);
+          head.clear();
+        } else {
+          group = queue;
+          queue = new ArrayList<Request>();
+        }
+        lock.unlock();
+        try {
+          run(group);
+        } finally {
+          lock.lock();
+          leading = false;
+          finished.signalAll();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    if(req.error != null) throw req.error;
+    return req.ok;
+  }
+  /**
+   * Get the number of committed transactions.
+   * @return the number of transactions committed since the object was created.
+   */
+  public long gnum(){
+    return gnum.get();
+  }
+  /**
+   * Get the number of committed tasks.
+   * @return the number of tasks committed since the object was created.  The average number of
+   * tasks in a transaction is this divided by the number of transactions.
+   */
+  public long tnum(){
+    return tnum.get();
+  }
+  //----------------------------------------------------------------
+  // public classes
+  //----------------------------------------------------------------
+  /**
+   * Task is an interface to update the database in a transaction.
+   */
+  public interface Task {
+    /**
+     * Update the database.
+     * @return If successful, it is true, else, it is false.  If it is false, the changes of the
+     * task are discarded.
+     */
+    public boolean proc();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Run a group of tasks in one transaction, or each in its own if any of them fails.
+   */
+  private void run(List<Request> group){
+    boolean ok = Util.tranbegin(db);
+    if(ok){
+      for(Request req : group){
+        if(!proc(req)){
+          ok = false;
+          break;
+        }
+      }
+      if(ok && !Util.trancommit(db)) ok = false;
+      if(!ok) Util.tranabort(db);
+    }
+    if(ok){
+      gnum.incrementAndGet();
+      tnum.addAndGet(group.size());
+    } else if(group.size() > 1){
+      for(Request req : group){
+        List<Request> single = new ArrayList<Request>(1);
+        single.add(req);
+        run(single);
+      }
+      return;
+    }
+    for(Request req : group){
+      req.ok = ok;
+      req.done = true;
+    }
+  }
+  /**
+   * Run the task of a request.
+   */
+  private boolean proc(Request req){
+    req.error = null;
+    try {
+      return req.task.proc();
+    } catch(RuntimeException e){
+      req.error = e;
+      return false;
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Request of a task.
+   */
+  private static class Request {
+    /** task */
+    Task task;
+    /** whether the transaction including the task is committed */
+    boolean ok;
+    /** whether the request is finished */
+    boolean done;
+    /** exception thrown by the task */
+    RuntimeException error;
+    Request(Task task){
+      this.task = task;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -456,6 +456,17 @@ public class HDB implements DBM {
   public boolean optimize(){
     return optimize(-1, -1, -1, 0xff);
   }
+  /**
+   * Defragment the database file in steps.
+   * @param step the number of records moved in this call.  If it is not more than 0, the whole
+   * file is defragmented gradually without keeping a continuous lock.
+   * @return If successful, it is true, else, it is false.
+   * @note Unlike `optimize', the records are moved within the file while other threads access
+   * the database between calls, so small steps can be run without stalling them for long.  The
+   * position of the defragmentation is kept in the object and wraps around at the end of the file.
+   * @see MaintenanceScheduler
+   */
+  public native boolean defrag(long step);
   /**
    * Remove all records.
    * @return If successful, it is true, else, it is false.
@@ -513,6 +524,47 @@ public class HDB implements DBM {
    * file.
    */
   public native long fsiz();
+  /**
+   * Get the internal statistics.
+   * @return a snapshot of the statistics.  "bnumused" is the number of used elements of the
+   * bucket array, "fbpnum" and "fbpmis" are the size of the free block pool and the number of
+   * missed retrievals of it, "recc" and "reccsiz" are the number and the size of the cached
+   * records, and the counters of the engine such as "cnt_readrec" and "cnt_defrag" follow.
+   * @note Counting the used buckets scans the whole bucket array.
+   * @see Stats
+   */
+  public Stats stats(){
+    return new Stats(statsimpl(true));
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the internal statistics.
+   * @param full whether to include the statistics which need scanning, such as "bnumused".
+   */
+  Stats stats(boolean full){
+    return new Stats(statsimpl(full));
+  }
+  /**
+   * Retrieve records in one call.
+   * @param keys the keys.
+   * @return an array of the values in the order of the keys.  An element is `null' if no
+   * record corresponds to the key.
+   */
+  native byte[][] getrecs(byte[][] keys);
+  /**
+   * Get the opaque region of the database file.
+   * @return a copy of the region, or `null' if the database is not opened.
+   */
+  native byte[] opaque();
+  /**
+   * Overwrite the head of the opaque region of the database file.
+   * @param buf the data, which is truncated to the size of the region.
+   * @return If successful, it is true, else, it is false.
+   * @note The region is a part of the header, so it is restored by the abort of a transaction.
+   */
+  native boolean setopaque(byte[] buf);
   //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
@@ -524,6 +576,11 @@ public class HDB implements DBM {
    * Release resources.
    */
   private native void destruct();
+  /**
+   * Get the names and the values of the internal statistics.
+   * @param full whether to include the statistics which need scanning.
+   */
+  private native byte[][] statsimpl(boolean full);
 }
 
 
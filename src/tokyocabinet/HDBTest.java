@@ -17,6 +17,7 @@
 package tokyocabinet;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
@@ -80,6 +81,22 @@ class HDBTest {
     STDERR.println(HDBTest.class.getName() + ": " + path + ": " +
                    func + ": " + hdb.errmsg());
   }
+  /* wait for threads of a name to exit and check whether they are gone, shared by other tests */
+  static boolean threadsgone(String name){
+    for(int i = 0; i < 200; i++){
+      boolean live = false;
+      for(Thread th : Thread.getAllStackTraces().keySet()){
+        if(th.getName().equals(name) && th.isAlive()) live = true;
+      }
+      if(!live) return true;
+      try {
+        Thread.sleep(10);
+      } catch(InterruptedException e){
+        return false;
+      }
+    }
+    return false;
+  }
   /* parse arguments of write command */
   private static int runwrite(String[] args){
     String path = null;
@@ -540,6 +557,653 @@ class HDBTest {
       eprint(hdb, "(validation)");
       err = true;
     }
+    STDOUT.println("checking sharded database:");
+    HDB[] shdbs = { new HDB(), new HDB(), new HDB() };
+    ShardedDBM sdbm = new ShardedDBM(shdbs);
+    String spath = path + "-s";
+    if(!sdbm.open(spath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(hdb, "sharded::open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(!sdbm.put(buf, buf)){
+        eprint(hdb, "sharded::put");
+        err = true;
+        break;
+      }
+    }
+    if(!sdbm.iterinit()){
+      eprint(hdb, "sharded::iterinit");
+      err = true;
+    }
+    inum = 0;
+    while((key = sdbm.iternext2()) != null){
+      if(!key.equals(sdbm.get(key))){
+        eprint(hdb, "sharded::get");
+        err = true;
+        break;
+      }
+      inum++;
+    }
+    if(sdbm.rnum() != rnum || inum != rnum || sdbm.fwmkeys("0", -1).size() != rnum){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    final ShardedDBM rsdbm = sdbm;
+    final boolean[] rerr = new boolean[1];
+    Thread rth = new Thread(){
+        public void run(){
+          try {
+            for(int i = 0; i < 100; i++){
+              rsdbm.fwmkeys("0", 10);
+            }
+          } catch(RuntimeException e){
+            rerr[0] = true;
+          }
+        }
+      };
+    rth.start();
+    if(!sdbm.close()){
+      eprint(hdb, "sharded::close");
+      err = true;
+    }
+    try {
+      rth.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    if(rerr[0]){
+      eprint(hdb, "sharded::close (race)");
+      err = true;
+    }
+    sdbm.close();
+    if(!threadsgone("ShardedDBM")){
+      eprint(hdb, "sharded::close (threads)");
+      err = true;
+    }
+    for(int i = 0; i < sdbm.snum(); i++){
+      new File(spath + "-" + i).delete();
+    }
+    STDOUT.println("checking cached database:");
+    CachedDBM cdbm = new CachedDBM(hdb, rnum / 4 + 1);
+    for(int i = 1; i <= rnum; i++){
+      String buf = "{" + Util.itoa(RND.nextInt(rnum / 2 + 1), 8, '0') + "}";
+      int rnd = RND.nextInt(4);
+      if(rnd == 0){
+        cdbm.put(buf, buf);
+      } else if(rnd == 1){
+        cdbm.out(buf);
+      } else {
+        String value = cdbm.get(buf);
+        if(value != null ? !value.equals(hdb.get(buf)) : hdb.get(buf) != null){
+          eprint(hdb, "cached::get");
+          err = true;
+          break;
+        }
+      }
+    }
+    if(cdbm.cnum() > rnum / 4 + 1 || cdbm.loadnum() != cdbm.missnum() ||
+       cdbm.hitnum() + cdbm.missnum() < 1){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    Iterator cit = cdbm.fwmkeys("{", -1).iterator();
+    while(cit.hasNext()){
+      cdbm.out((String)cit.next());
+    }
+    cdbm.clear();
+    if(cdbm.cnum() != 0){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    STDOUT.println("checking filtered database:");
+    String fpath = path + "-f";
+    FilteredDBM fdbm = new FilteredDBM(new HDB(), rnum / 4, 0.01);
+    if(!fdbm.open(fpath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(hdb, "filtered::open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(!fdbm.put(buf, buf)){
+        eprint(hdb, "filtered::put");
+        err = true;
+        break;
+      }
+    }
+    for(int reopen = 0; reopen < 2; reopen++){
+      if(reopen > 0 && (!fdbm.close() || !fdbm.open(fpath, HDB.OREADER | omode))){
+        eprint(hdb, "filtered::open");
+        err = true;
+      }
+      for(int i = 1; i <= rnum; i++){
+        String buf = Util.itoa(i, 8, '0');
+        if(!buf.equals(fdbm.get(buf)) || fdbm.get("-" + buf) != null){
+          eprint(hdb, "filtered::get");
+          err = true;
+          break;
+        }
+      }
+    }
+    if(fdbm.skipnum() < 1 || fdbm.filter().fprate() > 0.05 || fdbm.msiz() < 1 ||
+       !new File(fpath + ".bloom").isFile()){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    if(!fdbm.close() || !fdbm.open(fpath, HDB.OWRITER | omode) ||
+       new File(fpath + ".bloom").exists()){
+      eprint(hdb, "filtered::open");
+      err = true;
+    }
+    final FilteredDBM frdbm = fdbm;
+    Thread fthread = new Thread(){
+        public void run(){
+          for(int i = 0; i < 10; i++){
+            frdbm.rebuild();
+          }
+        }
+      };
+    fthread.start();
+    for(int i = 1; i <= rnum; i++){
+      String buf = "+" + Util.itoa(i, 8, '0');
+      if(!fdbm.put(buf, buf)){
+        eprint(hdb, "filtered::put");
+        err = true;
+        break;
+      }
+    }
+    try {
+      fthread.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = "+" + Util.itoa(i, 8, '0');
+      if(!buf.equals(fdbm.get(buf))){
+        eprint(hdb, "filtered::get");
+        err = true;
+        break;
+      }
+    }
+    if(!fdbm.close()){
+      eprint(hdb, "filtered::close");
+      err = true;
+    }
+    new File(fpath).delete();
+    new File(fpath + ".bloom").delete();
+    STDOUT.println("checking write-behind buffer:");
+    WriteBehind wb = new WriteBehind(hdb, 64, 16, 10);
+    for(int i = 1; i <= rnum; i++){
+      String buf = "<" + Util.itoa(i, 8, '0') + ">";
+      wb.put(buf, buf);
+      if(i % 3 == 0) wb.out(buf);
+      String value = wb.get(buf);
+      if((i % 3 == 0 ? value != null : !buf.equals(value)) || wb.size() > 64){
+        eprint(hdb, "write-behind::get");
+        err = true;
+        break;
+      }
+    }
+    try {
+      if(!wb.flush().get() || wb.size() != 0){
+        eprint(hdb, "write-behind::flush");
+        err = true;
+      }
+    } catch(Exception e){
+      eprint(hdb, "write-behind::flush");
+      err = true;
+    }
+    if(!wb.close() || wb.bnum() < 1 || wb.errnum() != 0 ||
+       hdb.fwmkeys("<", -1).size() != rnum - rnum / 3){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    Iterator wit = hdb.fwmkeys("<", -1).iterator();
+    while(wit.hasNext()){
+      hdb.out((String)wit.next());
+    }
+    STDOUT.println("checking asynchronous facade:");
+    AsyncHDB ahdb = new AsyncHDB(hdb, 2);
+    List<Future<Boolean>> aputs = new ArrayList<Future<Boolean>>();
+    for(int i = 1; i <= rnum; i++){
+      byte[] buf = ("(" + Util.itoa(i, 8, '0') + ")").getBytes();
+      aputs.add(ahdb.put(buf, buf));
+    }
+    try {
+      for(Future<Boolean> aput : aputs){
+        if(!aput.get()){
+          eprint(hdb, "async::put");
+          err = true;
+          break;
+        }
+      }
+      List<Future<byte[]>> agets = new ArrayList<Future<byte[]>>();
+      for(int i = 1; i <= rnum; i++){
+        agets.add(ahdb.get(("(" + Util.itoa(i, 8, '0') + ")").getBytes()));
+      }
+      agets.add(ahdb.get("(none)".getBytes()));
+      for(int i = 0; i < rnum; i++){
+        String value = new String(agets.get(i).get());
+        if(!value.equals("(" + Util.itoa(i + 1, 8, '0') + ")")){
+          eprint(hdb, "async::get");
+          err = true;
+          break;
+        }
+      }
+      if(agets.get(rnum).get() != null || ahdb.fwmkeys("(".getBytes(), -1).get().size() != rnum ||
+         !ahdb.sync().get()){
+        eprint(hdb, "(validation)");
+        err = true;
+      }
+      for(int i = 1; i <= rnum; i++){
+        byte[] buf = ("{" + Util.itoa(i, 8, '0') + "}").getBytes();
+        ahdb.put(buf, buf);
+      }
+      if(ahdb.fwmkeys("{".getBytes(), -1).get().size() != rnum){
+        eprint(hdb, "async::fwmkeys");
+        err = true;
+      }
+      for(int i = 1; i <= rnum; i++){
+        ahdb.out(("{" + Util.itoa(i, 8, '0') + "}").getBytes());
+      }
+      if(ahdb.fwmkeys("{".getBytes(), -1).get().size() != 0){
+        eprint(hdb, "async::fwmkeys");
+        err = true;
+      }
+      byte[] akey = "(order)".getBytes();
+      byte[] avalue = new byte[1];
+      List<Future<byte[]>> aorders = new ArrayList<Future<byte[]>>();
+      for(int i = 0; i < 100; i++){
+        avalue[0] = (byte)i;
+        ahdb.put(akey, avalue);
+        aorders.add(ahdb.get(akey));
+      }
+      for(int i = 0; i < aorders.size(); i++){
+        byte[] value = aorders.get(i).get();
+        if(value == null || value.length != 1 || value[0] != i){
+          eprint(hdb, "async::put");
+          err = true;
+          break;
+        }
+      }
+      ahdb.out(akey);
+    } catch(Exception e){
+      eprint(hdb, "async::get");
+      err = true;
+    }
+    ahdb.shutdown();
+    for(int i = 1; i <= rnum; i++){
+      hdb.out("(" + Util.itoa(i, 8, '0') + ")");
+    }
+    STDOUT.println("checking monitored database:");
+    String mpath = path + "-m";
+    MonitoredHDB mhdb = new MonitoredHDB("HDBTest");
+    MonitorRegistry mreg = new JMXRegistry();
+    if(!mreg.register(mhdb.monitor())){
+      eprint(hdb, "monitor::register");
+      err = true;
+    }
+    if(!mhdb.open(mpath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(mhdb, "monitored::open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(!mhdb.put(buf, buf) || !buf.equals(mhdb.get(buf))){
+        eprint(mhdb, "monitored::put");
+        err = true;
+        break;
+      }
+    }
+    mhdb.get("none");
+    Monitor mon = mhdb.monitor();
+    Map<String, Long> msnap = mon.snapshot();
+    if(mon.op("put").count() != rnum || mon.op("get").count() != rnum + 1 ||
+       mon.op("get").fails() != 1 || mon.errors().get(HDB.ENOREC) != 1 ||
+       mon.wbytes() < rnum * 16L || mon.rbytes() != rnum * 8L || msnap.get("rnum") != rnum ||
+       msnap.get("put.p99") > msnap.get("put.max") || msnap.get("fsiz") < 1 ||
+       msnap.containsKey("bnumused")){
+      eprint(mhdb, "(validation)");
+      err = true;
+    }
+    try {
+      javax.management.MBeanServer mserv =
+        java.lang.management.ManagementFactory.getPlatformMBeanServer();
+      javax.management.ObjectName mname = ((JMXRegistry)mreg).name(mon);
+      if(!Long.valueOf(rnum).equals(mserv.getAttribute(mname, "rnum")) ||
+         (Long)mserv.getAttribute(mname, "bnumused") < 1){
+        eprint(mhdb, "monitor::getAttribute");
+        err = true;
+      }
+    } catch(Exception e){
+      eprint(mhdb, "monitor::getAttribute");
+      err = true;
+    }
+    if(!mreg.unregister(mon)){
+      eprint(hdb, "monitor::unregister");
+      err = true;
+    }
+    if(!mhdb.close()){
+      eprint(mhdb, "monitored::close");
+      err = true;
+    }
+    new File(mpath).delete();
+    STDOUT.println("checking statistics:");
+    Stats hstats = hdb.stats();
+    if(hstats.get("rnum") != hdb.rnum() || hstats.get("fsiz") != hdb.fsiz() ||
+       hstats.get("bnumused") < 1 || hstats.get("bnumused") > hstats.get("bnum") ||
+       hstats.get("align") < 1 || hstats.get("cnt_readrec") < -1 || hstats.get("none") != -1){
+      eprint(hdb, "(validation)");
+      err = true;
+    }
+    STDOUT.println("checking maintenance scheduler:");
+    String mtpath = path + "-t";
+    HDB shdb = new MonitoredHDB("HDBTest-sched");
+    if(!shdb.tune(rnum / 8 + 1, -1, -1, 0) ||
+       !shdb.open(mtpath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(shdb, "open");
+      err = true;
+    }
+    MaintenanceScheduler sched = new MaintenanceScheduler(100, 50);
+    sched.add(shdb);
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      shdb.put(buf, buf + buf + buf);
+    }
+    for(int i = 1; i <= rnum; i += 2){
+      shdb.out(Util.itoa(i, 8, '0'));
+    }
+    sched.tick();
+    sched.tick();
+    long sdfnum = sched.dfnum();
+    sched.setloadmax(2.0);
+    for(int i = 1; i <= rnum; i += 2){
+      String buf = Util.itoa(i, 8, '0');
+      shdb.put(buf, buf);
+    }
+    sched.tick();
+    sched.tick();
+    long soptnum = sched.optnum();
+    sched.tick();
+    shdb.get(Util.itoa(1, 8, '0'));
+    int sbusy = sched.tick();
+    if(sdfnum < 1 || soptnum < 1 || sbusy != 0 || sched.errnum() != 0 ||
+       shdb.rnum() != rnum || !sched.remove(shdb) || sched.remove(shdb)){
+      eprint(shdb, "(validation)");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      String value = shdb.get(buf);
+      if(value == null || !value.startsWith(buf)){
+        eprint(shdb, "get");
+        err = true;
+        break;
+      }
+    }
+    if(!shdb.close()){
+      eprint(shdb, "close");
+      err = true;
+    }
+    new File(mtpath).delete();
+    STDOUT.println("checking online rebuild:");
+    String orpath = path + "-r";
+    final OnlineHDB ohdb = new OnlineHDB();
+    if(!ohdb.open(orpath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(ohdb, "open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      ohdb.put(buf, buf + buf + buf + buf + buf + buf + buf + buf);
+    }
+    for(int i = 1; i <= rnum; i += 2){
+      ohdb.out(Util.itoa(i, 8, '0'));
+    }
+    long rbfsiz = ohdb.fsiz();
+    final int rbrnum = rnum;
+    Thread writer = new Thread(){
+        public void run(){
+          for(int i = 1; i <= rbrnum; i++){
+            String buf = Util.itoa(i, 8, '0');
+            if(i % 4 == 0){
+              ohdb.out(buf);
+            } else if(i % 2 == 0){
+              ohdb.putcat(buf, "+");
+            }
+          }
+        }
+      };
+    writer.start();
+    if(!ohdb.rebuild()){
+      eprint(ohdb, "rebuild");
+      err = true;
+    }
+    try {
+      writer.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    if(ohdb.rnum() != rnum / 4 + rnum % 4 / 2 || ohdb.fsiz() >= rbfsiz){
+      eprint(ohdb, "(validation)");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      String value = ohdb.get(buf);
+      boolean ok;
+      if(i % 4 == 0 || i % 2 == 1){
+        ok = value == null;
+      } else {
+        ok = value != null && value.length() == 65 && value.endsWith("+");
+      }
+      if(!ok){
+        eprint(ohdb, "get");
+        err = true;
+        break;
+      }
+    }
+    final boolean[] rbok = new boolean[1];
+    Thread rebuilder = new Thread(){
+        public void run(){
+          rbok[0] = ohdb.rebuild();
+        }
+      };
+    if(!ohdb.put("(tran)", "v0") || !ohdb.tranbegin() || !ohdb.put("(tran)", "v1")){
+      eprint(ohdb, "tranbegin");
+      err = true;
+    }
+    rebuilder.start();
+    // wait until the rebuild waits for the transaction in the final step
+    File rbtmp = new File(orpath + ".tmp.rebuild");
+    for(int i = 0; i < 2000; i++){
+      if(rbtmp.exists() && rebuilder.getState() == Thread.State.TIMED_WAITING) break;
+      try {
+        Thread.sleep(1);
+      } catch(InterruptedException e){
+        err = true;
+      }
+    }
+    if(!rbtmp.exists() || !rebuilder.isAlive()){
+      eprint(ohdb, "rebuild");
+      err = true;
+    }
+    if(!ohdb.tranabort() || !"v0".equals(ohdb.get("(tran)"))){
+      eprint(ohdb, "tranabort");
+      err = true;
+    }
+    try {
+      rebuilder.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    if(!rbok[0] || !"v0".equals(ohdb.get("(tran)"))){
+      eprint(ohdb, "rebuild");
+      err = true;
+    }
+    if(!ohdb.close()){
+      eprint(ohdb, "close");
+      err = true;
+    }
+    new File(orpath).delete();
+    STDOUT.println("checking change log:");
+    String clpath = path + "-l";
+    String clbpath = path + "-b";
+    new File(clpath).delete();
+    ChangeLog log = new ChangeLog(64, 0);
+    if(!log.open(clpath)){
+      eprint(hdb, "(log open)");
+      err = true;
+    }
+    LoggedHDB lhdb = new LoggedHDB(log);
+    if(!lhdb.open(orpath, HDB.OWRITER | HDB.OCREAT | HDB.OTRUNC | omode)){
+      eprint(lhdb, "open");
+      err = true;
+    }
+    for(int i = 1; i <= rnum / 2; i++){
+      String buf = Util.itoa(i, 8, '0');
+      lhdb.put(buf, buf);
+    }
+    long clseq = lhdb.backup(clbpath);
+    if(clseq != rnum / 2){
+      eprint(lhdb, "backup");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(i % 3 == 0){
+        lhdb.out(buf);
+      } else if(i % 3 == 1){
+        lhdb.putcat(buf, "*");
+      } else {
+        lhdb.addint("[" + buf + "]", i);
+      }
+    }
+    if(!lhdb.tranbegin()){
+      eprint(lhdb, "tranbegin");
+      err = true;
+    }
+    lhdb.put("commit", "commit");
+    if(!lhdb.trancommit()){
+      eprint(lhdb, "trancommit");
+      err = true;
+    }
+    if(!lhdb.tranbegin()){
+      eprint(lhdb, "tranbegin");
+      err = true;
+    }
+    lhdb.put("abort", "abort");
+    lhdb.out("commit");
+    if(!lhdb.tranabort()){
+      eprint(lhdb, "tranabort");
+      err = true;
+    }
+    if(!lhdb.sync()){
+      eprint(lhdb, "sync");
+      err = true;
+    }
+    HDB rhdb = new HDB();
+    if(!rhdb.open(clbpath, HDB.OWRITER | omode)){
+      eprint(rhdb, "open");
+      err = true;
+    }
+    Replica replica = new Replica(clpath, rhdb, clseq);
+    replica.setbatch(100);
+    if(replica.apply() < 0 || replica.seq() != log.seq()){
+      eprint(rhdb, "(apply) " + replica.errmsg());
+      err = true;
+    }
+    if(rhdb.rnum() != lhdb.rnum() || rhdb.get("abort") != null){
+      eprint(rhdb, "(validation)");
+      err = true;
+    }
+    lhdb.iterinit();
+    byte[] clkey;
+    while((clkey = lhdb.iternext()) != null){
+      if(!Arrays.equals(lhdb.get(clkey), rhdb.get(clkey))){
+        eprint(rhdb, "get");
+        err = true;
+        break;
+      }
+    }
+    if(!rhdb.tranbegin() || !rhdb.setopaque(new byte[16]) || !rhdb.tranabort()){
+      eprint(rhdb, "(opaque)");
+      err = true;
+    }
+    if(rhdb.tranbegin() && rhdb.setopaque("application data".getBytes())){
+      try {
+        new Replica(clpath, rhdb, 0);
+        eprint(rhdb, "(foreign opaque)");
+        err = true;
+      } catch(IllegalArgumentException e){}
+    } else {
+      eprint(rhdb, "(opaque)");
+      err = true;
+    }
+    if(!rhdb.tranabort()){
+      eprint(rhdb, "tranabort");
+      err = true;
+    }
+    Replica rreplica = new Replica(clpath, rhdb, 0);
+    if(rreplica.seq() != log.seq() || rreplica.apply() != 0){
+      eprint(rhdb, "(resume) " + rreplica.errmsg());
+      err = true;
+    }
+    rreplica.close();
+    long clsiz = new File(clpath).length();
+    if(!log.truncate(clseq) || new File(clpath).length() >= clsiz){
+      eprint(hdb, "(log truncate)");
+      err = true;
+    }
+    lhdb.addint("[truncate]", 1);
+    if(!lhdb.sync()){
+      eprint(lhdb, "sync");
+      err = true;
+    }
+    byte[] trkey = "[truncate]".getBytes();
+    if(replica.apply() != 1 || replica.seq() != log.seq() ||
+       !Arrays.equals(lhdb.get(trkey), rhdb.get(trkey))){
+      eprint(rhdb, "(apply after truncate) " + replica.errmsg());
+      err = true;
+    }
+    replica.close();
+    if(!lhdb.close()){
+      eprint(lhdb, "close");
+      err = true;
+    }
+    clseq = log.seq();
+    if(!log.close()){
+      eprint(hdb, "(log close)");
+      err = true;
+    }
+    if(!log.open(clpath) || log.seq() != clseq || !log.close()){
+      eprint(hdb, "(log reopen)");
+      err = true;
+    }
+    clsiz = new File(clpath).length();
+    try {
+      RandomAccessFile clfile = new RandomAccessFile(clpath, "rw");
+      clfile.seek(ChangeLog.MAGIC.length + 16);
+      int clbyte = clfile.read();
+      clfile.seek(ChangeLog.MAGIC.length + 16);
+      clfile.write(clbyte ^ 0xff);
+      clfile.close();
+    } catch(IOException e){
+      eprint(hdb, "(log corrupt)");
+      err = true;
+    }
+    if(log.open(clpath) || log.error() == null || new File(clpath).length() != clsiz){
+      eprint(hdb, "(log broken)");
+      err = true;
+    }
+    if(!rhdb.close()){
+      eprint(rhdb, "close");
+      err = true;
+    }
+    new File(clbpath).delete();
+    new File(clpath).delete();
+    new File(orpath).delete();
     STDOUT.println("checking common interface:");
     DBM dbm = hdb;
     for(int i = 1; i <= rnum; i++){
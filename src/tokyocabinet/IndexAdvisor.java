@@ -0,0 +1,327 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Index advisor is a collector of statistics of queries of table database.  It samples the hint
+ * strings and the latencies of queries and accumulates the cost of the queries scanning the
+ * whole table for each pair of a column and an operation of the conditions, so that the columns
+ * worth indexing can be reported and indexed.  The latency of a query is split evenly among its
+ * conditions.
+ * @see TDB#setadvisor(IndexAdvisor)
+ */
+public class IndexAdvisor {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** names of the operation types */
+  private static final String[] OPNAMES = {
+    "STREQ", "STRINC", "STRBW", "STREW", "STRAND", "STROR", "STROREQ", "STRRX",
+    "NUMEQ", "NUMGT", "NUMGE", "NUMLT", "NUMLE", "NUMBT", "NUMOREQ",
+    "FTSPH", "FTSAND", "FTSOR", "FTSEX"
+  };
+  /** index types suitable for the operation types */
+  private static final int[] OPTYPES = {
+    TDB.ITLEXICAL, -1, TDB.ITLEXICAL, -1, TDB.ITTOKEN, TDB.ITTOKEN, TDB.ITLEXICAL, -1,
+    TDB.ITDECIMAL, TDB.ITDECIMAL, TDB.ITDECIMAL, TDB.ITDECIMAL, TDB.ITDECIMAL, TDB.ITDECIMAL,
+    TDB.ITDECIMAL, TDB.ITQGRAM, TDB.ITQGRAM, TDB.ITQGRAM, TDB.ITQGRAM
+  };
+  /** interval of checking the maintenance window in milliseconds */
+  private static final long AUTOINTERVAL = 60 * 1000;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** sampling rate */
+  private int rate;
+  /** number of queries offered to the sampling */
+  private long qnum;
+  /** number of sampled queries */
+  private long snum;
+  /** statistics of each pair of a column and an operation */
+  private Map<String, Stat> stats;
+  /** timer of the automatic mode */
+  private Timer timer;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an index advisor object.
+   * @param rate the sampling rate.  One of every `rate' queries is sampled.  If it is not more
+   * than 1, every query is sampled.
+   */
+  public IndexAdvisor(int rate){
+    this.rate = Math.max(rate, 1);
+    this.qnum = 0;
+    this.snum = 0;
+    this.stats = new HashMap<String, Stat>();
+    this.timer = null;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of sampled queries.
+   * @return the number of sampled queries.
+   */
+  public synchronized long snum(){
+    return snum;
+  }
+  /**
+   * Get the advices.
+   * @param max the maximum number of advices.  If it is negative, no limit is specified.
+   * @return a list object of the advices in the descending order of the total latency.  Each
+   * advice is a pair of a column and an operation of the conditions which can be served by an
+   * index but were evaluated by scanning the whole table.
+   */
+  public synchronized List<Advice> advise(int max){
+    List<Advice> advices = new ArrayList<Advice>();
+    for(Stat stat : stats.values()){
+      int type = OPTYPES[stat.op];
+      if(stat.scans < 1 || type < 0) continue;
+      advices.add(new Advice(stat.name, stat.op, type, stat.scans, stat.time));
+    }
+    Collections.sort(advices);
+    if(max >= 0 && advices.size() > max) return new ArrayList<Advice>(advices.subList(0, max));
+    return advices;
+  }
+  /**
+   * Get the report string of the advices.
+   * @param max the maximum number of advices.  If it is negative, no limit is specified.
+   * @return the report string.  Each line is composed of the column name, the operation, the
+   * number of scans, the total latency in milliseconds, and the suggested index type, separated
+   * by tab characters.
+   */
+  public String report(int max){
+    StringBuilder sb = new StringBuilder();
+    for(Advice advice : advise(max)){
+      sb.append(advice).append('\n');
+    }
+    return sb.toString();
+  }
+  /**
+   * Set indexes of the columns worth indexing.
+   * @param tdb the table database object.
+   * @param mintime the minimum total latency in milliseconds of a column to be indexed.
+   * @return the number of the indexes set.
+   * @note If multiple operations are advised for a column, the index type of the most costly
+   * one is chosen.  A column which already has an index is skipped even if the index is of
+   * another type, because replacing it would break the queries relying on it.  The statistics of
+   * the indexed columns are cleared.  Because setting an index scans the whole table and locks
+   * the database, this method should be called in a maintenance window.
+   */
+  public int apply(TDB tdb, long mintime){
+    Map<String, Integer> idxs = tdb.indexes();
+    Set<String> done = new HashSet<String>();
+    for(Advice advice : advise(-1)){
+      if(advice.time() < mintime * 1000000) break;
+      if(done.contains(advice.name()) || idxs.containsKey(advice.name())) continue;
+      if(tdb.setindex(advice.name(), advice.type())) done.add(advice.name());
+    }
+    synchronized(this){
+      Iterator<Stat> it = stats.values().iterator();
+      while(it.hasNext()){
+        if(done.contains(it.next().name)) it.remove();
+      }
+    }
+    return done.size();
+  }
+  /**
+   * Set the automatic mode.
+   * @param tdb the table database object.
+   * @param bhour the hour of the day when the maintenance window begins.  If it is negative, the
+   * automatic mode is disabled.
+   * @param ehour the hour of the day when the maintenance window ends.  If it is less than
+   * `bhour', the window spans midnight.
+   * @param mintime the minimum total latency in milliseconds of a column to be indexed.
+   * @note In the automatic mode, a daemon thread checks the clock every minute and calls `apply'
+   * once in each maintenance window.
+   */
+  public synchronized void setauto(final TDB tdb, final int bhour, final int ehour,
+                                   final long mintime){
+    if(timer != null){
+      timer.cancel();
+      timer = null;
+    }
+    if(bhour < 0) return;
+    timer = new Timer(true);
+    timer.schedule(new TimerTask(){
+        private boolean inwin = false;
+        public void run(){
+          int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+          boolean win = bhour <= ehour ? hour >= bhour && hour < ehour :
+            hour >= bhour || hour < ehour;
+          if(win && !inwin) apply(tdb, mintime);
+          inwin = win;
+        }
+      }, 0, AUTOINTERVAL);
+  }
+  /**
+   * Clear the statistics.
+   */
+  public synchronized void clear(){
+    qnum = 0;
+    snum = 0;
+    stats.clear();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Check whether the next query is to be sampled.
+   */
+  synchronized boolean sample(){
+    return qnum++ % rate == 0;
+  }
+  /**
+   * Record a sampled query.
+   * @param conds the normalized expressions of the conditions.
+   * @param hint the hint string of the query.
+   * @param time the latency in nanoseconds.
+   */
+  synchronized void record(List<String> conds, String hint, long time){
+    snum++;
+    boolean scan = hint.indexOf("scanning the whole table") >= 0;
+    List<Stat> hits = new ArrayList<Stat>();
+    for(String cond : conds){
+      int sep = cond.indexOf('\0');
+      String name = cond.substring(0, sep);
+      int op = Integer.parseInt(cond.substring(sep + 1, cond.indexOf('\0', sep + 1)));
+      if(name.length() < 1 || (op & (TDBQRY.QCNEGATE | TDBQRY.QCNOIDX)) != 0) continue;
+      if(op < 0 || op >= OPNAMES.length) continue;
+      String key = name + '\0' + op;
+      Stat stat = stats.get(key);
+      if(stat == null){
+        stat = new Stat(name, op);
+        stats.put(key, stat);
+      }
+      hits.add(stat);
+    }
+    if(!scan || hits.isEmpty()) return;
+    for(Stat stat : hits){
+      stat.scans++;
+      stat.time += time / hits.size();
+    }
+  }
+  //----------------------------------------------------------------
+  // public classes
+  //----------------------------------------------------------------
+  /**
+   * Advice of an index.
+   */
+  public static class Advice implements Comparable<Advice> {
+    /** name of the column */
+    private String name;
+    /** operation type */
+    private int op;
+    /** suggested index type */
+    private int type;
+    /** number of scans */
+    private long scans;
+    /** total latency in nanoseconds */
+    private long time;
+    /**
+     * Create an advice object.
+     */
+    Advice(String name, int op, int type, long scans, long time){
+      this.name = name;
+      this.op = op;
+      this.type = type;
+      this.scans = scans;
+      this.time = time;
+    }
+    /**
+     * Get the name of the column.
+     * @return the name of the column.
+     */
+    public String name(){
+      return name;
+    }
+    /**
+     * Get the operation type.
+     * @return the operation type of the condition.
+     */
+    public int op(){
+      return op;
+    }
+    /**
+     * Get the suggested index type.
+     * @return `TDB.ITLEXICAL', `TDB.ITDECIMAL', `TDB.ITTOKEN', or `TDB.ITQGRAM'.
+     */
+    public int type(){
+      return type;
+    }
+    /**
+     * Get the number of sampled queries scanning the whole table.
+     * @return the number of the scans.
+     */
+    public long scans(){
+      return scans;
+    }
+    /**
+     * Get the total latency of the sampled queries scanning the whole table.
+     * @return the total latency in nanoseconds.
+     */
+    public long time(){
+      return time;
+    }
+    /**
+     * Compare with another advice by the total latency in the descending order.
+     */
+    public int compareTo(Advice other){
+      if(time != other.time) return time > other.time ? -1 : 1;
+      return name.compareTo(other.name);
+    }
+    /**
+     * Get the string expression.
+     */
+    public String toString(){
+      String tname = type == TDB.ITLEXICAL ? "LEXICAL" : type == TDB.ITDECIMAL ? "DECIMAL" :
+        type == TDB.ITTOKEN ? "TOKEN" : "QGRAM";
+      return name + "\t" + OPNAMES[op] + "\t" + scans + "\t" + time / 1000000 + "\t" + tname;
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Statistics of a pair of a column and an operation.
+   */
+  private static class Stat {
+    /** name of the column */
+    String name;
+    /** operation type */
+    int op;
+    /** number of sampled queries scanning the whole table */
+    long scans;
+    /** total latency of the scans in nanoseconds */
+    long time;
+    Stat(String name, int op){
+      this.name = name;
+      this.op = op;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,208 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.lang.management.*;
+import javax.management.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * JMX registry is a monitor registry which exports each monitor as a dynamic MBean.  The object
+ * name is "DOMAIN:type=Monitor,name=NAME" and the attributes are the metrics of the snapshot of
+ * the monitor, which are read-only.  The snapshot read by attributes is reused for a second, so
+ * that a console reading the attributes one by one takes one snapshot per poll.  The number of
+ * used buckets is exposed as the attribute "bnumused", which scans the bucket array only when
+ * it is read and is also reused for a second.
+ * @see Monitor#snapshot()
+ * @see Monitor#bnumused()
+ */
+public class JMXRegistry implements MonitorRegistry {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** time in milliseconds for which a snapshot is reused */
+  private static final long CACHETIME = 1000;
+  /** name of the attribute of the number of used buckets */
+  private static final String BNUMUSED = "bnumused";
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** MBean server */
+  private MBeanServer server;
+  /** domain of the object names */
+  private String domain;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a registry of the platform MBean server with the domain "tokyocabinet".
+   */
+  public JMXRegistry(){
+    this(ManagementFactory.getPlatformMBeanServer(), "tokyocabinet");
+  }
+  /**
+   * Create a registry.
+   * @param server the MBean server.
+   * @param domain the domain of the object names.
+   */
+  public JMXRegistry(MBeanServer server, String domain){
+    this.server = server;
+    this.domain = domain;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Register a monitor.
+   * @param monitor the monitor object.
+   * @return If successful, it is true, else, it is false.  It fails if a monitor of the same
+   * name is registered.
+   */
+  public boolean register(Monitor monitor){
+    try {
+      server.registerMBean(new Bean(monitor), name(monitor));
+      return true;
+    } catch(JMException e){
+      return false;
+    }
+  }
+  /**
+   * Unregister a monitor.
+   * @param monitor the monitor object.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean unregister(Monitor monitor){
+    try {
+      server.unregisterMBean(name(monitor));
+      return true;
+    } catch(JMException e){
+      return false;
+    }
+  }
+  /**
+   * Get the object name of a monitor.
+   * @param monitor the monitor object.
+   * @return the object name.
+   */
+  public ObjectName name(Monitor monitor){
+    try {
+      return new ObjectName(domain + ":type=Monitor,name=" + ObjectName.quote(monitor.name()));
+    } catch(MalformedObjectNameException e){
+      throw new IllegalArgumentException(e.getMessage());
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Dynamic MBean of a monitor.
+   */
+  private static class Bean implements DynamicMBean {
+    /** monitor object */
+    private Monitor monitor;
+    /** last snapshot or `null' */
+    private Map<String, Long> snap;
+    /** time when the last snapshot was taken */
+    private long stime;
+    /** last number of used buckets */
+    private long bnumused;
+    /** time when the last number of used buckets was taken or 0 */
+    private long btime;
+    Bean(Monitor monitor){
+      this.monitor = monitor;
+      this.snap = null;
+      this.stime = 0;
+      this.bnumused = -1;
+      this.btime = 0;
+    }
+    public Object getAttribute(String name) throws AttributeNotFoundException {
+      Long value = name.equals(BNUMUSED) ? Long.valueOf(bnumused()) : snapshot().get(name);
+      if(value == null) throw new AttributeNotFoundException(name);
+      return value;
+    }
+    public AttributeList getAttributes(String[] names){
+      Map<String, Long> snap = snapshot();
+      AttributeList list = new AttributeList();
+      for(String name : names){
+        Long value = name.equals(BNUMUSED) ? Long.valueOf(bnumused()) : snap.get(name);
+        if(value != null) list.add(new Attribute(name, value));
+      }
+      return list;
+    }
+    public void setAttribute(Attribute attr) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("read only: " + attr.getName());
+    }
+    public AttributeList setAttributes(AttributeList attrs){
+      return new AttributeList();
+    }
+    public Object invoke(String name, Object[] params, String[] sig) throws MBeanException {
+      if(name.equals("reset") && (params == null || params.length < 1)){
+        monitor.reset();
+        synchronized(this){
+          snap = null;
+        }
+        return null;
+      }
+      throw new MBeanException(new IllegalArgumentException("no such operation: " + name));
+    }
+    public MBeanInfo getMBeanInfo(){
+      Set<String> names = new TreeSet<String>(monitor.snapshot().keySet());
+      names.add(BNUMUSED);
+      MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[names.size()];
+      int anum = 0;
+      for(String name : names){
+        attrs[anum++] = new MBeanAttributeInfo(name, "java.lang.Long", name, true, false, false);
+      }
+      MBeanOperationInfo[] opers = new MBeanOperationInfo[] {
+        new MBeanOperationInfo("reset", "clear all metrics", new MBeanParameterInfo[0],
+                               "void", MBeanOperationInfo.ACTION)
+      };
+      return new MBeanInfo(Monitor.class.getName(), "metrics of " + monitor.name(), attrs,
+                           null, opers, null);
+    }
+    /**
+     * Get the snapshot of the monitor, reusing the last one if it is recent.
+     */
+    private synchronized Map<String, Long> snapshot(){
+      long now = System.currentTimeMillis();
+      if(snap == null || now - stime >= CACHETIME || now < stime){
+        snap = monitor.snapshot();
+        stime = now;
+      }
+      return snap;
+    }
+    /**
+     * Get the number of used buckets, reusing the last one if it is recent.
+     */
+    private synchronized long bnumused(){
+      long now = System.currentTimeMillis();
+      if(btime == 0 || now - btime >= CACHETIME || now < btime){
+        bnumused = monitor.bnumused();
+        btime = now;
+      }
+      return bnumused;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,322 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Logged abstract database is an abstract database object recording its updates in a change
+ * log, so that a replica can follow it.  Each update of a record and its entry are made while the
+ * key is locked, so that the entries of each record are in the order of the updates.  The other
+ * updates, and every update of a fixed-length database, lock the whole log.
+ * @note Only successful updates are recorded.  Storing by `putkeep' is recorded as `put'.  Calls
+ * of the versatile function are recorded as they are if the function updates the database.
+ * Updates in a transaction are recorded between the entries of the beginning and the end of the
+ * transaction, and only one transaction can be open at the same time.
+ * @see Replica
+ */
+public class LoggedADB extends ADB {
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Convert the arguments of a versatile function into byte arrays.
+   */
+  private static byte[][] miscargs(List<?> args){
+    if(args == null) return new byte[0][];
+    byte[][] ary = new byte[args.size()][];
+    int anum = 0;
+    for(Object arg : args){
+      ary[anum++] = arg instanceof byte[] ? (byte[])arg : Util.otos(arg).getBytes();
+    }
+    return ary;
+  }
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** change log */
+  private ChangeLog log;
+  /** whether the database is a fixed-length database */
+  private boolean fixed;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a logged abstract database object.
+   * @param log the change log object, which should be opened.
+   */
+  public LoggedADB(ChangeLog log){
+    super();
+    if(log == null) throw new NullPointerException("log");
+    this.log = log;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Open a database.
+   * @see ADB#open(String)
+   */
+  public boolean open(String name){
+    int hidx = name.indexOf('#');
+    fixed = (hidx >= 0 ? name.substring(0, hidx) : name).endsWith(".tcf");
+    return super.open(name);
+  }
+  /**
+   * Copy the database file as the base of a replica.
+   * @param path the path of the destination file.
+   * @return the sequence number of the last entry reflected in the copy, or -1 on failure.
+   * @note It waits until no transaction is open, and the database is not updated while it
+   * is copied.  A replica of the copy should be created with the returned sequence number.
+   * It should not be called in a transaction.
+   * @see Replica
+   */
+  public long backup(String path){
+    log.tranenter();
+    log.lock();
+    try {
+      return super.copy(path) ? log.seq() : -1;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see ADB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    log.lock(lkey(key));
+    try {
+      boolean rv = super.put(key, value);
+      if(rv) log.append(ChangeLog.OPPUT, key, value);
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Store a new record.
+   * @see ADB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    log.lock(lkey(key));
+    try {
+      boolean rv = super.putkeep(key, value);
+      if(rv) log.append(ChangeLog.OPPUT, key, value);
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see ADB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    log.lock(lkey(key));
+    try {
+      boolean rv = super.putcat(key, value);
+      if(rv) log.append(ChangeLog.OPPUTCAT, key, value);
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Remove a record.
+   * @see ADB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    log.lock(lkey(key));
+    try {
+      boolean rv = super.out(key);
+      if(rv) log.append(ChangeLog.OPOUT, key);
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see ADB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    log.lock(lkey(key));
+    try {
+      int rv = super.addint(key, num);
+      if(rv != Integer.MIN_VALUE){
+        log.append(ChangeLog.OPADDINT, key, String.valueOf(num).getBytes());
+      }
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see ADB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    log.lock(lkey(key));
+    try {
+      double rv = super.adddouble(key, num);
+      if(!Double.isNaN(rv)) log.append(ChangeLog.OPADDDOUBLE, key, String.valueOf(num).getBytes());
+      return rv;
+    } finally {
+      log.unlock(lkey(key));
+    }
+  }
+  /**
+   * Call a versatile function for miscellaneous operations.
+   * @see ADB#misc(String, List)
+   * @note The call is recorded only if the function updates the database.
+   */
+  public List<byte[]> misc(String name, List<?> args){
+    byte[][] ary = miscargs(args);
+    if(!ChangeLog.miscwrite(name, ary)) return super.misc(name, args);
+    log.lock();
+    try {
+      List<byte[]> rv = super.misc(name, args);
+      if(rv != null) log.append(ChangeLog.OPMISC, name.getBytes(), Arrays.asList(ary));
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Store records.
+   * @see ADB#putlist(List<byte[]>)
+   */
+  public boolean putlist(List<byte[]> recs){
+    log.lock();
+    try {
+      boolean rv = super.putlist(recs);
+      if(rv) log.append(ChangeLog.OPMISC, "putlist".getBytes(), recs);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Remove records.
+   * @see ADB#outlist(List<byte[]>)
+   */
+  public boolean outlist(List<byte[]> keys){
+    log.lock();
+    try {
+      boolean rv = super.outlist(keys);
+      if(rv) log.append(ChangeLog.OPMISC, "outlist".getBytes(), keys);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see ADB#sync()
+   * @note The change log is synchronized as well.
+   */
+  public boolean sync(){
+    boolean rv = super.sync();
+    if(!log.sync()) rv = false;
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see ADB#vanish()
+   */
+  public boolean vanish(){
+    log.lock();
+    try {
+      boolean rv = super.vanish();
+      if(rv) log.append(ChangeLog.OPVANISH);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see ADB#tranbegin()
+   */
+  public boolean tranbegin(){
+    if(log.held()) return super.tranbegin();
+    log.tranenter();
+    boolean rv = false;
+    log.lock();
+    try {
+      rv = super.tranbegin();
+      if(rv) log.append(ChangeLog.OPTRANBEGIN);
+      return rv;
+    } finally {
+      log.unlock();
+      if(!rv) log.tranleave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see ADB#trancommit()
+   */
+  public boolean trancommit(){
+    if(log.held()) return super.trancommit();
+    log.lock();
+    try {
+      boolean rv = super.trancommit();
+      log.append(rv ? ChangeLog.OPTRANCOMMIT : ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Abort the transaction.
+   * @see ADB#tranabort()
+   */
+  public boolean tranabort(){
+    if(log.held()) return super.tranabort();
+    log.lock();
+    try {
+      boolean rv = super.tranabort();
+      log.append(ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the key to be locked while a record is updated.
+   * @return the key, or `null' for a fixed-length database, whose keys such as "next" and "12"
+   * and "012" may name the same record.
+   */
+  private byte[] lkey(byte[] key){
+    return fixed ? null : key;
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,240 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Logged fixed-length database is a fixed-length database object recording its updates in a
+ * change log, so that a replica can follow it.  Each update and its entry are made while the log
+ * is locked, so that the entries are in the order of the updates.
+ * @note Only successful updates are recorded.  Storing by `putkeep' is recorded as `put'.  Keys
+ * are recorded as specified, so the special keys such as "next" are resolved by the replica in
+ * the same way as long as it has the same records.  Updates in a transaction are recorded between
+ * the entries of the beginning and the end of the transaction, and only one transaction can be
+ * open at the same time.
+ * @see Replica
+ */
+public class LoggedFDB extends FDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** change log */
+  private ChangeLog log;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a logged fixed-length database object.
+   * @param log the change log object, which should be opened.
+   */
+  public LoggedFDB(ChangeLog log){
+    super();
+    if(log == null) throw new NullPointerException("log");
+    this.log = log;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Copy the database file as the base of a replica.
+   * @param path the path of the destination file.
+   * @return the sequence number of the last entry reflected in the copy, or -1 on failure.
+   * @note It waits until no transaction is open, and the database is not updated while it
+   * is copied.  A replica of the copy should be created with the returned sequence number.
+   * It should not be called in a transaction.
+   * @see Replica
+   */
+  public long backup(String path){
+    log.tranenter();
+    log.lock();
+    try {
+      return super.copy(path) ? log.seq() : -1;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see FDB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    log.lock();
+    try {
+      boolean rv = super.put(key, value);
+      if(rv) log.append(ChangeLog.OPPUT, key, value);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Store a new record.
+   * @see FDB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    log.lock();
+    try {
+      boolean rv = super.putkeep(key, value);
+      if(rv) log.append(ChangeLog.OPPUT, key, value);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see FDB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    log.lock();
+    try {
+      boolean rv = super.putcat(key, value);
+      if(rv) log.append(ChangeLog.OPPUTCAT, key, value);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Remove a record.
+   * @see FDB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    log.lock();
+    try {
+      boolean rv = super.out(key);
+      if(rv) log.append(ChangeLog.OPOUT, key);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see FDB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    log.lock();
+    try {
+      int rv = super.addint(key, num);
+      if(rv != Integer.MIN_VALUE){
+        log.append(ChangeLog.OPADDINT, key, String.valueOf(num).getBytes());
+      }
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see FDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    log.lock();
+    try {
+      double rv = super.adddouble(key, num);
+      if(!Double.isNaN(rv)) log.append(ChangeLog.OPADDDOUBLE, key, String.valueOf(num).getBytes());
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see FDB#sync()
+   * @note The change log is synchronized as well.
+   */
+  public boolean sync(){
+    boolean rv = super.sync();
+    if(!log.sync()) rv = false;
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see FDB#vanish()
+   */
+  public boolean vanish(){
+    log.lock();
+    try {
+      boolean rv = super.vanish();
+      if(rv) log.append(ChangeLog.OPVANISH);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see FDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    if(log.held()) return super.tranbegin();
+    log.tranenter();
+    boolean rv = false;
+    log.lock();
+    try {
+      rv = super.tranbegin();
+      if(rv) log.append(ChangeLog.OPTRANBEGIN);
+      return rv;
+    } finally {
+      log.unlock();
+      if(!rv) log.tranleave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see FDB#trancommit()
+   */
+  public boolean trancommit(){
+    if(log.held()) return super.trancommit();
+    log.lock();
+    try {
+      boolean rv = super.trancommit();
+      log.append(rv ? ChangeLog.OPTRANCOMMIT : ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Abort the transaction.
+   * @see FDB#tranabort()
+   */
+  public boolean tranabort(){
+    if(log.held()) return super.tranabort();
+    log.lock();
+    try {
+      boolean rv = super.tranabort();
+      log.append(ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+}
+
+
+
+/* END OF FILE */
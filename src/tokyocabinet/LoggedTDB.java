@@ -0,0 +1,384 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Logged table database is a table database object recording its updates in a change log, so
+ * that a replica can follow it.  Each update of a record and its entry are made while the
+ * primary key is locked, so that the entries of each record are in the order of the updates.  The
+ * other updates lock the whole log.
+ * @note Only successful updates are recorded.  Storing by `putkeep' is recorded as `put'.
+ * Updates through query objects and row patches are recorded as the whole records of the
+ * affected primary keys.  Updates in a transaction are recorded between the entries of the
+ * beginning and the end of the transaction, and only one transaction can be open at the same
+ * time.
+ * @see Replica
+ */
+public class LoggedTDB extends TDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** change log */
+  private ChangeLog log;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a logged table database object.
+   * @param log the change log object, which should be opened.
+   */
+  public LoggedTDB(ChangeLog log){
+    super();
+    if(log == null) throw new NullPointerException("log");
+    this.log = log;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Copy the database file as the base of a replica.
+   * @param path the path of the destination file.
+   * @return the sequence number of the last entry reflected in the copy, or -1 on failure.
+   * @note It waits until no transaction is open, and the database is not updated while it
+   * is copied.  A replica of the copy should be created with the returned sequence number.
+   * It should not be called in a transaction.
+   * @see Replica
+   */
+  public long backup(String path){
+    log.tranenter();
+    log.lock();
+    try {
+      return super.copy(path) ? log.seq() : -1;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(byte[], Map)
+   */
+  public boolean put(byte[] pkey, Map cols){
+    log.lock(pkey);
+    try {
+      boolean rv = super.put(pkey, cols);
+      if(rv) log.append(ChangeLog.OPPUT, pkey, Arrays.asList(Util.maptostrary(cols)));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(byte[], Map)
+   */
+  public boolean putkeep(byte[] pkey, Map cols){
+    log.lock(pkey);
+    try {
+      boolean rv = super.putkeep(pkey, cols);
+      if(rv) log.append(ChangeLog.OPPUT, pkey, Arrays.asList(Util.maptostrary(cols)));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(byte[], Map)
+   */
+  public boolean putcat(byte[] pkey, Map cols){
+    log.lock(pkey);
+    try {
+      boolean rv = super.putcat(pkey, cols);
+      if(rv) log.append(ChangeLog.OPPUTCAT, pkey, Arrays.asList(Util.maptostrary(cols)));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Store a record composed by a row writer.
+   * @see TDB#put(byte[], RowWriter)
+   */
+  public boolean put(byte[] pkey, RowWriter row){
+    log.lock(pkey);
+    try {
+      boolean rv = super.put(pkey, row);
+      if(rv) log.append(ChangeLog.OPPUT, pkey, ChangeLog.rowcols(row.buffer(), row.length()));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * @see TDB#putkeep(byte[], RowWriter)
+   */
+  public boolean putkeep(byte[] pkey, RowWriter row){
+    log.lock(pkey);
+    try {
+      boolean rv = super.putkeep(pkey, row);
+      if(rv) log.append(ChangeLog.OPPUT, pkey, ChangeLog.rowcols(row.buffer(), row.length()));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * @see TDB#putcat(byte[], RowWriter)
+   */
+  public boolean putcat(byte[] pkey, RowWriter row){
+    log.lock(pkey);
+    try {
+      boolean rv = super.putcat(pkey, row);
+      if(rv) log.append(ChangeLog.OPPUTCAT, pkey, ChangeLog.rowcols(row.buffer(), row.length()));
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Remove a record.
+   * @see TDB#out(byte[])
+   */
+  public boolean out(byte[] pkey){
+    log.lock(pkey);
+    try {
+      boolean rv = super.out(pkey);
+      if(rv) log.append(ChangeLog.OPOUT, pkey);
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see TDB#addint(byte[], int)
+   */
+  public int addint(byte[] pkey, int num){
+    log.lock(pkey);
+    try {
+      int rv = super.addint(pkey, num);
+      if(rv != Integer.MIN_VALUE){
+        log.append(ChangeLog.OPADDINT, pkey, String.valueOf(num).getBytes());
+      }
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see TDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] pkey, double num){
+    log.lock(pkey);
+    try {
+      double rv = super.adddouble(pkey, num);
+      if(!Double.isNaN(rv)){
+        log.append(ChangeLog.OPADDDOUBLE, pkey, String.valueOf(num).getBytes());
+      }
+      return rv;
+    } finally {
+      log.unlock(pkey);
+    }
+  }
+  /**
+   * Set a column index.
+   * @see TDB#setindex(String, int)
+   */
+  public boolean setindex(String name, int type){
+    log.lock();
+    try {
+      boolean rv = super.setindex(name, type);
+      if(rv) log.append(ChangeLog.OPSETINDEX, name.getBytes(), String.valueOf(type).getBytes());
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Load records at a blast with deferred index build.
+   * @see TDB#bulkload(Iterator, int, long)
+   * @note The loading is recorded as one transaction of the records.  If it fails, the
+   * transaction is recorded as aborted even though some batches have been committed, so the
+   * replica should be made again from a backup.
+   */
+  public boolean bulkload(Iterator<RowWriter> rows, int batch, long iccmax){
+    if(rows == null) throw new IllegalArgumentException("null rows");
+    log.tranenter();
+    log.lock();
+    try {
+      log.append(ChangeLog.OPTRANBEGIN);
+      boolean rv = super.bulkload(new Tracer(rows), batch, iccmax);
+      log.append(rv ? ChangeLog.OPTRANCOMMIT : ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Generate a unique ID number.
+   * @see TDB#genuid()
+   */
+  public long genuid(){
+    log.lock();
+    try {
+      long rv = super.genuid();
+      if(rv != -1) log.append(ChangeLog.OPGENUID);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see TDB#sync()
+   * @note The change log is synchronized as well.
+   */
+  public boolean sync(){
+    boolean rv = super.sync();
+    if(!log.sync()) rv = false;
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see TDB#vanish()
+   */
+  public boolean vanish(){
+    log.lock();
+    try {
+      boolean rv = super.vanish();
+      if(rv) log.append(ChangeLog.OPVANISH);
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see TDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    if(log.held()) return super.tranbegin();
+    log.tranenter();
+    boolean rv = false;
+    log.lock();
+    try {
+      rv = super.tranbegin();
+      if(rv) log.append(ChangeLog.OPTRANBEGIN);
+      return rv;
+    } finally {
+      log.unlock();
+      if(!rv) log.tranleave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see TDB#trancommit()
+   */
+  public boolean trancommit(){
+    if(log.held()) return super.trancommit();
+    log.lock();
+    try {
+      boolean rv = super.trancommit();
+      log.append(rv ? ChangeLog.OPTRANCOMMIT : ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  /**
+   * Abort the transaction.
+   * @see TDB#tranabort()
+   */
+  public boolean tranabort(){
+    if(log.held()) return super.tranabort();
+    log.lock();
+    try {
+      boolean rv = super.tranabort();
+      log.append(ChangeLog.OPTRANABORT);
+      return rv;
+    } finally {
+      log.unlock();
+      log.tranleave();
+    }
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Apply the modifications recorded in a row patch.
+   * @see TDB#patch(RowSchema, RowPatch)
+   */
+  boolean patch(RowSchema schema, RowPatch patch){
+    log.lock();
+    try {
+      boolean rv = super.patch(schema, patch);
+      log.rows(this, patch.pkeys());
+      return rv;
+    } finally {
+      log.unlock();
+    }
+  }
+  /**
+   * Get the change log.
+   * @see TDB#changelog()
+   */
+  ChangeLog changelog(){
+    return log;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Iterator of rows recording each row.
+   */
+  private class Tracer implements Iterator<RowWriter> {
+    /** wrapped iterator */
+    private Iterator<RowWriter> rows;
+    Tracer(Iterator<RowWriter> rows){
+      this.rows = rows;
+    }
+    public boolean hasNext(){
+      return rows.hasNext();
+    }
+    public RowWriter next(){
+      RowWriter row = rows.next();
+      byte[] pkey = row.pkey();
+      if(pkey != null)
+        log.append(ChangeLog.OPPUT, pkey, ChangeLog.rowcols(row.buffer(), row.length()));
+      return row;
+    }
+    public void remove(){
+      throw new UnsupportedOperationException();
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,351 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Maintenance scheduler is a background task which defragments database files in small steps
+ * during quiet periods.  At each tick, databases which were not updated since the previous tick
+ * and have free blocks are defragmented within a time budget shared by all the databases, in
+ * round-robin order.  If the number of records exceeds the number of buckets by the load factor,
+ * the database is optimized with a recomputed number of buckets instead.
+ * @note A database is regarded as quiet if the numbers of calls of its monitor did not change
+ * since the previous tick, or, without a monitor, if the counters of the engine such as
+ * "cnt_readrec" and "cnt_writerec", the number of records, and the size of the file did not
+ * change.  If the native library is built without the counters, reads and overwrites of
+ * unmonitored databases are not seen, so such databases are only defragmented and not
+ * optimized unless they are online database objects.  The defragmentation of a tick stops when
+ * a step makes no progress.  The auto defragmentation by `setdfunit' should be disabled for the
+ * databases managed by the scheduler.  Online database objects are optimized by the online
+ * rebuild, which does not block other threads during the copy.
+ */
+public class MaintenanceScheduler {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** number of records moved by a defragmentation call */
+  private static final long DFSTEP = 64;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** executor service running the ticks */
+  private ScheduledExecutorService exec;
+  /** interval of the ticks in milliseconds */
+  private long interval;
+  /** time budget of a tick in nanoseconds */
+  private long budget;
+  /** maximum number of records per bucket */
+  private volatile double loadmax;
+  /** managed databases */
+  private CopyOnWriteArrayList<Entry> entries;
+  /** index of the first database of the next tick */
+  private int cursor;
+  /** number of defragmentation calls */
+  private AtomicLong dfnum;
+  /** number of optimizations */
+  private AtomicLong optnum;
+  /** number of failures */
+  private AtomicLong errnum;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a maintenance scheduler.
+   * @param interval the interval of the ticks in milliseconds.
+   * @param budget the time in milliseconds spent for defragmentation in a tick, which is shared
+   * by all the databases.  An optimization is not interrupted by the budget.
+   */
+  public MaintenanceScheduler(long interval, long budget){
+    if(interval < 1) throw new IllegalArgumentException("illegal interval: " + interval);
+    this.interval = interval;
+    this.budget = Math.max(budget, 1) * 1000000L;
+    loadmax = 4.0;
+    exec = null;
+    entries = new CopyOnWriteArrayList<Entry>();
+    cursor = 0;
+    dfnum = new AtomicLong();
+    optnum = new AtomicLong();
+    errnum = new AtomicLong();
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    shutdown();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Add a hash database.
+   * @param hdb the hash database object, which should be opened as a writer.
+   */
+  public void add(HDB hdb){
+    entries.add(new Entry(hdb));
+  }
+  /**
+   * Add a B+ tree database.
+   * @see #add(HDB)
+   */
+  public void add(BDB bdb){
+    entries.add(new Entry(bdb));
+  }
+  /**
+   * Add a table database.
+   * @see #add(HDB)
+   */
+  public void add(TDB tdb){
+    entries.add(new Entry(tdb));
+  }
+  /**
+   * Remove a database.
+   * @param db the database object.
+   * @return If the database was managed, it is true, else, it is false.
+   * @note The database may be under maintenance until the current tick finishes.
+   */
+  public boolean remove(Object db){
+    for(Entry ent : entries){
+      if(ent.db == db) return entries.remove(ent);
+    }
+    return false;
+  }
+  /**
+   * Set the load factor which triggers an optimization.
+   * @param loadmax the maximum number of records per bucket.  If it is not more than 0, no
+   * database is optimized.  The default is 4.0.
+   */
+  public void setloadmax(double loadmax){
+    this.loadmax = loadmax;
+  }
+  /**
+   * Start the ticks on a daemon thread.
+   */
+  public synchronized void start(){
+    if(exec != null) return;
+    exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+        public Thread newThread(Runnable r){
+          Thread th = new Thread(r, "MaintenanceScheduler");
+          th.setDaemon(true);
+          th.setPriority(Thread.MIN_PRIORITY);
+          return th;
+        }
+      });
+    exec.scheduleWithFixedDelay(new Runnable(){
+        public void run(){
+          tick();
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+  /**
+   * Stop the ticks.
+   * @note The current tick is finished before the thread exits.
+   */
+  public synchronized void shutdown(){
+    if(exec == null) return;
+    exec.shutdown();
+    exec = null;
+  }
+  /**
+   * Run a tick in the calling thread.
+   * @return the number of databases maintained in the tick.
+   */
+  public synchronized int tick(){
+    long deadline = System.nanoTime() + budget;
+    Entry[] ents = entries.toArray(new Entry[0]);
+    int num = 0;
+    for(int i = 0; i < ents.length && System.nanoTime() < deadline; i++){
+      Entry ent = ents[(cursor+i)%ents.length];
+      if(ent.quiet() && maintain(ent, deadline)) num++;
+    }
+    if(ents.length > 0) cursor = (cursor + 1) % ents.length;
+    return num;
+  }
+  /**
+   * Get the number of defragmentation calls.
+   * @return the number of defragmentation calls since the object was created.
+   */
+  public long dfnum(){
+    return dfnum.get();
+  }
+  /**
+   * Get the number of optimizations.
+   * @return the number of optimizations since the object was created.
+   */
+  public long optnum(){
+    return optnum.get();
+  }
+  /**
+   * Get the number of failures.
+   * @return the number of failed defragmentations and optimizations.
+   */
+  public long errnum(){
+    return errnum.get();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Defragment or optimize a database within the deadline.
+   * @return If anything is done, it is true, else, it is false.
+   */
+  private boolean maintain(Entry ent, long deadline){
+    Stats stats = ent.stats();
+    String prefix = ent.prefix();
+    long rnum = stats.get(prefix + "rnum");
+    long bnum = stats.get(prefix + "bnum");
+    double lmax = loadmax;
+    if(lmax > 0 && bnum > 0 && rnum > bnum * lmax && ent.optimizable()){
+      if(ent.optimize()){
+        optnum.incrementAndGet();
+      } else {
+        errnum.incrementAndGet();
+      }
+      ent.touch();
+      return true;
+    }
+    if(stats.get(prefix + "fbpnum") < 1) return false;
+    long mark = ent.progress(stats);
+    do {
+      dfnum.incrementAndGet();
+      if(!ent.defrag(DFSTEP)){
+        errnum.incrementAndGet();
+        break;
+      }
+      stats = ent.stats();
+      long nmark = ent.progress(stats);
+      if(stats.get(prefix + "fbpnum") < 1 || nmark == mark) break;
+      mark = nmark;
+    } while(System.nanoTime() < deadline);
+    ent.touch();
+    return true;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Managed database.
+   */
+  private static class Entry {
+    /** database object */
+    Object db;
+    /** monitor of the database */
+    Monitor monitor;
+    /** whether the native library counts the operations */
+    boolean counted;
+    /** activity at the previous tick */
+    long activity;
+    Entry(Object db){
+      this.db = db;
+      if(db instanceof MonitoredHDB){
+        monitor = ((MonitoredHDB)db).monitor();
+      } else if(db instanceof MonitoredBDB){
+        monitor = ((MonitoredBDB)db).monitor();
+      } else if(db instanceof MonitoredTDB){
+        monitor = ((MonitoredTDB)db).monitor();
+      }
+      this.counted = stats().get(prefix() + "cnt_readrec") >= 0;
+      this.activity = activity();
+    }
+    /**
+     * Check whether the database was not updated since the previous tick.
+     */
+    boolean quiet(){
+      long cur = activity();
+      boolean quiet = cur == activity;
+      activity = cur;
+      return quiet;
+    }
+    /**
+     * Forget the activity of the maintenance itself.
+     */
+    void touch(){
+      activity = activity();
+    }
+    /**
+     * Get the signature of the activity.
+     */
+    long activity(){
+      if(monitor != null){
+        long sum = 0;
+        for(Monitor.Op op : monitor.ops().values()){
+          sum += op.count();
+        }
+        return sum;
+      }
+      long sum = 0;
+      for(Map.Entry<String, Long> ent : stats().map().entrySet()){
+        String name = ent.getKey();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        if(name.startsWith("cnt_") || name.equals("rnum") || name.equals("fsiz"))
+          sum = sum * 31 + ent.getValue();
+      }
+      return sum;
+    }
+    /**
+     * Get the signature of the progress of the defragmentation.
+     */
+    long progress(Stats stats){
+      String prefix = prefix();
+      long sum = stats.get(prefix + "cnt_shiftrec");
+      sum = sum * 31 + stats.get(prefix + "cnt_trunc");
+      sum = sum * 31 + stats.get(prefix + "fsiz");
+      return sum * 31 + stats.get(prefix + "fbpnum");
+    }
+    /**
+     * Check whether the database can be optimized without blocking unseen activity.
+     */
+    boolean optimizable(){
+      return monitor != null || counted || db instanceof OnlineHDB || db instanceof OnlineBDB ||
+        db instanceof OnlineTDB;
+    }
+    /**
+     * Get the prefix of the names of the statistics of the hash database.
+     */
+    String prefix(){
+      return db instanceof HDB ? "" : "hdb.";
+    }
+    Stats stats(){
+      if(db instanceof HDB) return ((HDB)db).stats(false);
+      if(db instanceof BDB) return ((BDB)db).stats(false);
+      return ((TDB)db).stats(false);
+    }
+    boolean defrag(long step){
+      if(db instanceof HDB) return ((HDB)db).defrag(step);
+      if(db instanceof BDB) return ((BDB)db).defrag(step);
+      return ((TDB)db).defrag(step);
+    }
+    boolean optimize(){
+      if(db instanceof OnlineHDB) return ((OnlineHDB)db).rebuild();
+      if(db instanceof OnlineBDB) return ((OnlineBDB)db).rebuild();
+      if(db instanceof OnlineTDB) return ((OnlineTDB)db).rebuild();
+      if(db instanceof HDB) return ((HDB)db).optimize();
+      if(db instanceof BDB) return ((BDB)db).optimize();
+      return ((TDB)db).optimize();
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,419 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Monitor is a set of the metrics of a database object.  The number of calls, the number of
+ * failures, and a histogram of the latency are recorded for each operation, in addition to the
+ * size of the data read and written through the API, the number of failures of each error code,
+ * and gauges of the database.  Recording is lock-free and takes a few atomic operations.
+ * @note Monitors are created by the monitored database classes, such as `MonitoredHDB', and can
+ * be exported through a monitor registry.
+ * @see MonitorRegistry
+ */
+public class Monitor {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** number of the buckets of a latency histogram */
+  private static final int BNUM = 65;
+  //----------------------------------------------------------------
+  // package static methods
+  //----------------------------------------------------------------
+  /**
+   * Get the size of a byte array.
+   */
+  static long size(byte[] buf){
+    return buf != null ? buf.length : 0;
+  }
+  /**
+   * Get the total size of the elements of a list.
+   */
+  static long size(List<?> list){
+    if(list == null) return 0;
+    long sum = 0;
+    for(Object obj : list){
+      sum += osize(obj);
+    }
+    return sum;
+  }
+  /**
+   * Get the total size of the keys and the values of a map.
+   */
+  static long size(Map<?, ?> map){
+    if(map == null) return 0;
+    long sum = 0;
+    for(Map.Entry<?, ?> ent : map.entrySet()){
+      sum += osize(ent.getKey()) + osize(ent.getValue());
+    }
+    return sum;
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Get the size of an object as an element of a record.
+   */
+  private static long osize(Object obj){
+    if(obj instanceof byte[]) return ((byte[])obj).length;
+    if(obj instanceof String) return ((String)obj).length();
+    return obj != null ? Util.otos(obj).length() : 0;
+  }
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** name of the monitor */
+  private String name;
+  /** database object of the gauges */
+  private Object db;
+  /** metrics of the operations */
+  private ConcurrentHashMap<String, Op> ops;
+  /** numbers of failures of each error code */
+  private ConcurrentHashMap<Integer, AtomicLong> errors;
+  /** total size of the data read */
+  private AtomicLong rbytes;
+  /** total size of the data written */
+  private AtomicLong wbytes;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a monitor object without a database object.
+   * @param name the name of the monitor.  It is used as the name of the exported metrics.
+   * @note The gauges and the error codes are not available.  Operations of any object can be
+   * recorded through the operation objects.
+   */
+  public Monitor(String name){
+    this(name, null);
+  }
+  /**
+   * Create a monitor object of a database object.
+   */
+  Monitor(String name, Object db){
+    if(name == null) throw new NullPointerException("name");
+    this.name = name;
+    this.db = db;
+    ops = new ConcurrentHashMap<String, Op>();
+    errors = new ConcurrentHashMap<Integer, AtomicLong>();
+    rbytes = new AtomicLong();
+    wbytes = new AtomicLong();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the name of the monitor.
+   * @return the name of the monitor.
+   */
+  public String name(){
+    return name;
+  }
+  /**
+   * Get the metrics of an operation.
+   * @param name the name of the operation.
+   * @return the operation object, which is created if it does not exist.
+   */
+  public Op op(String name){
+    Op op = ops.get(name);
+    if(op != null) return op;
+    op = new Op(name);
+    Op old = ops.putIfAbsent(name, op);
+    return old != null ? old : op;
+  }
+  /**
+   * Get the metrics of all operations.
+   * @return a map object of the operation objects sorted by the names.
+   */
+  public Map<String, Op> ops(){
+    return Collections.unmodifiableMap(new TreeMap<String, Op>(ops));
+  }
+  /**
+   * Get the total size of the data read.
+   * @return the total size of the values, keys, and columns returned to the caller.
+   */
+  public long rbytes(){
+    return rbytes.get();
+  }
+  /**
+   * Get the total size of the data written.
+   * @return the total size of the keys, values, and columns passed by the caller.
+   */
+  public long wbytes(){
+    return wbytes.get();
+  }
+  /**
+   * Get the numbers of failures of each error code.
+   * @return a map object of the numbers sorted by the error codes.
+   * @note A retrieval of a missing record is counted as a failure of `ENOREC'.
+   */
+  public Map<Integer, Long> errors(){
+    Map<Integer, Long> map = new TreeMap<Integer, Long>();
+    for(Map.Entry<Integer, AtomicLong> ent : errors.entrySet()){
+      map.put(ent.getKey(), ent.getValue().get());
+    }
+    return map;
+  }
+  /**
+   * Get the number of records of the database.
+   * @return the number of records or -1 if it is not available.
+   */
+  public long rnum(){
+    if(db instanceof HDB) return ((HDB)db).rnum();
+    if(db instanceof BDB) return ((BDB)db).rnum();
+    if(db instanceof FDB) return ((FDB)db).rnum();
+    if(db instanceof TDB) return ((TDB)db).rnum();
+    if(db instanceof ADB) return ((ADB)db).rnum();
+    return -1;
+  }
+  /**
+   * Get the size of the database file.
+   * @return the size of the database file or -1 if it is not available.
+   */
+  public long fsiz(){
+    if(db instanceof HDB) return ((HDB)db).fsiz();
+    if(db instanceof BDB) return ((BDB)db).fsiz();
+    if(db instanceof FDB) return ((FDB)db).fsiz();
+    if(db instanceof TDB) return ((TDB)db).fsiz();
+    if(db instanceof ADB) return ((ADB)db).fsiz();
+    return -1;
+  }
+  /**
+   * Get the number of used elements of the bucket array of the database.
+   * @return the number of used elements or -1 if it is not available.
+   * @note It scans the whole bucket array.
+   */
+  public long bnumused(){
+    if(db instanceof HDB) return ((HDB)db).stats().get("bnumused");
+    if(db instanceof BDB) return ((BDB)db).stats().get("hdb.bnumused");
+    if(db instanceof TDB) return ((TDB)db).stats().get("hdb.bnumused");
+    return -1;
+  }
+  /**
+   * Get a snapshot of all metrics.
+   * @return a map object of the metrics sorted by the names.  The gauges are "rnum" and "fsiz",
+   * the sizes are "rbytes" and "wbytes", and the number of failures of each error code is
+   * "ecode.N".  Each operation has "OP.count", "OP.fails", "OP.mean", "OP.p50", "OP.p90",
+   * "OP.p99", and "OP.max", where the latencies are in nanoseconds.
+   * @note The number of used buckets is not included because it scans the whole bucket array.
+   * Call `bnumused' to get it.
+   */
+  public Map<String, Long> snapshot(){
+    Map<String, Long> map = new TreeMap<String, Long>();
+    map.put("rnum", rnum());
+    map.put("fsiz", fsiz());
+    map.put("rbytes", rbytes.get());
+    map.put("wbytes", wbytes.get());
+    for(Map.Entry<Integer, Long> ent : errors().entrySet()){
+      map.put("ecode." + ent.getKey(), ent.getValue());
+    }
+    for(Op op : ops.values()){
+      String prefix = op.name + ".";
+      map.put(prefix + "count", op.count());
+      map.put(prefix + "fails", op.fails());
+      map.put(prefix + "mean", op.mean());
+      map.put(prefix + "p50", op.quantile(0.5));
+      map.put(prefix + "p90", op.quantile(0.9));
+      map.put(prefix + "p99", op.quantile(0.99));
+      map.put(prefix + "max", op.max());
+    }
+    return map;
+  }
+  /**
+   * Clear all metrics.
+   * @note The metrics recorded concurrently may be partially cleared.
+   */
+  public void reset(){
+    for(Op op : ops.values()){
+      op.reset();
+    }
+    errors.clear();
+    rbytes.set(0);
+    wbytes.set(0);
+  }
+  /**
+   * Get the string representation.
+   * @return the name of the monitor.
+   */
+  public String toString(){
+    return name;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Count a failure of the last error code of the database object.
+   */
+  void fail(){
+    int ecode = HDB.EMISC;
+    if(db instanceof HDB){
+      ecode = ((HDB)db).ecode();
+    } else if(db instanceof BDB){
+      ecode = ((BDB)db).ecode();
+    } else if(db instanceof FDB){
+      ecode = ((FDB)db).ecode();
+    } else if(db instanceof TDB){
+      ecode = ((TDB)db).ecode();
+    } else if(db == null){
+      return;
+    }
+    AtomicLong cnt = errors.get(ecode);
+    if(cnt == null){
+      cnt = new AtomicLong();
+      AtomicLong old = errors.putIfAbsent(ecode, cnt);
+      if(old != null) cnt = old;
+    }
+    cnt.incrementAndGet();
+  }
+  //----------------------------------------------------------------
+  // public classes
+  //----------------------------------------------------------------
+  /**
+   * Operation is a set of the metrics of an operation.  The latency histogram has buckets of
+   * powers of two in nanoseconds, so quantiles are accurate within a factor of two.
+   */
+  public class Op {
+    /** name of the operation */
+    private String name;
+    /** number of calls */
+    private AtomicLong count;
+    /** number of failures */
+    private AtomicLong fails;
+    /** total latency */
+    private AtomicLong time;
+    /** maximum latency */
+    private AtomicLong max;
+    /** numbers of calls of each bucket of latency */
+    private AtomicLongArray hist;
+    /**
+     * Create an operation object.
+     */
+    Op(String name){
+      this.name = name;
+      count = new AtomicLong();
+      fails = new AtomicLong();
+      time = new AtomicLong();
+      max = new AtomicLong();
+      hist = new AtomicLongArray(BNUM);
+    }
+    /**
+     * Get the name of the operation.
+     * @return the name of the operation.
+     */
+    public String name(){
+      return name;
+    }
+    /**
+     * Get the number of calls.
+     * @return the number of calls.
+     */
+    public long count(){
+      return count.get();
+    }
+    /**
+     * Get the number of failures.
+     * @return the number of calls which failed.
+     */
+    public long fails(){
+      return fails.get();
+    }
+    /**
+     * Get the mean latency.
+     * @return the mean latency in nanoseconds.
+     */
+    public long mean(){
+      long cnt = count.get();
+      return cnt > 0 ? time.get() / cnt : 0;
+    }
+    /**
+     * Get the maximum latency.
+     * @return the maximum latency in nanoseconds.
+     */
+    public long max(){
+      return max.get();
+    }
+    /**
+     * Get a quantile of the latency.
+     * @param quantile the quantile between 0.0 and 1.0.
+     * @return the upper bound of the bucket containing the quantile in nanoseconds.  It is not
+     * more than the maximum latency.
+     */
+    public long quantile(double quantile){
+      long[] nums = new long[BNUM];
+      long total = 0;
+      for(int i = 0; i < BNUM; i++){
+        nums[i] = hist.get(i);
+        total += nums[i];
+      }
+      if(total < 1) return 0;
+      long rank = (long)Math.ceil(total * Math.max(Math.min(quantile, 1.0), 0.0));
+      if(rank < 1) rank = 1;
+      long sum = 0;
+      for(int i = 0; i < BNUM; i++){
+        sum += nums[i];
+        if(sum >= rank) return i < 63 ? Math.min((1L << i) - 1, max.get()) : max.get();
+      }
+      return max.get();
+    }
+    /**
+     * Record a call.
+     * @param stime the start time of the call by `System.nanoTime'.
+     * @param ok whether the call succeeded.  If it is false, the error code of the database
+     * object is counted.
+     * @param rsiz the size of the data read.
+     * @param wsiz the size of the data written.
+     */
+    public void record(long stime, boolean ok, long rsiz, long wsiz){
+      long elapsed = System.nanoTime() - stime;
+      if(elapsed < 0) elapsed = 0;
+      count.incrementAndGet();
+      time.addAndGet(elapsed);
+      hist.incrementAndGet(64 - Long.numberOfLeadingZeros(elapsed));
+      long cur;
+      while(elapsed > (cur = max.get()) && !max.compareAndSet(cur, elapsed));
+      if(rsiz > 0) rbytes.addAndGet(rsiz);
+      if(wsiz > 0) wbytes.addAndGet(wsiz);
+      if(!ok){
+        fails.incrementAndGet();
+        fail();
+      }
+    }
+    /**
+     * Clear the metrics.
+     */
+    void reset(){
+      count.set(0);
+      fails.set(0);
+      time.set(0);
+      max.set(0);
+      for(int i = 0; i < BNUM; i++){
+        hist.set(i, 0);
+      }
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,46 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Monitor registry is an interface to export the metrics of monitors to a metrics system.
+ * @see JMXRegistry
+ */
+public interface MonitorRegistry {
+  /**
+   * Register a monitor.
+   * @param monitor the monitor object.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean register(Monitor monitor);
+  /**
+   * Unregister a monitor.
+   * @param monitor the monitor object.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean unregister(Monitor monitor);
+}
+
+
+
+/* END OF FILE */
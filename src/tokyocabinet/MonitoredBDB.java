@@ -0,0 +1,412 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Monitored B+ tree database is a B+ tree database object which records the metrics of its
+ * operations to a monitor.  It can be used wherever a B+ tree database object is expected.
+ * @see Monitor
+ */
+public class MonitoredBDB extends BDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** monitor */
+  private Monitor monitor;
+  /** metrics of `open' */
+  private Monitor.Op openop;
+  /** metrics of `close' */
+  private Monitor.Op closeop;
+  /** metrics of `put' */
+  private Monitor.Op putop;
+  /** metrics of `putkeep' */
+  private Monitor.Op putkeepop;
+  /** metrics of `putcat' */
+  private Monitor.Op putcatop;
+  /** metrics of `putdup' */
+  private Monitor.Op putdupop;
+  /** metrics of `putlist' */
+  private Monitor.Op putlistop;
+  /** metrics of `out' */
+  private Monitor.Op outop;
+  /** metrics of `outlist' */
+  private Monitor.Op outlistop;
+  /** metrics of `get' */
+  private Monitor.Op getop;
+  /** metrics of `getlist' */
+  private Monitor.Op getlistop;
+  /** metrics of `vnum' */
+  private Monitor.Op vnumop;
+  /** metrics of `vsiz' */
+  private Monitor.Op vsizop;
+  /** metrics of `iterinit' */
+  private Monitor.Op iterinitop;
+  /** metrics of `iternext' */
+  private Monitor.Op iternextop;
+  /** metrics of `range' */
+  private Monitor.Op rangeop;
+  /** metrics of `fwmkeys' */
+  private Monitor.Op fwmkeysop;
+  /** metrics of `addint' */
+  private Monitor.Op addintop;
+  /** metrics of `adddouble' */
+  private Monitor.Op adddoubleop;
+  /** metrics of `sync' */
+  private Monitor.Op syncop;
+  /** metrics of `optimize' */
+  private Monitor.Op optimizeop;
+  /** metrics of `vanish' */
+  private Monitor.Op vanishop;
+  /** metrics of `copy' */
+  private Monitor.Op copyop;
+  /** metrics of `tranbegin' */
+  private Monitor.Op tranbeginop;
+  /** metrics of `trancommit' */
+  private Monitor.Op trancommitop;
+  /** metrics of `tranabort' */
+  private Monitor.Op tranabortop;
+  /** metrics of `defrag' */
+  private Monitor.Op defragop;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a monitored B+ tree database object.
+   * @param name the name of the monitor.
+   */
+  public MonitoredBDB(String name){
+    super();
+    monitor = new Monitor(name, this);
+    openop = monitor.op("open");
+    closeop = monitor.op("close");
+    putop = monitor.op("put");
+    putkeepop = monitor.op("putkeep");
+    putcatop = monitor.op("putcat");
+    putdupop = monitor.op("putdup");
+    putlistop = monitor.op("putlist");
+    outop = monitor.op("out");
+    outlistop = monitor.op("outlist");
+    getop = monitor.op("get");
+    getlistop = monitor.op("getlist");
+    vnumop = monitor.op("vnum");
+    vsizop = monitor.op("vsiz");
+    iterinitop = monitor.op("iterinit");
+    iternextop = monitor.op("iternext");
+    rangeop = monitor.op("range");
+    fwmkeysop = monitor.op("fwmkeys");
+    addintop = monitor.op("addint");
+    adddoubleop = monitor.op("adddouble");
+    syncop = monitor.op("sync");
+    optimizeop = monitor.op("optimize");
+    vanishop = monitor.op("vanish");
+    copyop = monitor.op("copy");
+    tranbeginop = monitor.op("tranbegin");
+    trancommitop = monitor.op("trancommit");
+    tranabortop = monitor.op("tranabort");
+    defragop = monitor.op("defrag");
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the monitor.
+   * @return the monitor object recording the metrics of this object.
+   */
+  public Monitor monitor(){
+    return monitor;
+  }
+  /**
+   * Open a database file.
+   * @see BDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    long stime = System.nanoTime();
+    boolean rv = super.open(path, omode);
+    openop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Close the database file.
+   * @see BDB#close()
+   */
+  public boolean close(){
+    long stime = System.nanoTime();
+    boolean rv = super.close();
+    closeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see BDB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.put(key, value);
+    putop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see BDB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.putkeep(key, value);
+    putkeepop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see BDB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.putcat(key, value);
+    putcatop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Store a record with allowing duplication of keys.
+   * @see BDB#putdup(byte[], byte[])
+   */
+  public boolean putdup(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.putdup(key, value);
+    putdupop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Store records with allowing duplication of keys.
+   * @see BDB#putlist(byte[], List)
+   */
+  public boolean putlist(byte[] key, List<byte[]> values){
+    long stime = System.nanoTime();
+    boolean rv = super.putlist(key, values);
+    putlistop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(values));
+    return rv;
+  }
+  /**
+   * Remove a record.
+   * @see BDB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    long stime = System.nanoTime();
+    boolean rv = super.out(key);
+    outop.record(stime, rv, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Remove records.
+   * @see BDB#outlist(byte[])
+   */
+  public boolean outlist(byte[] key){
+    long stime = System.nanoTime();
+    boolean rv = super.outlist(key);
+    outlistop.record(stime, rv, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Retrieve a record.
+   * @see BDB#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    long stime = System.nanoTime();
+    byte[] rv = super.get(key);
+    getop.record(stime, rv != null, Monitor.size(rv), Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Retrieve records.
+   * @see BDB#getlist(byte[])
+   */
+  public List<byte[]> getlist(byte[] key){
+    long stime = System.nanoTime();
+    List<byte[]> rv = super.getlist(key);
+    getlistop.record(stime, rv != null, Monitor.size(rv), Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Get the number of records corresponding a key.
+   * @see BDB#vnum(byte[])
+   */
+  public int vnum(byte[] key){
+    long stime = System.nanoTime();
+    int rv = super.vnum(key);
+    vnumop.record(stime, rv > 0, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see BDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] key){
+    long stime = System.nanoTime();
+    int rv = super.vsiz(key);
+    vsizop.record(stime, rv >= 0, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Initialize the iterator.
+   * @see BDB#iterinit()
+   */
+  public boolean iterinit(){
+    long stime = System.nanoTime();
+    boolean rv = super.iterinit();
+    iterinitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see BDB#iternext()
+   */
+  public byte[] iternext(){
+    long stime = System.nanoTime();
+    byte[] rv = super.iternext();
+    iternextop.record(stime, rv != null, Monitor.size(rv), 0);
+    return rv;
+  }
+  /**
+   * Get keys of ranged records.
+   * @see BDB#range(byte[], boolean, byte[], boolean, int)
+   */
+  public List<byte[]> range(byte[] bkey, boolean binc, byte[] ekey, boolean einc, int max){
+    long stime = System.nanoTime();
+    List<byte[]> rv = super.range(bkey, binc, ekey, einc, max);
+    rangeop.record(stime, true, Monitor.size(rv), Monitor.size(bkey) + Monitor.size(ekey));
+    return rv;
+  }
+  /**
+   * Get forward matching keys.
+   * @see BDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(byte[] prefix, int max){
+    long stime = System.nanoTime();
+    List<byte[]> rv = super.fwmkeys(prefix, max);
+    fwmkeysop.record(stime, true, Monitor.size(rv), Monitor.size(prefix));
+    return rv;
+  }
+  /**
+   * Add an integer to a record.
+   * @see BDB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    long stime = System.nanoTime();
+    int rv = super.addint(key, num);
+    addintop.record(stime, rv != Integer.MIN_VALUE, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Add a real number to a record.
+   * @see BDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    long stime = System.nanoTime();
+    double rv = super.adddouble(key, num);
+    adddoubleop.record(stime, !Double.isNaN(rv), 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see BDB#sync()
+   */
+  public boolean sync(){
+    long stime = System.nanoTime();
+    boolean rv = super.sync();
+    syncop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Optimize the file.
+   * @see BDB#optimize(int, int, long, int, int, int)
+   */
+  public boolean optimize(int lmemb, int nmemb, long bnum, int apow, int fpow, int opts){
+    long stime = System.nanoTime();
+    boolean rv = super.optimize(lmemb, nmemb, bnum, apow, fpow, opts);
+    optimizeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see BDB#vanish()
+   */
+  public boolean vanish(){
+    long stime = System.nanoTime();
+    boolean rv = super.vanish();
+    vanishop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Copy the database file.
+   * @see BDB#copy(String)
+   */
+  public boolean copy(String path){
+    long stime = System.nanoTime();
+    boolean rv = super.copy(path);
+    copyop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Begin the transaction.
+   * @see BDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranbegin();
+    tranbeginop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Commit the transaction.
+   * @see BDB#trancommit()
+   */
+  public boolean trancommit(){
+    long stime = System.nanoTime();
+    boolean rv = super.trancommit();
+    trancommitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see BDB#tranabort()
+   */
+  public boolean tranabort(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranabort();
+    tranabortop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Defragment the database file in steps.
+   * @see BDB#defrag(long)
+   */
+  public boolean defrag(long step){
+    long stime = System.nanoTime();
+    boolean rv = super.defrag(step);
+    defragop.record(stime, rv, 0, 0);
+    return rv;
+  }
+}
+
+
+
+/* END OF FILE */
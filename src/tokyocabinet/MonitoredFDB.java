@@ -0,0 +1,322 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Monitored fixed-length database is a fixed-length database object which records the metrics of
+ * its operations to a monitor.  It can be used wherever a fixed-length database object is
+ * expected.
+ * @see Monitor
+ */
+public class MonitoredFDB extends FDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** monitor */
+  private Monitor monitor;
+  /** metrics of `open' */
+  private Monitor.Op openop;
+  /** metrics of `close' */
+  private Monitor.Op closeop;
+  /** metrics of `put' */
+  private Monitor.Op putop;
+  /** metrics of `putkeep' */
+  private Monitor.Op putkeepop;
+  /** metrics of `putcat' */
+  private Monitor.Op putcatop;
+  /** metrics of `out' */
+  private Monitor.Op outop;
+  /** metrics of `get' */
+  private Monitor.Op getop;
+  /** metrics of `vsiz' */
+  private Monitor.Op vsizop;
+  /** metrics of `iterinit' */
+  private Monitor.Op iterinitop;
+  /** metrics of `iternext' */
+  private Monitor.Op iternextop;
+  /** metrics of `range' */
+  private Monitor.Op rangeop;
+  /** metrics of `addint' */
+  private Monitor.Op addintop;
+  /** metrics of `adddouble' */
+  private Monitor.Op adddoubleop;
+  /** metrics of `sync' */
+  private Monitor.Op syncop;
+  /** metrics of `optimize' */
+  private Monitor.Op optimizeop;
+  /** metrics of `vanish' */
+  private Monitor.Op vanishop;
+  /** metrics of `copy' */
+  private Monitor.Op copyop;
+  /** metrics of `tranbegin' */
+  private Monitor.Op tranbeginop;
+  /** metrics of `trancommit' */
+  private Monitor.Op trancommitop;
+  /** metrics of `tranabort' */
+  private Monitor.Op tranabortop;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a monitored fixed-length database object.
+   * @param name the name of the monitor.
+   */
+  public MonitoredFDB(String name){
+    super();
+    monitor = new Monitor(name, this);
+    openop = monitor.op("open");
+    closeop = monitor.op("close");
+    putop = monitor.op("put");
+    putkeepop = monitor.op("putkeep");
+    putcatop = monitor.op("putcat");
+    outop = monitor.op("out");
+    getop = monitor.op("get");
+    vsizop = monitor.op("vsiz");
+    iterinitop = monitor.op("iterinit");
+    iternextop = monitor.op("iternext");
+    rangeop = monitor.op("range");
+    addintop = monitor.op("addint");
+    adddoubleop = monitor.op("adddouble");
+    syncop = monitor.op("sync");
+    optimizeop = monitor.op("optimize");
+    vanishop = monitor.op("vanish");
+    copyop = monitor.op("copy");
+    tranbeginop = monitor.op("tranbegin");
+    trancommitop = monitor.op("trancommit");
+    tranabortop = monitor.op("tranabort");
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the monitor.
+   * @return the monitor object recording the metrics of this object.
+   */
+  public Monitor monitor(){
+    return monitor;
+  }
+  /**
+   * Open a database file.
+   * @see FDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    long stime = System.nanoTime();
+    boolean rv = super.open(path, omode);
+    openop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Close the database file.
+   * @see FDB#close()
+   */
+  public boolean close(){
+    long stime = System.nanoTime();
+    boolean rv = super.close();
+    closeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see FDB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.put(key, value);
+    putop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see FDB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.putkeep(key, value);
+    putkeepop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see FDB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    long stime = System.nanoTime();
+    boolean rv = super.putcat(key, value);
+    putcatop.record(stime, rv, 0, Monitor.size(key) + Monitor.size(value));
+    return rv;
+  }
+  /**
+   * Remove a record.
+   * @see FDB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    long stime = System.nanoTime();
+    boolean rv = super.out(key);
+    outop.record(stime, rv, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Retrieve a record.
+   * @see FDB#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    long stime = System.nanoTime();
+    byte[] rv = super.get(key);
+    getop.record(stime, rv != null, Monitor.size(rv), Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see FDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] key){
+    long stime = System.nanoTime();
+    int rv = super.vsiz(key);
+    vsizop.record(stime, rv >= 0, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Initialize the iterator.
+   * @see FDB#iterinit()
+   */
+  public boolean iterinit(){
+    long stime = System.nanoTime();
+    boolean rv = super.iterinit();
+    iterinitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see FDB#iternext()
+   */
+  public byte[] iternext(){
+    long stime = System.nanoTime();
+    byte[] rv = super.iternext();
+    iternextop.record(stime, rv != null, Monitor.size(rv), 0);
+    return rv;
+  }
+  /**
+   * Get keys with an interval notation.
+   * @see FDB#range(byte[], int)
+   */
+  public List<byte[]> range(byte[] interval, int max){
+    long stime = System.nanoTime();
+    List<byte[]> rv = super.range(interval, max);
+    rangeop.record(stime, true, Monitor.size(rv), Monitor.size(interval));
+    return rv;
+  }
+  /**
+   * Add an integer to a record.
+   * @see FDB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    long stime = System.nanoTime();
+    int rv = super.addint(key, num);
+    addintop.record(stime, rv != Integer.MIN_VALUE, 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Add a real number to a record.
+   * @see FDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    long stime = System.nanoTime();
+    double rv = super.adddouble(key, num);
+    adddoubleop.record(stime, !Double.isNaN(rv), 0, Monitor.size(key));
+    return rv;
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see FDB#sync()
+   */
+  public boolean sync(){
+    long stime = System.nanoTime();
+    boolean rv = super.sync();
+    syncop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Optimize the file.
+   * @see FDB#optimize(int, long)
+   */
+  public boolean optimize(int width, long limsiz){
+    long stime = System.nanoTime();
+    boolean rv = super.optimize(width, limsiz);
+    optimizeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see FDB#vanish()
+   */
+  public boolean vanish(){
+    long stime = System.nanoTime();
+    boolean rv = super.vanish();
+    vanishop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Copy the database file.
+   * @see FDB#copy(String)
+   */
+  public boolean copy(String path){
+    long stime = System.nanoTime();
+    boolean rv = super.copy(path);
+    copyop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Begin the transaction.
+   * @see FDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranbegin();
+    tranbeginop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Commit the transaction.
+   * @see FDB#trancommit()
+   */
+  public boolean trancommit(){
+    long stime = System.nanoTime();
+    boolean rv = super.trancommit();
+    trancommitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see FDB#tranabort()
+   */
+  public boolean tranabort(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranabort();
+    tranabortop.record(stime, rv, 0, 0);
+    return rv;
+  }
+}
+
+
+
+/* END OF FILE */
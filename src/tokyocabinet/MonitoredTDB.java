@@ -0,0 +1,389 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Monitored table database is a table database object which records the metrics of its operations
+ * to a monitor.  It can be used wherever a table database object is expected.
+ * @note The queries of the object are also recorded as the operations "search",
+ * "searchrows", "count", "searchout", and "proc" with a query processor.
+ * @see Monitor
+ */
+public class MonitoredTDB extends TDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** monitor */
+  private Monitor monitor;
+  /** metrics of `open' */
+  private Monitor.Op openop;
+  /** metrics of `close' */
+  private Monitor.Op closeop;
+  /** metrics of `put' */
+  private Monitor.Op putop;
+  /** metrics of `putkeep' */
+  private Monitor.Op putkeepop;
+  /** metrics of `putcat' */
+  private Monitor.Op putcatop;
+  /** metrics of `out' */
+  private Monitor.Op outop;
+  /** metrics of `get' */
+  private Monitor.Op getop;
+  /** metrics of `vsiz' */
+  private Monitor.Op vsizop;
+  /** metrics of `iterinit' */
+  private Monitor.Op iterinitop;
+  /** metrics of `iternext' */
+  private Monitor.Op iternextop;
+  /** metrics of `fwmkeys' */
+  private Monitor.Op fwmkeysop;
+  /** metrics of `addint' */
+  private Monitor.Op addintop;
+  /** metrics of `adddouble' */
+  private Monitor.Op adddoubleop;
+  /** metrics of `sync' */
+  private Monitor.Op syncop;
+  /** metrics of `optimize' */
+  private Monitor.Op optimizeop;
+  /** metrics of `vanish' */
+  private Monitor.Op vanishop;
+  /** metrics of `copy' */
+  private Monitor.Op copyop;
+  /** metrics of `tranbegin' */
+  private Monitor.Op tranbeginop;
+  /** metrics of `trancommit' */
+  private Monitor.Op trancommitop;
+  /** metrics of `tranabort' */
+  private Monitor.Op tranabortop;
+  /** metrics of `defrag' */
+  private Monitor.Op defragop;
+  /** metrics of `setindex' */
+  private Monitor.Op setindexop;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a monitored table database object.
+   * @param name the name of the monitor.
+   */
+  public MonitoredTDB(String name){
+    super();
+    monitor = new Monitor(name, this);
+    openop = monitor.op("open");
+    closeop = monitor.op("close");
+    putop = monitor.op("put");
+    putkeepop = monitor.op("putkeep");
+    putcatop = monitor.op("putcat");
+    outop = monitor.op("out");
+    getop = monitor.op("get");
+    vsizop = monitor.op("vsiz");
+    iterinitop = monitor.op("iterinit");
+    iternextop = monitor.op("iternext");
+    fwmkeysop = monitor.op("fwmkeys");
+    addintop = monitor.op("addint");
+    adddoubleop = monitor.op("adddouble");
+    syncop = monitor.op("sync");
+    optimizeop = monitor.op("optimize");
+    vanishop = monitor.op("vanish");
+    copyop = monitor.op("copy");
+    tranbeginop = monitor.op("tranbegin");
+    trancommitop = monitor.op("trancommit");
+    tranabortop = monitor.op("tranabort");
+    defragop = monitor.op("defrag");
+    setindexop = monitor.op("setindex");
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the monitor.
+   * @return the monitor object recording the metrics of this object.
+   */
+  public Monitor monitor(){
+    return monitor;
+  }
+  /**
+   * Open a database file.
+   * @see TDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    long stime = System.nanoTime();
+    boolean rv = super.open(path, omode);
+    openop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Close the database file.
+   * @see TDB#close()
+   */
+  public boolean close(){
+    long stime = System.nanoTime();
+    boolean rv = super.close();
+    closeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(byte[], Map)
+   */
+  public boolean put(byte[] pkey, Map cols){
+    long stime = System.nanoTime();
+    boolean rv = super.put(pkey, cols);
+    putop.record(stime, rv, 0, Monitor.size(pkey) + Monitor.size(cols));
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(byte[], Map)
+   */
+  public boolean putkeep(byte[] pkey, Map cols){
+    long stime = System.nanoTime();
+    boolean rv = super.putkeep(pkey, cols);
+    putkeepop.record(stime, rv, 0, Monitor.size(pkey) + Monitor.size(cols));
+    return rv;
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(byte[], Map)
+   */
+  public boolean putcat(byte[] pkey, Map cols){
+    long stime = System.nanoTime();
+    boolean rv = super.putcat(pkey, cols);
+    putcatop.record(stime, rv, 0, Monitor.size(pkey) + Monitor.size(cols));
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(byte[], RowWriter)
+   */
+  public boolean put(byte[] pkey, RowWriter row){
+    long stime = System.nanoTime();
+    boolean rv = super.put(pkey, row);
+    putop.record(stime, rv, 0, Monitor.size(pkey) + row.length());
+    return rv;
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(byte[], RowWriter)
+   */
+  public boolean putkeep(byte[] pkey, RowWriter row){
+    long stime = System.nanoTime();
+    boolean rv = super.putkeep(pkey, row);
+    putkeepop.record(stime, rv, 0, Monitor.size(pkey) + row.length());
+    return rv;
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(byte[], RowWriter)
+   */
+  public boolean putcat(byte[] pkey, RowWriter row){
+    long stime = System.nanoTime();
+    boolean rv = super.putcat(pkey, row);
+    putcatop.record(stime, rv, 0, Monitor.size(pkey) + row.length());
+    return rv;
+  }
+  /**
+   * Remove a record.
+   * @see TDB#out(byte[])
+   */
+  public boolean out(byte[] pkey){
+    long stime = System.nanoTime();
+    boolean rv = super.out(pkey);
+    outop.record(stime, rv, 0, Monitor.size(pkey));
+    return rv;
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(byte[])
+   */
+  public Map<String, byte[]> get(byte[] pkey){
+    long stime = System.nanoTime();
+    Map<String, byte[]> rv = super.get(pkey);
+    getop.record(stime, rv != null, Monitor.size(rv), Monitor.size(pkey));
+    return rv;
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(String)
+   */
+  public Map<String, String> get(String pkey){
+    long stime = System.nanoTime();
+    Map<String, String> rv = super.get(pkey);
+    getop.record(stime, rv != null, Monitor.size(rv), pkey.length());
+    return rv;
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see TDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] pkey){
+    long stime = System.nanoTime();
+    int rv = super.vsiz(pkey);
+    vsizop.record(stime, rv >= 0, 0, Monitor.size(pkey));
+    return rv;
+  }
+  /**
+   * Initialize the iterator.
+   * @see TDB#iterinit()
+   */
+  public boolean iterinit(){
+    long stime = System.nanoTime();
+    boolean rv = super.iterinit();
+    iterinitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see TDB#iternext()
+   */
+  public byte[] iternext(){
+    long stime = System.nanoTime();
+    byte[] rv = super.iternext();
+    iternextop.record(stime, rv != null, Monitor.size(rv), 0);
+    return rv;
+  }
+  /**
+   * Get forward matching keys.
+   * @see TDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(byte[] prefix, int max){
+    long stime = System.nanoTime();
+    List<byte[]> rv = super.fwmkeys(prefix, max);
+    fwmkeysop.record(stime, true, Monitor.size(rv), Monitor.size(prefix));
+    return rv;
+  }
+  /**
+   * Add an integer to a record.
+   * @see TDB#addint(byte[], int)
+   */
+  public int addint(byte[] pkey, int num){
+    long stime = System.nanoTime();
+    int rv = super.addint(pkey, num);
+    addintop.record(stime, rv != Integer.MIN_VALUE, 0, Monitor.size(pkey));
+    return rv;
+  }
+  /**
+   * Add a real number to a record.
+   * @see TDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] pkey, double num){
+    long stime = System.nanoTime();
+    double rv = super.adddouble(pkey, num);
+    adddoubleop.record(stime, !Double.isNaN(rv), 0, Monitor.size(pkey));
+    return rv;
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see TDB#sync()
+   */
+  public boolean sync(){
+    long stime = System.nanoTime();
+    boolean rv = super.sync();
+    syncop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Optimize the file.
+   * @see TDB#optimize(long, int, int, int)
+   */
+  public boolean optimize(long bnum, int apow, int fpow, int opts){
+    long stime = System.nanoTime();
+    boolean rv = super.optimize(bnum, apow, fpow, opts);
+    optimizeop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Remove all records.
+   * @see TDB#vanish()
+   */
+  public boolean vanish(){
+    long stime = System.nanoTime();
+    boolean rv = super.vanish();
+    vanishop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Copy the database file.
+   * @see TDB#copy(String)
+   */
+  public boolean copy(String path){
+    long stime = System.nanoTime();
+    boolean rv = super.copy(path);
+    copyop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Begin the transaction.
+   * @see TDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranbegin();
+    tranbeginop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Commit the transaction.
+   * @see TDB#trancommit()
+   */
+  public boolean trancommit(){
+    long stime = System.nanoTime();
+    boolean rv = super.trancommit();
+    trancommitop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see TDB#tranabort()
+   */
+  public boolean tranabort(){
+    long stime = System.nanoTime();
+    boolean rv = super.tranabort();
+    tranabortop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Defragment the database file in steps.
+   * @see TDB#defrag(long)
+   */
+  public boolean defrag(long step){
+    long stime = System.nanoTime();
+    boolean rv = super.defrag(step);
+    defragop.record(stime, rv, 0, 0);
+    return rv;
+  }
+  /**
+   * Set a column index.
+   * @see TDB#setindex(String, int)
+   */
+  public boolean setindex(String name, int type){
+    long stime = System.nanoTime();
+    boolean rv = super.setindex(name, type);
+    setindexop.record(stime, rv, 0, 0);
+    return rv;
+  }
+}
+
+
+
+/* END OF FILE */
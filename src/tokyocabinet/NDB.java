@@ -0,0 +1,324 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * On-memory tree database is an ordered tree held outside the Java heap.  Records are not
+ * scanned by the garbage collector, so that the database can hold a large number of records as
+ * a cache.  The tree is a splay tree, in which recently accessed records are moved to near the
+ * root.  Every method is thread-safe.
+ */
+public class NDB implements DBM {
+  //----------------------------------------------------------------
+  // static initializer
+  //----------------------------------------------------------------
+  static {
+    Loader.load();
+    init();
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the class.
+   */
+  private static native void init();
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** pointer to the native object */
+  private long ptr = 0;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an on-memory tree database object.
+   */
+  public NDB(){
+    initialize();
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    destruct();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Set the capacity of the database.
+   * @param capnum the capacity number of records.  If it is not more than 0, the capacity is
+   * unlimited.
+   * @param capsiz the capacity size of using memory.  If it is not more than 0, the capacity is
+   * unlimited.
+   * @note Records spilled the capacity are removed from the fringe of the tree, which
+   * consists of the records accessed least recently.  The capacity is checked every
+   * 256 storing operations, so the database can exceed it by that many records in the
+   * meantime.
+   */
+  public native void capacity(long capnum, long capsiz);
+  /**
+   * Store a record.
+   * @param key the key.
+   * @param value the value.
+   * @return It is always true.
+   * @note If a record with the same key exists in the database, it is overwritten.
+   */
+  public native boolean put(byte[] key, byte[] value);
+  /**
+   * Store a record.
+   * The same as `put(key.getBytes(), value.getBytes())'.
+   * @see #put(byte[], byte[])
+   */
+  public boolean put(String key, String value){
+    return put(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store a new record.
+   * @param key the key.
+   * @param value the value.
+   * @return If successful, it is true, else, it is false.
+   * @note If a record with the same key exists in the database, this method has no effect.
+   */
+  public native boolean putkeep(byte[] key, byte[] value);
+  /**
+   * Store a new record.
+   * The same as `putkeep(key.getBytes(), value.getBytes())'.
+   * @see #putkeep(byte[], byte[])
+   */
+  public boolean putkeep(String key, String value){
+    return putkeep(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @param key the key.
+   * @param value the value.
+   * @return It is always true.
+   * @note If there is no corresponding record, a new record is created.
+   */
+  public native boolean putcat(byte[] key, byte[] value);
+  /**
+   * Concatenate a value at the end of the existing record.
+   * The same as `putcat(key.getBytes(), value.getBytes())'.
+   * @see #putcat(byte[], byte[])
+   */
+  public boolean putcat(String key, String value){
+    return putcat(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store records at a blast.
+   * @param recs a list object of the keys and the values of the records alternately.
+   * @return It is always true.
+   * @note The records are stored in one native call.
+   */
+  public boolean putlist(List<byte[]> recs){
+    putlistimpl(recs.toArray(new byte[recs.size()][]));
+    return true;
+  }
+  /**
+   * Remove a record.
+   * @param key the key.
+   * @return If successful, it is true, else, it is false.
+   */
+  public native boolean out(byte[] key);
+  /**
+   * Remove a record.
+   * The same as `out(key.getBytes())'.
+   * @see #out(byte[])
+   */
+  public boolean out(String key){
+    return out(key.getBytes());
+  }
+  /**
+   * Retrieve a record.
+   * @param key the key.
+   * @return If successful, it is the value of the corresponding record.  `null' is returned if
+   * no record corresponds.
+   */
+  public native byte[] get(byte[] key);
+  /**
+   * Retrieve a record.
+   * The same as `new String(get(key.getBytes()), "UTF-8")'.
+   * @see #get(byte[])
+   */
+  public String get(String key){
+    byte[] value = get(key.getBytes());
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Retrieve records at a blast.
+   * @param keys a list object of the keys.
+   * @return a list object of the keys and the values of the existing records alternately.
+   * @note The records are retrieved in one native call.
+   */
+  public List<byte[]> getlist(List<byte[]> keys){
+    byte[][] recs = getlistimpl(keys.toArray(new byte[keys.size()][]));
+    return new ArrayList<byte[]>(Arrays.asList(recs));
+  }
+  /**
+   * Get the size of the value of a record.
+   * @param key the key.
+   * @return If successful, it is the size of the value of the corresponding record, else, it
+   * is -1.
+   */
+  public native int vsiz(byte[] key);
+  /**
+   * Get the size of the value of a record.
+   * The same as `vsiz(key.getBytes())'.
+   * @see #vsiz(byte[])
+   */
+  public int vsiz(String key){
+    return vsiz(key.getBytes());
+  }
+  /**
+   * Initialize the iterator.
+   * @return It is always true.
+   * @note The iterator is used in order to access the key of every record stored in a database.
+   */
+  public boolean iterinit(){
+    iterinitimpl();
+    return true;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @return If successful, it is the next key, else, it is `null'.  `null' is returned when no
+   * record is to be get out of the iterator.
+   * @note The keys are traversed in the ascending order of the lexical order.
+   */
+  public native byte[] iternext();
+  /**
+   * Get the next key of the iterator.
+   * The same as `new String(iternext(), "UTF-8")'.
+   * @see #iternext()
+   */
+  public String iternext2(){
+    byte[] key = iternext();
+    return key != null ? Util.otos(key) : null;
+  }
+  /**
+   * Get forward matching keys.
+   * @param prefix the prefix of the corresponding keys.
+   * @param max the maximum number of keys to be fetched.  If it is negative, no limit is
+   * specified.
+   * @return a list object of the keys of the corresponding records.  This method does never fail.
+   * It returns an empty list even if no record corresponds.
+   */
+  public native List<byte[]> fwmkeys(byte[] prefix, int max);
+  /**
+   * Get forward matching keys.
+   * The same as `fwmkeys(prefix.getBytes(), max)'.  However, type of each element is `String'.
+   * @see #fwmkeys(byte[], int)
+   */
+  public List<String> fwmkeys(String prefix, int max){
+    return Util.objectsAsStrings(fwmkeys(prefix.getBytes(), max));
+  }
+  /**
+   * Add an integer to a record.
+   * @param key the key.
+   * @param num the additional value.
+   * @return If successful, it is the summation value, else, it is `Integer.MIN_VALUE'.
+   * @note If the corresponding record exists, the value is treated as an integer and is added to.
+   * If no record corresponds, a new record of the additional value is stored.
+   */
+  public native int addint(byte[] key, int num);
+  /**
+   * Add an integer to a record.
+   * The same as `addint(key.getBytes(), num)'.
+   * @see #addint(byte[], int)
+   */
+  public int addint(String key, int num){
+    return addint(key.getBytes(), num);
+  }
+  /**
+   * Add a real number to a record.
+   * @param key the key.
+   * @param num the additional value.
+   * @return If successful, it is the summation value, else, it is `Double.NaN'.
+   * @note If the corresponding record exists, the value is treated as a real number and is added
+   * to.  If no record corresponds, a new record of the additional value is stored.
+   */
+  public native double adddouble(byte[] key, double num);
+  /**
+   * Add a real number to a record.
+   * The same as `adddouble(key.getBytes(), num)'.
+   * @see #adddouble(byte[], double)
+   */
+  public double adddouble(String key, double num){
+    return adddouble(key.getBytes(), num);
+  }
+  /**
+   * Remove all records.
+   */
+  public native void vanish();
+  /**
+   * Remove the fringe records.
+   * @param num the number of records to be removed.
+   */
+  public native void cutfringe(int num);
+  /**
+   * Get the number of records.
+   * @return the number of records.
+   */
+  public native long rnum();
+  /**
+   * Get the total size of memory used in the database.
+   * @return the total size of memory used in the database.
+   */
+  public native long msiz();
+  /**
+   * Get the size of the database.
+   * The same as `msiz()'.
+   * @see #msiz()
+   */
+  public long fsiz(){
+    return msiz();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the object.
+   */
+  private native void initialize();
+  /**
+   * Release resources.
+   */
+  private native void destruct();
+  /**
+   * Initialize the iterator.
+   */
+  private native void iterinitimpl();
+  /**
+   * Store records at a blast.
+   */
+  private native void putlistimpl(byte[][] recs);
+  /**
+   * Retrieve records at a blast.
+   */
+  private native byte[][] getlistimpl(byte[][] keys);
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,594 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Online B+ tree database is a B+ tree database object whose file can be rebuilt while other
+ * threads keep accessing it.  Every operation holds the shared side of a gate, so that the
+ * operations are paused only while the rebuilt file replaces the current one.
+ * @note Updates through cursors are logged as well, but the positions of cursors are invalidated
+ * when the rebuilt file replaces the current one, as with `optimize'.
+ */
+public class OnlineBDB extends BDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** rebuilder of the database file */
+  private Shadow rb;
+  /** open mode of the database file */
+  private int omode;
+  /** comparator: a custom comparator object or the constant of a built-in function */
+  private Object cmp;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an online B+ tree database object.
+   */
+  public OnlineBDB(){
+    super();
+    rb = new Shadow();
+    omode = 0;
+    cmp = null;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Rebuild the database file online.
+   * @return If successful, it is true, else, it is false.  False is returned if another rebuild
+   * is running or if the rebuild is cancelled by `open', `close', `optimize', or `vanish'.
+   * @note A shadow file is created with the number of elements of the bucket array recomputed from
+   * the number of pages and with the other tuning parameters and the comparator of the current
+   * file, and the records are copied into it in the order of keys while other threads access the
+   * database.  The keys of the records modified meanwhile are logged and the records are copied
+   * again.  Finally, the operations are paused while the rest of the log is copied, the shadow
+   * file is renamed to the path of the database file, and it is reopened.  The final step waits
+   * until no transaction is open.  If the replaced file can not be reopened after some retries,
+   * `IllegalStateException' is thrown and the database object is left closed.
+   */
+  public boolean rebuild(){
+    return rb.rebuild();
+  }
+  /**
+   * Set the custom comparison function.
+   * @see BDB#setcomparator(BDBCMP)
+   */
+  public boolean setcomparator(BDBCMP cmp){
+    boolean rv = super.setcomparator(cmp);
+    if(rv) this.cmp = cmp;
+    return rv;
+  }
+  /**
+   * Set the built-in comparison function.
+   * @see BDB#setcmpfunc(int)
+   */
+  public boolean setcmpfunc(int cmp){
+    boolean rv = super.setcmpfunc(cmp);
+    if(rv) this.cmp = Integer.valueOf(cmp);
+    return rv;
+  }
+  /**
+   * Open a database file.
+   * @see BDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    rb.enter();
+    try {
+      boolean rv = super.open(path, omode);
+      if(rv) this.omode = omode;
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Close the database file.
+   * @see BDB#close()
+   */
+  public boolean close(){
+    rb.enter();
+    try {
+      boolean rv = super.close();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see BDB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.put(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a new record.
+   * @see BDB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putkeep(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see BDB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putcat(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record with allowing duplication of keys.
+   * @see BDB#putdup(byte[], byte[])
+   */
+  public boolean putdup(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putdup(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store records with allowing duplication of keys.
+   * @see BDB#putlist(byte[], List<byte[]>)
+   */
+  public boolean putlist(byte[] key, List<byte[]> values){
+    rb.enter();
+    try {
+      boolean rv = super.putlist(key, values);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove a record.
+   * @see BDB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    rb.enter();
+    try {
+      boolean rv = super.out(key);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove records.
+   * @see BDB#outlist(byte[])
+   */
+  public boolean outlist(byte[] key){
+    rb.enter();
+    try {
+      boolean rv = super.outlist(key);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Retrieve a record.
+   * @see BDB#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    rb.enter();
+    try {
+      return super.get(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Retrieve records.
+   * @see BDB#getlist(byte[])
+   */
+  public List<byte[]> getlist(byte[] key){
+    rb.enter();
+    try {
+      return super.getlist(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the number of records corresponding a key.
+   * @see BDB#vnum(byte[])
+   */
+  public int vnum(byte[] key){
+    rb.enter();
+    try {
+      return super.vnum(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see BDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] key){
+    rb.enter();
+    try {
+      return super.vsiz(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Initialize the iterator.
+   * @see BDB#iterinit()
+   */
+  public boolean iterinit(){
+    rb.enter();
+    try {
+      return super.iterinit();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see BDB#iternext()
+   */
+  public byte[] iternext(){
+    rb.enter();
+    try {
+      return super.iternext();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see BDB#iternext2()
+   */
+  public String iternext2(){
+    rb.enter();
+    try {
+      return super.iternext2();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get keys of ranged records.
+   * @see BDB#range(byte[], boolean, byte[], boolean, int)
+   */
+  public List<byte[]> range(byte[] bkey, boolean binc, byte[] ekey, boolean einc, int max){
+    rb.enter();
+    try {
+      return super.range(bkey, binc, ekey, einc, max);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get forward matching keys.
+   * @see BDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(byte[] prefix, int max){
+    rb.enter();
+    try {
+      return super.fwmkeys(prefix, max);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see BDB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    rb.enter();
+    try {
+      int rv = super.addint(key, num);
+      if(rv != Integer.MIN_VALUE) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see BDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    rb.enter();
+    try {
+      double rv = super.adddouble(key, num);
+      if(!Double.isNaN(rv)) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see BDB#sync()
+   */
+  public boolean sync(){
+    rb.enter();
+    try {
+      return super.sync();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Optimize the file.
+   * @see BDB#optimize(int, int, long, int, int, int)
+   */
+  public boolean optimize(int lmemb, int nmemb, long bnum, int apow, int fpow, int opts){
+    rb.enter();
+    try {
+      boolean rv = super.optimize(lmemb, nmemb, bnum, apow, fpow, opts);
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove all records.
+   * @see BDB#vanish()
+   */
+  public boolean vanish(){
+    rb.enter();
+    try {
+      boolean rv = super.vanish();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Copy the database file.
+   * @see BDB#copy(String)
+   */
+  public boolean copy(String path){
+    rb.enter();
+    try {
+      return super.copy(path);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see BDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    rb.enter();
+    try {
+      rb.tranbegin();
+      boolean rv = super.tranbegin();
+      if(!rv) rb.tranend();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see BDB#trancommit()
+   */
+  public boolean trancommit(){
+    boolean rv = super.trancommit();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see BDB#tranabort()
+   */
+  public boolean tranabort(){
+    boolean rv = super.tranabort();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Defragment the database file in steps.
+   * @see BDB#defrag(long)
+   * @note It does nothing while the database file is rebuilt.
+   */
+  public boolean defrag(long step){
+    rb.enter();
+    try {
+      if(rb.logging()) return true;
+      return super.defrag(step);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the path of the database file.
+   * @see BDB#path()
+   */
+  public String path(){
+    rb.enter();
+    try {
+      return super.path();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the number of records.
+   * @see BDB#rnum()
+   */
+  public long rnum(){
+    rb.enter();
+    try {
+      return super.rnum();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the database file.
+   * @see BDB#fsiz()
+   */
+  public long fsiz(){
+    rb.enter();
+    try {
+      return super.fsiz();
+    } finally {
+      rb.leave();
+    }
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Retrieve records at once.
+   * @see BDB#getrecs(byte[][])
+   */
+  byte[][] getrecs(byte[][] keys){
+    rb.enter();
+    try {
+      return super.getrecs(keys);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the internal statistics.
+   * @see BDB#stats(boolean)
+   */
+  Stats stats(boolean full){
+    rb.enter();
+    try {
+      return super.stats(full);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the rebuilder.
+   * @see BDB#rebuilder()
+   */
+  Rebuilder rebuilder(){
+    return rb;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Rebuilder of a B+ tree database.
+   */
+  private class Shadow extends Rebuilder {
+    /** shadow database */
+    private BDB sdb = null;
+    /** last scanned key or `null' before the first */
+    private byte[] last = null;
+    String path(){
+      return OnlineBDB.super.path();
+    }
+    boolean create(String tpath){
+      Stats stats = OnlineBDB.super.stats(false);
+      long bnum = stats.get("hdb.rnum") * 2 + 1;
+      sdb = new BDB();
+      last = null;
+      if(cmp instanceof BDBCMP){
+        if(!sdb.setcomparator((BDBCMP)cmp)) return false;
+      } else if(cmp != null){
+        if(!sdb.setcmpfunc(((Integer)cmp).intValue())) return false;
+      }
+      if(!sdb.tune((int)stats.get("lmemb"), (int)stats.get("nmemb"), bnum,
+                   (int)stats.get("hdb.apow"), (int)stats.get("hdb.fpow"),
+                   (int)stats.get("hdb.opts"))) return false;
+      return sdb.open(tpath, OWRITER | OCREAT | OTRUNC);
+    }
+    int scan(int max){
+      List<byte[]> keys = OnlineBDB.super.range(last, last == null, null, true, max);
+      if(keys.isEmpty()) return 0;
+      byte[] prev = null;
+      for(byte[] key : keys){
+        if(prev != null && Arrays.equals(prev, key)) continue;
+        List<byte[]> vals = OnlineBDB.super.getlist(key);
+        if(vals != null && !sdb.putlist(key, vals)) return -1;
+        prev = key;
+      }
+      last = prev;
+      return keys.size();
+    }
+    boolean copy(byte[] key){
+      List<byte[]> vals = OnlineBDB.super.getlist(key);
+      if(!sdb.outlist(key) && sdb.ecode() != ENOREC) return false;
+      return vals == null || sdb.putlist(key, vals);
+    }
+    boolean swap(String tpath){
+      String path = OnlineBDB.super.path();
+      if(!sdb.sync() || !sdb.close()) return false;
+      sdb = null;
+      boolean err = false;
+      if(!OnlineBDB.super.close()) err = true;
+      if(!err && !new File(tpath).renameTo(new File(path))) err = true;
+      return !err;
+    }
+    boolean reopen(String path){
+      return OnlineBDB.super.open(path, omode & ~OTRUNC);
+    }
+    void discard(String tpath){
+      if(sdb != null){
+        sdb.close();
+        sdb = null;
+      }
+      new File(tpath).delete();
+    }
+  }
+}
+
+
+
+/* END OF FILE */
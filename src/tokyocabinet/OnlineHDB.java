@@ -0,0 +1,494 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Online hash database is a hash database object whose file can be rebuilt while other threads
+ * keep accessing it.  Every operation holds the shared side of a gate, so that the operations are
+ * paused only while the rebuilt file replaces the current one.
+ * @note The iterator is used to scan the records during a rebuild, so it should not be used by
+ * others meanwhile.  Records moved by the auto defragmentation during the scan may be missed, so
+ * the auto defragmentation by `setdfunit' should be disabled.
+ */
+public class OnlineHDB extends HDB {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** minimum number of elements of the bucket array of the shadow file */
+  private static final long BNUMMIN = 131071;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** rebuilder of the database file */
+  private Shadow rb;
+  /** open mode of the database file */
+  private int omode;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an online hash database object.
+   */
+  public OnlineHDB(){
+    super();
+    rb = new Shadow();
+    omode = 0;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Rebuild the database file online.
+   * @return If successful, it is true, else, it is false.  False is returned if another rebuild
+   * is running or if the rebuild is cancelled by `open', `close', `optimize', or `vanish'.
+   * @note A shadow file is created with the number of elements of the bucket array recomputed from
+   * the number of records and with the other tuning parameters of the current file, and every
+   * record is copied into it while other threads access the database.  The keys of the records
+   * modified meanwhile are logged and the records are copied again.  Finally, the operations are
+   * paused while the rest of the log is copied, the shadow file is renamed to the path of the
+   * database file, and it is reopened.  The final step waits until no transaction is open.  If
+   * the replaced file can not be reopened after some retries, `IllegalStateException' is thrown
+   * and the database object is left closed.
+   */
+  public boolean rebuild(){
+    return rb.rebuild();
+  }
+  /**
+   * Open a database file.
+   * @see HDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    rb.enter();
+    try {
+      boolean rv = super.open(path, omode);
+      if(rv) this.omode = omode;
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Close the database file.
+   * @see HDB#close()
+   */
+  public boolean close(){
+    rb.enter();
+    try {
+      boolean rv = super.close();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see HDB#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.put(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a new record.
+   * @see HDB#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putkeep(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Concatenate a value at the end of the existing record.
+   * @see HDB#putcat(byte[], byte[])
+   */
+  public boolean putcat(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putcat(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record in asynchronous fashion.
+   * @see HDB#putasync(byte[], byte[])
+   */
+  public boolean putasync(byte[] key, byte[] value){
+    rb.enter();
+    try {
+      boolean rv = super.putasync(key, value);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove a record.
+   * @see HDB#out(byte[])
+   */
+  public boolean out(byte[] key){
+    rb.enter();
+    try {
+      boolean rv = super.out(key);
+      if(rv) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Retrieve a record.
+   * @see HDB#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    rb.enter();
+    try {
+      return super.get(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see HDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] key){
+    rb.enter();
+    try {
+      return super.vsiz(key);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Initialize the iterator.
+   * @see HDB#iterinit()
+   */
+  public boolean iterinit(){
+    rb.enter();
+    try {
+      return super.iterinit();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see HDB#iternext()
+   */
+  public byte[] iternext(){
+    rb.enter();
+    try {
+      return super.iternext();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get forward matching keys.
+   * @see HDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(byte[] prefix, int max){
+    rb.enter();
+    try {
+      return super.fwmkeys(prefix, max);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see HDB#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    rb.enter();
+    try {
+      int rv = super.addint(key, num);
+      if(rv != Integer.MIN_VALUE) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see HDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    rb.enter();
+    try {
+      double rv = super.adddouble(key, num);
+      if(!Double.isNaN(rv)) rb.touch(key);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see HDB#sync()
+   */
+  public boolean sync(){
+    rb.enter();
+    try {
+      return super.sync();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Optimize the file.
+   * @see HDB#optimize(long, int, int, int)
+   */
+  public boolean optimize(long bnum, int apow, int fpow, int opts){
+    rb.enter();
+    try {
+      boolean rv = super.optimize(bnum, apow, fpow, opts);
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove all records.
+   * @see HDB#vanish()
+   */
+  public boolean vanish(){
+    rb.enter();
+    try {
+      boolean rv = super.vanish();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Copy the database file.
+   * @see HDB#copy(String)
+   */
+  public boolean copy(String path){
+    rb.enter();
+    try {
+      return super.copy(path);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see HDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    rb.enter();
+    try {
+      rb.tranbegin();
+      boolean rv = super.tranbegin();
+      if(!rv) rb.tranend();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see HDB#trancommit()
+   */
+  public boolean trancommit(){
+    boolean rv = super.trancommit();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see HDB#tranabort()
+   */
+  public boolean tranabort(){
+    boolean rv = super.tranabort();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Defragment the database file in steps.
+   * @see HDB#defrag(long)
+   * @note It does nothing while the database file is rebuilt.
+   */
+  public boolean defrag(long step){
+    rb.enter();
+    try {
+      if(rb.logging()) return true;
+      return super.defrag(step);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the path of the database file.
+   * @see HDB#path()
+   */
+  public String path(){
+    rb.enter();
+    try {
+      return super.path();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the number of records.
+   * @see HDB#rnum()
+   */
+  public long rnum(){
+    rb.enter();
+    try {
+      return super.rnum();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the database file.
+   * @see HDB#fsiz()
+   */
+  public long fsiz(){
+    rb.enter();
+    try {
+      return super.fsiz();
+    } finally {
+      rb.leave();
+    }
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Retrieve records at once.
+   * @see HDB#getrecs(byte[][])
+   */
+  byte[][] getrecs(byte[][] keys){
+    rb.enter();
+    try {
+      return super.getrecs(keys);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the internal statistics.
+   * @see HDB#stats(boolean)
+   */
+  Stats stats(boolean full){
+    rb.enter();
+    try {
+      return super.stats(full);
+    } finally {
+      rb.leave();
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Rebuilder of a hash database.
+   */
+  private class Shadow extends Rebuilder {
+    /** shadow database */
+    private HDB sdb = null;
+    /** whether the iterator is initialized */
+    private boolean iter = false;
+    String path(){
+      return OnlineHDB.super.path();
+    }
+    boolean create(String tpath){
+      Stats stats = OnlineHDB.super.stats(false);
+      long bnum = Math.max(stats.get("rnum") * 2 + 1, BNUMMIN);
+      sdb = new HDB();
+      iter = false;
+      if(!sdb.tune(bnum, (int)stats.get("apow"), (int)stats.get("fpow"), (int)stats.get("opts")))
+        return false;
+      return sdb.open(tpath, OWRITER | OCREAT | OTRUNC);
+    }
+    int scan(int max){
+      if(!iter){
+        if(!OnlineHDB.super.iterinit()) return -1;
+        iter = true;
+      }
+      List<byte[]> keys = new ArrayList<byte[]>(max);
+      byte[] key;
+      while(keys.size() < max && (key = OnlineHDB.super.iternext()) != null){
+        keys.add(key);
+      }
+      if(keys.isEmpty()) return 0;
+      byte[][] vals = OnlineHDB.super.getrecs(keys.toArray(new byte[keys.size()][]));
+      for(int i = 0; i < vals.length; i++){
+        if(vals[i] != null && !sdb.put(keys.get(i), vals[i])) return -1;
+      }
+      return keys.size();
+    }
+    boolean copy(byte[] key){
+      byte[] value = OnlineHDB.super.get(key);
+      if(value != null) return sdb.put(key, value);
+      return sdb.out(key) || sdb.ecode() == ENOREC;
+    }
+    boolean swap(String tpath){
+      String path = OnlineHDB.super.path();
+      if(!sdb.sync() || !sdb.close()) return false;
+      sdb = null;
+      boolean err = false;
+      if(!OnlineHDB.super.close()) err = true;
+      if(!err && !new File(tpath).renameTo(new File(path))) err = true;
+      return !err;
+    }
+    boolean reopen(String path){
+      return OnlineHDB.super.open(path, omode & ~OTRUNC);
+    }
+    void discard(String tpath){
+      if(sdb != null){
+        sdb.close();
+        sdb = null;
+      }
+      new File(tpath).delete();
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,626 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Online table database is a table database object whose file can be rebuilt while other threads
+ * keep accessing it.  Every operation holds the shared side of a gate, so that the operations are
+ * paused only while the rebuilt files replace the current ones.
+ * @note The iterator is used to scan the records during a rebuild, so it should not be used by
+ * others meanwhile.  Records moved by the auto defragmentation during the scan may be missed, so
+ * the auto defragmentation by `setdfunit' should be disabled.  Searches and updates through query
+ * objects, query cursors, and prepared queries hold the gate as well, but the native meta search
+ * by `TDBQRY.metasearch(TDBQRY[], int)' does not and should not be run during the final step.
+ */
+public class OnlineTDB extends TDB {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** minimum number of elements of the bucket array of the shadow file */
+  private static final long BNUMMIN = 131071;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** rebuilder of the database file */
+  private Shadow rb;
+  /** open mode of the database file */
+  private int omode;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create an online table database object.
+   */
+  public OnlineTDB(){
+    super();
+    rb = new Shadow();
+    omode = 0;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Rebuild the database file online.
+   * @return If successful, it is true, else, it is false.  False is returned if another rebuild
+   * is running or if the rebuild is cancelled by `open', `close', `optimize', `vanish',
+   * `setindex', or `bulkload'.
+   * @note A shadow file is created with the number of elements of the bucket array recomputed from
+   * the number of records and with the other tuning parameters of the current file, and every
+   * record is copied into it while other threads access the database.  The column indexes are
+   * built on the shadow file at once after the copying.  The keys of the records modified
+   * meanwhile are logged and the records are copied again.  Finally, the operations are paused
+   * while the rest of the log is copied, the shadow files including the index files are renamed
+   * to the paths of the database files, and they are reopened.  The final step waits until no
+   * transaction is open.  If the replaced files can not be reopened after some retries,
+   * `IllegalStateException' is thrown and the database object is left closed.
+   */
+  public boolean rebuild(){
+    return rb.rebuild();
+  }
+  /**
+   * Open a database file.
+   * @see TDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    rb.enter();
+    try {
+      boolean rv = super.open(path, omode);
+      if(rv) this.omode = omode;
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Close the database file.
+   * @see TDB#close()
+   */
+  public boolean close(){
+    rb.enter();
+    try {
+      boolean rv = super.close();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(byte[], Map)
+   */
+  public boolean put(byte[] pkey, Map cols){
+    rb.enter();
+    try {
+      boolean rv = super.put(pkey, cols);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(byte[], Map)
+   */
+  public boolean putkeep(byte[] pkey, Map cols){
+    rb.enter();
+    try {
+      boolean rv = super.putkeep(pkey, cols);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(byte[], Map)
+   */
+  public boolean putcat(byte[] pkey, Map cols){
+    rb.enter();
+    try {
+      boolean rv = super.putcat(pkey, cols);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a record composed by a row writer.
+   * @see TDB#put(byte[], RowWriter)
+   */
+  public boolean put(byte[] pkey, RowWriter row){
+    rb.enter();
+    try {
+      boolean rv = super.put(pkey, row);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * @see TDB#putkeep(byte[], RowWriter)
+   */
+  public boolean putkeep(byte[] pkey, RowWriter row){
+    rb.enter();
+    try {
+      boolean rv = super.putkeep(pkey, row);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * @see TDB#putcat(byte[], RowWriter)
+   */
+  public boolean putcat(byte[] pkey, RowWriter row){
+    rb.enter();
+    try {
+      boolean rv = super.putcat(pkey, row);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove a record.
+   * @see TDB#out(byte[])
+   */
+  public boolean out(byte[] pkey){
+    rb.enter();
+    try {
+      boolean rv = super.out(pkey);
+      if(rv) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(byte[])
+   */
+  public Map<String, byte[]> get(byte[] pkey){
+    rb.enter();
+    try {
+      return super.get(pkey);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(String)
+   */
+  public Map<String, String> get(String pkey){
+    rb.enter();
+    try {
+      return super.get(pkey);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see TDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] pkey){
+    rb.enter();
+    try {
+      return super.vsiz(pkey);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Initialize the iterator.
+   * @see TDB#iterinit()
+   */
+  public boolean iterinit(){
+    rb.enter();
+    try {
+      return super.iterinit();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see TDB#iternext()
+   */
+  public byte[] iternext(){
+    rb.enter();
+    try {
+      return super.iternext();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get forward matching keys.
+   * @see TDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(byte[] prefix, int max){
+    rb.enter();
+    try {
+      return super.fwmkeys(prefix, max);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add an integer to a record.
+   * @see TDB#addint(byte[], int)
+   */
+  public int addint(byte[] pkey, int num){
+    rb.enter();
+    try {
+      int rv = super.addint(pkey, num);
+      if(rv != Integer.MIN_VALUE) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Add a real number to a record.
+   * @see TDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] pkey, double num){
+    rb.enter();
+    try {
+      double rv = super.adddouble(pkey, num);
+      if(!Double.isNaN(rv)) rb.touch(pkey);
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Synchronize updated contents with the file and the device.
+   * @see TDB#sync()
+   */
+  public boolean sync(){
+    rb.enter();
+    try {
+      return super.sync();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Optimize the file.
+   * @see TDB#optimize(long, int, int, int)
+   */
+  public boolean optimize(long bnum, int apow, int fpow, int opts){
+    rb.enter();
+    try {
+      boolean rv = super.optimize(bnum, apow, fpow, opts);
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Remove all records.
+   * @see TDB#vanish()
+   */
+  public boolean vanish(){
+    rb.enter();
+    try {
+      boolean rv = super.vanish();
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Copy the database file.
+   * @see TDB#copy(String)
+   */
+  public boolean copy(String path){
+    rb.enter();
+    try {
+      return super.copy(path);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Begin the transaction.
+   * @see TDB#tranbegin()
+   */
+  public boolean tranbegin(){
+    rb.enter();
+    try {
+      rb.tranbegin();
+      boolean rv = super.tranbegin();
+      if(!rv) rb.tranend();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Commit the transaction.
+   * @see TDB#trancommit()
+   */
+  public boolean trancommit(){
+    boolean rv = super.trancommit();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Abort the transaction.
+   * @see TDB#tranabort()
+   */
+  public boolean tranabort(){
+    boolean rv = super.tranabort();
+    rb.tranend();
+    return rv;
+  }
+  /**
+   * Defragment the database file in steps.
+   * @see TDB#defrag(long)
+   * @note It does nothing while the database file is rebuilt.
+   */
+  public boolean defrag(long step){
+    rb.enter();
+    try {
+      if(rb.logging()) return true;
+      return super.defrag(step);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the path of the database file.
+   * @see TDB#path()
+   */
+  public String path(){
+    rb.enter();
+    try {
+      return super.path();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the number of records.
+   * @see TDB#rnum()
+   */
+  public long rnum(){
+    rb.enter();
+    try {
+      return super.rnum();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the size of the database file.
+   * @see TDB#fsiz()
+   */
+  public long fsiz(){
+    rb.enter();
+    try {
+      return super.fsiz();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Set a column index.
+   * @see TDB#setindex(String, int)
+   */
+  public boolean setindex(String name, int type){
+    rb.enter();
+    try {
+      boolean rv = super.setindex(name, type);
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the column indexes.
+   * @see TDB#indexes()
+   */
+  public Map<String, Integer> indexes(){
+    rb.enter();
+    try {
+      return super.indexes();
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Load records at a blast with deferred index build.
+   * @see TDB#bulkload(Iterator<RowWriter>, int, long)
+   */
+  public boolean bulkload(Iterator<RowWriter> rows, int batch, long iccmax){
+    rb.enter();
+    try {
+      boolean rv = super.bulkload(rows, batch, iccmax);
+      rb.cancel();
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Generate a unique ID number.
+   * @see TDB#genuid()
+   */
+  public long genuid(){
+    rb.enter();
+    try {
+      return super.genuid();
+    } finally {
+      rb.leave();
+    }
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the internal statistics.
+   * @see TDB#stats(boolean)
+   */
+  Stats stats(boolean full){
+    rb.enter();
+    try {
+      return super.stats(full);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Apply the modifications recorded in a row patch.
+   * @see TDB#patch(RowSchema, RowPatch)
+   */
+  boolean patch(RowSchema schema, RowPatch patch){
+    rb.enter();
+    try {
+      boolean rv = super.patch(schema, patch);
+      if(rb.logging()) rb.touch(patch.pkeys());
+      return rv;
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the rebuilder.
+   * @see TDB#rebuilder()
+   */
+  Rebuilder rebuilder(){
+    return rb;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Rebuilder of a table database.
+   */
+  private class Shadow extends Rebuilder {
+    /** shadow database */
+    private TDB sdb = null;
+    /** whether the iterator is initialized */
+    private boolean iter = false;
+    String path(){
+      return OnlineTDB.super.path();
+    }
+    boolean create(String tpath){
+      Stats stats = OnlineTDB.super.stats(false);
+      long bnum = Math.max(stats.get("rnum") * 2 + 1, BNUMMIN);
+      int opts = (int)stats.get("hdb.opts") & (TLARGE | TDEFLATE | TBZIP | TTCBS);
+      sdb = new TDB();
+      iter = false;
+      if(!sdb.tune(bnum, (int)stats.get("hdb.apow"), (int)stats.get("hdb.fpow"), opts))
+        return false;
+      return sdb.open(tpath, OWRITER | OCREAT | OTRUNC);
+    }
+    int scan(int max){
+      if(!iter){
+        if(!OnlineTDB.super.iterinit()) return -1;
+        iter = true;
+      }
+      int num = 0;
+      byte[] pkey;
+      while(num < max && (pkey = OnlineTDB.super.iternext()) != null){
+        Map<String, byte[]> cols = OnlineTDB.super.get(pkey);
+        if(cols != null && !sdb.put(pkey, cols)) return -1;
+        num++;
+      }
+      return num;
+    }
+    boolean prepare(){
+      for(Map.Entry<String, Integer> idx : OnlineTDB.super.indexes().entrySet()){
+        if(!sdb.setindex(idx.getKey(), idx.getValue())) return false;
+      }
+      return true;
+    }
+    boolean copy(byte[] pkey){
+      Map<String, byte[]> cols = OnlineTDB.super.get(pkey);
+      if(cols != null) return sdb.put(pkey, cols);
+      return sdb.out(pkey) || sdb.ecode() == ENOREC;
+    }
+    boolean swap(String tpath){
+      String path = OnlineTDB.super.path();
+      if(!sdb.setuidseed(OnlineTDB.super.uidseed()) || !sdb.sync() || !sdb.close()) return false;
+      sdb = null;
+      boolean err = false;
+      if(!OnlineTDB.super.close()) err = true;
+      if(!err){
+        int plen = new File(tpath).getName().length();
+        for(File file : idxfiles(tpath)){
+          if(!file.renameTo(new File(path + file.getName().substring(plen)))) err = true;
+        }
+        if(!new File(tpath).renameTo(new File(path))) err = true;
+      }
+      return !err;
+    }
+    boolean reopen(String path){
+      return OnlineTDB.super.open(path, omode & ~OTRUNC);
+    }
+    void discard(String tpath){
+      if(sdb != null){
+        sdb.close();
+        sdb = null;
+      }
+      for(File file : idxfiles(tpath)){
+        file.delete();
+      }
+      new File(tpath).delete();
+    }
+    /**
+     * Get the index files of a database file.
+     */
+    private List<File> idxfiles(String path){
+      File file = new File(path).getAbsoluteFile();
+      String prefix = file.getName() + ".idx.";
+      List<File> files = new ArrayList<File>();
+      File[] ary = file.getParentFile().listFiles();
+      if(ary == null) return files;
+      for(File elem : ary){
+        if(elem.getName().startsWith(prefix)) files.add(elem);
+      }
+      return files;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,175 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Prepared query is a query of table database parsed once and executed repeatedly with
+ * different parameters.  A prepared query object should be used by one thread at a time.
+ * @see TDB#prepare(String)
+ */
+public class PreparedQuery {
+  //----------------------------------------------------------------
+  // static initializer
+  //----------------------------------------------------------------
+  static {
+    Loader.load();
+    init();
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the class.
+   */
+  private static native void init();
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** pointer to the native object */
+  private long ptr = 0;
+  /** host database object */
+  private TDB tdb = null;
+  /** bound parameters */
+  private byte[][] params;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a prepared query object.
+   * @param tdb the table database object.
+   * @param template the template of the query.  It is composed of clauses separated by
+   * semicolons or line feeds.  Each clause is one of `addcond name op expr', `setorder name
+   * type', and `setlimit max [skip]', whose tokens are separated by white spaces.  A name
+   * `""' means the primary key.  An operation type and an order type are specified by the
+   * names used in the command line utility, such as `STREQ', `NUMGE', `!STRBW', and `NUMDESC'.
+   * An expression, the maximum number, and the number of skipped records can be the placeholder
+   * `?'.  Expressions including white spaces should be bound to placeholders.
+   * @throws IllegalArgumentException if the template is broken.
+   */
+  public PreparedQuery(TDB tdb, String template){
+    int pnum = initialize(tdb, template);
+    this.tdb = tdb;
+    this.params = new byte[pnum][];
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    destruct();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of placeholders.
+   * @return the number of placeholders.
+   */
+  public int size(){
+    return params.length;
+  }
+  /**
+   * Bind parameters to the placeholders.
+   * @param params the parameters in the order of the placeholders.  Each parameter is converted
+   * into a string unless it is a byte array.
+   * @return the query object itself.
+   */
+  public PreparedQuery bind(Object... params){
+    if(params.length != this.params.length)
+      throw new IllegalArgumentException("parameter count mismatch: " + params.length);
+    for(int i = 0; i < params.length; i++){
+      bind(i, params[i]);
+    }
+    return this;
+  }
+  /**
+   * Bind a parameter to a placeholder.
+   * @param index the index of the placeholder.
+   * @param param the parameter.  It is converted into a string unless it is a byte array.
+   * @return the query object itself.
+   */
+  public PreparedQuery bind(int index, Object param){
+    if(param == null) throw new IllegalArgumentException("null parameter");
+    params[index] = param instanceof byte[] ? (byte[])param : Util.otos(param).getBytes();
+    return this;
+  }
+  /**
+   * Execute the search with the bound parameters.
+   * @return a list object of the primary keys of the corresponding records.
+   * @see TDBQRY#search()
+   */
+  public List<byte[]> execute(){
+    Rebuilder rb = tdb.rebuilder();
+    if(rb == null) return executeimpl(params);
+    rb.enter();
+    try {
+      return executeimpl(params);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Execute the search with the bound parameters and retrieve the corresponding records.
+   * @param names the names of the columns to be retrieved.  If it is not specified, all columns
+   * are retrieved.
+   * @return a row reader object of the corresponding records.
+   * @see TDBQRY#searchrows(String...)
+   */
+  public RowReader executerows(String... names){
+    byte[][] tnames = new byte[names.length][];
+    for(int i = 0; i < names.length; i++){
+      tnames[i] = names[i].getBytes();
+    }
+    Rebuilder rb = tdb.rebuilder();
+    if(rb == null) return new RowReader(executerowsimpl(params, tnames));
+    rb.enter();
+    try {
+      return new RowReader(executerowsimpl(params, tnames));
+    } finally {
+      rb.leave();
+    }
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the object.
+   * @return the number of placeholders.
+   */
+  private native int initialize(TDB tdb, String template);
+  /**
+   * Release resources.
+   */
+  private native void destruct();
+  /**
+   * Execute the search.
+   */
+  private native List<byte[]> executeimpl(byte[][] params);
+  /**
+   * Execute the search and retrieve the corresponding records.
+   */
+  private native byte[] executerowsimpl(byte[][] params, byte[][] names);
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,217 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Query cache is a store of query results of a table database.  Each result is associated with
+ * the columns the query refers to, and is invalidated when a record is modified at any of the
+ * columns.  The least recently used results are evicted when the total size exceeds the limit.
+ */
+class QueryCache {
+  //----------------------------------------------------------------
+  // package constants
+  //----------------------------------------------------------------
+  /** pseudo column name referred to by results depending on every modification */
+  static final String ANYCOL = "\0";
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** estimated overhead of an entry */
+  private static final int ENTRYOVERHEAD = 128;
+  /** estimated overhead of an element of a result */
+  private static final int ELEMOVERHEAD = 24;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** limit size of the cached results */
+  private long limsiz;
+  /** total size of the cached results */
+  private long size;
+  /** generation number incremented by each invalidation */
+  private long gen;
+  /** cached entries in the access order */
+  private LinkedHashMap<String, Entry> entries;
+  /** map from each column to the keys of entries referring to it */
+  private Map<String, Set<String>> refs;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a query cache object.
+   * @param limsiz the limit size of the cached results.
+   */
+  QueryCache(long limsiz){
+    this.limsiz = limsiz;
+    this.size = 0;
+    this.gen = 0;
+    this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    this.refs = new HashMap<String, Set<String>>();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the generation number.
+   * @note A result should be stored only if the generation number has not changed since before
+   * the search, so that a result overtaken by a modification is not cached.
+   */
+  synchronized long generation(){
+    return gen;
+  }
+  /**
+   * Get a list of primary keys.
+   * @return a copy of the cached list or `null' if it is not cached.
+   */
+  synchronized List<byte[]> getkeys(String key){
+    Entry entry = entries.get(key);
+    if(entry == null || entry.keys == null) return null;
+    return new ArrayList<byte[]>(entry.keys);
+  }
+  /**
+   * Get a number of records.
+   * @return the cached number or -1 if it is not cached.
+   */
+  synchronized int getcount(String key){
+    Entry entry = entries.get(key);
+    if(entry == null || entry.keys != null) return -1;
+    return entry.count;
+  }
+  /**
+   * Store a list of primary keys.
+   */
+  synchronized void putkeys(String key, Set<String> cols, List<byte[]> keys, long ogen){
+    if(ogen != gen) return;
+    long esiz = ENTRYOVERHEAD + key.length() * 2;
+    for(byte[] pkey : keys){
+      esiz += pkey.length + ELEMOVERHEAD;
+    }
+    store(new Entry(key, cols, new ArrayList<byte[]>(keys), keys.size(), esiz));
+  }
+  /**
+   * Store a number of records.
+   */
+  synchronized void putcount(String key, Set<String> cols, int count, long ogen){
+    if(ogen != gen) return;
+    store(new Entry(key, cols, null, count, ENTRYOVERHEAD + key.length() * 2));
+  }
+  /**
+   * Invalidate the results referring to some columns.
+   */
+  synchronized void invalidate(Collection<String> cols){
+    gen++;
+    if(cols.isEmpty()) return;
+    cols = new ArrayList<String>(cols);
+    cols.add(ANYCOL);
+    for(String col : cols){
+      Set<String> keys = refs.get(col);
+      if(keys == null) continue;
+      String[] kary = keys.toArray(new String[keys.size()]);
+      for(int i = 0; i < kary.length; i++){
+        remove(kary[i]);
+      }
+    }
+  }
+  /**
+   * Invalidate all results.
+   */
+  synchronized void clear(){
+    gen++;
+    entries.clear();
+    refs.clear();
+    size = 0;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Store an entry and evict old entries.
+   */
+  private void store(Entry entry){
+    if(entry.size > limsiz) return;
+    remove(entry.key);
+    entries.put(entry.key, entry);
+    size += entry.size;
+    for(String col : entry.cols){
+      Set<String> keys = refs.get(col);
+      if(keys == null){
+        keys = new HashSet<String>();
+        refs.put(col, keys);
+      }
+      keys.add(entry.key);
+    }
+    Iterator<Entry> it = entries.values().iterator();
+    while(size > limsiz && it.hasNext()){
+      Entry old = it.next();
+      it.remove();
+      unref(old);
+    }
+  }
+  /**
+   * Remove an entry.
+   */
+  private void remove(String key){
+    Entry entry = entries.remove(key);
+    if(entry != null) unref(entry);
+  }
+  /**
+   * Release the references of a removed entry.
+   */
+  private void unref(Entry entry){
+    size -= entry.size;
+    for(String col : entry.cols){
+      Set<String> keys = refs.get(col);
+      if(keys == null) continue;
+      keys.remove(entry.key);
+      if(keys.isEmpty()) refs.remove(col);
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Cached result.
+   */
+  private static class Entry {
+    /** key of the query */
+    String key;
+    /** columns referred to by the query */
+    Set<String> cols;
+    /** primary keys of the result or `null' for a number */
+    List<byte[]> keys;
+    /** number of records */
+    int count;
+    /** estimated size */
+    long size;
+    Entry(String key, Set<String> cols, List<byte[]> keys, int count, long size){
+      this.key = key;
+      this.cols = cols;
+      this.keys = keys;
+      this.count = count;
+      this.size = size;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
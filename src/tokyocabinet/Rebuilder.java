@@ -0,0 +1,317 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Common base of the online rebuilding of a database file.  Each operation of the database
+ * object holds the shared side of a gate, and the keys of the records modified during a rebuild
+ * are collected in a side log.  The rebuild copies every record into a shadow file, copies the
+ * records of the logged keys again until the log becomes short, and then holds the exclusive
+ * side of the gate only while the rest of the log is copied and the shadow file replaces the
+ * database file.  As transactions are not isolated, the copies may contain uncommitted values.
+ * So the keys modified while a transaction is open are kept aside and logged again when the
+ * transaction is committed or aborted, and the logged keys are not removed from the log while a
+ * transaction is open.
+ */
+abstract class Rebuilder {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** suffix of the path of the shadow file */
+  private static final String TMPSUFFIX = ".tmp.rebuild";
+  /** maximum number of records copied in a scanning step */
+  private static final int SCANMAX = 1024;
+  /** maximum number of rounds of copying the logged records before the final step */
+  private static final int ROUNDMAX = 16;
+  /** number of logged keys small enough to be copied in the final step */
+  private static final int LOGMIN = 256;
+  /** maximum time in milliseconds to wait for the exclusive side of the gate at once */
+  private static final long PAUSEMAX = 20;
+  /** maximum number of attempts to reopen the replaced database file */
+  private static final int REOPENMAX = 8;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** gate of the operations */
+  private ReentrantReadWriteLock gate;
+  /** side log of the modified keys or `null' if no rebuild is running */
+  private volatile ConcurrentHashMap<CachedDBM.Key, Boolean> log;
+  /** whether the running rebuild is cancelled */
+  private volatile boolean cancelled;
+  /** whether a rebuild is running */
+  private AtomicBoolean running;
+  /** number of open transactions */
+  private AtomicInteger trannum;
+  /** keys of the records modified while a transaction is open */
+  private Set<CachedDBM.Key> trankeys;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a rebuilder object.
+   */
+  Rebuilder(){
+    gate = new ReentrantReadWriteLock();
+    log = null;
+    cancelled = false;
+    running = new AtomicBoolean(false);
+    trannum = new AtomicInteger(0);
+    trankeys = new HashSet<CachedDBM.Key>();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Enter an operation holding the shared side of the gate.
+   */
+  void enter(){
+    gate.readLock().lock();
+  }
+  /**
+   * Leave an operation.
+   */
+  void leave(){
+    gate.readLock().unlock();
+  }
+  /**
+   * Check whether the keys of modified records are logged.
+   * @note This should be called in an operation.
+   */
+  boolean logging(){
+    return log != null;
+  }
+  /**
+   * Log the key of a modified record.
+   * @note This should be called in the operation after the record is modified.
+   */
+  void touch(byte[] key){
+    CachedDBM.Key ckey = new CachedDBM.Key(key);
+    if(trannum.get() > 0){
+      synchronized(trankeys){
+        trankeys.add(ckey);
+      }
+    }
+    ConcurrentHashMap<CachedDBM.Key, Boolean> log = this.log;
+    if(log != null) log.put(ckey, Boolean.TRUE);
+  }
+  /**
+   * Log the keys of modified records.
+   * @note This should be called in the operation after the records are modified.
+   */
+  void touch(List<byte[]> keys){
+    for(byte[] key : keys){
+      touch(key);
+    }
+  }
+  /**
+   * Cancel the running rebuild because the database is modified without keys.
+   */
+  void cancel(){
+    cancelled = true;
+  }
+  /**
+   * Count a transaction which is beginning.
+   * @note This should be called before the transaction begins, and `tranend' should be called
+   * if it fails to begin.
+   */
+  void tranbegin(){
+    trannum.incrementAndGet();
+  }
+  /**
+   * Count a transaction which has been committed or aborted, and log the keys of the records
+   * modified during the transaction.
+   * @note This should be called after the transaction is committed or aborted.
+   */
+  void tranend(){
+    synchronized(trankeys){
+      ConcurrentHashMap<CachedDBM.Key, Boolean> log = this.log;
+      if(log != null){
+        for(CachedDBM.Key key : trankeys){
+          log.put(key, Boolean.TRUE);
+        }
+      }
+      while(true){
+        int num = trannum.get();
+        if(num < 1 || trannum.compareAndSet(num, num - 1)) break;
+      }
+      if(trannum.get() < 1) trankeys.clear();
+    }
+  }
+  /**
+   * Rebuild the database file.
+   * @return If successful, it is true, else, it is false.
+   * @note If the database file is closed to be replaced but can not be reopened after some
+   * retries, `IllegalStateException' is thrown and the database object is left closed.
+   */
+  boolean rebuild(){
+    if(!running.compareAndSet(false, true)) return false;
+    String tpath = null;
+    boolean done = false;
+    try {
+      String path = path();
+      if(path == null) return false;
+      tpath = path + TMPSUFFIX;
+      ConcurrentHashMap<CachedDBM.Key, Boolean> keys =
+        new ConcurrentHashMap<CachedDBM.Key, Boolean>();
+      gate.writeLock().lock();
+      try {
+        cancelled = false;
+        log = keys;
+      } finally {
+        gate.writeLock().unlock();
+      }
+      if(!create(tpath)) return false;
+      int num;
+      while(!cancelled && (num = scan(SCANMAX)) != 0){
+        if(num < 0) return false;
+      }
+      if(cancelled || !prepare()) return false;
+      for(int i = 0; i < ROUNDMAX && keys.size() > LOGMIN; i++){
+        if(cancelled || !drain(keys)) return false;
+      }
+      done = finish(keys, path, tpath);
+      return done;
+    } finally {
+      log = null;
+      if(tpath != null && !done) discard(tpath);
+      running.set(false);
+    }
+  }
+  /**
+   * Get the path of the database file.
+   * @return the path or `null' if the database is not opened.
+   */
+  abstract String path();
+  /**
+   * Create the shadow database.
+   * @param tpath the path of the shadow file.
+   * @return If successful, it is true, else, it is false.
+   */
+  abstract boolean create(String tpath);
+  /**
+   * Copy the next records into the shadow database.
+   * @param max the maximum number of records.
+   * @return the number of scanned records, 0 at the end, or -1 on failure.
+   */
+  abstract int scan(int max);
+  /**
+   * Prepare the shadow database after the scanning.
+   * @return If successful, it is true, else, it is false.
+   */
+  boolean prepare(){
+    return true;
+  }
+  /**
+   * Copy the current state of a record into the shadow database.
+   * @param key the key of the record.
+   * @return If successful, it is true, else, it is false.
+   */
+  abstract boolean copy(byte[] key);
+  /**
+   * Close the database file and replace it with the shadow file.
+   * @param tpath the path of the shadow file.
+   * @return If successful, it is true, else, it is false.
+   */
+  abstract boolean swap(String tpath);
+  /**
+   * Reopen the database file after it is replaced.
+   * @param path the path of the database file.
+   * @return If successful, it is true, else, it is false.
+   */
+  abstract boolean reopen(String path);
+  /**
+   * Close the shadow database and remove its files.
+   * @param tpath the path of the shadow file.
+   */
+  abstract void discard(String tpath);
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Copy the records of the logged keys.
+   */
+  private boolean drain(ConcurrentHashMap<CachedDBM.Key, Boolean> keys){
+    Iterator<CachedDBM.Key> it = keys.keySet().iterator();
+    while(it.hasNext()){
+      CachedDBM.Key key = it.next();
+      // the copy may be uncommitted while a transaction is open
+      if(trannum.get() < 1) it.remove();
+      if(!copy(key.buf)) return false;
+    }
+    return true;
+  }
+  /**
+   * Copy the rest of the log and swap the files while the operations are paused.
+   */
+  private boolean finish(ConcurrentHashMap<CachedDBM.Key, Boolean> keys, String path,
+                         String tpath){
+    Lock lock = gate.writeLock();
+    while(true){
+      if(cancelled) return false;
+      try {
+        if(lock.tryLock(PAUSEMAX, TimeUnit.MILLISECONDS)){
+          if(trannum.get() < 1) break;
+          lock.unlock();
+          Thread.sleep(1);
+        }
+      } catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      if(!drain(keys)) return false;
+    }
+    try {
+      if(cancelled || !drain(keys)) return false;
+      log = null;
+      boolean rv = swap(tpath);
+      if(path() == null) restore(path);
+      return rv;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Reopen the database file closed by the swap, retrying failures.
+   */
+  private void restore(String path){
+    for(int i = 0; i < REOPENMAX; i++){
+      if(reopen(path)) return;
+      try {
+        Thread.sleep(1L << i);
+      } catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    throw new IllegalStateException("the rebuilt database file can not be reopened: " + path);
+  }
+}
+
+
+
+/* END OF FILE */
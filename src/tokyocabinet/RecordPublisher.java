@@ -0,0 +1,366 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Record publisher is a publisher of the records of a database, which are fetched from the
+ * native side in batches as many as the subscriber requests.  Each subscription traverses the
+ * records from the beginning.  Records are delivered in the thread calling the method
+ * `request'.
+ */
+public abstract class RecordPublisher<T> implements Publisher<T> {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** maximum number of records fetched at once */
+  private static final int FETCHMAX = 1 << 16;
+  //----------------------------------------------------------------
+  // public static methods
+  //----------------------------------------------------------------
+  /**
+   * Create a publisher of the records in a range of a B+ tree database.
+   * @param bdb the B+ tree database object.
+   * @param bkey the key of the beginning border.  If it is `null', the first record is specified.
+   * @param binc whether the beginning border is inclusive or not.
+   * @param ekey the key of the ending border.  If it is `null', the last record is specified.
+   * @param einc whether the ending border is inclusive or not.
+   * @return the publisher object, whose elements are pairs of the key and the value.
+   * @note The records are read with a cursor, which is released when the subscription is
+   * completed or cancelled.  Every value of duplicated records is delivered.  Each batch takes
+   * one native call.
+   */
+  public static RecordPublisher<Map.Entry<byte[], byte[]>>
+    range(final BDB bdb, final byte[] bkey, final boolean binc, final byte[] ekey,
+          final boolean einc){
+    return new RecordPublisher<Map.Entry<byte[], byte[]>>(){
+      Source<Map.Entry<byte[], byte[]>> open(){
+        return new RangeSource(bdb, bkey, binc, ekey, einc);
+      }
+    };
+  }
+  /**
+   * Create a publisher of the records of a hash database.
+   * @param hdb the hash database object.
+   * @return the publisher object, whose elements are pairs of the key and the value.
+   * @note The iterator of the database object is used, so it should not be used by others
+   * during the subscription.  Each batch takes one native call for each key and one for the
+   * values.
+   */
+  public static RecordPublisher<Map.Entry<byte[], byte[]>> iterate(final HDB hdb){
+    return new RecordPublisher<Map.Entry<byte[], byte[]>>(){
+      Source<Map.Entry<byte[], byte[]>> open(){
+        return new IterSource(hdb);
+      }
+    };
+  }
+  /**
+   * Create a publisher of the result set of a query of a table database.
+   * @param qry the query object.  The conditions are evaluated incrementally as records are
+   * requested, unless the order is set or an index of another type serves a condition.
+   * @return the publisher object, whose elements are maps of the columns of the records.  The
+   * primary key is stored as the column of the empty name.
+   * @note The result set is read with a query cursor, which is closed when the subscription is
+   * completed or cancelled.  Each batch takes one native call.
+   * @see TDBQRYCUR
+   */
+  public static RecordPublisher<Map<String, byte[]>> search(final TDBQRY qry){
+    return new RecordPublisher<Map<String, byte[]>>(){
+      Source<Map<String, byte[]>> open(){
+        return new QuerySource(qry);
+      }
+    };
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Make pairs of keys and values skipping removed records.
+   */
+  private static List<Map.Entry<byte[], byte[]>> pairs(List<byte[]> keys, byte[][] vals){
+    List<Map.Entry<byte[], byte[]>> recs = new ArrayList<Map.Entry<byte[], byte[]>>(vals.length);
+    for(int i = 0; i < vals.length; i++){
+      if(vals[i] != null) recs.add(new Pair(keys.get(i), vals[i]));
+    }
+    return recs;
+  }
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a publisher object.
+   */
+  RecordPublisher(){}
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Add a subscriber.
+   * @param subscriber the subscriber object.
+   */
+  public void subscribe(Subscriber<? super T> subscriber){
+    if(subscriber == null) throw new NullPointerException("subscriber");
+    Link link = new Link(subscriber);
+    subscriber.onSubscribe(link);
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Open the source of a subscription.
+   */
+  abstract Source<T> open();
+  //----------------------------------------------------------------
+  // package classes
+  //----------------------------------------------------------------
+  /**
+   * Source of the records of a subscription.
+   */
+  abstract static class Source<T> {
+    /**
+     * Fetch records.
+     * @param max the maximum number of records.
+     * @return a list of the records, which may be shorter than `max', or `null' if there is no
+     * more record.
+     */
+    abstract List<T> fetch(int max);
+    /**
+     * Release resources.
+     */
+    void close(){}
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Subscription of a subscriber.
+   */
+  private class Link implements Subscription {
+    /** subscriber */
+    private Subscriber<? super T> subscriber;
+    /** source of the records */
+    private Source<T> source;
+    /** number of requested records not delivered yet */
+    private AtomicLong demand;
+    /** number of pending calls of the delivery loop */
+    private AtomicInteger wip;
+    /** whether the subscription is cancelled */
+    private volatile boolean cancelled;
+    /** error of an illegal request */
+    private volatile Throwable error;
+    /** whether the subscription is terminated */
+    private boolean done;
+    Link(Subscriber<? super T> subscriber){
+      this.subscriber = subscriber;
+      this.source = null;
+      this.demand = new AtomicLong();
+      this.wip = new AtomicInteger();
+      this.cancelled = false;
+      this.error = null;
+      this.done = false;
+    }
+    public void request(long num){
+      if(num <= 0){
+        error = new IllegalArgumentException("non-positive request: " + num);
+        cancelled = true;
+        drain();
+        return;
+      }
+      while(true){
+        long cur = demand.get();
+        long next = cur + num;
+        if(next < 0) next = Long.MAX_VALUE;
+        if(demand.compareAndSet(cur, next)) break;
+      }
+      drain();
+    }
+    public void cancel(){
+      cancelled = true;
+      drain();
+    }
+    /**
+     * Deliver records while there is demand.  Only one thread runs the loop at a time, and
+     * calls made during the loop, including those from the subscriber, are handled by it.
+     */
+    private void drain(){
+      if(wip.getAndIncrement() != 0) return;
+      int missed = 1;
+      while(true){
+        if(!done){
+          try {
+            deliver();
+          } catch(RuntimeException e){
+            done = true;
+            if(source != null) source.close();
+            subscriber.onError(e);
+          }
+          if(cancelled && !done){
+            done = true;
+            if(source != null) source.close();
+            if(error != null) subscriber.onError(error);
+          }
+        }
+        missed = wip.addAndGet(-missed);
+        if(missed == 0) break;
+      }
+    }
+    /**
+     * Fetch and deliver records as many as requested.
+     */
+    private void deliver(){
+      while(!cancelled && demand.get() > 0){
+        if(source == null) source = open();
+        List<T> recs = source.fetch((int)Math.min(demand.get(), FETCHMAX));
+        if(recs == null){
+          done = true;
+          source.close();
+          subscriber.onComplete();
+          return;
+        }
+        for(T rec : recs){
+          if(cancelled) return;
+          demand.decrementAndGet();
+          subscriber.onNext(rec);
+        }
+      }
+    }
+  }
+  /**
+   * Source of a range of a B+ tree database.
+   */
+  private static class RangeSource extends Source<Map.Entry<byte[], byte[]>> {
+    /** cursor of the range or `null' if the range is exhausted */
+    private BDBCUR cur;
+    /** key of the first record after the range or `null' for the end of the database */
+    private byte[] skey;
+    RangeSource(BDB bdb, byte[] bkey, boolean binc, byte[] ekey, boolean einc){
+      this.cur = null;
+      this.skey = null;
+      List<byte[]> first = bdb.range(bkey, binc, ekey, einc, 1);
+      if(first.isEmpty()) return;
+      if(ekey != null){
+        BDBCUR scur = new BDBCUR(bdb);
+        if(scur.jump(ekey)){
+          byte[] key = scur.key();
+          while(einc && key != null && Arrays.equals(key, ekey)){
+            key = scur.next() ? scur.key() : null;
+          }
+          skey = key;
+        }
+      }
+      cur = new BDBCUR(bdb);
+      if(!cur.jump(first.get(0))) cur = null;
+    }
+    List<Map.Entry<byte[], byte[]>> fetch(int max){
+      if(cur == null) return null;
+      byte[][] res = cur.recs(max, skey);
+      if(res.length < max * 2) cur = null;
+      List<Map.Entry<byte[], byte[]>> recs =
+        new ArrayList<Map.Entry<byte[], byte[]>>(res.length / 2);
+      for(int i = 0; i + 1 < res.length; i += 2){
+        recs.add(new Pair(res[i], res[i+1]));
+      }
+      return recs.isEmpty() && cur == null ? null : recs;
+    }
+    void close(){
+      cur = null;
+    }
+  }
+  /**
+   * Source of the iterator of a hash database.
+   */
+  private static class IterSource extends Source<Map.Entry<byte[], byte[]>> {
+    /** database object */
+    private HDB hdb;
+    /** whether the iterator is exhausted */
+    private boolean end;
+    IterSource(HDB hdb){
+      this.hdb = hdb;
+      this.end = !hdb.iterinit();
+    }
+    List<Map.Entry<byte[], byte[]>> fetch(int max){
+      if(end) return null;
+      List<byte[]> keys = new ArrayList<byte[]>(Math.min(max, 1024));
+      while(keys.size() < max){
+        byte[] key = hdb.iternext();
+        if(key == null){
+          end = true;
+          break;
+        }
+        keys.add(key);
+      }
+      if(keys.isEmpty()) return null;
+      return pairs(keys, hdb.getrecs(keys.toArray(new byte[keys.size()][])));
+    }
+  }
+  /**
+   * Source of the result set of a query.
+   */
+  private static class QuerySource extends Source<Map<String, byte[]>> {
+    /** cursor of the result set */
+    private TDBQRYCUR cur;
+    QuerySource(TDBQRY qry){
+      this.cur = qry.cursor(1);
+    }
+    List<Map<String, byte[]>> fetch(int max){
+      RowReader rows = cur.nextrows(max);
+      if(rows == null) return null;
+      List<Map<String, byte[]>> recs = new ArrayList<Map<String, byte[]>>(rows.size());
+      while(rows.next()){
+        Map<String, byte[]> cols = rows.cols();
+        cols.put("", rows.pkey());
+        recs.add(cols);
+      }
+      return recs;
+    }
+    void close(){
+      cur.close();
+    }
+  }
+  /**
+   * Pair of a key and a value.
+   */
+  private static class Pair implements Map.Entry<byte[], byte[]> {
+    /** key */
+    private byte[] key;
+    /** value */
+    private byte[] value;
+    Pair(byte[] key, byte[] value){
+      this.key = key;
+      this.value = value;
+    }
+    public byte[] getKey(){
+      return key;
+    }
+    public byte[] getValue(){
+      return value;
+    }
+    public byte[] setValue(byte[] value){
+      throw new UnsupportedOperationException("read only");
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,513 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Replica is an applier which tails a change log and applies its entries to another database
+ * file.  The entries are applied in batches, each of which is one transaction of the target
+ * database.  The entries of a transaction of the source are applied only after its commit is
+ * recorded and are skipped if its abort is recorded.
+ * @note The target database should be a copy of the source made by the method `backup' of the
+ * logged database class, or an empty database if the log was started with an empty source.  The
+ * target should not be updated by others.  The sequence number of the last applied entry is
+ * recorded in the head 16 bytes of the opaque region of the target file, in the same transaction
+ * as the entries, so that a replica made again for the file after a restart resumes from it.  It
+ * is not recorded in on-memory databases and in the multiple database mode.
+ * Therefore, the head 16 bytes of the opaque region of the target are reserved for the replica.
+ * Applications must not store their own data there, and a target whose head holds other data is
+ * refused.
+ * @see ChangeLog
+ */
+public class Replica {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** magic data of the sequence number in the opaque region */
+  private static final byte[] SEQMAGIC = { 'T', 'C', 'J', 'R', 'E', 'P', '1', '\n' };
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** path of the log file */
+  private String path;
+  /** target database object */
+  private Object db;
+  /** sequence number of the last applied entry */
+  private volatile long seq;
+  /** position of the entry following the last applied entry */
+  private long pos;
+  /** sequence number of the first entry of the opened file */
+  private long head;
+  /** whether the sequence number is recorded in the target */
+  private boolean mark;
+  /** maximum number of entries in a transaction */
+  private int batch;
+  /** file object of the log */
+  private RandomAccessFile file;
+  /** reader of the log */
+  private ChangeLog.Reader reader;
+  /** executor service tailing the log */
+  private ScheduledExecutorService exec;
+  /** message of the last error */
+  private volatile String errmsg;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a replica of a hash database.
+   * @param path the path of the log file.
+   * @param hdb the target hash database object, which should be opened as a writer.
+   * @param seq the sequence number of the last entry already reflected in the target, such as
+   * the one returned by the method `backup'.  If the number recorded in the target is larger, it
+   * is used instead.  Entries whose sequence numbers are not more than it are skipped.
+   * @throws IllegalArgumentException if the head 16 bytes of the opaque region of the target
+   * hold data other than a sequence number, since they are overwritten by the replica.
+   * @note The target should be opened before the replica is created.
+   */
+  public Replica(String path, HDB hdb, long seq){
+    this(path, (Object)hdb, seq);
+  }
+  /**
+   * Create a replica of a B+ tree database.
+   * @see #Replica(String, HDB, long)
+   */
+  public Replica(String path, BDB bdb, long seq){
+    this(path, (Object)bdb, seq);
+  }
+  /**
+   * Create a replica of a fixed-length database.
+   * @see #Replica(String, HDB, long)
+   */
+  public Replica(String path, FDB fdb, long seq){
+    this(path, (Object)fdb, seq);
+  }
+  /**
+   * Create a replica of a table database.
+   * @see #Replica(String, HDB, long)
+   */
+  public Replica(String path, TDB tdb, long seq){
+    this(path, (Object)tdb, seq);
+  }
+  /**
+   * Create a replica of an abstract database.
+   * @see #Replica(String, HDB, long)
+   */
+  public Replica(String path, ADB adb, long seq){
+    this(path, (Object)adb, seq);
+  }
+  /**
+   * Create a replica.
+   */
+  private Replica(String path, Object db, long seq){
+    if(path == null) throw new NullPointerException("path");
+    if(db == null) throw new NullPointerException("db");
+    this.path = path;
+    this.db = db;
+    byte[] opq = Util.opaque(db);
+    long oseq = opq != null ? readseq(opq) : 0;
+    if(oseq < 0) throw new IllegalArgumentException("opaque region of the target is in use");
+    this.seq = Math.max(Math.max(seq, 0), oseq);
+    pos = ChangeLog.MAGIC.length;
+    head = -1;
+    mark = opq != null;
+    batch = 1024;
+    file = null;
+    reader = null;
+    exec = null;
+    errmsg = null;
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    shutdown();
+    close();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Set the size of the batches.
+   * @param batch the maximum number of entries applied in a transaction.  The entries of a
+   * transaction of the source are not divided.  The default is 1024.
+   */
+  public synchronized void setbatch(int batch){
+    this.batch = Math.max(batch, 1);
+  }
+  /**
+   * Apply the entries appended to the log since the previous call.
+   * @return the number of applied updates, or -1 on failure.
+   * @note The entries of a transaction of the source whose end is not recorded yet are left for
+   * the next call.  If an entry fails, the transaction of the batch is aborted and the next call
+   * resumes from the entry following the last committed one.  If the log file has been
+   * replaced by truncation, the new file is opened.
+   */
+  public synchronized long apply(){
+    try {
+      if(reader != null && new File(path).length() != file.length()) close();
+      if(reader == null){
+        file = new RandomAccessFile(path, "r");
+        reader = new ChangeLog.Reader(file);
+        ChangeLog.Entry first = reader.next();
+        long fhead = first != null ? first.seq : 0;
+        if(fhead != head){
+          head = fhead;
+          pos = ChangeLog.MAGIC.length;
+        }
+      }
+      reader.seek(pos);
+      long num = 0;
+      List<ChangeLog.Entry> group = new ArrayList<ChangeLog.Entry>();
+      List<ChangeLog.Entry> unit = null;
+      long gseq = seq;
+      long gpos = pos;
+      ChangeLog.Entry entry;
+      while((entry = reader.next()) != null){
+        if(entry.seq <= seq){
+          gpos = entry.end;
+          continue;
+        }
+        switch(entry.op){
+          case ChangeLog.OPTRANBEGIN:
+            unit = new ArrayList<ChangeLog.Entry>();
+            break;
+          case ChangeLog.OPTRANCOMMIT:
+            if(unit != null) group.addAll(unit);
+            unit = null;
+            break;
+          case ChangeLog.OPTRANABORT:
+            unit = null;
+            break;
+          default:
+            if(unit != null){
+              unit.add(entry);
+            } else {
+              group.add(entry);
+            }
+            break;
+        }
+        if(unit != null) continue;
+        gseq = entry.seq;
+        gpos = entry.end;
+        if(group.size() >= batch){
+          if(!commit(group, gseq)) return -1;
+          num += group.size();
+          group.clear();
+          seq = gseq;
+          pos = gpos;
+        }
+      }
+      if(!commit(group, gseq)) return -1;
+      num += group.size();
+      seq = gseq;
+      pos = gpos;
+      return num;
+    } catch(IOException e){
+      errmsg = e.toString();
+      return -1;
+    }
+  }
+  /**
+   * Start to tail the log on a daemon thread.
+   * @param interval the interval of the applications in milliseconds.
+   */
+  public synchronized void start(long interval){
+    if(exec != null) return;
+    if(interval < 1) throw new IllegalArgumentException("illegal interval: " + interval);
+    exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+        public Thread newThread(Runnable r){
+          Thread th = new Thread(r, "Replica");
+          th.setDaemon(true);
+          return th;
+        }
+      });
+    exec.scheduleWithFixedDelay(new Runnable(){
+        public void run(){
+          apply();
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+  /**
+   * Stop tailing the log.
+   * @note The current application is finished before the thread exits.
+   */
+  public synchronized void shutdown(){
+    if(exec == null) return;
+    exec.shutdown();
+    exec = null;
+  }
+  /**
+   * Close the log file.
+   * @note The file is opened again by the next application, which resumes from the position of
+   * the last applied entry if the file has not been replaced.
+   */
+  public synchronized void close(){
+    if(file == null) return;
+    try {
+      file.close();
+    } catch(IOException e){
+      errmsg = e.toString();
+    }
+    file = null;
+    reader = null;
+  }
+  /**
+   * Get the sequence number of the last applied entry.
+   * @return the sequence number of the last applied entry.  Entries of aborted transactions are
+   * regarded as applied.
+   */
+  public long seq(){
+    return seq;
+  }
+  /**
+   * Get the message of the last error.
+   * @return the message of the last error, or `null' if no error has occurred.
+   */
+  public String errmsg(){
+    return errmsg;
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Read the sequence number recorded in an opaque region.
+   * @return the sequence number, 0 if the head is empty, or -1 if it holds other data.
+   */
+  private static long readseq(byte[] opq){
+    if(opq.length < SEQMAGIC.length + 8) return 0;
+    for(int i = 0; i < SEQMAGIC.length; i++){
+      if(opq[i] != SEQMAGIC[i]){
+        for(int j = 0; j < SEQMAGIC.length + 8; j++){
+          if(opq[j] != 0) return -1;
+        }
+        return 0;
+      }
+    }
+    long num = 0;
+    for(int i = 0; i < 8; i++){
+      num = (num << 8) | (opq[SEQMAGIC.length+i] & 0xff);
+    }
+    return num;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Apply a group of entries in transactions.  Entries which can not be applied in a transaction
+   * are applied between transactions.  The position is advanced after each durable step, whose
+   * sequence number is recorded in the target at the same time.
+   */
+  private boolean commit(List<ChangeLog.Entry> group, long gseq){
+    boolean tran = false;
+    ChangeLog.Entry last = null;
+    for(ChangeLog.Entry entry : group){
+      boolean alone = alone(entry);
+      if(alone && tran){
+        tran = false;
+        if(!record(last.seq)) return false;
+        if(!Util.trancommit(db)) return fail("trancommit");
+        seq = last.seq;
+        pos = last.end;
+      }
+      if(!alone && !tran){
+        if(!Util.tranbegin(db)) return fail("tranbegin");
+        tran = true;
+      }
+      if(!proc(entry)){
+        if(tran) Util.tranabort(db);
+        return fail("apply: seq=" + entry.seq + " op=" + entry.op);
+      }
+      if(alone){
+        if(mark){
+          if(!Util.tranbegin(db)) return fail("tranbegin");
+          if(!record(entry.seq)) return false;
+          if(!Util.trancommit(db)) return fail("trancommit");
+        }
+        seq = entry.seq;
+        pos = entry.end;
+      }
+      last = entry;
+    }
+    if(tran){
+      if(!record(gseq)) return false;
+      if(!Util.trancommit(db)) return fail("trancommit");
+    }
+    return true;
+  }
+  /**
+   * Record a sequence number in the target in the current transaction.  The transaction is
+   * aborted on failure.
+   */
+  private boolean record(long num){
+    if(!mark) return true;
+    byte[] buf = new byte[SEQMAGIC.length+8];
+    System.arraycopy(SEQMAGIC, 0, buf, 0, SEQMAGIC.length);
+    for(int i = 0; i < 8; i++){
+      buf[SEQMAGIC.length+i] = (byte)(num >>> (56 - i * 8));
+    }
+    if(Util.setopaque(db, buf)) return true;
+    fail("setopaque");
+    Util.tranabort(db);
+    return false;
+  }
+  /**
+   * Record the error of the target.
+   */
+  private boolean fail(String func){
+    String msg;
+    if(db instanceof HDB){
+      msg = ((HDB)db).errmsg();
+    } else if(db instanceof BDB){
+      msg = ((BDB)db).errmsg();
+    } else if(db instanceof FDB){
+      msg = ((FDB)db).errmsg();
+    } else if(db instanceof TDB){
+      msg = ((TDB)db).errmsg();
+    } else {
+      msg = "error";
+    }
+    errmsg = func + ": " + msg;
+    return false;
+  }
+  /**
+   * Check whether an entry can not be applied in a transaction.
+   */
+  private boolean alone(ChangeLog.Entry entry){
+    if(entry.op == ChangeLog.OPVANISH || entry.op == ChangeLog.OPSETINDEX) return true;
+    if(entry.op != ChangeLog.OPMISC) return false;
+    String name = new String(entry.args[0]);
+    return name.equals("vanish") || name.equals("setindex");
+  }
+  /**
+   * Apply an entry to the target.
+   */
+  private boolean proc(ChangeLog.Entry entry){
+    byte[][] args = entry.args;
+    switch(entry.op){
+      case ChangeLog.OPPUT:
+        if(db instanceof HDB) return ((HDB)db).put(args[0], args[1]);
+        if(db instanceof BDB) return ((BDB)db).put(args[0], args[1]);
+        if(db instanceof FDB) return ((FDB)db).put(args[0], args[1]);
+        if(db instanceof TDB) return ((TDB)db).put(args[0], cols(args));
+        return ((ADB)db).put(args[0], args[1]);
+      case ChangeLog.OPPUTCAT:
+        if(db instanceof HDB) return ((HDB)db).putcat(args[0], args[1]);
+        if(db instanceof BDB) return ((BDB)db).putcat(args[0], args[1]);
+        if(db instanceof FDB) return ((FDB)db).putcat(args[0], args[1]);
+        if(db instanceof TDB) return ((TDB)db).putcat(args[0], cols(args));
+        return ((ADB)db).putcat(args[0], args[1]);
+      case ChangeLog.OPPUTDUP:
+        return ((BDB)db).putdup(args[0], args[1]);
+      case ChangeLog.OPPUTLIST:
+        return ((BDB)db).putlist(args[0], Arrays.asList(args).subList(1, args.length));
+      case ChangeLog.OPOUT:
+        if(db instanceof HDB){
+          HDB hdb = (HDB)db;
+          return hdb.out(args[0]) || hdb.ecode() == HDB.ENOREC;
+        }
+        if(db instanceof BDB){
+          BDB bdb = (BDB)db;
+          return bdb.out(args[0]) || bdb.ecode() == BDB.ENOREC;
+        }
+        if(db instanceof FDB){
+          FDB fdb = (FDB)db;
+          return fdb.out(args[0]) || fdb.ecode() == FDB.ENOREC;
+        }
+        if(db instanceof TDB){
+          TDB tdb = (TDB)db;
+          return tdb.out(args[0]) || tdb.ecode() == TDB.ENOREC;
+        }
+        return ((ADB)db).out(args[0]);
+      case ChangeLog.OPOUTLIST: {
+        BDB bdb = (BDB)db;
+        return bdb.outlist(args[0]) || bdb.ecode() == BDB.ENOREC;
+      }
+      case ChangeLog.OPADDINT: {
+        int num = Integer.parseInt(new String(args[1]));
+        int rv;
+        if(db instanceof HDB){
+          rv = ((HDB)db).addint(args[0], num);
+        } else if(db instanceof BDB){
+          rv = ((BDB)db).addint(args[0], num);
+        } else if(db instanceof FDB){
+          rv = ((FDB)db).addint(args[0], num);
+        } else if(db instanceof TDB){
+          rv = ((TDB)db).addint(args[0], num);
+        } else {
+          rv = ((ADB)db).addint(args[0], num);
+        }
+        return rv != Integer.MIN_VALUE;
+      }
+      case ChangeLog.OPADDDOUBLE: {
+        double num = Double.parseDouble(new String(args[1]));
+        double rv;
+        if(db instanceof HDB){
+          rv = ((HDB)db).adddouble(args[0], num);
+        } else if(db instanceof BDB){
+          rv = ((BDB)db).adddouble(args[0], num);
+        } else if(db instanceof FDB){
+          rv = ((FDB)db).adddouble(args[0], num);
+        } else if(db instanceof TDB){
+          rv = ((TDB)db).adddouble(args[0], num);
+        } else {
+          rv = ((ADB)db).adddouble(args[0], num);
+        }
+        return !Double.isNaN(rv);
+      }
+      case ChangeLog.OPVANISH:
+        if(db instanceof HDB) return ((HDB)db).vanish();
+        if(db instanceof BDB) return ((BDB)db).vanish();
+        if(db instanceof FDB) return ((FDB)db).vanish();
+        if(db instanceof TDB) return ((TDB)db).vanish();
+        return ((ADB)db).vanish();
+      case ChangeLog.OPSETINDEX:
+        return ((TDB)db).setindex(new String(args[0]), Integer.parseInt(new String(args[1])));
+      case ChangeLog.OPGENUID:
+        return ((TDB)db).genuid() != -1;
+      case ChangeLog.OPMISC: {
+        ADB adb = (ADB)db;
+        String name = new String(args[0]);
+        List<byte[]> margs = Arrays.asList(args).subList(1, args.length);
+        if(name.equals("putlist")) return adb.putlist(margs);
+        if(name.equals("outlist")) return adb.outlist(margs);
+        return adb.misc(name, margs) != null;
+      }
+    }
+    errmsg = "unknown operation: " + entry.op;
+    return false;
+  }
+  /**
+   * Make a map of the columns of a table entry.
+   */
+  private static Map<byte[], byte[]> cols(byte[][] args){
+    Map<byte[], byte[]> cols = new LinkedHashMap<byte[], byte[]>();
+    for(int i = 1; i + 1 < args.length; i += 2){
+      cols.put(args[i], args[i+1]);
+    }
+    return cols;
+  }
+}
+
+
+
+/* END OF FILE */
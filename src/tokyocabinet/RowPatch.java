@@ -0,0 +1,240 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row patch is a recorder of modifications to the current record passed to a row visitor.  The
+ * modifications of the records of a batch are accumulated in a packed buffer and applied by the
+ * native code at a blast after the batch is visited.
+ * @see RowVisitor
+ */
+public class RowPatch {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** buffer of the packed modifications */
+  private byte[] buf;
+  /** size of the used region of the buffer */
+  private int len;
+  /** number of the patched records */
+  private int rnum;
+  /** writer of the columns to be set */
+  private RowWriter cols;
+  /** flags of the columns to be removed */
+  private boolean[] outs;
+  /** whether the record is to be removed */
+  private boolean out;
+  /** whether the record is modified */
+  private boolean dirty;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a row patch object.
+   * @param schema the schema of the columns.
+   */
+  RowPatch(RowSchema schema){
+    this.buf = new byte[256];
+    this.len = 0;
+    this.rnum = 0;
+    this.cols = new RowWriter(schema);
+    this.outs = new boolean[schema.size()];
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Set a column of the current record.
+   * @param col the index of the column in the schema.
+   * @param value the value.
+   * @return the patch object itself.
+   */
+  public RowPatch put(int col, byte[] value){
+    cols.put(col, value);
+    outs[col] = false;
+    dirty = true;
+    return this;
+  }
+  /**
+   * Set a column of the current record.
+   * @see #put(int, byte[])
+   * @see RowWriter#put(int, String)
+   */
+  public RowPatch put(int col, String value){
+    cols.put(col, value);
+    outs[col] = false;
+    dirty = true;
+    return this;
+  }
+  /**
+   * Set a column of a long integer of the current record.
+   * @see #put(int, byte[])
+   * @see RowWriter#put(int, long)
+   */
+  public RowPatch put(int col, long num){
+    cols.put(col, num);
+    outs[col] = false;
+    dirty = true;
+    return this;
+  }
+  /**
+   * Set a column of a real number of the current record.
+   * @see #put(int, byte[])
+   * @see RowWriter#put(int, double)
+   */
+  public RowPatch put(int col, double num){
+    cols.put(col, num);
+    outs[col] = false;
+    dirty = true;
+    return this;
+  }
+  /**
+   * Remove a column of the current record.
+   * @param col the index of the column in the schema.
+   * @return the patch object itself.
+   */
+  public RowPatch remove(int col){
+    cols.remove(col);
+    outs[col] = true;
+    dirty = true;
+    return this;
+  }
+  /**
+   * Remove the current record.
+   * @return the patch object itself.
+   * @note Other modifications of the current record are discarded.
+   */
+  public RowPatch out(){
+    out = true;
+    dirty = true;
+    return this;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Begin to record modifications of a record.
+   */
+  void begin(){
+    cols.clear();
+    Arrays.fill(outs, false);
+    out = false;
+    dirty = false;
+  }
+  /**
+   * End to record modifications of a record.
+   * @param view the view of the record.
+   */
+  void end(RowView view){
+    if(!dirty) return;
+    int pksiz = view.pksiz();
+    reserve(pksiz + 16);
+    len += Util.setvnum(buf, len, pksiz);
+    System.arraycopy(view.buffer(), view.pkoff(), buf, len, pksiz);
+    len += pksiz;
+    if(out){
+      len += Util.setvnum(buf, len, 1);
+    } else {
+      len += Util.setvnum(buf, len, 0);
+      int onum = 0;
+      for(int i = 0; i < outs.length; i++){
+        if(outs[i]) onum++;
+      }
+      reserve(onum * 5 + 10 + cols.length());
+      len += Util.setvnum(buf, len, onum);
+      for(int i = 0; i < outs.length; i++){
+        if(outs[i]) len += Util.setvnum(buf, len, i);
+      }
+      len += Util.setvnum(buf, len, cols.length());
+      System.arraycopy(cols.buffer(), 0, buf, len, cols.length());
+      len += cols.length();
+    }
+    rnum++;
+  }
+  /**
+   * Remove all recorded modifications.
+   */
+  void clear(){
+    len = 0;
+    rnum = 0;
+  }
+  /**
+   * Get the number of the patched records.
+   */
+  int rnum(){
+    return rnum;
+  }
+  /**
+   * Get the inner buffer.
+   */
+  byte[] buffer(){
+    return buf;
+  }
+  /**
+   * Get the size of the used region of the inner buffer.
+   */
+  int length(){
+    return len;
+  }
+  /**
+   * Get the primary keys of the patched records.
+   */
+  List<byte[]> pkeys(){
+    List<byte[]> pkeys = new ArrayList<byte[]>(rnum);
+    int[] rp = new int[1];
+    while(rp[0] < len){
+      int pksiz = Util.readvnum(buf, rp);
+      byte[] pkey = new byte[pksiz];
+      System.arraycopy(buf, rp[0], pkey, 0, pksiz);
+      pkeys.add(pkey);
+      rp[0] += pksiz;
+      if(Util.readvnum(buf, rp) != 0) continue;
+      int onum = Util.readvnum(buf, rp);
+      for(int i = 0; i < onum; i++){
+        Util.readvnum(buf, rp);
+      }
+      rp[0] += Util.readvnum(buf, rp);
+    }
+    return pkeys;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Make room for additional bytes.
+   */
+  private void reserve(int size){
+    if(len + size <= buf.length) return;
+    int nsiz = buf.length * 2;
+    while(nsiz < len + size){
+      nsiz *= 2;
+    }
+    byte[] nbuf = new byte[nsiz];
+    System.arraycopy(buf, 0, nbuf, 0, len);
+    buf = nbuf;
+  }
+}
+
+
+
+/* END OF FILE */
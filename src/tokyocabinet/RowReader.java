@@ -0,0 +1,205 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row reader is a mechanism to access records of table database fetched at a blast.  The
+ * records are kept in a packed buffer and each column is decoded only when it is accessed.
+ * Before accessing the first record, call the method `next'.
+ */
+public class RowReader {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** buffer of the packed records */
+  private byte[] buf;
+  /** number of the records */
+  private int rnum;
+  /** reading position of the buffer */
+  private int[] rp;
+  /** offset of the primary key of the current record */
+  private int pkoff;
+  /** size of the primary key of the current record */
+  private int pksiz;
+  /** offset of the columns of the current record */
+  private int coff;
+  /** size of the columns of the current record */
+  private int csiz;
+  /** offset of the first record */
+  private int top;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a row reader object.
+   * @param buf the buffer of the packed records.
+   */
+  RowReader(byte[] buf){
+    this.buf = buf;
+    this.rp = new int[1];
+    this.rnum = Util.readvnum(buf, rp);
+    this.top = rp[0];
+    this.pkoff = -1;
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of the records.
+   * @return the number of the records.
+   */
+  public int size(){
+    return rnum;
+  }
+  /**
+   * Move to the next record.
+   * @return true if there is the next record, else, it is false.
+   */
+  public boolean next(){
+    if(rp[0] >= buf.length){
+      pkoff = -1;
+      return false;
+    }
+    pksiz = Util.readvnum(buf, rp);
+    pkoff = rp[0];
+    rp[0] += pksiz;
+    csiz = Util.readvnum(buf, rp);
+    coff = rp[0];
+    rp[0] += csiz;
+    return true;
+  }
+  /**
+   * Move to the first record again.
+   * @note After this method, the method `next' should be called to access the first record.
+   */
+  public void rewind(){
+    rp[0] = top;
+    pkoff = -1;
+  }
+  /**
+   * Get the primary key of the current record.
+   * @return the primary key of the current record or `null' if no record is selected.
+   */
+  public byte[] pkey(){
+    if(pkoff < 0) return null;
+    byte[] pkey = new byte[pksiz];
+    System.arraycopy(buf, pkoff, pkey, 0, pksiz);
+    return pkey;
+  }
+  /**
+   * Get the primary key of the current record.
+   * The same as `new String(pkey(), "UTF-8")'.
+   * @see #pkey()
+   */
+  public String pkey2(){
+    byte[] pkey = pkey();
+    return pkey != null ? Util.otos(pkey) : null;
+  }
+  /**
+   * Get the value of a column of the current record.
+   * @param name the name of the column.
+   * @return the value of the column or `null' if no record is selected or the record does not
+   * have the column.
+   */
+  public byte[] get(String name){
+    if(pkoff < 0) return null;
+    byte[] nbuf = Util.utf8(name);
+    int end = coff + csiz;
+    int[] cp = new int[] { coff };
+    while(cp[0] < end){
+      int nsiz = Util.readvnum(buf, cp);
+      int noff = cp[0];
+      cp[0] += nsiz;
+      int vsiz = Util.readvnum(buf, cp);
+      if(nsiz == nbuf.length && matches(noff, nbuf)){
+        byte[] value = new byte[vsiz];
+        System.arraycopy(buf, cp[0], value, 0, vsiz);
+        return value;
+      }
+      cp[0] += vsiz;
+    }
+    return null;
+  }
+  /**
+   * Get the value of a column of the current record.
+   * The same as `new String(get(name), "UTF-8")'.
+   * @see #get(String)
+   */
+  public String get2(String name){
+    byte[] value = get(name);
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Get all columns of the current record.
+   * @return a map object of the columns or `null' if no record is selected.
+   */
+  public Map<String, byte[]> cols(){
+    if(pkoff < 0) return null;
+    Map<String, byte[]> cols = new HashMap<String, byte[]>();
+    int end = coff + csiz;
+    int[] cp = new int[] { coff };
+    while(cp[0] < end){
+      int nsiz = Util.readvnum(buf, cp);
+      String name = new String(buf, cp[0], nsiz);
+      cp[0] += nsiz;
+      int vsiz = Util.readvnum(buf, cp);
+      byte[] value = new byte[vsiz];
+      System.arraycopy(buf, cp[0], value, 0, vsiz);
+      cp[0] += vsiz;
+      cols.put(name, value);
+    }
+    return cols;
+  }
+  /**
+   * Get all columns of the current record.
+   * The same as `cols()' except that the values are strings.
+   * @see #cols()
+   */
+  public Map<String, String> cols2(){
+    Map<String, byte[]> cols = cols();
+    if(cols == null) return null;
+    Map<String, String> scols = new HashMap<String, String>();
+    Iterator<Map.Entry<String, byte[]>> it = cols.entrySet().iterator();
+    while(it.hasNext()){
+      Map.Entry<String, byte[]> ent = it.next();
+      scols.put(ent.getKey(), Util.otos(ent.getValue()));
+    }
+    return scols;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Check whether a region of the buffer matches a byte array.
+   */
+  private boolean matches(int off, byte[] ary){
+    for(int i = 0; i < ary.length; i++){
+      if(buf[off+i] != ary[i]) return false;
+    }
+    return true;
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,115 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row schema is a fixed list of column names of table database records.  The names are encoded
+ * only once when the schema is created, so that row writers sharing the schema can serialize
+ * records without converting each column name again.
+ */
+public class RowSchema {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** names of the columns */
+  private String[] names;
+  /** encoded names of the columns */
+  private byte[][] nbufs;
+  /** serialized headers of the columns */
+  private byte[][] heads;
+  /** map from the name to the index of each column */
+  private Map<String, Integer> indexes;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a row schema object.
+   * @param names the names of the columns.  Each name should not be empty and should be unique.
+   */
+  public RowSchema(String... names){
+    int cnum = names.length;
+    this.names = new String[cnum];
+    this.nbufs = new byte[cnum][];
+    this.heads = new byte[cnum][];
+    this.indexes = new HashMap<String, Integer>(cnum * 2 + 1);
+    for(int i = 0; i < cnum; i++){
+      String name = names[i];
+      if(name == null || name.length() < 1 || indexes.containsKey(name))
+        throw new IllegalArgumentException("illegal column name: " + name);
+      byte[] nbuf = Util.utf8(name);
+      byte[] head = new byte[Util.vnumsiz(nbuf.length)+nbuf.length];
+      int hsiz = Util.setvnum(head, 0, nbuf.length);
+      System.arraycopy(nbuf, 0, head, hsiz, nbuf.length);
+      this.names[i] = name;
+      this.nbufs[i] = nbuf;
+      this.heads[i] = head;
+      this.indexes.put(name, Integer.valueOf(i));
+    }
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of columns.
+   * @return the number of columns.
+   */
+  public int size(){
+    return names.length;
+  }
+  /**
+   * Get the name of a column.
+   * @param col the index of the column.
+   * @return the name of the column.
+   */
+  public String name(int col){
+    return names[col];
+  }
+  /**
+   * Get the index of a column.
+   * @param name the name of the column.
+   * @return the index of the column or -1 if the schema does not contain the column.
+   */
+  public int index(String name){
+    Integer col = indexes.get(name);
+    return col != null ? col.intValue() : -1;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the serialized header of a column.
+   */
+  byte[] head(int col){
+    return heads[col];
+  }
+  /**
+   * Get the encoded names of all columns.
+   */
+  byte[][] namebufs(){
+    return nbufs;
+  }
+}
+
+
+
+/* END OF FILE */
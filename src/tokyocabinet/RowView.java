@@ -0,0 +1,205 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row view is a reusable window on a record of table database passed to a row visitor.  The
+ * columns are laid out in the order of a row schema, so that each column is accessed by the
+ * index without looking up the name.
+ * @see RowVisitor
+ */
+public class RowView {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** schema of the columns */
+  private RowSchema schema;
+  /** buffer of the packed records */
+  private byte[] buf;
+  /** reading position of the buffer */
+  private int[] rp;
+  /** offset of the primary key of the current record */
+  private int pkoff;
+  /** size of the primary key of the current record */
+  private int pksiz;
+  /** offset of each column of the current record */
+  private int[] offs;
+  /** size of each column of the current record */
+  private int[] sizs;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a row view object.
+   * @param schema the schema of the columns.
+   */
+  RowView(RowSchema schema){
+    this.schema = schema;
+    this.buf = new byte[0];
+    this.rp = new int[1];
+    this.pkoff = -1;
+    this.offs = new int[schema.size()];
+    this.sizs = new int[schema.size()];
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the schema of the columns.
+   * @return the schema of the columns.
+   */
+  public RowSchema schema(){
+    return schema;
+  }
+  /**
+   * Get the primary key of the current record.
+   * @return the primary key of the current record.
+   */
+  public byte[] pkey(){
+    byte[] pkey = new byte[pksiz];
+    System.arraycopy(buf, pkoff, pkey, 0, pksiz);
+    return pkey;
+  }
+  /**
+   * Get the primary key of the current record.
+   * The same as `new String(pkey(), "UTF-8")'.
+   * @see #pkey()
+   */
+  public String pkey2(){
+    return Util.otos(pkey());
+  }
+  /**
+   * Check whether the current record has a column.
+   * @param col the index of the column in the schema.
+   * @return true if the record has the column, else, it is false.
+   */
+  public boolean contains(int col){
+    return offs[col] >= 0;
+  }
+  /**
+   * Get the value of a column of the current record.
+   * @param col the index of the column in the schema.
+   * @return the value of the column or `null' if the record does not have the column.
+   */
+  public byte[] get(int col){
+    if(offs[col] < 0) return null;
+    byte[] value = new byte[sizs[col]];
+    System.arraycopy(buf, offs[col], value, 0, sizs[col]);
+    return value;
+  }
+  /**
+   * Get the value of a column of the current record.
+   * The same as `new String(get(col), "UTF-8")'.
+   * @see #get(int)
+   */
+  public String get2(int col){
+    if(offs[col] < 0) return null;
+    try {
+      return new String(buf, offs[col], sizs[col], "UTF-8");
+    } catch(UnsupportedEncodingException e){
+      return null;
+    }
+  }
+  /**
+   * Get the value of a column of the current record as a number.
+   * @param col the index of the column in the schema.
+   * @return the value of the column as a decimal number or 0 if the record does not have the
+   * column.  The value is parsed in the same manner as `Util.atol'.
+   */
+  public long getlong(int col){
+    int off = offs[col];
+    if(off < 0) return 0;
+    int end = off + sizs[col];
+    long num = 0;
+    int sign = 1;
+    for(int i = off; i < end; i++){
+      int c = buf[i];
+      if(c <= ' ') continue;
+      if(c == '-'){
+        sign = -1;
+      } else if(c >= '0' && c <= '9'){
+        num = num * 10 + c - '0';
+      } else {
+        break;
+      }
+    }
+    return num * sign;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Set the buffer of packed records and skip the header.
+   */
+  void reset(byte[] buf){
+    this.buf = buf;
+    this.rp[0] = 0;
+    this.pkoff = -1;
+    Util.readvnum(buf, rp);
+  }
+  /**
+   * Move to the next record.
+   */
+  boolean next(){
+    if(rp[0] >= buf.length){
+      pkoff = -1;
+      return false;
+    }
+    pksiz = Util.readvnum(buf, rp);
+    pkoff = rp[0];
+    rp[0] += pksiz;
+    for(int i = 0; i < offs.length; i++){
+      int vsiz = Util.readvnum(buf, rp) - 1;
+      if(vsiz >= 0){
+        offs[i] = rp[0];
+        sizs[i] = vsiz;
+        rp[0] += vsiz;
+      } else {
+        offs[i] = -1;
+      }
+    }
+    return true;
+  }
+  /**
+   * Get the inner buffer.
+   */
+  byte[] buffer(){
+    return buf;
+  }
+  /**
+   * Get the offset of the primary key of the current record.
+   */
+  int pkoff(){
+    return pkoff;
+  }
+  /**
+   * Get the size of the primary key of the current record.
+   */
+  int pksiz(){
+    return pksiz;
+  }
+}
+
+
+
+/* END OF FILE */
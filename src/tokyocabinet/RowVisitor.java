@@ -0,0 +1,46 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row visitor is an interface to process each record of a query result set through a reusable
+ * view of the columns of a row schema.
+ * @see TDBQRY#proc(RowSchema, RowVisitor, int)
+ */
+public interface RowVisitor {
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Visit a record in iteration of a query result set.
+   * @param row the view of the record.  It is valid only during the call.
+   * @param patch the patch object to record modifications of the record.
+   * @return true to continue the iteration, or false to stop it.  The modifications recorded
+   * until the stop are applied.
+   */
+  public boolean visit(RowView row, RowPatch patch);
+}
+
+
+
+/* END OF FILE */
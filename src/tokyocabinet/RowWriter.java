@@ -0,0 +1,368 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Row writer is a reusable buffer to compose the columns of a table database record.  Each
+ * column is serialized into the inner buffer as soon as it is set, in the same format as the
+ * native library stores records, so that the whole record is passed to the native code at a
+ * blast.
+ */
+public class RowWriter {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** schema of the columns */
+  private RowSchema schema;
+  /** buffer of the serialized columns */
+  private byte[] buf;
+  /** size of the used region of the buffer */
+  private int len;
+  /** offset of each column in the buffer */
+  private int[] offs;
+  /** size of each column in the buffer */
+  private int[] sizs;
+  /** buffer for number formatting */
+  private byte[] nbuf;
+  /** primary key */
+  private byte[] pkey;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a row writer object.
+   * @param schema the schema of the columns.
+   */
+  public RowWriter(RowSchema schema){
+    int cnum = schema.size();
+    this.schema = schema;
+    this.buf = new byte[cnum*16+64];
+    this.len = 0;
+    this.offs = new int[cnum];
+    this.sizs = new int[cnum];
+    this.nbuf = new byte[24];
+    Arrays.fill(offs, -1);
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the schema of the columns.
+   * @return the schema of the columns.
+   */
+  public RowSchema schema(){
+    return schema;
+  }
+  /**
+   * Remove all columns and the primary key.
+   * @return the writer object itself.
+   * @note The inner buffer is kept to be reused for the next record.
+   */
+  public RowWriter clear(){
+    len = 0;
+    Arrays.fill(offs, -1);
+    pkey = null;
+    return this;
+  }
+  /**
+   * Set the primary key.
+   * @param pkey the primary key.
+   * @return the writer object itself.
+   * @note The primary key is used by the methods taking rows without keys, such as
+   * `TDB.bulkload'.
+   */
+  public RowWriter setpkey(byte[] pkey){
+    if(pkey == null) throw new IllegalArgumentException("null primary key");
+    this.pkey = pkey;
+    return this;
+  }
+  /**
+   * Set the primary key.
+   * The same as `setpkey(pkey.getBytes("UTF-8"))'.
+   * @see #setpkey(byte[])
+   */
+  public RowWriter setpkey(String pkey){
+    return setpkey(Util.utf8(pkey));
+  }
+  /**
+   * Get the primary key.
+   * @return the primary key or `null' if it is not set.
+   */
+  public byte[] pkey(){
+    return pkey;
+  }
+  /**
+   * Set a column.
+   * @param col the index of the column in the schema.
+   * @param value the value.
+   * @return the writer object itself.
+   */
+  public RowWriter put(int col, byte[] value){
+    if(value == null) throw new IllegalArgumentException("null value");
+    begin(col);
+    reserve(5 + value.length);
+    len += Util.setvnum(buf, len, value.length);
+    System.arraycopy(value, 0, buf, len, value.length);
+    len += value.length;
+    end(col);
+    return this;
+  }
+  /**
+   * Set a column.
+   * The same as `put(col, value.getBytes("UTF-8"))', which is the encoding of the column names of
+   * the schema as well.  However, the string is encoded without creating an intermediate array,
+   * and an unpaired surrogate is encoded as `?'.
+   * @see #put(int, byte[])
+   */
+  public RowWriter put(int col, String value){
+    if(value == null) throw new IllegalArgumentException("null value");
+    begin(col);
+    int vnum = value.length();
+    int vsiz = 0;
+    for(int i = 0; i < vnum; i++){
+      char c = value.charAt(i);
+      if(c < 0x80){
+        vsiz += 1;
+      } else if(c < 0x800){
+        vsiz += 2;
+      } else if(Character.isHighSurrogate(c) && i + 1 < vnum &&
+                Character.isLowSurrogate(value.charAt(i + 1))){
+        vsiz += 4;
+        i++;
+      } else if(c >= 0xd800 && c <= 0xdfff){
+        vsiz += 1;
+      } else {
+        vsiz += 3;
+      }
+    }
+    reserve(5 + vsiz);
+    len += Util.setvnum(buf, len, vsiz);
+    for(int i = 0; i < vnum; i++){
+      char c = value.charAt(i);
+      if(c < 0x80){
+        buf[len++] = (byte)c;
+      } else if(c < 0x800){
+        buf[len++] = (byte)(0xc0 | (c >> 6));
+        buf[len++] = (byte)(0x80 | (c & 0x3f));
+      } else if(Character.isHighSurrogate(c) && i + 1 < vnum &&
+                Character.isLowSurrogate(value.charAt(i + 1))){
+        int cp = Character.toCodePoint(c, value.charAt(++i));
+        buf[len++] = (byte)(0xf0 | (cp >> 18));
+        buf[len++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+        buf[len++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+        buf[len++] = (byte)(0x80 | (cp & 0x3f));
+      } else if(c >= 0xd800 && c <= 0xdfff){
+        buf[len++] = (byte)'?';
+      } else {
+        buf[len++] = (byte)(0xe0 | (c >> 12));
+        buf[len++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+        buf[len++] = (byte)(0x80 | (c & 0x3f));
+      }
+    }
+    end(col);
+    return this;
+  }
+  /**
+   * Set a column of an integer.
+   * @param col the index of the column in the schema.
+   * @param num the value.  It is stored as a decimal string.
+   * @return the writer object itself.
+   */
+  public RowWriter put(int col, int num){
+    return put(col, (long)num);
+  }
+  /**
+   * Set a column of a long integer.
+   * @param col the index of the column in the schema.
+   * @param num the value.  It is stored as a decimal string.
+   * @return the writer object itself.
+   */
+  public RowWriter put(int col, long num){
+    begin(col);
+    int wp = nbuf.length;
+    boolean minus = num < 0;
+    do {
+      int digit = (int)(num % 10);
+      nbuf[--wp] = (byte)('0' + (minus ? -digit : digit));
+      num /= 10;
+    } while(num != 0);
+    if(minus) nbuf[--wp] = '-';
+    int nsiz = nbuf.length - wp;
+    reserve(1 + nsiz);
+    len += Util.setvnum(buf, len, nsiz);
+    System.arraycopy(nbuf, wp, buf, len, nsiz);
+    len += nsiz;
+    end(col);
+    return this;
+  }
+  /**
+   * Set a column of a real number.
+   * @param col the index of the column in the schema.
+   * @param num the value.  It is stored as a decimal string without exponent so that the
+   * numeric conditions and indices of the native library can treat it.
+   * @return the writer object itself.
+   */
+  public RowWriter put(int col, double num){
+    String str;
+    if(Double.isNaN(num)){
+      str = "nan";
+    } else if(Double.isInfinite(num)){
+      str = num > 0 ? "inf" : "-inf";
+    } else if(num == (long)num && Math.abs(num) < 1e15){
+      return put(col, (long)num);
+    } else {
+      str = new java.math.BigDecimal(Double.toString(num)).toPlainString();
+    }
+    return put(col, str);
+  }
+  /**
+   * Set a column.
+   * The same as `put(schema().index(name), value)'.
+   * @see #put(int, byte[])
+   */
+  public RowWriter put(String name, byte[] value){
+    return put(column(name), value);
+  }
+  /**
+   * Set a column.
+   * The same as `put(schema().index(name), value)'.
+   * @see #put(int, String)
+   */
+  public RowWriter put(String name, String value){
+    return put(column(name), value);
+  }
+  /**
+   * Set a column of an integer.
+   * The same as `put(schema().index(name), num)'.
+   * @see #put(int, int)
+   */
+  public RowWriter put(String name, int num){
+    return put(column(name), num);
+  }
+  /**
+   * Set a column of a long integer.
+   * The same as `put(schema().index(name), num)'.
+   * @see #put(int, long)
+   */
+  public RowWriter put(String name, long num){
+    return put(column(name), num);
+  }
+  /**
+   * Set a column of a real number.
+   * The same as `put(schema().index(name), num)'.
+   * @see #put(int, double)
+   */
+  public RowWriter put(String name, double num){
+    return put(column(name), num);
+  }
+  /**
+   * Remove a column.
+   * @param col the index of the column in the schema.
+   * @return the writer object itself.
+   */
+  public RowWriter remove(int col){
+    if(offs[col] >= 0) cut(col);
+    return this;
+  }
+  /**
+   * Check whether a column is set.
+   * @param col the index of the column in the schema.
+   * @return true if the column is set, else, it is false.
+   */
+  public boolean contains(int col){
+    return offs[col] >= 0;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the inner buffer.
+   */
+  byte[] buffer(){
+    return buf;
+  }
+  /**
+   * Get the size of the used region of the inner buffer.
+   */
+  int length(){
+    return len;
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the index of a column by the name.
+   */
+  private int column(String name){
+    int col = schema.index(name);
+    if(col < 0) throw new IllegalArgumentException("unknown column: " + name);
+    return col;
+  }
+  /**
+   * Begin to write a column.
+   */
+  private void begin(int col){
+    if(offs[col] >= 0) cut(col);
+    byte[] head = schema.head(col);
+    reserve(head.length);
+    offs[col] = len;
+    System.arraycopy(head, 0, buf, len, head.length);
+    len += head.length;
+  }
+  /**
+   * End to write a column.
+   */
+  private void end(int col){
+    sizs[col] = len - offs[col];
+  }
+  /**
+   * Cut out the region of a column.
+   */
+  private void cut(int col){
+    int off = offs[col];
+    int siz = sizs[col];
+    System.arraycopy(buf, off + siz, buf, off, len - off - siz);
+    len -= siz;
+    offs[col] = -1;
+    for(int i = 0; i < offs.length; i++){
+      if(offs[i] > off) offs[i] -= siz;
+    }
+  }
+  /**
+   * Make room for additional bytes.
+   */
+  private void reserve(int size){
+    if(len + size <= buf.length) return;
+    int nsiz = buf.length * 2;
+    while(nsiz < len + size){
+      nsiz *= 2;
+    }
+    byte[] nbuf = new byte[nsiz];
+    System.arraycopy(buf, 0, nbuf, 0, len);
+    buf = nbuf;
+  }
+}
+
+
+
+/* END OF FILE */
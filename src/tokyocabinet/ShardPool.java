@@ -0,0 +1,135 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Shard pool is a set of worker threads which run tasks on the shards of a sharded database in
+ * parallel.  The threads are started on demand and stopped by `shutdown', which waits for the
+ * running fan-outs to finish, so that a fan-out is never rejected by a concurrent shutdown.
+ */
+class ShardPool {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** name of the worker threads */
+  private String name;
+  /** number of the worker threads */
+  private int size;
+  /** lock shared by the fan-outs and held exclusively by the shutdown */
+  private ReadWriteLock lock;
+  /** executor service running the tasks */
+  private ExecutorService exec;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a shard pool object.
+   * @param name the name of the worker threads.
+   * @param size the number of the worker threads.
+   */
+  ShardPool(String name, int size){
+    this.name = name;
+    this.size = size;
+    this.lock = new ReentrantReadWriteLock();
+    this.exec = null;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Run tasks in parallel and wait for the results.
+   * @param tasks the tasks.
+   * @return the results in the order of the tasks.
+   */
+  <T> List<T> invoke(List<Callable<T>> tasks){
+    List<T> results = new ArrayList<T>(tasks.size());
+    lock.readLock().lock();
+    try {
+      for(Future<T> future : executor().invokeAll(tasks)){
+        results.add(future.get());
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted");
+    } catch(ExecutionException e){
+      Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if(cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause.toString());
+    } finally {
+      lock.readLock().unlock();
+    }
+    return results;
+  }
+  /**
+   * Stop the worker threads after the running fan-outs finish.  They are started again on
+   * demand.
+   */
+  void shutdown(){
+    lock.writeLock().lock();
+    try {
+      synchronized(this){
+        if(exec == null) return;
+        exec.shutdown();
+        exec = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the executor service, which is created on demand.
+   */
+  private synchronized ExecutorService executor(){
+    if(exec == null) exec = Executors.newFixedThreadPool(size, new Workers(name));
+    return exec;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Thread factory of the workers.
+   * @note It is static so that the worker threads do not keep the database object reachable.
+   */
+  private static class Workers implements ThreadFactory {
+    /** name of the threads */
+    private String name;
+    Workers(String name){
+      this.name = name;
+    }
+    public Thread newThread(Runnable r){
+      Thread th = new Thread(r, name);
+      th.setDaemon(true);
+      return th;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
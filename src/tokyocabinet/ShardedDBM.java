@@ -0,0 +1,806 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Sharded DBM is a set of hash databases or B+ tree databases over which records are
+ * partitioned.  Each shard is a separate database file with its own lock, so that writers of
+ * different shards do not block each other.  Records are partitioned by consistent hashing of
+ * the keys or, for B+ tree databases, by ranges of the keys.  The shard of the index `i' is
+ * stored in the file whose path is the base path followed by a hyphen and `i'.
+ * @note The keys of B+ tree databases are merged in the lexical order, so the shards should use
+ * the default comparison function.
+ */
+public class ShardedDBM implements DBM {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** number of the virtual nodes of each shard on the hash ring */
+  private static final int VNODES = 160;
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database objects of the shards */
+  private DBM[] shards;
+  /** whether the shards are B+ tree databases */
+  private boolean tree;
+  /** upper borders of the key ranges or `null' for hashing */
+  private byte[][] bounds;
+  /** hash values of the virtual nodes in the ascending order */
+  private int[] points;
+  /** shard indexes of the virtual nodes */
+  private int[] owners;
+  /** pool of the workers running the tasks on the shards */
+  private ShardPool pool;
+  /** index of the shard of the iterator of sequential iteration */
+  private int itidx;
+  /** heads of the iterators of merged iteration */
+  private PriorityQueue<Head> itheads;
+  /** numbers of retrievals of each shard */
+  private AtomicLongArray gnums;
+  /** numbers of modifications of each shard */
+  private AtomicLongArray mnums;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a sharded DBM object over hash databases.
+   * @param shards the hash database objects of the shards, which are partitioned by consistent
+   * hashing.
+   */
+  public ShardedDBM(HDB[] shards){
+    this(shards, false, null);
+  }
+  /**
+   * Create a sharded DBM object over B+ tree databases.
+   * @param shards the B+ tree database objects of the shards, which are partitioned by
+   * consistent hashing.
+   */
+  public ShardedDBM(BDB[] shards){
+    this(shards, true, null);
+  }
+  /**
+   * Create a sharded DBM object over B+ tree databases partitioned by ranges.
+   * @param shards the B+ tree database objects of the shards.
+   * @param bounds the borders of the ranges in the ascending order.  The number of elements
+   * must be one less than the number of the shards.  The shard of the index `i' stores the keys
+   * not less than `bounds[i-1]' and less than `bounds[i]'.
+   */
+  public ShardedDBM(BDB[] shards, byte[][] bounds){
+    this(shards, true, bounds);
+    if(bounds.length != shards.length - 1)
+      throw new IllegalArgumentException("illegal number of bounds: " + bounds.length);
+    for(int i = 1; i < bounds.length; i++){
+      if(Util.cmpbytes(bounds[i-1], bounds[i]) >= 0)
+        throw new IllegalArgumentException("bounds not in the ascending order");
+    }
+  }
+  /**
+   * Create a sharded DBM object.
+   */
+  private ShardedDBM(DBM[] shards, boolean tree, byte[][] bounds){
+    if(shards.length < 1) throw new IllegalArgumentException("no shard");
+    this.shards = shards.clone();
+    this.tree = tree;
+    this.bounds = bounds != null ? bounds.clone() : null;
+    long[] nodes = new long[shards.length*VNODES];
+    for(int i = 0; i < shards.length; i++){
+      for(int j = 0; j < VNODES; j++){
+        int point = hash(("shard-" + i + "#" + j).getBytes());
+        nodes[i*VNODES+j] = ((long)point << 32) | i;
+      }
+    }
+    Arrays.sort(nodes);
+    points = new int[nodes.length];
+    owners = new int[nodes.length];
+    for(int i = 0; i < nodes.length; i++){
+      points[i] = (int)(nodes[i] >> 32);
+      owners[i] = (int)nodes[i];
+    }
+    pool = new ShardPool("ShardedDBM", shards.length);
+    itidx = shards.length;
+    itheads = null;
+    gnums = new AtomicLongArray(shards.length);
+    mnums = new AtomicLongArray(shards.length);
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    pool.shutdown();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of the shards.
+   * @return the number of the shards.
+   */
+  public int snum(){
+    return shards.length;
+  }
+  /**
+   * Get the database object of a shard.
+   * @param index the index of the shard.
+   * @return the database object of the shard, which is `HDB' or `BDB'.
+   */
+  public DBM shard(int index){
+    return shards[index];
+  }
+  /**
+   * Get the index of the shard of a key.
+   * @param key the key.
+   * @return the index of the shard.
+   */
+  public int locate(byte[] key){
+    if(bounds != null){
+      int lo = 0;
+      int hi = bounds.length;
+      while(lo < hi){
+        int mid = (lo + hi) >>> 1;
+        if(Util.cmpbytes(key, bounds[mid]) < 0){
+          hi = mid;
+        } else {
+          lo = mid + 1;
+        }
+      }
+      return lo;
+    }
+    int idx = Arrays.binarySearch(points, hash(key));
+    if(idx < 0) idx = -idx - 1;
+    return owners[idx < owners.length ? idx : 0];
+  }
+  /**
+   * Get the last happened error code.
+   * @return the last happened error code of the first shard with an error, or `HDB.ESUCCESS' if
+   * no shard has an error.
+   */
+  public int ecode(){
+    for(int i = 0; i < shards.length; i++){
+      int ecode = shards[i] instanceof HDB ? ((HDB)shards[i]).ecode() : ((BDB)shards[i]).ecode();
+      if(ecode != HDB.ESUCCESS) return ecode;
+    }
+    return HDB.ESUCCESS;
+  }
+  /**
+   * Get the message string corresponding to the last happened error code.
+   * @return the message string of the error code.
+   */
+  public String errmsg(){
+    return HDB.errmsg(ecode());
+  }
+  /**
+   * Open the database files of every shard.
+   * @param path the base path of the database files.
+   * @param omode the connection mode, which is the same as that of `HDB' and `BDB'.
+   * @return If successful, it is true, else, it is false.  If a shard fails, the opened shards
+   * are closed.
+   * @see HDB#open(String, int)
+   * @see BDB#open(String, int)
+   */
+  public boolean open(String path, int omode){
+    for(int i = 0; i < shards.length; i++){
+      String spath = path + "-" + i;
+      boolean rv = shards[i] instanceof HDB ? ((HDB)shards[i]).open(spath, omode) :
+        ((BDB)shards[i]).open(spath, omode);
+      if(!rv){
+        for(int j = 0; j < i; j++){
+          close(shards[j]);
+        }
+        return false;
+      }
+    }
+    itidx = shards.length;
+    itheads = null;
+    return true;
+  }
+  /**
+   * Close the database files of every shard.
+   * @return If successful, it is true, else, it is false.
+   * @note The worker threads are stopped as well, after the operations running on them in other
+   * threads finish.  They are started again on demand.
+   */
+  public boolean close(){
+    itheads = null;
+    boolean rv = each(new ShardOp(){
+        boolean run(DBM dbm){
+          return close(dbm);
+        }
+      });
+    pool.shutdown();
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(byte[], byte[])
+   */
+  public boolean put(byte[] key, byte[] value){
+    int idx = locate(key);
+    mnums.incrementAndGet(idx);
+    return shards[idx].put(key, value);
+  }
+  /**
+   * Store a record.
+   * @see DBM#put(String, String)
+   */
+  public boolean put(String key, String value){
+    return put(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(byte[], byte[])
+   */
+  public boolean putkeep(byte[] key, byte[] value){
+    int idx = locate(key);
+    mnums.incrementAndGet(idx);
+    return shards[idx].putkeep(key, value);
+  }
+  /**
+   * Store a new record.
+   * @see DBM#putkeep(String, String)
+   */
+  public boolean putkeep(String key, String value){
+    return putkeep(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store records in parallel.
+   * @param recs a list object of the keys and the values of the records alternately.
+   * @return If successful, it is true, else, it is false.
+   * @note The records are grouped by the shards and each group is stored by a thread of the
+   * shard, so that the shards are written concurrently.
+   */
+  public boolean putlist(List<byte[]> recs){
+    final List<List<byte[]>> groups = group(recs, 2);
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final DBM dbm = shards[i];
+      final List<byte[]> group = groups.get(i);
+      if(group.isEmpty()) continue;
+      mnums.addAndGet(i, group.size() / 2);
+      tasks.add(new Callable<Boolean>(){
+          public Boolean call(){
+            boolean err = false;
+            for(int j = 0; j < group.size(); j += 2){
+              if(!dbm.put(group.get(j), group.get(j + 1))) err = true;
+            }
+            return !err;
+          }
+        });
+    }
+    boolean err = false;
+    for(Boolean rv : invoke(tasks)){
+      if(!rv) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Retrieve records in parallel.
+   * @param keys a list object of the keys.
+   * @return a list object of the keys and the values of the existing records alternately.
+   */
+  public List<byte[]> getlist(List<byte[]> keys){
+    final List<List<byte[]>> groups = group(keys, 1);
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final DBM dbm = shards[i];
+      final List<byte[]> group = groups.get(i);
+      gnums.addAndGet(i, group.size());
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            List<byte[]> recs = new ArrayList<byte[]>();
+            for(byte[] key : group){
+              byte[] value = dbm.get(key);
+              if(value == null) continue;
+              recs.add(key);
+              recs.add(value);
+            }
+            return recs;
+          }
+        });
+    }
+    List<byte[]> recs = new ArrayList<byte[]>();
+    for(List<byte[]> srecs : invoke(tasks)){
+      recs.addAll(srecs);
+    }
+    return recs;
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(byte[])
+   */
+  public boolean out(byte[] key){
+    int idx = locate(key);
+    mnums.incrementAndGet(idx);
+    return shards[idx].out(key);
+  }
+  /**
+   * Remove a record.
+   * @see DBM#out(String)
+   */
+  public boolean out(String key){
+    return out(key.getBytes());
+  }
+  /**
+   * Retrieve a record.
+   * @see DBM#get(byte[])
+   */
+  public byte[] get(byte[] key){
+    int idx = locate(key);
+    gnums.incrementAndGet(idx);
+    return shards[idx].get(key);
+  }
+  /**
+   * Retrieve a record.
+   * @see DBM#get(String)
+   */
+  public String get(String key){
+    byte[] value = get(key.getBytes());
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Initialize the iterator.
+   * @return If successful, it is true, else, it is false.
+   * @note The shards of hash databases or of ranges are traversed one after another.  The
+   * iterators of the shards of B+ tree databases partitioned by hashing are merged in the order
+   * of the keys.
+   */
+  public boolean iterinit(){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].iterinit()) err = true;
+    }
+    itidx = 0;
+    itheads = null;
+    if(tree && bounds == null){
+      itheads = new PriorityQueue<Head>(shards.length);
+      for(int i = 0; i < shards.length; i++){
+        byte[] key = shards[i].iternext();
+        if(key != null) itheads.add(new Head(i, key));
+      }
+    }
+    return !err;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext()
+   */
+  public byte[] iternext(){
+    if(itheads != null){
+      Head head = itheads.poll();
+      if(head == null) return null;
+      byte[] key = head.key;
+      head.key = shards[head.idx].iternext();
+      if(head.key != null) itheads.add(head);
+      return key;
+    }
+    while(itidx < shards.length){
+      byte[] key = shards[itidx].iternext();
+      if(key != null) return key;
+      itidx++;
+    }
+    return null;
+  }
+  /**
+   * Get the next key of the iterator.
+   * @see DBM#iternext2()
+   */
+  public String iternext2(){
+    byte[] key = iternext();
+    return key != null ? Util.otos(key) : null;
+  }
+  /**
+   * Get forward matching keys.
+   * @param prefix the prefix of the corresponding keys.
+   * @param max the maximum number of keys to be fetched.  If it is negative, no limit is
+   * specified.
+   * @return a list object of the keys of the corresponding records.  The keys of B+ tree
+   * databases are in the ascending order.
+   * @note The shards are scanned in parallel.
+   */
+  public List<byte[]> fwmkeys(final byte[] prefix, final int max){
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final DBM dbm = shards[i];
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            return dbm instanceof HDB ? ((HDB)dbm).fwmkeys(prefix, max) :
+              ((BDB)dbm).fwmkeys(prefix, max);
+          }
+        });
+    }
+    return merge(invoke(tasks), max);
+  }
+  /**
+   * Get forward matching keys.
+   * @see #fwmkeys(byte[], int)
+   */
+  public List<String> fwmkeys(String prefix, int max){
+    return Util.objectsAsStrings(fwmkeys(prefix.getBytes(), max));
+  }
+  /**
+   * Get keys of ranged records.
+   * @param bkey the key of the beginning border.  If it is `null', the first record is specified.
+   * @param binc whether the beginning border is inclusive or not.
+   * @param ekey the key of the ending border.  If it is `null', the last record is specified.
+   * @param einc whether the ending border is inclusive or not.
+   * @param max the maximum number of keys to be fetched.  If it is negative, no limit is
+   * specified.
+   * @return a list object of the keys of the corresponding records in the ascending order.
+   * @throws UnsupportedOperationException if the shards are not B+ tree databases.
+   * @note The shards are scanned in parallel.  If the shards are partitioned by ranges, only the
+   * shards overlapping the range are scanned.
+   */
+  public List<byte[]> range(final byte[] bkey, final boolean binc, final byte[] ekey,
+                            final boolean einc, final int max){
+    if(!tree) throw new UnsupportedOperationException("range of hash databases");
+    int bidx = 0;
+    int eidx = shards.length - 1;
+    if(bounds != null){
+      if(bkey != null) bidx = locate(bkey);
+      if(ekey != null) eidx = locate(ekey);
+    }
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(shards.length);
+    for(int i = bidx; i <= eidx; i++){
+      final BDB bdb = (BDB)shards[i];
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            return bdb.range(bkey, binc, ekey, einc, max);
+          }
+        });
+    }
+    return merge(invoke(tasks), max);
+  }
+  /**
+   * Get keys of ranged records.
+   * @see #range(byte[], boolean, byte[], boolean, int)
+   */
+  public List<String> range(String bkey, boolean binc, String ekey, boolean einc, int max){
+    return Util.objectsAsStrings(range(bkey != null ? bkey.getBytes() : null, binc,
+                                       ekey != null ? ekey.getBytes() : null, einc, max));
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(byte[], int)
+   */
+  public int addint(byte[] key, int num){
+    int idx = locate(key);
+    mnums.incrementAndGet(idx);
+    return shards[idx].addint(key, num);
+  }
+  /**
+   * Add an integer to a record.
+   * @see DBM#addint(String, int)
+   */
+  public int addint(String key, int num){
+    return addint(key.getBytes(), num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] key, double num){
+    int idx = locate(key);
+    mnums.incrementAndGet(idx);
+    return shards[idx].adddouble(key, num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see DBM#adddouble(String, double)
+   */
+  public double adddouble(String key, double num){
+    return adddouble(key.getBytes(), num);
+  }
+  /**
+   * Synchronize updated contents of every shard.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean sync(){
+    return each(new ShardOp(){
+        boolean run(DBM dbm){
+          return dbm instanceof HDB ? ((HDB)dbm).sync() : ((BDB)dbm).sync();
+        }
+      });
+  }
+  /**
+   * Optimize the database file of every shard in parallel.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean optimize(){
+    return each(new ShardOp(){
+        boolean run(DBM dbm){
+          return dbm instanceof HDB ? ((HDB)dbm).optimize() : ((BDB)dbm).optimize();
+        }
+      });
+  }
+  /**
+   * Remove all records of every shard.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean vanish(){
+    return each(new ShardOp(){
+        boolean run(DBM dbm){
+          return dbm instanceof HDB ? ((HDB)dbm).vanish() : ((BDB)dbm).vanish();
+        }
+      });
+  }
+  /**
+   * Copy the database file of every shard.
+   * @param path the base path of the destination files.  The index of each shard is appended to
+   * it as with `open'.
+   * @return If successful, it is true, else, it is false.
+   */
+  public boolean copy(String path){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      String spath = path + "-" + i;
+      boolean rv = shards[i] instanceof HDB ? ((HDB)shards[i]).copy(spath) :
+        ((BDB)shards[i]).copy(spath);
+      if(!rv) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Get the number of records of all shards.
+   * @see DBM#rnum()
+   */
+  public long rnum(){
+    long rnum = 0;
+    for(int i = 0; i < shards.length; i++){
+      rnum += shards[i].rnum();
+    }
+    return rnum;
+  }
+  /**
+   * Get the total size of the database files of all shards.
+   * @see DBM#fsiz()
+   */
+  public long fsiz(){
+    long fsiz = 0;
+    for(int i = 0; i < shards.length; i++){
+      fsiz += shards[i].fsiz();
+    }
+    return fsiz;
+  }
+  /**
+   * Get the statistics of the shards.
+   * @return a list object of the statistics in the order of the shards.
+   */
+  public List<Stat> stats(){
+    List<Stat> stats = new ArrayList<Stat>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      stats.add(new Stat(i, shards[i].rnum(), shards[i].fsiz(), gnums.get(i), mnums.get(i)));
+    }
+    return stats;
+  }
+  //----------------------------------------------------------------
+  // public classes
+  //----------------------------------------------------------------
+  /**
+   * Statistics of a shard.
+   */
+  public static class Stat {
+    /** index of the shard */
+    private int index;
+    /** number of records */
+    private long rnum;
+    /** size of the database file */
+    private long fsiz;
+    /** number of retrievals */
+    private long gnum;
+    /** number of modifications */
+    private long mnum;
+    /**
+     * Create a statistics object.
+     */
+    Stat(int index, long rnum, long fsiz, long gnum, long mnum){
+      this.index = index;
+      this.rnum = rnum;
+      this.fsiz = fsiz;
+      this.gnum = gnum;
+      this.mnum = mnum;
+    }
+    /**
+     * Get the index of the shard.
+     * @return the index of the shard.
+     */
+    public int index(){
+      return index;
+    }
+    /**
+     * Get the number of records.
+     * @return the number of records of the shard.
+     */
+    public long rnum(){
+      return rnum;
+    }
+    /**
+     * Get the size of the database file.
+     * @return the size of the database file of the shard.
+     */
+    public long fsiz(){
+      return fsiz;
+    }
+    /**
+     * Get the number of retrievals.
+     * @return the number of records retrieved through the sharded object since it was created.
+     */
+    public long gnum(){
+      return gnum;
+    }
+    /**
+     * Get the number of modifications.
+     * @return the number of records stored or removed through the sharded object since it was
+     * created.
+     */
+    public long mnum(){
+      return mnum;
+    }
+    /**
+     * Get the string expression.
+     */
+    public String toString(){
+      return index + "\t" + rnum + "\t" + fsiz + "\t" + gnum + "\t" + mnum;
+    }
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Get the hash value of a key.
+   */
+  private static int hash(byte[] key){
+    int hash = 0x811c9dc5;
+    for(int i = 0; i < key.length; i++){
+      hash = (hash ^ (key[i] & 0xff)) * 0x01000193;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+  /**
+   * Close a database object.
+   */
+  private static boolean close(DBM dbm){
+    return dbm instanceof HDB ? ((HDB)dbm).close() : ((BDB)dbm).close();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Group elements by the shards of the keys.
+   * @param elems the elements.
+   * @param width the number of elements of each key, of which the first is the key.
+   */
+  private List<List<byte[]>> group(List<byte[]> elems, int width){
+    List<List<byte[]>> groups = new ArrayList<List<byte[]>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      groups.add(new ArrayList<byte[]>());
+    }
+    for(int i = 0; i + width <= elems.size(); i += width){
+      List<byte[]> group = groups.get(locate(elems.get(i)));
+      for(int j = 0; j < width; j++){
+        group.add(elems.get(i + j));
+      }
+    }
+    return groups;
+  }
+  /**
+   * Merge the keys of the shards.
+   * @param lists the lists of the keys of the shards.
+   * @param max the maximum number of keys.
+   * @return the concatenated keys of hash databases or of ranges, or the keys of B+ tree
+   * databases partitioned by hashing merged in the ascending order.
+   */
+  private List<byte[]> merge(List<List<byte[]>> lists, int max){
+    List<byte[]> keys = new ArrayList<byte[]>();
+    if(!tree || bounds != null){
+      for(List<byte[]> skeys : lists){
+        for(byte[] key : skeys){
+          if(max >= 0 && keys.size() >= max) return keys;
+          keys.add(key);
+        }
+      }
+      return keys;
+    }
+    PriorityQueue<Head> heads = new PriorityQueue<Head>(lists.size() + 1);
+    List<Iterator<byte[]>> its = new ArrayList<Iterator<byte[]>>(lists.size());
+    for(int i = 0; i < lists.size(); i++){
+      Iterator<byte[]> it = lists.get(i).iterator();
+      its.add(it);
+      if(it.hasNext()) heads.add(new Head(i, it.next()));
+    }
+    while(!heads.isEmpty()){
+      if(max >= 0 && keys.size() >= max) break;
+      Head head = heads.poll();
+      keys.add(head.key);
+      Iterator<byte[]> it = its.get(head.idx);
+      if(it.hasNext()){
+        head.key = it.next();
+        heads.add(head);
+      }
+    }
+    return keys;
+  }
+  /**
+   * Run an operation on every shard in parallel.
+   * @return true if the operation succeeds on every shard, else, it is false.
+   */
+  private boolean each(final ShardOp op){
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final DBM dbm = shards[i];
+      tasks.add(new Callable<Boolean>(){
+          public Boolean call(){
+            return op.run(dbm);
+          }
+        });
+    }
+    boolean err = false;
+    for(Boolean rv : invoke(tasks)){
+      if(!rv) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Run tasks on the executor service and wait for the results.
+   */
+  private <T> List<T> invoke(List<Callable<T>> tasks){
+    return pool.invoke(tasks);
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Operation on a shard.
+   */
+  private static abstract class ShardOp {
+    abstract boolean run(DBM dbm);
+  }
+  /**
+   * Current key of a shard in the merge.
+   */
+  private static class Head implements Comparable<Head> {
+    /** index of the shard */
+    int idx;
+    /** current key */
+    byte[] key;
+    Head(int idx, byte[] key){
+      this.idx = idx;
+      this.key = key;
+    }
+    public int compareTo(Head other){
+      int rv = Util.cmpbytes(key, other.key);
+      if(rv != 0) return rv;
+      return idx - other.idx;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
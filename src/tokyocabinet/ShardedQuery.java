@@ -0,0 +1,233 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Query of sharded table database is a set of queries of the shards.  The conditions and the
+ * order are set to the query of every shard, the queries are executed in parallel, and the
+ * ordered results are merged so that the limit applies to the whole result.
+ * @see ShardedTDB
+ */
+public class ShardedQuery {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** sharded database object */
+  private ShardedTDB stdb;
+  /** query objects of the shards */
+  private TDBQRY[] qrys;
+  /** maximum number of records of the result */
+  private int max = -1;
+  /** number of skipped records */
+  private int skip = 0;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a query object.
+   * @param stdb the sharded table database object.
+   */
+  public ShardedQuery(ShardedTDB stdb){
+    this.stdb = stdb;
+    qrys = new TDBQRY[stdb.snum()];
+    for(int i = 0; i < qrys.length; i++){
+      qrys[i] = new TDBQRY(stdb.shard(i));
+    }
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Add a narrowing condition.
+   * @see TDBQRY#addcond(String, int, String)
+   */
+  public void addcond(String name, int op, String expr){
+    for(int i = 0; i < qrys.length; i++){
+      qrys[i].addcond(name, op, expr);
+    }
+  }
+  /**
+   * Set the order of the result.
+   * @see TDBQRY#setorder(String, int)
+   */
+  public void setorder(String name, int type){
+    for(int i = 0; i < qrys.length; i++){
+      qrys[i].setorder(name, type);
+    }
+  }
+  /**
+   * Set the maximum number of records of the result.
+   * @param max the maximum number of records of the result.  If it is negative, no limit is
+   * specified.
+   * @param skip the number of skipped records of the result.  If it is not more than 0, no
+   * record is skipped.
+   * @note The limit is not set to the queries of the shards.  Each shard fetches at most the sum
+   * of `max' and `skip' records and the limit is applied to the merged result.
+   */
+  public void setlimit(int max, int skip){
+    this.max = Math.max(max, -1);
+    this.skip = Math.max(skip, 0);
+  }
+  /**
+   * Execute the search.
+   * @return a list object of the primary keys of the corresponding records.  If the order is
+   * set, the results of the shards are merged in the order.  Otherwise, the results are
+   * concatenated in the order of the shards.
+   */
+  public List<byte[]> search(){
+    final int smax = max < 0 ? -1 : (int)Math.min((long)max + skip, Integer.MAX_VALUE);
+    List<Callable<List<TDBQRY.MetaRec>>> tasks =
+      new ArrayList<Callable<List<TDBQRY.MetaRec>>>(qrys.length);
+    for(int i = 0; i < qrys.length; i++){
+      final TDBQRY qry = qrys[i];
+      tasks.add(new Callable<List<TDBQRY.MetaRec>>(){
+          public List<TDBQRY.MetaRec> call(){
+            return qry.searchrecs(smax);
+          }
+        });
+    }
+    List<List<TDBQRY.MetaRec>> results = stdb.invoke(tasks);
+    Comparator<TDBQRY.MetaRec> cmp = qrys[0].ordercomparator();
+    List<byte[]> pkeys = new ArrayList<byte[]>();
+    int rnum = 0;
+    if(cmp == null){
+      for(List<TDBQRY.MetaRec> recs : results){
+        for(TDBQRY.MetaRec rec : recs){
+          if(max >= 0 && pkeys.size() >= max) return pkeys;
+          if(rnum++ >= skip) pkeys.add(rec.pkey);
+        }
+      }
+      return pkeys;
+    }
+    PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(results.size() + 1);
+    for(int i = 0; i < results.size(); i++){
+      List<TDBQRY.MetaRec> recs = results.get(i);
+      if(!recs.isEmpty()) heap.add(new Cursor(i, recs, cmp));
+    }
+    while(!heap.isEmpty()){
+      if(max >= 0 && pkeys.size() >= max) break;
+      Cursor cur = heap.poll();
+      if(rnum++ >= skip) pkeys.add(cur.rec().pkey);
+      if(++cur.pos < cur.recs.size()) heap.add(cur);
+    }
+    return pkeys;
+  }
+  /**
+   * Get the number of the corresponding records.
+   * @return the sum of the numbers of the shards, to which the limit is applied.
+   * @see TDBQRY#count()
+   */
+  public int count(){
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(qrys.length);
+    for(int i = 0; i < qrys.length; i++){
+      final TDBQRY qry = qrys[i];
+      tasks.add(new Callable<Integer>(){
+          public Integer call(){
+            return qry.count();
+          }
+        });
+    }
+    long num = 0;
+    for(Integer snum : stdb.invoke(tasks)){
+      num += snum;
+    }
+    num = Math.max(num - skip, 0);
+    if(max >= 0) num = Math.min(num, max);
+    return (int)Math.min(num, Integer.MAX_VALUE);
+  }
+  /**
+   * Remove each corresponding record.
+   * @return If successful, the return value is true, else, it is false.
+   * @note If the limit is not set, the records are removed by the shards in parallel.
+   * Otherwise, the records of the result of `search' are removed one by one.
+   */
+  public boolean searchout(){
+    if(max < 0 && skip < 1){
+      List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(qrys.length);
+      for(int i = 0; i < qrys.length; i++){
+        final TDBQRY qry = qrys[i];
+        tasks.add(new Callable<Boolean>(){
+            public Boolean call(){
+              return qry.searchout();
+            }
+          });
+      }
+      boolean err = false;
+      for(Boolean rv : stdb.invoke(tasks)){
+        if(!rv) err = true;
+      }
+      return !err;
+    }
+    boolean err = false;
+    for(byte[] pkey : search()){
+      if(!stdb.out(pkey)) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Get the hint string.
+   * @return the hint strings of the shards, each of which is headed by the index of the shard.
+   */
+  public String hint(){
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < qrys.length; i++){
+      sb.append("shard ").append(i).append(":\n").append(qrys[i].hint());
+    }
+    return sb.toString();
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Cursor of the result of a shard in the merge.
+   */
+  private static class Cursor implements Comparable<Cursor> {
+    /** index of the shard */
+    int idx;
+    /** records of the result */
+    List<TDBQRY.MetaRec> recs;
+    /** comparator of the records */
+    Comparator<TDBQRY.MetaRec> cmp;
+    /** position of the current record */
+    int pos;
+    Cursor(int idx, List<TDBQRY.MetaRec> recs, Comparator<TDBQRY.MetaRec> cmp){
+      this.idx = idx;
+      this.recs = recs;
+      this.cmp = cmp;
+      this.pos = 0;
+    }
+    TDBQRY.MetaRec rec(){
+      return recs.get(pos);
+    }
+    public int compareTo(Cursor other){
+      int rv = cmp.compare(rec(), other.rec());
+      if(rv != 0) return rv;
+      return idx - other.idx;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
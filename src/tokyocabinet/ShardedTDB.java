@@ -0,0 +1,551 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Sharded table database is a set of table databases over which records are partitioned by the
+ * hash value of the primary keys.  Each shard is a separate database file with its own lock, so
+ * that writers of different shards do not block each other and queries are run on all shards in
+ * parallel.  The shard of the index `i' is stored in the file whose path is the base path
+ * followed by a hyphen and `i'.
+ * @see ShardedQuery
+ */
+public class ShardedTDB {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database objects of the shards */
+  private TDB[] shards;
+  /** pool of the workers running the tasks on the shards */
+  private ShardPool pool;
+  /** index of the shard of the iterator */
+  private int itidx;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a sharded table database object.
+   * @param snum the number of the shards.  It must be the same every time the database is
+   * opened, or records are not found.
+   */
+  public ShardedTDB(int snum){
+    if(snum < 1) throw new IllegalArgumentException("illegal shard number: " + snum);
+    shards = new TDB[snum];
+    for(int i = 0; i < snum; i++){
+      shards[i] = new TDB();
+    }
+    pool = new ShardPool("ShardedTDB", snum);
+    itidx = snum;
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    pool.shutdown();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the number of the shards.
+   * @return the number of the shards.
+   */
+  public int snum(){
+    return shards.length;
+  }
+  /**
+   * Get the database object of a shard.
+   * @param index the index of the shard.
+   * @return the database object of the shard.
+   */
+  public TDB shard(int index){
+    return shards[index];
+  }
+  /**
+   * Get the index of the shard of a primary key.
+   * @param pkey the primary key.
+   * @return the index of the shard.
+   */
+  public int locate(byte[] pkey){
+    int hash = 0x811c9dc5;
+    for(int i = 0; i < pkey.length; i++){
+      hash = (hash ^ (pkey[i] & 0xff)) * 0x01000193;
+    }
+    return (hash & Integer.MAX_VALUE) % shards.length;
+  }
+  /**
+   * Get the last happened error code.
+   * @return the last happened error code of the first shard with an error, or `TDB.ESUCCESS'
+   * if no shard has an error.
+   */
+  public int ecode(){
+    for(int i = 0; i < shards.length; i++){
+      int ecode = shards[i].ecode();
+      if(ecode != TDB.ESUCCESS) return ecode;
+    }
+    return TDB.ESUCCESS;
+  }
+  /**
+   * Get the message string corresponding to the last happened error code.
+   * @return the message string of the error code.
+   */
+  public String errmsg(){
+    return TDB.errmsg(ecode());
+  }
+  /**
+   * Set the tuning parameters of every shard.
+   * @see TDB#tune(long, int, int, int)
+   */
+  public boolean tune(long bnum, int apow, int fpow, int opts){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].tune(bnum, apow, fpow, opts)) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Set the caching parameters of every shard.
+   * @see TDB#setcache(int, int, int)
+   */
+  public boolean setcache(int rcnum, int lcnum, int ncnum){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].setcache(rcnum, lcnum, ncnum)) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Set the size of the extra mapped memory of every shard.
+   * @see TDB#setxmsiz(long)
+   */
+  public boolean setxmsiz(long xmsiz){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].setxmsiz(xmsiz)) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Open the database files of every shard.
+   * @param path the base path of the database files.
+   * @param omode the connection mode.
+   * @return If successful, it is true, else, it is false.  If a shard fails, the opened shards
+   * are closed.
+   * @see TDB#open(String, int)
+   */
+  public boolean open(final String path, final int omode){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].open(path + "-" + i, omode)){
+        for(int j = 0; j < i; j++){
+          shards[j].close();
+        }
+        err = true;
+        break;
+      }
+    }
+    itidx = shards.length;
+    return !err;
+  }
+  /**
+   * Open the database files of every shard.
+   * The same as `open(path, TDB.OREADER)'.
+   * @see #open(String, int)
+   */
+  public boolean open(String path){
+    return open(path, TDB.OREADER);
+  }
+  /**
+   * Close the database files of every shard.
+   * @see TDB#close()
+   * @note The worker threads are stopped as well, after the operations running on them in other
+   * threads finish.  They are started again on demand.
+   */
+  public boolean close(){
+    boolean rv = each(new ShardOp(){
+        boolean run(TDB tdb){
+          return tdb.close();
+        }
+      });
+    pool.shutdown();
+    return rv;
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(byte[], Map)
+   */
+  public boolean put(byte[] pkey, Map cols){
+    return shards[locate(pkey)].put(pkey, cols);
+  }
+  /**
+   * Store a record.
+   * @see TDB#put(String, Map)
+   */
+  public boolean put(String pkey, Map cols){
+    return put(pkey.getBytes(), cols);
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(byte[], Map)
+   */
+  public boolean putkeep(byte[] pkey, Map cols){
+    return shards[locate(pkey)].putkeep(pkey, cols);
+  }
+  /**
+   * Store a new record.
+   * @see TDB#putkeep(String, Map)
+   */
+  public boolean putkeep(String pkey, Map cols){
+    return putkeep(pkey.getBytes(), cols);
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(byte[], Map)
+   */
+  public boolean putcat(byte[] pkey, Map cols){
+    return shards[locate(pkey)].putcat(pkey, cols);
+  }
+  /**
+   * Concatenate columns of the existing record.
+   * @see TDB#putcat(String, Map)
+   */
+  public boolean putcat(String pkey, Map cols){
+    return putcat(pkey.getBytes(), cols);
+  }
+  /**
+   * Store a record composed by a row writer.
+   * @see TDB#put(byte[], RowWriter)
+   */
+  public boolean put(byte[] pkey, RowWriter row){
+    return shards[locate(pkey)].put(pkey, row);
+  }
+  /**
+   * Store a record composed by a row writer.
+   * @see TDB#put(String, RowWriter)
+   */
+  public boolean put(String pkey, RowWriter row){
+    return put(pkey.getBytes(), row);
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * @see TDB#putkeep(byte[], RowWriter)
+   */
+  public boolean putkeep(byte[] pkey, RowWriter row){
+    return shards[locate(pkey)].putkeep(pkey, row);
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * @see TDB#putkeep(String, RowWriter)
+   */
+  public boolean putkeep(String pkey, RowWriter row){
+    return putkeep(pkey.getBytes(), row);
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * @see TDB#putcat(byte[], RowWriter)
+   */
+  public boolean putcat(byte[] pkey, RowWriter row){
+    return shards[locate(pkey)].putcat(pkey, row);
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * @see TDB#putcat(String, RowWriter)
+   */
+  public boolean putcat(String pkey, RowWriter row){
+    return putcat(pkey.getBytes(), row);
+  }
+  /**
+   * Remove a record.
+   * @see TDB#out(byte[])
+   */
+  public boolean out(byte[] pkey){
+    return shards[locate(pkey)].out(pkey);
+  }
+  /**
+   * Remove a record.
+   * @see TDB#out(String)
+   */
+  public boolean out(String pkey){
+    return out(pkey.getBytes());
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(byte[])
+   */
+  public Map<String, byte[]> get(byte[] pkey){
+    return shards[locate(pkey)].get(pkey);
+  }
+  /**
+   * Retrieve a record.
+   * @see TDB#get(String)
+   */
+  public Map<String, String> get(String pkey){
+    return shards[locate(pkey.getBytes())].get(pkey);
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see TDB#vsiz(byte[])
+   */
+  public int vsiz(byte[] pkey){
+    return shards[locate(pkey)].vsiz(pkey);
+  }
+  /**
+   * Get the size of the value of a record.
+   * @see TDB#vsiz(String)
+   */
+  public int vsiz(String pkey){
+    return vsiz(pkey.getBytes());
+  }
+  /**
+   * Initialize the iterator.
+   * @return If successful, it is true, else, it is false.
+   * @note The shards are traversed one after another.
+   * @see TDB#iterinit()
+   */
+  public boolean iterinit(){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].iterinit()) err = true;
+    }
+    itidx = 0;
+    return !err;
+  }
+  /**
+   * Get the next primary key of the iterator.
+   * @see TDB#iternext()
+   */
+  public byte[] iternext(){
+    while(itidx < shards.length){
+      byte[] pkey = shards[itidx].iternext();
+      if(pkey != null) return pkey;
+      itidx++;
+    }
+    return null;
+  }
+  /**
+   * Get the next primary key of the iterator.
+   * @see TDB#iternext2()
+   */
+  public String iternext2(){
+    byte[] pkey = iternext();
+    return pkey != null ? Util.otos(pkey) : null;
+  }
+  /**
+   * Get forward matching primary keys.
+   * @param prefix the prefix of the corresponding keys.
+   * @param max the maximum number of keys to be fetched.  If it is negative, no limit is
+   * specified.
+   * @return a list object of the keys of the corresponding records.
+   * @note The shards are scanned in parallel.
+   * @see TDB#fwmkeys(byte[], int)
+   */
+  public List<byte[]> fwmkeys(final byte[] prefix, final int max){
+    List<Callable<List<byte[]>>> tasks = new ArrayList<Callable<List<byte[]>>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final TDB tdb = shards[i];
+      tasks.add(new Callable<List<byte[]>>(){
+          public List<byte[]> call(){
+            return tdb.fwmkeys(prefix, max);
+          }
+        });
+    }
+    List<byte[]> keys = new ArrayList<byte[]>();
+    for(List<byte[]> skeys : invoke(tasks)){
+      for(byte[] pkey : skeys){
+        if(max >= 0 && keys.size() >= max) break;
+        keys.add(pkey);
+      }
+    }
+    return keys;
+  }
+  /**
+   * Get forward matching primary keys.
+   * @see TDB#fwmkeys(String, int)
+   */
+  public List<String> fwmkeys(String prefix, int max){
+    return Util.objectsAsStrings(fwmkeys(prefix.getBytes(), max));
+  }
+  /**
+   * Add an integer to a record.
+   * @see TDB#addint(byte[], int)
+   */
+  public int addint(byte[] pkey, int num){
+    return shards[locate(pkey)].addint(pkey, num);
+  }
+  /**
+   * Add an integer to a record.
+   * @see TDB#addint(String, int)
+   */
+  public int addint(String pkey, int num){
+    return addint(pkey.getBytes(), num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see TDB#adddouble(byte[], double)
+   */
+  public double adddouble(byte[] pkey, double num){
+    return shards[locate(pkey)].adddouble(pkey, num);
+  }
+  /**
+   * Add a real number to a record.
+   * @see TDB#adddouble(String, double)
+   */
+  public double adddouble(String pkey, double num){
+    return adddouble(pkey.getBytes(), num);
+  }
+  /**
+   * Synchronize updated contents of every shard.
+   * @see TDB#sync()
+   */
+  public boolean sync(){
+    return each(new ShardOp(){
+        boolean run(TDB tdb){
+          return tdb.sync();
+        }
+      });
+  }
+  /**
+   * Optimize the database file of every shard in parallel.
+   * @see TDB#optimize(long, int, int, int)
+   */
+  public boolean optimize(final long bnum, final int apow, final int fpow, final int opts){
+    return each(new ShardOp(){
+        boolean run(TDB tdb){
+          return tdb.optimize(bnum, apow, fpow, opts);
+        }
+      });
+  }
+  /**
+   * Optimize the database file of every shard in parallel.
+   * The same as `optimize(-1, -1, -1, 0xff)'.
+   * @see #optimize(long, int, int, int)
+   */
+  public boolean optimize(){
+    return optimize(-1, -1, -1, 0xff);
+  }
+  /**
+   * Remove all records of every shard.
+   * @see TDB#vanish()
+   */
+  public boolean vanish(){
+    return each(new ShardOp(){
+        boolean run(TDB tdb){
+          return tdb.vanish();
+        }
+      });
+  }
+  /**
+   * Copy the database file of every shard.
+   * @param path the base path of the destination files.  The index of each shard is appended to
+   * it as with `open'.
+   * @see TDB#copy(String)
+   */
+  public boolean copy(String path){
+    boolean err = false;
+    for(int i = 0; i < shards.length; i++){
+      if(!shards[i].copy(path + "-" + i)) err = true;
+    }
+    return !err;
+  }
+  /**
+   * Get the number of records of all shards.
+   * @see TDB#rnum()
+   */
+  public long rnum(){
+    long rnum = 0;
+    for(int i = 0; i < shards.length; i++){
+      rnum += shards[i].rnum();
+    }
+    return rnum;
+  }
+  /**
+   * Get the total size of the database files of all shards.
+   * @see TDB#fsiz()
+   */
+  public long fsiz(){
+    long fsiz = 0;
+    for(int i = 0; i < shards.length; i++){
+      fsiz += shards[i].fsiz();
+    }
+    return fsiz;
+  }
+  /**
+   * Set a column index of every shard in parallel.
+   * @see TDB#setindex(String, int)
+   */
+  public boolean setindex(final String name, final int type){
+    return each(new ShardOp(){
+        boolean run(TDB tdb){
+          return tdb.setindex(name, type);
+        }
+      });
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Run tasks on the executor service and wait for the results.
+   * @param tasks the tasks.
+   * @return the results in the order of the tasks.
+   */
+  <T> List<T> invoke(List<Callable<T>> tasks){
+    return pool.invoke(tasks);
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Run an operation on every shard in parallel.
+   * @return true if the operation succeeds on every shard, else, it is false.
+   */
+  private boolean each(final ShardOp op){
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(shards.length);
+    for(int i = 0; i < shards.length; i++){
+      final TDB tdb = shards[i];
+      tasks.add(new Callable<Boolean>(){
+          public Boolean call(){
+            return op.run(tdb);
+          }
+        });
+    }
+    boolean err = false;
+    for(Boolean rv : invoke(tasks)){
+      if(!rv) err = true;
+    }
+    return !err;
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Operation on a shard.
+   */
+  private static abstract class ShardOp {
+    abstract boolean run(TDB tdb);
+  }
+}
+
+
+
+/* END OF FILE */
@@ -0,0 +1,84 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Stats is a snapshot of the internal statistics of a database object.  It contains the
+ * structural parameters, the sizes of the caches, and the counters of the storage engine.
+ * @note The counters, whose names begin with "cnt_", are -1 if the native library is built
+ * with the `--disable-counter' option.  The values are read without locking the database, so
+ * they may be slightly inconsistent with each other while other threads update the database.
+ */
+public class Stats {
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** values of the statistics */
+  private Map<String, Long> values;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a snapshot from an array of the names and the values alternately.
+   */
+  Stats(byte[][] ary){
+    values = new LinkedHashMap<String, Long>();
+    for(int i = 0; i < ary.length - 1; i += 2){
+      values.put(Util.otos(ary[i]), Util.atol(Util.otos(ary[i+1])));
+    }
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the value of a statistic.
+   * @param name the name of the statistic.
+   * @return the value of the statistic, or -1 if it does not exist.
+   */
+  public long get(String name){
+    Long value = values.get(name);
+    return value != null ? value : -1;
+  }
+  /**
+   * Get all statistics.
+   * @return a map object of the names and the values in the native order.
+   */
+  public Map<String, Long> map(){
+    return Collections.unmodifiableMap(values);
+  }
+  /**
+   * Get the string representation.
+   * @return lines of the names and the values separated by a tab.
+   */
+  public String toString(){
+    StringBuilder sb = new StringBuilder();
+    for(Map.Entry<String, Long> ent : values.entrySet()){
+      sb.append(ent.getKey()).append('\t').append(ent.getValue()).append('\n');
+    }
+    return sb.toString();
+  }
+}
+
+
+
+/* END OF FILE */
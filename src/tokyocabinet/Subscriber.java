@@ -0,0 +1,58 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Subscriber is an interface of a receiver of elements from a publisher.  It has the same
+ * contract as `java.util.concurrent.Flow.Subscriber'.
+ */
+public interface Subscriber<T> {
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Receive the subscription.
+   * @param subscription the subscription object, whose method `request' should be called to
+   * receive elements.
+   */
+  public void onSubscribe(Subscription subscription);
+  /**
+   * Receive an element.
+   * @param item the element.
+   */
+  public void onNext(T item);
+  /**
+   * Receive an error.
+   * @param error the error.  No method is called after this.
+   */
+  public void onError(Throwable error);
+  /**
+   * Receive the completion.
+   * @note No method is called after this.
+   */
+  public void onComplete();
+}
+
+
+
+/* END OF FILE */
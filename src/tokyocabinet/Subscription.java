@@ -0,0 +1,48 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Subscription is an interface of a link between a publisher and a subscriber.  It has the same
+ * contract as `java.util.concurrent.Flow.Subscription'.
+ */
+public interface Subscription {
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Request elements.
+   * @param num the number of elements to be added to the demand.  If it is not more than 0, the
+   * subscriber receives an error.
+   */
+  public void request(long num);
+  /**
+   * Cancel the subscription.
+   * @note Elements may be delivered for a while after this.
+   */
+  public void cancel();
+}
+
+
+
+/* END OF FILE */
@@ -126,6 +126,11 @@ public class TDB {
   /** index type: keep existing index */
   public static final int ITKEEP = 1 << 24;
   //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** suffix of the file of the index definitions kept during a bulk load */
+  private static final String BULKSUFFIX = ".bulkidx";
+  //----------------------------------------------------------------
   // public static methods
   //----------------------------------------------------------------
   /**
@@ -146,6 +151,12 @@ public class TDB {
   //----------------------------------------------------------------
   /** pointer to the native object */
   private long ptr = 0;
+  /** cache of query results */
+  private volatile QueryCache qcache = null;
+  /** lock object to serialize writes while the query cache is enabled */
+  private Object qclock = new Object();
+  /** index advisor */
+  private volatile IndexAdvisor advisor = null;
   //----------------------------------------------------------------
   // constructors and finalizers
   //----------------------------------------------------------------
@@ -222,6 +233,18 @@ public class TDB {
    * @note The defragmentation parameters should be set before the database is opened.
    */
   public native boolean setdfunit(int dfunit);
+  /**
+   * Set the parameters of the inverted cache.
+   * @param iccmax the maximum size of the inverted cache.  If it is not more than 0, the default
+   * value is specified.  The default value is 67108864.
+   * @param iccsync the synchronization ratio of the inverted cache.  It should be between 0.0
+   * and 1.0.  If it is not more than 0, the default value is specified.  The default value is
+   * 0.01.
+   * @return If successful, it is true, else, it is false.
+   * @note The inverted cache holds the updates of token and q-gram inverted indexes.  The
+   * caching parameters should be set before the database is opened.
+   */
+  public native boolean setinvcache(long iccmax, double iccsync);
   /**
    * Open a database file.
    * @param path the path of the database file.
@@ -249,7 +272,11 @@ public class TDB {
    * @note Update of a database is assured to be written when the database is closed.  If a
    * writer opens a database but does not close it appropriately, the database will be broken.
    */
-  public native boolean close();
+  public boolean close(){
+    QueryCache qc = qcache;
+    if(qc != null) qc.clear();
+    return closeimpl();
+  }
   /**
    * Store a record.
    * @param pkey the primary key.
@@ -259,7 +286,7 @@ public class TDB {
    * @note If a record with the same key exists in the database, it is overwritten.
    */
   public boolean put(byte[] pkey, Map cols){
-    return putimpl(pkey, Util.maptostrary(cols), 0);
+    return store(pkey, Util.maptostrary(cols), null, 0, 0);
   }
   /**
    * Store a record.
@@ -278,7 +305,7 @@ public class TDB {
    * @note If a record with the same key exists in the database, this method has no effect.
    */
   public boolean putkeep(byte[] pkey, Map cols){
-    return putimpl(pkey, Util.maptostrary(cols), 1);
+    return store(pkey, Util.maptostrary(cols), null, 0, 1);
   }
   /**
    * Store a new record.
@@ -298,7 +325,7 @@ public class TDB {
    * @note If there is no corresponding record, a new record is created.
    */
   public boolean putcat(byte[] pkey, Map cols){
-    return putimpl(pkey, Util.maptostrary(cols), 2);
+    return store(pkey, Util.maptostrary(cols), null, 0, 2);
   }
   /**
    * Concatenate columns of the existing record.
@@ -309,12 +336,76 @@ public class TDB {
   public boolean putcat(String pkey, Map cols){
     return putcat(pkey.getBytes(), cols);
   }
+  /**
+   * Store a record composed by a row writer.
+   * @param pkey the primary key.
+   * @param row the row writer containing the columns.
+   * @return If successful, it is true, else, it is false.
+   * @note If a record with the same key exists in the database, it is overwritten.  The columns
+   * are passed to the native code as a serialized buffer without converting each one.
+   */
+  public boolean put(byte[] pkey, RowWriter row){
+    return store(pkey, null, row.buffer(), row.length(), 0);
+  }
+  /**
+   * Store a record composed by a row writer.
+   * The same as `put(pkey.getBytes("UTF-8"), row)'.
+   * @see #put(byte[], RowWriter)
+   */
+  public boolean put(String pkey, RowWriter row){
+    return put(Util.utf8(pkey), row);
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * @param pkey the primary key.
+   * @param row the row writer containing the columns.
+   * @return If successful, it is true, else, it is false.
+   * @note If a record with the same key exists in the database, this method has no effect.
+   */
+  public boolean putkeep(byte[] pkey, RowWriter row){
+    return store(pkey, null, row.buffer(), row.length(), 1);
+  }
+  /**
+   * Store a new record composed by a row writer.
+   * The same as `putkeep(pkey.getBytes("UTF-8"), row)'.
+   * @see #putkeep(byte[], RowWriter)
+   */
+  public boolean putkeep(String pkey, RowWriter row){
+    return putkeep(Util.utf8(pkey), row);
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * @param pkey the primary key.
+   * @param row the row writer containing the columns.
+   * @return If successful, it is true, else, it is false.
+   * @note If there is no corresponding record, a new record is created.
+   */
+  public boolean putcat(byte[] pkey, RowWriter row){
+    return store(pkey, null, row.buffer(), row.length(), 2);
+  }
+  /**
+   * Concatenate columns composed by a row writer to the existing record.
+   * The same as `putcat(pkey.getBytes("UTF-8"), row)'.
+   * @see #putcat(byte[], RowWriter)
+   */
+  public boolean putcat(String pkey, RowWriter row){
+    return putcat(Util.utf8(pkey), row);
+  }
   /**
    * Remove a record.
    * @param pkey the primary key.
    * @return If successful, it is true, else, it is false.
    */
-  public native boolean out(byte[] pkey);
+  public boolean out(byte[] pkey){
+    QueryCache qc = qcache;
+    if(qc == null) return outimpl(pkey);
+    synchronized(qclock){
+      byte[][] ocols = getimpl(pkey);
+      boolean rv = outimpl(pkey);
+      if(rv) qc.invalidate(diffcols(ocols, null));
+      return rv;
+    }
+  }
   /**
    * Remove a record.
    * The same as `out(pkey.getBytes())'.
@@ -425,7 +516,16 @@ public class TDB {
    * @note The additional value is stored as a decimal string value of a column whose name is
    * "_num".  If no record corresponds, a new record with the additional value is stored.
    */
-  public native int addint(byte[] pkey, int num);
+  public int addint(byte[] pkey, int num){
+    QueryCache qc = qcache;
+    if(qc == null) return addintimpl(pkey, num);
+    synchronized(qclock){
+      byte[][] ocols = getimpl(pkey);
+      int rv = addintimpl(pkey, num);
+      if(rv != Integer.MIN_VALUE) qc.invalidate(diffcols(ocols, getimpl(pkey)));
+      return rv;
+    }
+  }
   /**
    * Add an integer to a record.
    * The same as `addint(pkey.getBytes(), num)'.
@@ -442,7 +542,16 @@ public class TDB {
    * @note The additional value is stored as a decimal string value of a column whose name is
    * "_num".  If no record corresponds, a new record with the additional value is stored.
    */
-  public native double adddouble(byte[] pkey, double num);
+  public double adddouble(byte[] pkey, double num){
+    QueryCache qc = qcache;
+    if(qc == null) return adddoubleimpl(pkey, num);
+    synchronized(qclock){
+      byte[][] ocols = getimpl(pkey);
+      double rv = adddoubleimpl(pkey, num);
+      if(!Double.isNaN(rv)) qc.invalidate(diffcols(ocols, getimpl(pkey)));
+      return rv;
+    }
+  }
   /**
    * Add a real number to a record.
    * The same as `adddouble(pkey.getBytes(), num)'.
@@ -474,7 +583,11 @@ public class TDB {
    * @note This method is useful to reduce the size of the database file with data fragmentation
    * by successive updating.
    */
-  public native boolean optimize(long bnum, int apow, int fpow, int opts);
+  public boolean optimize(long bnum, int apow, int fpow, int opts){
+    boolean rv = optimizeimpl(bnum, apow, fpow, opts);
+    qryflush();
+    return rv;
+  }
   /**
    * Optimize the database file.
    * The same as `optimize(-1, -1, -1, 0xff)'.
@@ -483,11 +596,26 @@ public class TDB {
   public boolean optimize(){
     return optimize(-1, -1, -1, 0xff);
   }
+  /**
+   * Defragment the database file in steps.
+   * @param step the number of records moved in this call.  If it is not more than 0, the whole
+   * file is defragmented gradually without keeping a continuous lock.
+   * @return If successful, it is true, else, it is false.
+   * @note Unlike `optimize', the records are moved within the file while other threads access
+   * the database between calls, so small steps can be run without stalling them for long.  The
+   * position of the defragmentation is kept in the object and wraps around at the end of the file.
+   * @see MaintenanceScheduler
+   */
+  public native boolean defrag(long step);
   /**
    * Remove all records.
    * @return If successful, it is true, else, it is false.
    */
-  public native boolean vanish();
+  public boolean vanish(){
+    boolean rv = vanishimpl();
+    qryflush();
+    return rv;
+  }
   /**
    * Copy the database file.
    * @param path the path of the destination file.  If it begins with `@', the trailing substring
@@ -522,7 +650,11 @@ public class TDB {
    * @note Update in the transaction is discarded when it is aborted.  The state of the database
    * is rollbacked to before transaction.
    */
-  public native boolean tranabort();
+  public boolean tranabort(){
+    boolean rv = tranabortimpl();
+    qryflush();
+    return rv;
+  }
   /**
    * Get the path of the database file.
    * @return the path of the database file or `null' if the object does not connect to any
@@ -540,6 +672,21 @@ public class TDB {
    * file.
    */
   public native long fsiz();
+  /**
+   * Get the internal statistics.
+   * @return a snapshot of the statistics.  "fsiz" is the total size of the database file and
+   * the index files.  The statistics of each column index have the prefix "idx.NAME.", where
+   * "rnum" and "fsiz" are the number of entries and the size of the index file, "lnum" and
+   * "leafc" are the numbers of the leaves and the cached leaves, and "cc" and "ccsiz" are the
+   * number and the size of the inverted cache of a token or q-gram index.  The statistics of
+   * the internal hash database follow with the prefix "hdb.".
+   * @note The statistics should not be taken while another thread sets an index.
+   * @see Stats
+   * @see HDB#stats()
+   */
+  public Stats stats(){
+    return new Stats(statsimpl(true));
+  }
   /**
    * Set a column index.
    * @param name the name of a column.  If the name of an existing index is specified, the index
@@ -552,14 +699,349 @@ public class TDB {
    * @return If successful, it is true, else, it is false.
    */
   public native boolean setindex(String name, int type);
+  /**
+   * Get the column indexes.
+   * @return a map object of the names of the indexed columns and the index types.  An empty map
+   * is returned if the object does not connect to any database file.
+   */
+  public Map<String, Integer> indexes(){
+    byte[][] idxary = indexesimpl();
+    Map<String, Integer> idxs = new LinkedHashMap<String, Integer>();
+    for(int i = 0; i < idxary.length - 1; i += 2){
+      idxs.put(Util.otos(idxary[i]), Util.atoi(Util.otos(idxary[i+1])));
+    }
+    return idxs;
+  }
+  /**
+   * Load records at a blast with deferred index build.
+   * @param rows an iterator of row writers of the records.  The primary key of each row must be
+   * set by `RowWriter.setpkey'.  A row writer may be reused for the next row.
+   * @param batch the number of records stored in a transaction.
+   * @param iccmax the maximum size of the inverted cache while the token and q-gram indexes are
+   * rebuilt.  If it is not more than 0, the current setting is kept.
+   * @return If successful, it is true, else, it is false.
+   * @note Every column index is removed before loading and is rebuilt and optimized after the
+   * loading, so that each index is built by one scan of the table instead of being updated by
+   * each record.  If a record with the same key exists in the database, it is overwritten.  The
+   * database is locked by transactions during the loading, so other threads had better not
+   * access the database.  Before the indexes are removed, their definitions are saved into the
+   * file whose path is the database path with the suffix ".bulkidx", and the file is removed
+   * when every index has been rebuilt.  If the process dies during the loading, the database is
+   * left without the indexes and the file is left behind; then call `bulkrestore' or
+   * `bulkload' again to rebuild them.
+   */
+  public boolean bulkload(Iterator<RowWriter> rows, int batch, long iccmax){
+    if(rows == null) throw new IllegalArgumentException("null rows");
+    batch = Math.max(batch, 1);
+    String path = path();
+    if(path == null) return false;
+    Map<String, Integer> idxs = loadidxs(path + BULKSUFFIX);
+    if(idxs == null) return false;
+    Map<String, Integer> cidxs = indexes();
+    idxs.putAll(cidxs);
+    if(!saveidxs(path + BULKSUFFIX, idxs)) return false;
+    boolean err = false;
+    for(String name : cidxs.keySet()){
+      if(!setindex(name, ITVOID)) err = true;
+    }
+    boolean tran = false;
+    try {
+      int cnt = 0;
+      while(!err && rows.hasNext()){
+        RowWriter row = rows.next();
+        byte[] pkey = row.pkey();
+        if(pkey == null) throw new IllegalArgumentException("no primary key");
+        if(!tran){
+          if(!tranbegin()){
+            err = true;
+            break;
+          }
+          tran = true;
+        }
+        if(!putrowimpl(pkey, row.buffer(), row.length(), 0)) err = true;
+        if(++cnt >= batch){
+          tran = false;
+          if(!trancommit()) err = true;
+          cnt = 0;
+        }
+      }
+      if(tran){
+        tran = false;
+        if(err ? !tranabort() : !trancommit()) err = true;
+      }
+    } finally {
+      if(tran) tranabort();
+      if(!restoreidxs(path + BULKSUFFIX, idxs, iccmax)) err = true;
+      qryflush();
+    }
+    return !err;
+  }
+  /**
+   * Restore the indexes removed by an interrupted bulk load.
+   * @param iccmax the maximum size of the inverted cache while the token and q-gram indexes are
+   * rebuilt.  If it is not more than 0, the current setting is kept.
+   * @return If successful, it is true, else, it is false.  True is returned also if no bulk load
+   * has been interrupted.
+   * @note The index definitions are read from the file saved by `bulkload'.  The file is removed
+   * when every index has been rebuilt.
+   * @see #bulkload(Iterator, int, long)
+   */
+  public boolean bulkrestore(long iccmax){
+    String path = path();
+    if(path == null) return false;
+    Map<String, Integer> idxs = loadidxs(path + BULKSUFFIX);
+    if(idxs == null) return false;
+    boolean rv = restoreidxs(path + BULKSUFFIX, idxs, iccmax);
+    qryflush();
+    return rv;
+  }
   /**
    * Generate a unique ID number.
    * @return the new unique ID number or -1 on failure.
    */
   public native long genuid();
+  /**
+   * Prepare a query to be executed repeatedly.
+   * @param template the template of the query.
+   * @return a new prepared query object.
+   * @see PreparedQuery#PreparedQuery(TDB, String)
+   */
+  public PreparedQuery prepare(String template){
+    return new PreparedQuery(this, template);
+  }
+  /**
+   * Set the query result cache.
+   * @param limsiz the limit size of the cached results in bytes.  If it is not more than 0, the
+   * query result cache is disabled.  It is disabled by default.
+   * @note The results of `TDBQRY.search' and `TDBQRY.count' are cached by the conditions, the
+   * order, and the limit.  A cached result is invalidated when a record is stored or removed by
+   * this object at the columns the query refers to, and the least recently used results are
+   * evicted when the total size exceeds the limit.  While the cache is enabled, each write reads
+   * the record before and after it, and writes are serialized.  Modifications by other database
+   * objects or processes are not detected.
+   */
+  public void setqrycache(long limsiz){
+    qcache = limsiz > 0 ? new QueryCache(limsiz) : null;
+  }
+  /**
+   * Set the index advisor.
+   * @param advisor the index advisor object which samples the queries of this object.  If it is
+   * `null', the sampling is disabled.  It is disabled by default.
+   * @see IndexAdvisor
+   */
+  public void setadvisor(IndexAdvisor advisor){
+    this.advisor = advisor;
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the internal statistics.
+   * @param full whether to include the statistics which need scanning, such as "bnumused".
+   */
+  Stats stats(boolean full){
+    return new Stats(statsimpl(full));
+  }
+  /**
+   * Apply the modifications recorded in a row patch.  Each record is read and written in one
+   * critical section of the database.
+   */
+  boolean patch(RowSchema schema, RowPatch patch){
+    if(patch.rnum() < 1) return true;
+    boolean rv = patchimpl(schema.namebufs(), patch.buffer(), patch.length());
+    qryflush();
+    return rv;
+  }
+  /**
+   * Get the query result cache.
+   * @return the query result cache or `null' if it is disabled.
+   */
+  QueryCache qrycache(){
+    return qcache;
+  }
+  /**
+   * Get the index advisor.
+   * @return the index advisor or `null' if it is disabled.
+   */
+  IndexAdvisor advisor(){
+    return advisor;
+  }
+  /**
+   * Get the monitor.
+   * @return the monitor or `null' if the object is not monitored.
+   * @see MonitoredTDB
+   */
+  Monitor monitor(){
+    return null;
+  }
+  /**
+   * Get the rebuilder.
+   * @return the rebuilder or `null' if the object can not be rebuilt online.
+   * @see OnlineTDB
+   */
+  Rebuilder rebuilder(){
+    return null;
+  }
+  /**
+   * Get the change log.
+   * @return the change log or `null' if the updates are not logged.
+   * @see LoggedTDB
+   */
+  ChangeLog changelog(){
+    return null;
+  }
+  /**
+   * Get the seed of unique ID numbers.
+   * @return the seed or -1 on failure.
+   */
+  native long uidseed();
+  /**
+   * Set the seed of unique ID numbers.
+   * @param seed the new seed.
+   * @return If successful, it is true, else, it is false.
+   */
+  native boolean setuidseed(long seed);
+  /**
+   * Get the opaque region of the database file.
+   * @return a copy of the region, or `null' if the database is not opened.
+   */
+  native byte[] opaque();
+  /**
+   * Overwrite the head of the opaque region of the database file.
+   * @param buf the data, which is truncated to the size of the region.
+   * @return If successful, it is true, else, it is false.
+   * @note The region is a part of the header, so it is restored by the abort of a transaction.
+   */
+  native boolean setopaque(byte[] buf);
+  /**
+   * Invalidate all cached query results.
+   */
+  void qryflush(){
+    QueryCache qc = qcache;
+    if(qc != null) qc.clear();
+  }
   //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
+  /**
+   * Store a record and invalidate the query results referring to the modified columns.
+   * @param cols the array of the columns or `null' if a serialized buffer is specified.
+   */
+  private boolean store(byte[] pkey, byte[][] cols, byte[] row, int rsiz, int dmode){
+    QueryCache qc = qcache;
+    if(qc == null)
+      return cols != null ? putimpl(pkey, cols, dmode) : putrowimpl(pkey, row, rsiz, dmode);
+    synchronized(qclock){
+      byte[][] ocols = getimpl(pkey);
+      boolean rv = cols != null ? putimpl(pkey, cols, dmode) : putrowimpl(pkey, row, rsiz, dmode);
+      if(rv) qc.invalidate(diffcols(ocols, getimpl(pkey)));
+      return rv;
+    }
+  }
+  /**
+   * Get the names of the columns differing between two states of a record.
+   * @param ocols the old columns or `null' if the record did not exist.
+   * @param ncols the new columns or `null' if the record does not exist.
+   * @return the set of the differing column names.  It contains an empty string if the record
+   * is created or removed.
+   */
+  private static Set<String> diffcols(byte[][] ocols, byte[][] ncols){
+    Set<String> names = new HashSet<String>();
+    if((ocols == null) != (ncols == null)) names.add("");
+    Map<String, byte[]> omap = new HashMap<String, byte[]>();
+    if(ocols != null){
+      for(int i = 0; i < ocols.length - 1; i += 2){
+        omap.put(Util.otos(ocols[i]), ocols[i+1]);
+      }
+    }
+    if(ncols != null){
+      for(int i = 0; i < ncols.length - 1; i += 2){
+        String name = Util.otos(ncols[i]);
+        byte[] ovalue = omap.remove(name);
+        if(ovalue == null || !Arrays.equals(ovalue, ncols[i+1])) names.add(name);
+      }
+    }
+    names.addAll(omap.keySet());
+    return names;
+  }
+  /**
+   * Read the index definitions saved by a bulk load.
+   * @param ipath the path of the file of the index definitions.
+   * @return the map of the names and the types of the indexes or `null' on failure.  It is empty
+   * if the file does not exist.
+   */
+  private static Map<String, Integer> loadidxs(String ipath){
+    Map<String, Integer> idxs = new LinkedHashMap<String, Integer>();
+    File file = new File(ipath);
+    if(!file.exists()) return idxs;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      int num = in.readInt();
+      for(int i = 0; i < num; i++){
+        String name = in.readUTF();
+        idxs.put(name, in.readInt());
+      }
+      return idxs;
+    } catch(IOException e){
+      return null;
+    } finally {
+      if(in != null){
+        try {
+          in.close();
+        } catch(IOException e){}
+      }
+    }
+  }
+  /**
+   * Save the index definitions before a bulk load removes the indexes.
+   * @param ipath the path of the file of the index definitions.
+   * @param idxs the map of the names and the types of the indexes.
+   * @return If successful, it is true, else, it is false.
+   */
+  private static boolean saveidxs(String ipath, Map<String, Integer> idxs){
+    if(idxs.isEmpty()) return true;
+    FileOutputStream fout = null;
+    try {
+      fout = new FileOutputStream(ipath);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fout));
+      out.writeInt(idxs.size());
+      for(Map.Entry<String, Integer> idx : idxs.entrySet()){
+        out.writeUTF(idx.getKey());
+        out.writeInt(idx.getValue());
+      }
+      out.flush();
+      fout.getFD().sync();
+      out.close();
+      fout = null;
+      return true;
+    } catch(IOException e){
+      return false;
+    } finally {
+      if(fout != null){
+        try {
+          fout.close();
+        } catch(IOException e){}
+      }
+    }
+  }
+  /**
+   * Rebuild the indexes removed by a bulk load and remove the file of their definitions.
+   * @param ipath the path of the file of the index definitions.
+   * @param idxs the map of the names and the types of the indexes.
+   * @param iccmax the maximum size of the inverted cache.
+   * @return If successful, it is true, else, it is false.
+   */
+  private boolean restoreidxs(String ipath, Map<String, Integer> idxs, long iccmax){
+    boolean err = false;
+    long oiccmax = iccmaximpl(iccmax);
+    for(Map.Entry<String, Integer> idx : idxs.entrySet()){
+      if(!setindex(idx.getKey(), idx.getValue()) || !setindex(idx.getKey(), ITOPT)) err = true;
+    }
+    iccmaximpl(oiccmax);
+    if(!err && !idxs.isEmpty() && !new File(ipath).delete()) err = true;
+    return !err;
+  }
   /**
    * Initialize the object.
    */
@@ -568,14 +1050,64 @@ public class TDB {
    * Release resources.
    */
   private native void destruct();
+  /**
+   * Get the names and the values of the internal statistics.
+   * @param full whether to include the statistics which need scanning.
+   */
+  private native byte[][] statsimpl(boolean full);
+  /**
+   * Close the database file.
+   */
+  private native boolean closeimpl();
+  /**
+   * Remove a record.
+   */
+  private native boolean outimpl(byte[] pkey);
+  /**
+   * Add an integer to a record.
+   */
+  private native int addintimpl(byte[] pkey, int num);
+  /**
+   * Add a real number to a record.
+   */
+  private native double adddoubleimpl(byte[] pkey, double num);
+  /**
+   * Optimize the database file.
+   */
+  private native boolean optimizeimpl(long bnum, int apow, int fpow, int opts);
+  /**
+   * Remove all records.
+   */
+  private native boolean vanishimpl();
+  /**
+   * Abort the transaction.
+   */
+  private native boolean tranabortimpl();
   /**
    * Store a record.
    */
   private native boolean putimpl(byte[] pkey, byte[][] cols, int dmode);
+  /**
+   * Store a record of serialized columns.
+   */
+  private native boolean putrowimpl(byte[] pkey, byte[] row, int rsiz, int dmode);
   /**
    * Retrieve a record.
    */
   private native byte[][] getimpl(byte[] pkey);
+  /**
+   * Apply packed modifications of records.
+   */
+  private native boolean patchimpl(byte[][] names, byte[] patch, int psiz);
+  /**
+   * Get the names and the types of the column indexes.
+   */
+  private native byte[][] indexesimpl();
+  /**
+   * Set the maximum size of the inverted cache of the opened database.
+   * @return the old maximum size.
+   */
+  private native long iccmaximpl(long iccmax);
 }
 
 
@@ -17,6 +17,7 @@
 package tokyocabinet;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
@@ -110,6 +111,21 @@ public class TDBQRY {
    * Initialize the class.
    */
   private static native void init();
+  /**
+   * Get the shared executor of the sub-queries of the parallel meta search.
+   */
+  private static synchronized ExecutorService metaexec(){
+    if(metaexec == null){
+      int num = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+      metaexec = Executors.newFixedThreadPool(num, new Workers());
+    }
+    return metaexec;
+  }
+  //----------------------------------------------------------------
+  // private static fields
+  //----------------------------------------------------------------
+  /** shared executor of the sub-queries of the parallel meta search */
+  private static ExecutorService metaexec = null;
   //----------------------------------------------------------------
   // private fields
   //----------------------------------------------------------------
@@ -117,6 +133,22 @@ public class TDBQRY {
   private long ptr = 0;
   /** host database object */
   private TDB tdb = null;
+  /** normalized expressions of the conditions */
+  private List<String> conds = new ArrayList<String>();
+  /** names of the columns of the conditions */
+  private Set<String> cnames = new HashSet<String>();
+  /** whether a condition without negation is added */
+  private boolean positive = false;
+  /** normalized expression of the order */
+  private String order = "";
+  /** name of the column of the order */
+  private String oname = null;
+  /** type of the order */
+  private int otype = QOSTRASC;
+  /** maximum number of records of the result */
+  private int max = -1;
+  /** number of skipped records */
+  private int skip = 0;
   //----------------------------------------------------------------
   // constructors and finalizers
   //----------------------------------------------------------------
@@ -160,7 +192,12 @@ public class TDBQRY {
    * for using no index.
    * @param expr an operand exression.
    */
-  public native void addcond(String name, int op, String expr);
+  public void addcond(String name, int op, String expr){
+    addcondimpl(name, op, expr);
+    conds.add(name + '\0' + op + '\0' + expr);
+    cnames.add(name);
+    if((op & QCNEGATE) == 0) positive = true;
+  }
   /**
    * Set the order of the result.
    * @param name the name of a column.  An empty string means the primary key.
@@ -168,7 +205,12 @@ public class TDBQRY {
    * string descending, `TDBQRY.QONUMASC' for number ascending, `TDBQRY.QONUMDESC' for number
    * descending.
    */
-  public native void setorder(String name, int type);
+  public void setorder(String name, int type){
+    setorderimpl(name, type);
+    order = name + '\0' + type;
+    oname = name;
+    otype = type;
+  }
   /**
    * Set the maximum number of records of the result.
    * @param max the maximum number of records of the result.  If it is negative, no limit is
@@ -176,24 +218,199 @@ public class TDBQRY {
    * @param skip the maximum number of records of the result.  If it is not more than 0, no
    * record is skipped.
    */
-  public native void setlimit(int max, int skip);
+  public void setlimit(int max, int skip){
+    setlimitimpl(max, skip);
+    this.max = Math.max(max, -1);
+    this.skip = Math.max(skip, 0);
+  }
   /**
    * Execute the search.
    * @return a list object of the primary keys of the corresponding records.  This method does
    * never fail.  It returns an empty array even if no record corresponds.
+   * @note If the query result cache of the database object is enabled, the result is looked up
+   * in the cache before the search and stored after the search.
+   * @see TDB#setqrycache(long)
+   */
+  public List<byte[]> search(){
+    Monitor mon = tdb.monitor();
+    if(mon == null) return searchcached();
+    long stime = System.nanoTime();
+    List<byte[]> pkeys = searchcached();
+    mon.op("search").record(stime, true, Monitor.size(pkeys), 0);
+    return pkeys;
+  }
+  /**
+   * Execute the search and retrieve the corresponding records at a blast.
+   * @param names the names of the columns to be retrieved.  If it is not specified, all columns
+   * are retrieved.
+   * @return a row reader object of the corresponding records.  This method does never fail.  It
+   * returns an empty reader even if no record corresponds.
+   * @note The records are retrieved in the same native call as the search, so that neither a
+   * list of the primary keys nor a map object of each record is created.
    */
-  public native List<byte[]> search();
+  public RowReader searchrows(String... names){
+    byte[][] tnames = new byte[names.length][];
+    for(int i = 0; i < names.length; i++){
+      tnames[i] = names[i].getBytes();
+    }
+    Rebuilder rb = tdb.rebuilder();
+    if(rb != null) rb.enter();
+    try {
+      IndexAdvisor adv = tdb.advisor();
+      boolean sampled = adv != null && adv.sample();
+      Monitor mon = tdb.monitor();
+      if(!sampled && mon == null) return new RowReader(searchrowsimpl(tnames));
+      long stime = System.nanoTime();
+      byte[] rows = searchrowsimpl(tnames);
+      if(sampled) adv.record(conds, hint(), System.nanoTime() - stime);
+      if(mon != null) mon.op("searchrows").record(stime, true, rows.length, 0);
+      return new RowReader(rows);
+    } finally {
+      if(rb != null) rb.leave();
+    }
+  }
+  /**
+   * Create a cursor to fetch the result set in batches.
+   * @param batch the maximum number of records in a batch.
+   * @return a new query cursor object.  The conditions are evaluated incrementally as the
+   * batches are fetched.
+   * @see TDBQRYCUR#TDBQRYCUR(TDBQRY, int)
+   */
+  public TDBQRYCUR cursor(int batch){
+    return new TDBQRYCUR(this, batch);
+  }
+  /**
+   * Get the number of the corresponding records.
+   * @return the number of the corresponding records.  It is the same as the size of the result
+   * of `search' but the records are counted as a query cursor evaluates them, without building
+   * the result set.
+   * @note The order setting is ignored because it does not affect the number.  If the query
+   * result cache of the database object is enabled, the number is cached as with `search'.
+   */
+  public int count(){
+    Monitor mon = tdb.monitor();
+    if(mon == null) return countcached();
+    long stime = System.nanoTime();
+    int num = countcached();
+    mon.op("count").record(stime, true, 0, 0);
+    return num;
+  }
+  /**
+   * Estimate the number of the corresponding records.
+   * @param sample the number of the corresponding records to be sampled.
+   * @return the estimated number of the corresponding records.  If the search is done with an
+   * index or less than `sample' records correspond, the exact number is returned.  Otherwise,
+   * the scanning of the whole table stops at the sampled record and the number is estimated by
+   * the ratio of the corresponding records in the scanned records.
+   * @see #count()
+   */
+  public int count(int sample){
+    if(sample < 1) throw new IllegalArgumentException("illegal sample: " + sample);
+    return countsampled(sample);
+  }
   /**
    * Remove each corresponding record.
    * @return If successful, the return value is true, else, it is false.
    */
-  public native boolean searchout();
+  public boolean searchout(){
+    Rebuilder rb = tdb.rebuilder();
+    ChangeLog log = tdb.changelog();
+    if(rb != null) rb.enter();
+    if(log != null) log.lock();
+    try {
+      long stime = System.nanoTime();
+      boolean rv;
+      if((rb != null && rb.logging()) || log != null){
+        Tracer tracer = new Tracer(null);
+        rv = procimpl(tracer);
+        if(rb != null) rb.touch(tracer.pkeys);
+        if(log != null) log.rows(tdb, tracer.pkeys);
+      } else {
+        rv = searchoutimpl();
+      }
+      Monitor mon = tdb.monitor();
+      if(mon != null) mon.op("searchout").record(stime, rv, 0, 0);
+      tdb.qryflush();
+      return rv;
+    } finally {
+      if(log != null) log.unlock();
+      if(rb != null) rb.leave();
+    }
+  }
   /**
    * Process each corresponding record.
    * @param qp specifies the query processor object.
    * @return If successful, the return value is true, else, it is false.
    */
-  public native boolean proc(TDBQRYPROC qp);
+  public boolean proc(TDBQRYPROC qp){
+    Rebuilder rb = tdb.rebuilder();
+    ChangeLog log = tdb.changelog();
+    if(rb != null) rb.enter();
+    if(log != null) log.lock();
+    try {
+      long stime = System.nanoTime();
+      boolean rv;
+      if((rb != null && rb.logging()) || log != null){
+        Tracer tracer = new Tracer(qp);
+        rv = procimpl(tracer);
+        if(rb != null) rb.touch(tracer.pkeys);
+        if(log != null) log.rows(tdb, tracer.pkeys);
+      } else {
+        rv = procimpl(qp);
+      }
+      Monitor mon = tdb.monitor();
+      if(mon != null) mon.op("proc").record(stime, rv, 0, 0);
+      tdb.qryflush();
+      return rv;
+    } finally {
+      if(log != null) log.unlock();
+      if(rb != null) rb.leave();
+    }
+  }
+  /**
+   * Process each corresponding record in batches through a row visitor.
+   * @param schema the schema of the columns passed to the visitor.
+   * @param visitor the row visitor object.
+   * @param batch the maximum number of records in a batch.  The records of a batch are fetched
+   * at a blast, visited, and then the modifications recorded in the patch are applied at a
+   * blast.
+   * @return If successful, the return value is true, else, it is false.
+   * @note Unlike the method with a query processor object, the conversion of columns into a map
+   * object is not performed, and the database is not locked during the visitor is called.  The
+   * patch of each record is applied atomically: the record is read again in the critical section
+   * and only the columns set or removed by the patch are changed, so that the modifications of
+   * the other columns by another thread between the fetch and the application are kept.
+   * However, the record is not checked against the conditions again, and a record removed by
+   * another thread in the meantime is left removed.  If the whole table is scanned, a record
+   * relocated by an update of another thread may be missed, as described in `TDBQRYCUR'.  Set
+   * the order to visit a snapshot of the result set.
+   */
+  public boolean proc(RowSchema schema, RowVisitor visitor, int batch){
+    if(schema == null || visitor == null) throw new IllegalArgumentException("null argument");
+    TDBQRYCUR cur = new TDBQRYCUR(this, batch);
+    RowView view = new RowView(schema);
+    RowPatch patch = new RowPatch(schema);
+    boolean err = false;
+    try {
+      boolean cont = true;
+      byte[] rows;
+      while(cont && (rows = cur.nextview(schema)) != null){
+        view.reset(rows);
+        while(cont && view.next()){
+          patch.begin();
+          cont = visitor.visit(view, patch);
+          patch.end(view);
+        }
+        if(!tdb.patch(schema, patch)) err = true;
+        patch.clear();
+        if(err) break;
+      }
+      if(cont && !err && !cur.end()) err = true;
+    } finally {
+      cur.close();
+    }
+    return !err;
+  }
   /**
    * Get the hint string.
    * @return the hint string.
@@ -211,6 +428,91 @@ public class TDBQRY {
    * order.
    */
   public native List<byte[]> metasearch(TDBQRY[] others, int type);
+  /**
+   * Retrieve records with multiple query objects in parallel and get the set of the result.
+   * @param others an array of the query objects except for the self object.  They can belong to
+   * different database objects.
+   * @param type a set operation type: `TDBQRY.MSUNION' for the union set, `TDBQRY.MSISECT' for
+   * the intersection set, `TDBQRY.MSDIFF' for the difference set.
+   * @param exec the executor service to run the sub-queries.  If it is `null', a daemon thread
+   * pool shared by every query object, whose size is the number of processors, is used.
+   * @return a list object of the primary keys of the corresponding records.
+   * @note The sub-queries are submitted to the executor, and the calling thread runs the self
+   * object and then every sub-query not started by the executor yet, so that the search does not
+   * wait for a busy executor.  The results are merged as sets of primary keys sorted in the byte
+   * order.  If the operation is the union and the self object has the
+   * order setting, the result is sorted by the order.  Otherwise, the result is in the byte order
+   * of the primary keys.  The limit setting of the self object is applied to the result.  A query
+   * object specified more than once is searched only once and its result is reused.
+   */
+  public List<byte[]> metasearch(TDBQRY[] others, int type, ExecutorService exec){
+    if(others == null) throw new IllegalArgumentException("null queries");
+    TDBQRY[] qrys = new TDBQRY[others.length+1];
+    qrys[0] = this;
+    System.arraycopy(others, 0, qrys, 1, others.length);
+    final boolean union = type != MSISECT && type != MSDIFF;
+    final String sname = union ? oname : null;
+    final boolean num = otype == QONUMASC || otype == QONUMDESC;
+    List<FutureTask<byte[]>> futures = new ArrayList<FutureTask<byte[]>>(qrys.length);
+    Map<TDBQRY, FutureTask<byte[]>> tasks = new IdentityHashMap<TDBQRY, FutureTask<byte[]>>();
+    for(int i = 0; i < qrys.length; i++){
+      final TDBQRY qry = qrys[i];
+      if(qry == null) throw new IllegalArgumentException("null query");
+      FutureTask<byte[]> dup = tasks.get(qry);
+      if(dup != null){
+        futures.add(dup);
+        continue;
+      }
+      long lmax = union && qry.max >= 0 ? (long)qry.max + qry.skip : -1;
+      final int qmax = (int)Math.min(lmax, Integer.MAX_VALUE);
+      FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>(){
+          public byte[] call(){
+            return qry.searchkeys(qmax, sname, num);
+          }
+        });
+      if(i > 0){
+        try {
+          (exec != null ? exec : metaexec()).execute(task);
+        } catch(RejectedExecutionException e){
+          // the task is run by the calling thread below
+        }
+      }
+      tasks.put(qry, task);
+      futures.add(task);
+    }
+    for(FutureTask<byte[]> future : futures){
+      future.run();
+    }
+    List<List<MetaRec>> sets = new ArrayList<List<MetaRec>>(qrys.length);
+    for(Future<byte[]> future : futures){
+      byte[] keys;
+      try {
+        keys = future.get();
+      } catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("interrupted");
+      } catch(ExecutionException e){
+        Throwable cause = e.getCause();
+        if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+        if(cause instanceof Error) throw (Error)cause;
+        throw new IllegalStateException(cause.toString());
+      }
+      List<MetaRec> recs = MetaRec.unpack(keys, sname != null);
+      Collections.sort(recs);
+      sets.add(recs);
+    }
+    List<MetaRec> recs = union ? MetaRec.union(sets) : sets.get(0);
+    for(int i = 1; !union && i < sets.size(); i++){
+      recs = MetaRec.merge(recs, sets.get(i), type == MSISECT);
+    }
+    if(sname != null) Collections.sort(recs, new MetaRec.OrderComparator(otype, num));
+    int end = max >= 0 ? (int)Math.min((long)skip + max, recs.size()) : recs.size();
+    List<byte[]> pkeys = new ArrayList<byte[]>(Math.max(end - skip, 0));
+    for(int i = skip; i < end; i++){
+      pkeys.add(recs.get(i).pkey);
+    }
+    return pkeys;
+  }
   /**
    * Generate keyword-in-context strings.
    * @param cols a hash containing columns.
@@ -229,8 +531,146 @@ public class TDBQRY {
     return kwicimpl(Util.maptostrary(cols), name, width, opts);
   }
   //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the database object of the query.
+   */
+  TDB tdb(){
+    return tdb;
+  }
+  /**
+   * Execute the search without skipping and get the records with the values of the order column.
+   * @param max the maximum number of records.  If it is negative, no limit is specified.
+   * @return a list of the records in the order of the result.
+   */
+  List<MetaRec> searchrecs(int max){
+    boolean num = otype == QONUMASC || otype == QONUMDESC;
+    return MetaRec.unpack(searchkeys(max, oname, num), oname != null);
+  }
+  /**
+   * Get the comparator of records by the order setting.
+   * @return the comparator or `null' if the order is not set.
+   */
+  Comparator<MetaRec> ordercomparator(){
+    if(oname == null) return null;
+    return new MetaRec.OrderComparator(otype, otype == QONUMASC || otype == QONUMDESC);
+  }
+  //----------------------------------------------------------------
   // private methods
   //----------------------------------------------------------------
+  /**
+   * Get the key of the query in the query result cache.
+   * @param kind the kind of the result.
+   * @return the key independent of the order of the conditions.
+   */
+  private String cachekey(char kind){
+    String[] ary = conds.toArray(new String[conds.size()]);
+    Arrays.sort(ary);
+    StringBuilder sb = new StringBuilder();
+    sb.append(kind);
+    for(int i = 0; i < ary.length; i++){
+      sb.append('\1').append(ary[i]);
+    }
+    sb.append('\2');
+    if(kind != 'C') sb.append(order);
+    sb.append('\2').append(max).append(',').append(skip);
+    return sb.toString();
+  }
+  /**
+   * Execute the search through the query result cache.
+   */
+  private List<byte[]> searchcached(){
+    QueryCache qc = tdb.qrycache();
+    if(qc == null) return searchsampled();
+    String key = cachekey('S');
+    List<byte[]> pkeys = qc.getkeys(key);
+    if(pkeys != null) return pkeys;
+    long gen = qc.generation();
+    pkeys = searchsampled();
+    qc.putkeys(key, refcols('S'), pkeys, gen);
+    return pkeys;
+  }
+  /**
+   * Get the number of the corresponding records through the query result cache.
+   */
+  private int countcached(){
+    QueryCache qc = tdb.qrycache();
+    if(qc == null) return countsampled(-1);
+    String key = cachekey('C');
+    int num = qc.getcount(key);
+    if(num >= 0) return num;
+    long gen = qc.generation();
+    num = countsampled(-1);
+    qc.putcount(key, refcols('C'), num, gen);
+    return num;
+  }
+  /**
+   * Execute the search and record it to the index advisor if it is sampled.
+   */
+  private List<byte[]> searchsampled(){
+    Rebuilder rb = tdb.rebuilder();
+    if(rb != null) rb.enter();
+    try {
+      IndexAdvisor adv = tdb.advisor();
+      if(adv == null || !adv.sample()) return searchimpl();
+      long stime = System.nanoTime();
+      List<byte[]> pkeys = searchimpl();
+      adv.record(conds, hint(), System.nanoTime() - stime);
+      return pkeys;
+    } finally {
+      if(rb != null) rb.leave();
+    }
+  }
+  /**
+   * Get the number of the corresponding records and record it to the index advisor if it is
+   * sampled.
+   */
+  private int countsampled(int sample){
+    Rebuilder rb = tdb.rebuilder();
+    if(rb != null) rb.enter();
+    try {
+      IndexAdvisor adv = tdb.advisor();
+      if(adv == null || !adv.sample()) return countimpl(sample);
+      long stime = System.nanoTime();
+      int num = countimpl(sample);
+      adv.record(conds, hint(), System.nanoTime() - stime);
+      return num;
+    } finally {
+      if(rb != null) rb.leave();
+    }
+  }
+  /**
+   * Execute the search without skipping and get the packed primary keys and the order values.
+   * @note The native query object is not thread-safe, so searches on the same object are
+   * serialized.
+   */
+  private synchronized byte[] searchkeys(int max, String oname, boolean num){
+    Rebuilder rb = tdb.rebuilder();
+    if(rb == null) return searchkeysimpl(max, oname, num);
+    rb.enter();
+    try {
+      return searchkeysimpl(max, oname, num);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the names of the columns the result depends on.
+   * @param kind the kind of the result.
+   * @return the set of the column names.  It contains an empty string if a new record can
+   * correspond without having any of the columns.
+   * @note Without the order by the primary key, the order of records of the same rank depends
+   * on the physical layout of the database, which changes by any modification.  So, a limited
+   * list of primary keys depends on every modification.
+   */
+  private Set<String> refcols(char kind){
+    Set<String> names = new HashSet<String>(cnames);
+    if(oname != null) names.add(oname);
+    if(!positive) names.add("");
+    if(kind != 'C' && (max >= 0 || skip > 0) && !"".equals(oname)) names.add(QueryCache.ANYCOL);
+    return names;
+  }
   /**
    * Initialize the object.
    */
@@ -239,10 +679,195 @@ public class TDBQRY {
    * Release resources.
    */
   private native void destruct();
+  /**
+   * Add a narrowing condition.
+   */
+  private native void addcondimpl(String name, int op, String expr);
+  /**
+   * Set the order of the result.
+   */
+  private native void setorderimpl(String name, int type);
+  /**
+   * Set the maximum number of records of the result.
+   */
+  private native void setlimitimpl(int max, int skip);
+  /**
+   * Execute the search.
+   */
+  private native List<byte[]> searchimpl();
+  /**
+   * Remove each corresponding record.
+   */
+  private native boolean searchoutimpl();
+  /**
+   * Process each corresponding record.
+   */
+  private native boolean procimpl(TDBQRYPROC qp);
   /**
    * Generate a keyword-in-context string.
    */
   private native String[] kwicimpl(byte[][] cols, String name, int width, int opts);
+  /**
+   * Execute the search and retrieve the corresponding records.
+   */
+  private native byte[] searchrowsimpl(byte[][] names);
+  /**
+   * Get the number of the corresponding records.
+   */
+  private native int countimpl(int sample);
+  /**
+   * Execute the search without skipping and get the packed primary keys and the order values.
+   */
+  private native byte[] searchkeysimpl(int max, String oname, boolean num);
+  //----------------------------------------------------------------
+  // package classes
+  //----------------------------------------------------------------
+  /**
+   * Record of the result of a query of the parallel meta search.
+   */
+  static class MetaRec implements Comparable<MetaRec> {
+    /** primary key */
+    byte[] pkey;
+    /** value of the order column or `null' */
+    byte[] value;
+    MetaRec(byte[] pkey, byte[] value){
+      this.pkey = pkey;
+      this.value = value;
+    }
+    /**
+     * Compare with another record by the primary key in the byte order.
+     */
+    public int compareTo(MetaRec other){
+      return Util.cmpbytes(pkey, other.pkey);
+    }
+    /**
+     * Unpack the result of `searchkeysimpl'.
+     */
+    static List<MetaRec> unpack(byte[] buf, boolean values){
+      int[] rp = new int[1];
+      int knum = Util.readvnum(buf, rp);
+      List<MetaRec> recs = new ArrayList<MetaRec>(knum);
+      for(int i = 0; i < knum; i++){
+        byte[] pkey = new byte[Util.readvnum(buf, rp)];
+        System.arraycopy(buf, rp[0], pkey, 0, pkey.length);
+        rp[0] += pkey.length;
+        byte[] value = null;
+        if(values){
+          int vsiz = Util.readvnum(buf, rp) - 1;
+          if(vsiz >= 0){
+            value = new byte[vsiz];
+            System.arraycopy(buf, rp[0], value, 0, vsiz);
+            rp[0] += vsiz;
+          }
+        }
+        recs.add(new MetaRec(pkey, value));
+      }
+      return recs;
+    }
+    /**
+     * Get the union of sorted sets.  The value of the latter set is taken for a duplicated key.
+     */
+    static List<MetaRec> union(List<List<MetaRec>> sets){
+      List<MetaRec> all = new ArrayList<MetaRec>();
+      for(List<MetaRec> set : sets){
+        all.addAll(set);
+      }
+      Collections.sort(all);
+      List<MetaRec> recs = new ArrayList<MetaRec>(all.size());
+      for(MetaRec rec : all){
+        int last = recs.size() - 1;
+        if(last >= 0 && Util.cmpbytes(recs.get(last).pkey, rec.pkey) == 0){
+          recs.set(last, rec);
+        } else {
+          recs.add(rec);
+        }
+      }
+      return recs;
+    }
+    /**
+     * Get the intersection or the difference of two sorted sets.
+     */
+    static List<MetaRec> merge(List<MetaRec> left, List<MetaRec> right, boolean isect){
+      List<MetaRec> recs = new ArrayList<MetaRec>(left.size());
+      int ri = 0;
+      for(MetaRec rec : left){
+        while(ri < right.size() && Util.cmpbytes(right.get(ri).pkey, rec.pkey) < 0){
+          ri++;
+        }
+        boolean hit = ri < right.size() && Util.cmpbytes(right.get(ri).pkey, rec.pkey) == 0;
+        if(hit == isect) recs.add(rec);
+      }
+      return recs;
+    }
+    /**
+     * Comparator of records by the value of the order column.  Records without the column are
+     * placed at the end.
+     */
+    static class OrderComparator implements Comparator<MetaRec> {
+      /** whether the order is descending */
+      private boolean desc;
+      /** whether the values are numbers */
+      private boolean num;
+      OrderComparator(int type, boolean num){
+        this.desc = type == QOSTRDESC || type == QONUMDESC;
+        this.num = num;
+      }
+      public int compare(MetaRec a, MetaRec b){
+        if(a.value == null) return b.value == null ? 0 : 1;
+        if(b.value == null) return -1;
+        int rv;
+        if(num){
+          double anum = todouble(a.value);
+          double bnum = todouble(b.value);
+          rv = anum < bnum ? -1 : anum > bnum ? 1 : 0;
+        } else {
+          rv = Util.cmpbytes(a.value, b.value);
+        }
+        return desc ? -rv : rv;
+      }
+      /**
+       * Decode a number packed in the big endian order.
+       */
+      private static double todouble(byte[] value){
+        long bits = 0;
+        for(int i = 0; i < value.length; i++){
+          bits = (bits << 8) | (value[i] & 0xff);
+        }
+        return Double.longBitsToDouble(bits);
+      }
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Query processor recording the primary keys of modified records.
+   */
+  private static class Tracer implements TDBQRYPROC {
+    /** wrapped processor, or `null' to remove every record */
+    private TDBQRYPROC qp;
+    /** primary keys of modified records */
+    List<byte[]> pkeys;
+    Tracer(TDBQRYPROC qp){
+      this.qp = qp;
+      this.pkeys = new ArrayList<byte[]>();
+    }
+    public int proc(byte[] pkey, Map<String, byte[]> cols){
+      int flags = qp != null ? qp.proc(pkey, cols) : QPOUT;
+      if((flags & (QPPUT | QPOUT)) != 0) pkeys.add(pkey);
+      return flags;
+    }
+  }
+  /**
+   * Thread factory of the workers of the parallel meta search.
+   */
+  private static class Workers implements ThreadFactory {
+    public Thread newThread(Runnable r){
+      Thread th = new Thread(r, "TDBQRY");
+      th.setDaemon(true);
+      return th;
+    }
+  }
 }
 
 
@@ -0,0 +1,192 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Query cursor is a mechanism to fetch the result set of a query incrementally.  The conditions
+ * are evaluated one record at a time in the native library while the table or the index of a
+ * condition is walked, and each fetch stops as soon as a batch is filled, so that the first
+ * batch is available without evaluating the whole search and the memory usage does not depend
+ * on the number of corresponding records.
+ * @note An index is walked for a condition of `QCSTREQ' or `QCSTRBW' on a lexical index or of a
+ * numeric comparison on a decimal index.  If the order of the query is set or the condition is
+ * served by an index of another type, the whole search is executed at the first fetch and only
+ * the transfer of the result set is done in batches.  Because the database is locked only while
+ * each batch is fetched, records modified between batches are evaluated in their state at the
+ * time of the fetch which reaches them.  When the whole table is scanned, records stored after
+ * the first fetch are not fetched, and a record which is not fetched yet may be skipped if it is
+ * enlarged by an update of another thread and relocated in the file.
+ */
+public class TDBQRYCUR {
+  //----------------------------------------------------------------
+  // static initializer
+  //----------------------------------------------------------------
+  static {
+    Loader.load();
+    init();
+  }
+  //----------------------------------------------------------------
+  // private static methods
+  //----------------------------------------------------------------
+  /**
+   * Initialize the class.
+   */
+  private static native void init();
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** pointer to the native object */
+  private long ptr = 0;
+  /** host query object */
+  private TDBQRY qry = null;
+  /** number of records in a batch */
+  private int batch;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a query cursor object.
+   * @param qry the query object.  It should not be modified while the cursor is in use.
+   * @param batch the maximum number of records in a batch.
+   * @note No record is evaluated until the first batch is fetched.
+   */
+  public TDBQRYCUR(TDBQRY qry, int batch){
+    if(batch < 1) throw new IllegalArgumentException("illegal batch size: " + batch);
+    this.qry = qry;
+    this.batch = batch;
+    initialize(qry);
+  }
+  /**
+   * Release resources.
+   */
+  protected void finalize(){
+    close();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Get the primary keys of the next batch.
+   * @return a list object of the primary keys of the next batch or `null' if the cursor reaches
+   * the end of the result set, is closed, or fails.  If the index walked by the cursor is removed
+   * or the database is closed or swapped by an online rebuild, the cursor fails.
+   */
+  public List<byte[]> nextkeys(){
+    Rebuilder rb = qry.tdb().rebuilder();
+    if(rb == null) return nextkeysimpl(batch);
+    rb.enter();
+    try {
+      return nextkeysimpl(batch);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Get the records of the next batch.
+   * @param names the names of the columns to be retrieved.  If it is not specified, all columns
+   * are retrieved.
+   * @return a row reader object of the records of the next batch or `null' if the cursor reaches
+   * the end of the result set, is closed, or fails.  Records removed after the evaluation of the
+   * batch are skipped.
+   */
+  public RowReader nextrows(String... names){
+    byte[][] tnames = new byte[names.length][];
+    for(int i = 0; i < names.length; i++){
+      tnames[i] = names[i].getBytes();
+    }
+    byte[] rows = fetch(tnames, batch, false);
+    return rows != null ? new RowReader(rows) : null;
+  }
+  /**
+   * Close the cursor.
+   * @note The resources of the evaluation are released and the cursor can not be used any
+   * longer.  It is
+   * harmless to call this method more than once.
+   */
+  public void close(){
+    destruct();
+  }
+  //----------------------------------------------------------------
+  // package methods
+  //----------------------------------------------------------------
+  /**
+   * Get the records of the next batch with the columns laid out in the order of a schema.
+   */
+  byte[] nextview(RowSchema schema){
+    return fetch(schema.namebufs(), batch, true);
+  }
+  /**
+   * Get the records of the next batch of an arbitrary size.
+   */
+  RowReader nextrows(int max){
+    byte[] rows = fetch(new byte[0][], max, false);
+    return rows != null ? new RowReader(rows) : null;
+  }
+  /**
+   * Check whether the cursor reached the end of the result set.  It is false if the last batch
+   * was not retrieved because of a failure.
+   */
+  boolean end(){
+    return endimpl();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Get the records of the next batch, excluding the swap of an online rebuild.
+   */
+  private byte[] fetch(byte[][] names, int max, boolean fixed){
+    Rebuilder rb = qry.tdb().rebuilder();
+    if(rb == null) return nextrowsimpl(names, max, fixed);
+    rb.enter();
+    try {
+      return nextrowsimpl(names, max, fixed);
+    } finally {
+      rb.leave();
+    }
+  }
+  /**
+   * Initialize the object.
+   */
+  private native void initialize(TDBQRY qry);
+  /**
+   * Release resources.
+   */
+  private native void destruct();
+  /**
+   * Get the primary keys of the next batch.
+   */
+  private native List<byte[]> nextkeysimpl(int max);
+  /**
+   * Get the records of the next batch.
+   */
+  private native byte[] nextrowsimpl(byte[][] names, int max, boolean fixed);
+  /**
+   * Check whether the cursor reached the end.
+   */
+  private native boolean endimpl();
+}
+
+
+
+/* END OF FILE */
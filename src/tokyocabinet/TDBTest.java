@@ -17,6 +17,7 @@
 package tokyocabinet;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
@@ -594,6 +595,10 @@ class TDBTest {
     qry.setorder("_num", TDBQRY.QONUMDESC);
     List ires = qry.search();
     int irnum = ires.size();
+    if(qry.count() != irnum || qry.count(1) > tdb.rnum()){
+      eprint(tdb, "qry::count");
+      err = true;
+    }
     int itnum = (int)tdb.rnum();
     class MyProc implements TDBQRYPROC {
       int icnt = 0;
@@ -608,6 +613,61 @@ class TDBTest {
       eprint(tdb, "qry::proc");
       err = true;
     }
+    class MyVisitor implements RowVisitor {
+      int vcnt = 0;
+      public boolean visit(RowView row, RowPatch patch){
+        vcnt += 1;
+        patch.put(1, row.getlong(0) + 1);
+        return true;
+      }
+    }
+    MyVisitor visitor = new MyVisitor();
+    if(!qry.proc(new RowSchema("icnt", "vcnt"), visitor, RND.nextInt(10) + 1) ||
+       visitor.vcnt != irnum){
+      eprint(tdb, "qry::proc");
+      err = true;
+    }
+    TDBQRY vqry = new TDBQRY(tdb);
+    vqry.addcond("vcnt", TDBQRY.QCNUMGT, "1");
+    if(vqry.count() != irnum){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    final TDB ptdb = tdb;
+    final boolean[] perrs = new boolean[2];
+    Thread[] pths = new Thread[perrs.length];
+    for(int i = 0; i < pths.length; i++){
+      final int pid = i;
+      pths[i] = new Thread(){
+          public void run(){
+            TDBQRY pqry = new TDBQRY(ptdb);
+            pqry.addcond("", TDBQRY.QCSTRBW, "i:");
+            pqry.setorder("", TDBQRY.QOSTRASC);
+            RowVisitor pvisitor = new RowVisitor(){
+                public boolean visit(RowView row, RowPatch patch){
+                  patch.put(0, pid);
+                  return true;
+                }
+              };
+            perrs[pid] = !pqry.proc(new RowSchema("p" + pid), pvisitor, 1);
+          }
+        };
+      pths[i].start();
+    }
+    for(int i = 0; i < pths.length; i++){
+      try {
+        pths[i].join();
+      } catch(InterruptedException e){
+        err = true;
+      }
+    }
+    TDBQRY xqry = new TDBQRY(tdb);
+    xqry.addcond("p0", TDBQRY.QCNUMEQ, "0");
+    xqry.addcond("p1", TDBQRY.QCNUMEQ, "1");
+    if(perrs[0] || perrs[1] || xqry.count() != irnum){
+      eprint(tdb, "qry::proc");
+      err = true;
+    }
     qry.addcond("icnt", TDBQRY.QCNUMGT, "0");
     TDBQRY[] qrys = { qry, qry };
     List mures = qry.metasearch(qrys, TDBQRY.MSUNION);
@@ -625,6 +685,44 @@ class TDBTest {
       eprint(tdb, "qry::metasearch");
       err = true;
     }
+    TDBQRY[] pothers = { vqry };
+    int[] mtypes = { TDBQRY.MSUNION, TDBQRY.MSISECT, TDBQRY.MSDIFF };
+    for(int i = 0; i < mtypes.length; i++){
+      List<String> nres = Util.objectsAsStrings(qry.metasearch(pothers, mtypes[i]));
+      List<String> pres = Util.objectsAsStrings(qry.metasearch(pothers, mtypes[i], null));
+      Collections.sort(nres);
+      Collections.sort(pres);
+      if(!nres.equals(pres)){
+        eprint(tdb, "qry::metasearch");
+        err = true;
+      }
+    }
+    vqry.setorder("", TDBQRY.QOSTRDESC);
+    vqry.setlimit(5, 2);
+    TDBQRY[] vothers = { qry };
+    List<String> nures = Util.objectsAsStrings(vqry.metasearch(vothers, TDBQRY.MSUNION));
+    List<String> pures =
+      Util.objectsAsStrings(vqry.metasearch(vothers, TDBQRY.MSUNION, null));
+    if(!nures.equals(pures)){
+      eprint(tdb, "qry::metasearch");
+      err = true;
+    }
+    List<String> vsres = Util.objectsAsStrings(vqry.search());
+    ExecutorService mexec = Executors.newFixedThreadPool(3);
+    TDBQRY[] dothers = { vqry, vqry };
+    for(int i = 0; i < 50; i++){
+      List<String> dres = Util.objectsAsStrings(vqry.metasearch(dothers, TDBQRY.MSUNION, mexec));
+      if(!dres.equals(vsres) || !Util.objectsAsStrings(vqry.search()).equals(vsres)){
+        eprint(tdb, "qry::metasearch");
+        err = true;
+        break;
+      }
+    }
+    mexec.shutdown();
+    if(!Util.objectsAsStrings(vqry.metasearch(dothers, TDBQRY.MSUNION, mexec)).equals(vsres)){
+      eprint(tdb, "qry::metasearch");
+      err = true;
+    }
     if(!qry.searchout()){
       eprint(tdb, "qry::searchout");
       err = true;
@@ -660,10 +758,615 @@ class TDBTest {
         break;
       }
     }
+    List rkeys = qry.search();
+    RowReader rows = qry.searchrows("text", "str");
+    if(rows.size() != rkeys.size()){
+      eprint(tdb, "qry::searchrows");
+      err = true;
+    }
+    it = rkeys.iterator();
+    while(rows.next()){
+      byte[] rkey = (byte[])it.next();
+      Map<String, byte[]> cols = tdb.get(rkey);
+      if(!Arrays.equals(rows.pkey(), rkey) || cols == null || rows.cols().size() != 2 ||
+         !Arrays.equals(rows.get("text"), cols.get("text")) ||
+         !rows.get2("str").equals(Util.otos(cols.get("str"))) || rows.get("num") != null){
+        eprint(tdb, "(validation)");
+        err = true;
+        break;
+      }
+    }
+    if(qry.count() != rkeys.size() || qry.count(10000) != rkeys.size() ||
+       qry.count(1) > tdb.rnum() ||
+       !Util.objectsAsStrings(qry.search()).equals(Util.objectsAsStrings(rkeys))){
+      eprint(tdb, "qry::count");
+      err = true;
+    }
+    PreparedQuery pqry = tdb.prepare("addcond text STRBW ?; setlimit ? 1");
+    TDBQRY nqry = new TDBQRY(tdb);
+    nqry.addcond("text", TDBQRY.QCSTRBW, "9");
+    nqry.setlimit(100, 1);
+    if(!Arrays.deepEquals(pqry.bind("1", 100).execute().toArray(), rkeys.toArray()) ||
+       pqry.bind(0, "9").executerows("str").size() != nqry.count()){
+      eprint(tdb, "prepqry::execute");
+      err = true;
+    }
+    TDBQRYCUR qcur = qry.cursor(RND.nextInt(10) + 1);
+    it = rkeys.iterator();
+    List<byte[]> ckeys;
+    while((ckeys = qcur.nextkeys()) != null && !err){
+      for(byte[] ckey : ckeys){
+        if(!Arrays.equals(ckey, (byte[])it.next())){
+          eprint(tdb, "qrycur::nextkeys");
+          err = true;
+          break;
+        }
+      }
+      if((rows = qcur.nextrows("str")) != null){
+        while(rows.next()){
+          if(!Arrays.equals(rows.pkey(), (byte[])it.next()) || rows.get("str") == null){
+            eprint(tdb, "qrycur::nextrows");
+            err = true;
+            break;
+          }
+        }
+      }
+    }
+    if(it.hasNext() || qcur.nextkeys() != null){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    qcur.close();
+    Object[][] cconds = {
+      { "str", TDBQRY.QCSTRBW, "12" }, { "num", TDBQRY.QCNUMLE, "100" },
+      { "num", TDBQRY.QCNUMBT, "200 50" }, { "type", TDBQRY.QCNUMEQ, "7" },
+      { "", TDBQRY.QCNUMGE, "900" }, { "flag", TDBQRY.QCSTROR, "1,2" },
+      { "text", TDBQRY.QCSTRINC, "3" }
+    };
+    for(int i = 0; i < cconds.length && !err; i++){
+      TDBQRY cqry = new TDBQRY(tdb);
+      cqry.addcond((String)cconds[i][0], (Integer)cconds[i][1], (String)cconds[i][2]);
+      cqry.addcond("type", TDBQRY.QCNUMLT, "20");
+      Set<String> skeys = new HashSet<String>(Util.objectsAsStrings(cqry.search()));
+      for(int j = 0; j < 2 && !err; j++){
+        TDBQRYCUR ccur = cqry.cursor(RND.nextInt(10) + 1);
+        List<String> fkeys = new ArrayList<String>();
+        List<byte[]> batch;
+        while((batch = ccur.nextkeys()) != null){
+          fkeys.addAll(Util.objectsAsStrings(batch));
+        }
+        ccur.close();
+        int snum = j < 1 ? skeys.size() : cqry.search().size();
+        if(fkeys.size() != snum || !skeys.containsAll(fkeys) ||
+           new HashSet<String>(fkeys).size() != snum || cqry.count() != snum){
+          eprint(tdb, "qrycur::nextkeys");
+          err = true;
+        }
+        cqry.setlimit(5, 2);
+      }
+    }
+    rows = qry.searchrows();
+    it = rkeys.iterator();
+    while(rows.next()){
+      if(!rows.pkey2().equals(Util.otos(it.next())) ||
+         !rows.cols2().equals(tdb.get(rows.pkey2()))){
+        eprint(tdb, "(validation)");
+        err = true;
+        break;
+      }
+    }
+    if(!tdb.vanish()){
+      eprint(tdb, "vanish");
+      err = true;
+    }
+    STDOUT.println("checking row writer:");
+    RowSchema schema = new RowSchema("str", "num", "type", "flag");
+    RowWriter row = new RowWriter(schema);
+    for(int i = 1; i <= rnum; i++){
+      String pkstr = "r:" + i;
+      String str = RND.nextInt(3) == 0 ? pkstr + "\u3042" : pkstr;
+      int num = RND.nextInt(i) - i / 2;
+      double type = RND.nextInt(32) / 4.0;
+      row.clear();
+      row.put("str", "dummy");
+      row.put("num", num);
+      row.put("type", type);
+      row.put("str", str);
+      if(RND.nextInt(2) == 0) row.put("flag", i);
+      if(RND.nextInt(5) == 0) row.remove(schema.index("flag"));
+      if(!tdb.put(pkstr, row)){
+        eprint(tdb, "put");
+        err = true;
+        break;
+      }
+      Map<String, String> cols = tdb.get(pkstr);
+      if(cols == null || cols.size() != (row.contains(schema.index("flag")) ? 4 : 3) ||
+         !str.equals(cols.get("str")) || Util.atoi(cols.get("num")) != num ||
+         Double.parseDouble(cols.get("type")) != type){
+        eprint(tdb, "(validation)");
+        err = true;
+        break;
+      }
+      if(rnum > 250 && i % (rnum / 250) == 0){
+        STDOUT.print('.');
+        if(i == rnum || i % (rnum / 10) == 0) STDOUT.println(" (" + Util.itoa(i, 8, '0') + ")");
+      }
+    }
+    row.clear();
+    row.put("str", "a\ud800b\udc00");
+    if(!tdb.put("r:lone", row) || !Arrays.equals(tdb.get("r:lone".getBytes()).get("str"),
+                                                  "a?b?".getBytes())){
+      eprint(tdb, "(surrogate)");
+      err = true;
+    }
     if(!tdb.vanish()){
       eprint(tdb, "vanish");
       err = true;
     }
+    STDOUT.println("checking query cache:");
+    tdb.setqrycache(1 << 20);
+    TDBQRY[] cqrys = new TDBQRY[3];
+    for(int i = 0; i < cqrys.length; i++){
+      cqrys[i] = new TDBQRY(tdb);
+    }
+    cqrys[0].addcond("kind", TDBQRY.QCSTREQ, "1");
+    cqrys[0].setorder("", TDBQRY.QOSTRASC);
+    cqrys[1].addcond("kind", TDBQRY.QCSTREQ | TDBQRY.QCNEGATE, "2");
+    cqrys[1].setlimit(10, 0);
+    cqrys[2].addcond("", TDBQRY.QCSTRBW, "q:1");
+    cqrys[2].addcond("_num", TDBQRY.QCNUMGT, "0");
+    TDBQRY[] nothers = new TDBQRY[0];
+    for(int i = 1; i <= rnum; i++){
+      String pkstr = "q:" + (RND.nextInt(rnum / 4 + 1) + 1);
+      switch(RND.nextInt(5)){
+        case 0: {
+          Map<String, String> cols = new HashMap<String, String>();
+          cols.put("kind", String.valueOf(RND.nextInt(4)));
+          if(!tdb.put(pkstr, cols)){
+            eprint(tdb, "put");
+            err = true;
+          }
+          break;
+        }
+        case 1: {
+          Map<String, String> cols = new HashMap<String, String>();
+          cols.put("kind", String.valueOf(RND.nextInt(4)));
+          if(!tdb.putcat(pkstr, cols)){
+            eprint(tdb, "putcat");
+            err = true;
+          }
+          break;
+        }
+        case 2: {
+          if(!tdb.out(pkstr) && tdb.ecode() != TDB.ENOREC){
+            eprint(tdb, "out");
+            err = true;
+          }
+          break;
+        }
+        case 3: {
+          if(tdb.addint(pkstr, RND.nextInt(3) - 1) == Integer.MIN_VALUE){
+            eprint(tdb, "addint");
+            err = true;
+          }
+          break;
+        }
+        default: {
+          for(int j = 0; j < cqrys.length; j++){
+            List<String> res = Util.objectsAsStrings(cqrys[j].search());
+            List<String> ores =
+              Util.objectsAsStrings(cqrys[j].metasearch(nothers, TDBQRY.MSUNION));
+            if(j == 2){
+              Collections.sort(res);
+              Collections.sort(ores);
+            }
+            if(!res.equals(ores) || cqrys[j].count() != ores.size()){
+              eprint(tdb, "(validation)");
+              err = true;
+            }
+          }
+          break;
+        }
+      }
+      if(err) break;
+      if(rnum > 250 && i % (rnum / 250) == 0){
+        STDOUT.print('.');
+        if(i == rnum || i % (rnum / 10) == 0) STDOUT.println(" (" + Util.itoa(i, 8, '0') + ")");
+      }
+    }
+    tdb.setqrycache(0);
+    STDOUT.println("checking index advisor:");
+    IndexAdvisor adv = new IndexAdvisor(1);
+    tdb.setadvisor(adv);
+    TDBQRY aqry = new TDBQRY(tdb);
+    aqry.addcond("kind", TDBQRY.QCSTREQ, "1");
+    aqry.addcond("_num", TDBQRY.QCNUMGT, "0");
+    aqry.search();
+    aqry.count();
+    List<IndexAdvisor.Advice> advices = adv.advise(-1);
+    if(adv.snum() != 2 || advices.size() != 2){
+      eprint(tdb, "advise");
+      err = true;
+    }
+    if(adv.apply(tdb, 0) != 2 || !adv.advise(-1).isEmpty()){
+      eprint(tdb, "apply");
+      err = true;
+    }
+    aqry.search();
+    if(aqry.hint().indexOf("using an index") < 0 || !adv.advise(-1).isEmpty()){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    aqry = new TDBQRY(tdb);
+    aqry.addcond("xnum", TDBQRY.QCNUMEQ, "1");
+    aqry.search();
+    if(adv.advise(-1).size() != 1 || !tdb.setindex("xnum", TDB.ITLEXICAL) ||
+       adv.apply(tdb, 0) != 0 || tdb.indexes().get("xnum") != TDB.ITLEXICAL ||
+       !tdb.setindex("xnum", TDB.ITVOID)){
+      eprint(tdb, "apply");
+      err = true;
+    }
+    tdb.setadvisor(null);
+    if(!tdb.setindex("kind", TDB.ITVOID) || !tdb.setindex("_num", TDB.ITVOID)){
+      eprint(tdb, "setindex");
+      err = true;
+    }
+    if(!tdb.vanish()){
+      eprint(tdb, "vanish");
+      err = true;
+    }
+    STDOUT.println("checking bulk load:");
+    Map<String, Integer> oidxs = tdb.indexes();
+    final RowSchema bschema = new RowSchema("str", "text");
+    final int brnum = rnum;
+    final TDB btdb = tdb;
+    final File bfile = new File(path + ".bulkidx");
+    final boolean[] berr = new boolean[1];
+    Iterator<RowWriter> brows = new Iterator<RowWriter>(){
+        private RowWriter row = new RowWriter(bschema);
+        private int cnt = 0;
+        public boolean hasNext(){
+          return cnt < brnum;
+        }
+        public RowWriter next(){
+          if(cnt == 0 && (!bfile.exists() || !btdb.indexes().isEmpty())) berr[0] = true;
+          cnt++;
+          row.clear().setpkey("b:" + cnt);
+          row.put(0, "b:" + cnt % 10);
+          row.put(1, "bulk " + cnt);
+          return row;
+        }
+        public void remove(){
+          throw new UnsupportedOperationException();
+        }
+      };
+    if(!tdb.bulkload(brows, 100, 1 << 20)){
+      eprint(tdb, "bulkload");
+      err = true;
+    }
+    TDBQRY bqry = new TDBQRY(tdb);
+    bqry.addcond("str", TDBQRY.QCSTREQ, "b:1");
+    if(tdb.rnum() != rnum || !tdb.indexes().equals(oidxs) || bqry.count() != (rnum + 9) / 10 ||
+       bqry.hint().indexOf("using an index") < 0 || berr[0] || bfile.exists() ||
+       !tdb.bulkrestore(0)){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    Stats tstats = tdb.stats();
+    if(tstats.get("rnum") != rnum || tstats.get("inum") != oidxs.size() ||
+       tstats.get("idx.str.rnum") != rnum || tstats.get("idx.str.type") != TDB.ITLEXICAL ||
+       tstats.get("fsiz") <= tstats.get("hdb.fsiz") || tstats.get("hdb.bnumused") < 1){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    if(!tdb.vanish()){
+      eprint(tdb, "vanish");
+      err = true;
+    }
+    STDOUT.println("checking sharded database:");
+    ShardedTDB stdb = new ShardedTDB(3);
+    String spath = path + "-s";
+    if(!stdb.open(spath, TDB.OWRITER | TDB.OCREAT | TDB.OTRUNC | omode)){
+      eprint(tdb, "sharded::open");
+      err = true;
+    }
+    if(!stdb.setindex("num", TDB.ITDECIMAL)){
+      eprint(tdb, "sharded::setindex");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      Map<String, String> cols = new HashMap<String, String>();
+      cols.put("num", String.valueOf(RND.nextInt(rnum)));
+      cols.put("kind", String.valueOf(i % 3));
+      if(!stdb.put("s:" + i, cols) || !tdb.put("s:" + i, cols)){
+        eprint(tdb, "sharded::put");
+        err = true;
+        break;
+      }
+    }
+    if(stdb.rnum() != rnum || !tdb.get("s:1").equals(stdb.get("s:1"))){
+      eprint(tdb, "(validation)");
+      err = true;
+    }
+    int[] sotypes = { TDBQRY.QONUMASC, TDBQRY.QONUMDESC, TDBQRY.QOSTRASC, TDBQRY.QOSTRDESC };
+    for(int i = 0; i < sotypes.length; i++){
+      ShardedQuery sqry = new ShardedQuery(stdb);
+      TDBQRY tqry = new TDBQRY(tdb);
+      sqry.addcond("kind", TDBQRY.QCSTREQ, "1");
+      tqry.addcond("kind", TDBQRY.QCSTREQ, "1");
+      String oname = i < 2 ? "num" : "";
+      sqry.setorder(oname, sotypes[i]);
+      tqry.setorder(oname, sotypes[i]);
+      sqry.setlimit(rnum / 10, i);
+      tqry.setlimit(rnum / 10, i);
+      List<String> sres = Util.objectsAsStrings(sqry.search());
+      List<String> tres = Util.objectsAsStrings(tqry.search());
+      if(i < 2){
+        List<String> svals = new ArrayList<String>();
+        for(String pk : sres){
+          svals.add(stdb.get(pk).get("num"));
+        }
+        sres = svals;
+        List<String> tvals = new ArrayList<String>();
+        for(String pk : tres){
+          tvals.add(tdb.get(pk).get("num"));
+        }
+        tres = tvals;
+      }
+      if(!sres.equals(tres) || sqry.count() != tqry.count()){
+        eprint(tdb, "sharded::search");
+        err = true;
+      }
+    }
+    ShardedQuery soqry = new ShardedQuery(stdb);
+    soqry.addcond("kind", TDBQRY.QCSTREQ, "0");
+    if(!soqry.searchout() || soqry.count() != 0 || stdb.rnum() != rnum - rnum / 3){
+      eprint(tdb, "sharded::searchout");
+      err = true;
+    }
+    final ShardedTDB rstdb = stdb;
+    final boolean[] rerr = new boolean[1];
+    Thread rth = new Thread(){
+        public void run(){
+          try {
+            for(int i = 0; i < 100; i++){
+              ShardedQuery rqry = new ShardedQuery(rstdb);
+              rqry.addcond("kind", TDBQRY.QCSTREQ, "1");
+              rqry.count();
+            }
+          } catch(RuntimeException e){
+            rerr[0] = true;
+          }
+        }
+      };
+    rth.start();
+    if(!stdb.close()){
+      eprint(tdb, "sharded::close");
+      err = true;
+    }
+    try {
+      rth.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    if(rerr[0]){
+      eprint(tdb, "sharded::close (race)");
+      err = true;
+    }
+    stdb.close();
+    if(!HDBTest.threadsgone("ShardedTDB")){
+      eprint(tdb, "sharded::close (threads)");
+      err = true;
+    }
+    for(int i = 0; i < stdb.snum(); i++){
+      String sfile = spath + "-" + i;
+      File sdir = new File(new File(sfile).getAbsoluteFile().getParent());
+      String[] schildren = sdir.list();
+      for(int j = 0; j < schildren.length; j++){
+        if(schildren[j].startsWith(new File(sfile).getName() + ".idx.")){
+          new File(sdir, schildren[j]).delete();
+        }
+      }
+      new File(sfile).delete();
+    }
+    if(!tdb.vanish()){
+      eprint(tdb, "vanish");
+      err = true;
+    }
+    STDOUT.println("checking online rebuild:");
+    String orpath = path + "-r";
+    final OnlineTDB otdb = new OnlineTDB();
+    if(!otdb.open(orpath, TDB.OWRITER | TDB.OCREAT | TDB.OTRUNC | omode)){
+      eprint(otdb, "open");
+      err = true;
+    }
+    if(!otdb.setindex("str", TDB.ITLEXICAL)){
+      eprint(otdb, "setindex");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      Map<String, String> cols = new HashMap<String, String>();
+      cols.put("str", buf);
+      cols.put("pad", buf + buf + buf + buf + buf + buf + buf + buf);
+      otdb.put(buf, cols);
+    }
+    for(int i = 1; i <= rnum; i += 2){
+      otdb.out(Util.itoa(i, 8, '0'));
+    }
+    long rbuid = otdb.genuid();
+    long rbfsiz = otdb.fsiz();
+    final int rbrnum = rnum;
+    Thread writer = new Thread(){
+        public void run(){
+          for(int i = 1; i <= rbrnum; i++){
+            String buf = Util.itoa(i, 8, '0');
+            if(i % 4 == 0){
+              otdb.out(buf);
+            } else if(i % 2 == 0){
+              Map<String, String> cols = new HashMap<String, String>();
+              cols.put("str", "w:" + buf);
+              cols.put("pad", buf + buf + buf + buf + buf + buf + buf + buf);
+              otdb.put(buf, cols);
+            }
+          }
+        }
+      };
+    writer.start();
+    if(!otdb.rebuild()){
+      eprint(otdb, "rebuild");
+      err = true;
+    }
+    try {
+      writer.join();
+    } catch(InterruptedException e){
+      err = true;
+    }
+    int rbnum = rnum / 4 + rnum % 4 / 2;
+    TDBQRY rbqry = new TDBQRY(otdb);
+    rbqry.addcond("str", TDBQRY.QCSTRBW, "w:");
+    if(otdb.rnum() != rbnum || otdb.fsiz() >= rbfsiz || otdb.genuid() <= rbuid ||
+       !otdb.indexes().containsKey("str") || rbqry.count() != rbnum ||
+       rbqry.hint().indexOf("using an index") < 0){
+      eprint(otdb, "(validation)");
+      err = true;
+    }
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      Map<String, String> cols = otdb.get(buf);
+      boolean ok;
+      if(i % 4 == 0 || i % 2 == 1){
+        ok = cols == null;
+      } else {
+        ok = cols != null && cols.get("str").equals("w:" + buf) && cols.get("pad").length() == 64;
+      }
+      if(!ok){
+        eprint(otdb, "get");
+        err = true;
+        break;
+      }
+    }
+    if(!otdb.close()){
+      eprint(otdb, "close");
+      err = true;
+    }
+    File rbdir = new File(new File(orpath).getAbsoluteFile().getParent());
+    String[] rbchildren = rbdir.list();
+    for(int i = 0; i < rbchildren.length; i++){
+      if(rbchildren[i].startsWith(new File(orpath).getName() + ".idx.")){
+        new File(rbdir, rbchildren[i]).delete();
+      }
+    }
+    new File(orpath).delete();
+    STDOUT.println("checking change log:");
+    String clpath = path + "-l";
+    String clrpath = path + "-b";
+    new File(clpath).delete();
+    ChangeLog log = new ChangeLog(64, 0);
+    if(!log.open(clpath)){
+      eprint(tdb, "(log open)");
+      err = true;
+    }
+    LoggedTDB ltdb = new LoggedTDB(log);
+    if(!ltdb.open(orpath, TDB.OWRITER | TDB.OCREAT | TDB.OTRUNC | omode)){
+      eprint(ltdb, "open");
+      err = true;
+    }
+    if(!ltdb.setindex("str", TDB.ITLEXICAL)){
+      eprint(ltdb, "setindex");
+      err = true;
+    }
+    RowSchema clschema = new RowSchema("str", "num");
+    RowWriter clrow = new RowWriter(clschema);
+    for(int i = 1; i <= rnum; i++){
+      String buf = Util.itoa(i, 8, '0');
+      if(i % 2 == 0){
+        Map<String, String> cols = new HashMap<String, String>();
+        cols.put("str", buf);
+        cols.put("num", String.valueOf(i));
+        ltdb.put(buf, cols);
+      } else {
+        clrow.clear();
+        clrow.put("str", buf);
+        clrow.put("num", i);
+        ltdb.put(buf, clrow);
+      }
+      if(i % 3 == 0){
+        Map<String, String> cols = new HashMap<String, String>();
+        cols.put("cat", buf);
+        ltdb.putcat(buf, cols);
+      }
+      if(i % 7 == 0) ltdb.addint(buf, i);
+    }
+    ltdb.genuid();
+    TDBQRY clqry = new TDBQRY(ltdb);
+    clqry.addcond("num", TDBQRY.QCNUMLT, String.valueOf(rnum / 4));
+    if(!clqry.searchout()){
+      eprint(ltdb, "searchout");
+      err = true;
+    }
+    clqry = new TDBQRY(ltdb);
+    clqry.addcond("num", TDBQRY.QCNUMGT, String.valueOf(rnum / 4 * 3));
+    if(!clqry.proc(new TDBQRYPROC(){
+        public int proc(byte[] pkey, Map<String, byte[]> cols){
+          cols.put("flag", "on".getBytes());
+          return TDBQRYPROC.QPPUT;
+        }
+      })){
+      eprint(ltdb, "proc");
+      err = true;
+    }
+    if(!log.sync()){
+      eprint(ltdb, "(log sync)");
+      err = true;
+    }
+    TDB rtdb = new TDB();
+    if(!rtdb.open(clrpath, TDB.OWRITER | TDB.OCREAT | TDB.OTRUNC | omode)){
+      eprint(rtdb, "open");
+      err = true;
+    }
+    Replica replica = new Replica(clpath, rtdb, 0);
+    if(replica.apply() < 0 || replica.seq() != log.seq()){
+      eprint(rtdb, "(apply) " + replica.errmsg());
+      err = true;
+    }
+    if(rtdb.rnum() != ltdb.rnum() || !rtdb.indexes().containsKey("str") ||
+       rtdb.genuid() != ltdb.genuid()){
+      eprint(rtdb, "(validation)");
+      err = true;
+    }
+    ltdb.iterinit();
+    String clkey;
+    while((clkey = ltdb.iternext2()) != null){
+      if(!ltdb.get(clkey).equals(rtdb.get(clkey))){
+        eprint(rtdb, "get");
+        err = true;
+        break;
+      }
+    }
+    replica.close();
+    if(!rtdb.close()){
+      eprint(rtdb, "close");
+      err = true;
+    }
+    if(!ltdb.close()){
+      eprint(ltdb, "close");
+      err = true;
+    }
+    if(!log.close()){
+      eprint(tdb, "(log close)");
+      err = true;
+    }
+    String[] clchildren = rbdir.list();
+    for(int i = 0; i < clchildren.length; i++){
+      if(clchildren[i].startsWith(new File(orpath).getName() + ".idx.") ||
+         clchildren[i].startsWith(new File(clrpath).getName() + ".idx.")){
+        new File(rbdir, clchildren[i]).delete();
+      }
+    }
+    new File(clrpath).delete();
+    new File(clpath).delete();
+    new File(orpath).delete();
     STDOUT.println("checking transaction commit:");
     if(!tdb.tranbegin()){
       eprint(tdb, "tranbegin");
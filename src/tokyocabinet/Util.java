@@ -291,6 +291,126 @@ public class Util {
     }
     return ary;
   }
+  /**
+   * Encode a string in UTF-8.
+   */
+  static byte[] utf8(String str){
+    try {
+      return str.getBytes("UTF-8");
+    } catch(UnsupportedEncodingException e){
+      throw new RuntimeException(e);
+    }
+  }
+  /**
+   * Compare two byte arrays in the lexical order of unsigned bytes.
+   */
+  static int cmpbytes(byte[] a, byte[] b){
+    int min = Math.min(a.length, b.length);
+    for(int i = 0; i < min; i++){
+      int ac = a[i] & 0xff;
+      int bc = b[i] & 0xff;
+      if(ac != bc) return ac - bc;
+    }
+    return a.length - b.length;
+  }
+  /**
+   * Get the size of a variable length number.
+   */
+  static int vnumsiz(int num){
+    int size = 1;
+    while(num > 0x7f){
+      num >>>= 7;
+      size++;
+    }
+    return size;
+  }
+  /**
+   * Write a variable length number in the format of the native library.
+   * @return the size of the written region.
+   */
+  static int setvnum(byte[] buf, int off, int num){
+    int wp = off;
+    do {
+      int rem = num & 0x7f;
+      num >>>= 7;
+      buf[wp++] = (byte)(num > 0 ? -rem - 1 : rem);
+    } while(num > 0);
+    return wp - off;
+  }
+  /**
+   * Read a variable length number in the format of the native library.
+   * @param buf the buffer.
+   * @param rp a single element array of the reading position, which is advanced past the number.
+   * @return the number.
+   */
+  static int readvnum(byte[] buf, int[] rp){
+    int num = 0;
+    int base = 1;
+    while(true){
+      int c = buf[rp[0]++];
+      if(c >= 0){
+        num += c * base;
+        break;
+      }
+      num += base * (-c - 1);
+      base <<= 7;
+    }
+    return num;
+  }
+  /**
+   * Begin the transaction of a hash, B+ tree, fixed-length, table, or abstract database
+   * object.
+   */
+  static boolean tranbegin(Object db){
+    if(db instanceof HDB) return ((HDB)db).tranbegin();
+    if(db instanceof BDB) return ((BDB)db).tranbegin();
+    if(db instanceof FDB) return ((FDB)db).tranbegin();
+    if(db instanceof ADB) return ((ADB)db).tranbegin();
+    return ((TDB)db).tranbegin();
+  }
+  /**
+   * Commit the transaction of a hash, B+ tree, fixed-length, table, or abstract database
+   * object.
+   */
+  static boolean trancommit(Object db){
+    if(db instanceof HDB) return ((HDB)db).trancommit();
+    if(db instanceof BDB) return ((BDB)db).trancommit();
+    if(db instanceof FDB) return ((FDB)db).trancommit();
+    if(db instanceof ADB) return ((ADB)db).trancommit();
+    return ((TDB)db).trancommit();
+  }
+  /**
+   * Abort the transaction of a hash, B+ tree, fixed-length, table, or abstract database
+   * object.
+   */
+  static boolean tranabort(Object db){
+    if(db instanceof HDB) return ((HDB)db).tranabort();
+    if(db instanceof BDB) return ((BDB)db).tranabort();
+    if(db instanceof FDB) return ((FDB)db).tranabort();
+    if(db instanceof ADB) return ((ADB)db).tranabort();
+    return ((TDB)db).tranabort();
+  }
+  /**
+   * Get the opaque region of a hash, B+ tree, fixed-length, table, or abstract database object.
+   */
+  static byte[] opaque(Object db){
+    if(db instanceof HDB) return ((HDB)db).opaque();
+    if(db instanceof BDB) return ((BDB)db).opaque();
+    if(db instanceof FDB) return ((FDB)db).opaque();
+    if(db instanceof ADB) return ((ADB)db).opaque();
+    return ((TDB)db).opaque();
+  }
+  /**
+   * Overwrite the head of the opaque region of a hash, B+ tree, fixed-length, table, or abstract
+   * database object.
+   */
+  static boolean setopaque(Object db, byte[] buf){
+    if(db instanceof HDB) return ((HDB)db).setopaque(buf);
+    if(db instanceof BDB) return ((BDB)db).setopaque(buf);
+    if(db instanceof FDB) return ((FDB)db).setopaque(buf);
+    if(db instanceof ADB) return ((ADB)db).setopaque(buf);
+    return ((TDB)db).setopaque(buf);
+  }
   //----------------------------------------------------------------
   // constructors and finalizers
   //----------------------------------------------------------------
@@ -0,0 +1,506 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+package tokyocabinet;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.io.*;
+import java.net.*;
+
+
+
+/**
+ * Write-behind buffer is an asynchronous writer in front of a hash database, a B+ tree
+ * database, or a table database.  Stored and removed records are kept in a buffer and written
+ * into the database by a background thread in a transaction, when the number of buffered
+ * records reaches the batch size or when the delay has passed since the first buffered
+ * record.  Writes to the same key are coalesced in the buffer.  Retrieval through this object
+ * reads the buffer first, so that every write is visible to the writer immediately.
+ * @note Writes are durable only after they are committed.  If a transaction fails, it is
+ * aborted and the writes in it are discarded.
+ */
+public class WriteBehind {
+  //----------------------------------------------------------------
+  // private constants
+  //----------------------------------------------------------------
+  /** mark of a removed record */
+  private static final Object REMOVED = new Object();
+  //----------------------------------------------------------------
+  // private fields
+  //----------------------------------------------------------------
+  /** database object */
+  private Object db;
+  /** maximum number of buffered records */
+  private int capacity;
+  /** number of records triggering a flush */
+  private int batch;
+  /** delay in milliseconds triggering a flush */
+  private long delay;
+  /** lock of the buffer */
+  private ReentrantLock lock;
+  /** condition signaled when records are buffered or a flush is requested */
+  private Condition notempty;
+  /** condition signaled when the buffer has room or a batch is committed */
+  private Condition changed;
+  /** buffered records */
+  private LinkedHashMap<CachedDBM.Key, Object> pending;
+  /** records being written */
+  private LinkedHashMap<CachedDBM.Key, Object> flushing;
+  /** time when the first record was buffered */
+  private long since;
+  /** sequence number of the last buffered write */
+  private long seq;
+  /** sequence number of the last committed write */
+  private long done;
+  /** whether a flush is requested */
+  private boolean flushreq;
+  /** whether the buffer is closed */
+  private boolean closed;
+  /** flushes waiting for completion */
+  private List<Flush> waiters;
+  /** background thread */
+  private Thread flusher;
+  /** number of committed batches */
+  private AtomicLong bnum;
+  /** number of failed batches */
+  private AtomicLong errnum;
+  //----------------------------------------------------------------
+  // constructors and finalizers
+  //----------------------------------------------------------------
+  /**
+   * Create a write-behind buffer in front of a hash database.
+   * @param hdb the hash database object, which should be opened as a writer.
+   * @param capacity the maximum number of buffered records, including the records being
+   * written.  Writers are blocked while the buffer is full.
+   * @param batch the number of buffered records which triggers a flush.
+   * @param delay the delay in milliseconds after which buffered records are flushed.
+   */
+  public WriteBehind(HDB hdb, int capacity, int batch, long delay){
+    this((Object)hdb, capacity, batch, delay);
+  }
+  /**
+   * Create a write-behind buffer in front of a B+ tree database.
+   * @see #WriteBehind(HDB, int, int, long)
+   */
+  public WriteBehind(BDB bdb, int capacity, int batch, long delay){
+    this((Object)bdb, capacity, batch, delay);
+  }
+  /**
+   * Create a write-behind buffer in front of a table database.
+   * @see #WriteBehind(HDB, int, int, long)
+   */
+  public WriteBehind(TDB tdb, int capacity, int batch, long delay){
+    this((Object)tdb, capacity, batch, delay);
+  }
+  /**
+   * Create a write-behind buffer.
+   */
+  private WriteBehind(Object db, int capacity, int batch, long delay){
+    if(capacity < 1) throw new IllegalArgumentException("illegal capacity: " + capacity);
+    this.db = db;
+    this.capacity = capacity;
+    this.batch = Math.max(Math.min(batch, capacity), 1);
+    this.delay = Math.max(delay, 0);
+    lock = new ReentrantLock();
+    notempty = lock.newCondition();
+    changed = lock.newCondition();
+    pending = new LinkedHashMap<CachedDBM.Key, Object>();
+    flushing = null;
+    since = 0;
+    seq = 0;
+    done = 0;
+    flushreq = false;
+    closed = false;
+    waiters = new ArrayList<Flush>();
+    bnum = new AtomicLong();
+    errnum = new AtomicLong();
+    flusher = new Thread("WriteBehind"){
+        public void run(){
+          work();
+        }
+      };
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+  //----------------------------------------------------------------
+  // public methods
+  //----------------------------------------------------------------
+  /**
+   * Store a record of a hash database or a B+ tree database.
+   * @param key the key.
+   * @param value the value.
+   * @note If the buffer is full, this method blocks until it has room.
+   */
+  public void put(byte[] key, byte[] value){
+    if(db instanceof TDB) throw new IllegalArgumentException("table database");
+    buffer(key, value.clone());
+  }
+  /**
+   * Store a record of a hash database or a B+ tree database.
+   * The same as `put(key.getBytes(), value.getBytes())'.
+   * @see #put(byte[], byte[])
+   */
+  public void put(String key, String value){
+    put(key.getBytes(), value.getBytes());
+  }
+  /**
+   * Store a record of a table database.
+   * @param pkey the primary key.
+   * @param cols a map object containing columns.
+   * @note If the buffer is full, this method blocks until it has room.
+   */
+  public void put(byte[] pkey, Map cols){
+    if(!(db instanceof TDB)) throw new IllegalArgumentException("not a table database");
+    Map<String, byte[]> ncols = new HashMap<String, byte[]>(cols.size() * 2 + 1);
+    Iterator it = cols.entrySet().iterator();
+    while(it.hasNext()){
+      Map.Entry ent = (Map.Entry)it.next();
+      Object val = ent.getValue();
+      ncols.put(Util.otos(ent.getKey()),
+                val instanceof byte[] ? ((byte[])val).clone() : Util.otos(val).getBytes());
+    }
+    buffer(pkey, ncols);
+  }
+  /**
+   * Store a record of a table database.
+   * The same as `put(pkey.getBytes(), cols)'.
+   * @see #put(byte[], Map)
+   */
+  public void put(String pkey, Map cols){
+    put(pkey.getBytes(), cols);
+  }
+  /**
+   * Remove a record.
+   * @param key the key.
+   * @note If the buffer is full, this method blocks until it has room.
+   */
+  public void out(byte[] key){
+    buffer(key, REMOVED);
+  }
+  /**
+   * Remove a record.
+   * The same as `out(key.getBytes())'.
+   * @see #out(byte[])
+   */
+  public void out(String key){
+    out(key.getBytes());
+  }
+  /**
+   * Retrieve a record of a hash database or a B+ tree database.
+   * @param key the key.
+   * @return If successful, it is the value of the corresponding record.  `null' is returned if
+   * no record corresponds.
+   * @note The buffered writes are reflected to the result.
+   */
+  public byte[] get(byte[] key){
+    if(db instanceof TDB) throw new IllegalArgumentException("table database");
+    Object value = lookup(key);
+    if(value == REMOVED) return null;
+    if(value != null) return ((byte[])value).clone();
+    return db instanceof HDB ? ((HDB)db).get(key) : ((BDB)db).get(key);
+  }
+  /**
+   * Retrieve a record of a hash database or a B+ tree database.
+   * The same as `new String(get(key.getBytes()), "UTF-8")'.
+   * @see #get(byte[])
+   */
+  public String get(String key){
+    byte[] value = get(key.getBytes());
+    return value != null ? Util.otos(value) : null;
+  }
+  /**
+   * Retrieve a record of a table database.
+   * @param pkey the primary key.
+   * @return If successful, it is a map object of the columns of the corresponding record.
+   * `null' is returned if no record corresponds.
+   * @note The buffered writes are reflected to the result.
+   */
+  public Map<String, byte[]> getcols(byte[] pkey){
+    if(!(db instanceof TDB)) throw new IllegalArgumentException("not a table database");
+    Object value = lookup(pkey);
+    if(value == REMOVED) return null;
+    if(value != null){
+      Map<String, byte[]> cols = new HashMap<String, byte[]>();
+      Iterator it = ((Map)value).entrySet().iterator();
+      while(it.hasNext()){
+        Map.Entry ent = (Map.Entry)it.next();
+        cols.put((String)ent.getKey(), ((byte[])ent.getValue()).clone());
+      }
+      return cols;
+    }
+    return ((TDB)db).get(pkey);
+  }
+  /**
+   * Flush the buffered writes.
+   * @return a future object whose result is true when every write buffered before the call has
+   * been committed successfully, or false if any transaction failed.
+   */
+  public Future<Boolean> flush(){
+    lock.lock();
+    try {
+      Flush flush = new Flush(seq);
+      if(done >= seq){
+        flush.finish(true);
+      } else {
+        waiters.add(flush);
+        flushreq = true;
+        notempty.signalAll();
+      }
+      return flush;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Flush the buffered writes and stop the background thread.
+   * @return If every buffered write is committed successfully, it is true, else, it is false.
+   * @note The database object is not closed.  The buffer can not be used after it is closed.
+   */
+  public boolean close(){
+    Future<Boolean> flush = flush();
+    lock.lock();
+    try {
+      closed = true;
+      notempty.signalAll();
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      flusher.join();
+      return flush.get();
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted");
+    } catch(ExecutionException e){
+      throw new IllegalStateException(e.getCause().toString());
+    }
+  }
+  /**
+   * Get the number of buffered records.
+   * @return the number of records not committed yet.
+   */
+  public int size(){
+    lock.lock();
+    try {
+      return pending.size() + (flushing != null ? flushing.size() : 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Get the number of committed batches.
+   * @return the number of transactions committed since the object was created.
+   */
+  public long bnum(){
+    return bnum.get();
+  }
+  /**
+   * Get the number of failed batches.
+   * @return the number of transactions aborted since the object was created.
+   */
+  public long errnum(){
+    return errnum.get();
+  }
+  //----------------------------------------------------------------
+  // private methods
+  //----------------------------------------------------------------
+  /**
+   * Add a write into the buffer.
+   */
+  private void buffer(byte[] key, Object value){
+    CachedDBM.Key bkey = new CachedDBM.Key(key.clone());
+    lock.lock();
+    try {
+      while(!closed && pending.size() + (flushing != null ? flushing.size() : 0) >= capacity &&
+            !pending.containsKey(bkey)){
+        changed.await();
+      }
+      if(closed) throw new IllegalStateException("closed");
+      if(pending.isEmpty()) since = System.currentTimeMillis();
+      pending.put(bkey, value);
+      seq++;
+      if(pending.size() >= batch || pending.size() == 1) notempty.signalAll();
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted");
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Look up a buffered write.
+   * @return the buffered value, `REMOVED', or `null' if the key is not buffered.
+   */
+  private Object lookup(byte[] key){
+    CachedDBM.Key bkey = new CachedDBM.Key(key);
+    lock.lock();
+    try {
+      Object value = pending.get(bkey);
+      if(value == null && flushing != null) value = flushing.get(bkey);
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Write buffered records in the background until the buffer is closed.
+   */
+  private void work(){
+    lock.lock();
+    try {
+      while(true){
+        if(pending.isEmpty()){
+          if(closed) break;
+          if(flushreq){
+            flushreq = false;
+            finish(true);
+            continue;
+          }
+          notempty.awaitUninterruptibly();
+          continue;
+        }
+        long wait = since + delay - System.currentTimeMillis();
+        if(!closed && !flushreq && pending.size() < batch && wait > 0){
+          notempty.await(wait, TimeUnit.MILLISECONDS);
+          continue;
+        }
+        flushing = pending;
+        pending = new LinkedHashMap<CachedDBM.Key, Object>();
+        long target = seq;
+        flushreq = false;
+        changed.signalAll();
+        lock.unlock();
+        boolean ok;
+        try {
+          ok = write(flushing);
+        } finally {
+          lock.lock();
+        }
+        flushing = null;
+        done = target;
+        finish(ok);
+        changed.signalAll();
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+  /**
+   * Write records in a transaction.
+   */
+  private boolean write(Map<CachedDBM.Key, Object> recs){
+    if(!Util.tranbegin(db)){
+      errnum.incrementAndGet();
+      return false;
+    }
+    boolean err = false;
+    for(Map.Entry<CachedDBM.Key, Object> rec : recs.entrySet()){
+      byte[] key = rec.getKey().buf;
+      Object value = rec.getValue();
+      if(value == REMOVED){
+        if(db instanceof HDB){
+          ((HDB)db).out(key);
+        } else if(db instanceof BDB){
+          ((BDB)db).out(key);
+        } else {
+          ((TDB)db).out(key);
+        }
+      } else if(db instanceof HDB){
+        if(!((HDB)db).put(key, (byte[])value)) err = true;
+      } else if(db instanceof BDB){
+        if(!((BDB)db).put(key, (byte[])value)) err = true;
+      } else {
+        if(!((TDB)db).put(key, (Map)value)) err = true;
+      }
+      if(err) break;
+    }
+    if(err || !Util.trancommit(db)){
+      Util.tranabort(db);
+      errnum.incrementAndGet();
+      return false;
+    }
+    bnum.incrementAndGet();
+    return true;
+  }
+  /**
+   * Complete the flushes of which the writes are committed.
+   * @note The caller must hold the lock.
+   */
+  private void finish(boolean ok){
+    Iterator<Flush> it = waiters.iterator();
+    while(it.hasNext()){
+      Flush flush = it.next();
+      if(!ok) flush.ok = false;
+      if(flush.target <= done){
+        flush.finish(flush.ok);
+        it.remove();
+      }
+    }
+  }
+  //----------------------------------------------------------------
+  // private classes
+  //----------------------------------------------------------------
+  /**
+   * Future of a flush.
+   */
+  private static class Flush implements Future<Boolean> {
+    /** sequence number of the last write to be committed */
+    long target;
+    /** whether every transaction has succeeded so far */
+    boolean ok;
+    /** latch released on completion */
+    CountDownLatch latch;
+    /** result */
+    volatile boolean result;
+    Flush(long target){
+      this.target = target;
+      this.ok = true;
+      this.latch = new CountDownLatch(1);
+    }
+    void finish(boolean result){
+      this.result = result;
+      latch.countDown();
+    }
+    public boolean cancel(boolean interrupt){
+      return false;
+    }
+    public boolean isCancelled(){
+      return false;
+    }
+    public boolean isDone(){
+      return latch.getCount() == 0;
+    }
+    public Boolean get() throws InterruptedException {
+      latch.await();
+      return result;
+    }
+    public Boolean get(long timeout, TimeUnit unit)
+      throws InterruptedException, TimeoutException {
+      if(!latch.await(timeout, unit)) throw new TimeoutException();
+      return result;
+    }
+  }
+}
+
+
+
+/* END OF FILE */
@@ -49,8 +49,8 @@ JNIEXPORT void JNICALL Java_tokyocabinet_ADB_init
 }
 
 
-/* open */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_open
+/* openimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_openimpl
 (JNIEnv *env, jobject self, jstring name){
   if(!name){
     throwillarg(env);
@@ -69,16 +69,24 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_open
 }
 
 
-/* close */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_close
+/* setskelmultiimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_setskelmultiimpl
+(JNIEnv *env, jobject self, jint num){
+  TCADB *adb = (TCADB *)(intptr_t)(*env)->GetLongField(env, self, adb_fid_ptr);
+  return tcadbsetskelmulti(adb, num);
+}
+
+
+/* closeimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_closeimpl
 (JNIEnv *env, jobject self){
   TCADB *adb = (TCADB *)(intptr_t)(*env)->GetLongField(env, self, adb_fid_ptr);
   return tcadbclose(adb);
 }
 
 
-/* put */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_put
+/* putimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_putimpl
 (JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
   if(!key || !val){
     throwillarg(env);
@@ -164,8 +172,8 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_putcat
 }
 
 
-/* out */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_out
+/* outimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_outimpl
 (JNIEnv *env, jobject self, jbyteArray key){
   if(!key){
     throwillarg(env);
@@ -463,6 +471,48 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_ADB_size
 }
 
 
+/* opaque */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_ADB_opaque
+(JNIEnv *env, jobject self){
+  TCADB *adb = (TCADB *)(intptr_t)(*env)->GetLongField(env, self, adb_fid_ptr);
+  void *db = tcadbreveal(adb);
+  switch(tcadbomode(adb)){
+    case ADBOHDB: return opaquetobyteary(env, tchdbopaque(db), HDBOPQSIZ);
+    case ADBOBDB: return opaquetobyteary(env, tcbdbopaque(db), BDBOPQSIZ);
+    case ADBOFDB: return opaquetobyteary(env, tcfdbopaque(db), FDBOPQSIZ);
+    case ADBOTDB: return opaquetobyteary(env, tctdbopaque(db), TDBOPQSIZ);
+  }
+  return NULL;
+}
+
+
+/* setopaque */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_setopaque
+(JNIEnv *env, jobject self, jbyteArray buf){
+  if(!buf){
+    throwillarg(env);
+    return false;
+  }
+  TCADB *adb = (TCADB *)(intptr_t)(*env)->GetLongField(env, self, adb_fid_ptr);
+  void *db = tcadbreveal(adb);
+  switch(tcadbomode(adb)){
+    case ADBOHDB:
+      if(!(tchdbomode(db) & HDBOWRITER)) return false;
+      return bytearytoopaque(env, buf, tchdbopaque(db), HDBOPQSIZ);
+    case ADBOBDB:
+      if(!(tchdbomode(((TCBDB *)db)->hdb) & HDBOWRITER)) return false;
+      return bytearytoopaque(env, buf, tcbdbopaque(db), BDBOPQSIZ);
+    case ADBOFDB:
+      if(!(tcfdbomode(db) & FDBOWRITER)) return false;
+      return bytearytoopaque(env, buf, tcfdbopaque(db), FDBOPQSIZ);
+    case ADBOTDB:
+      if(!(tchdbomode(((TCTDB *)db)->hdb) & HDBOWRITER)) return false;
+      return bytearytoopaque(env, buf, tctdbopaque(db), TDBOPQSIZ);
+  }
+  return false;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL
 Java_tokyocabinet_ADB_initialize(JNIEnv *env, jobject self){
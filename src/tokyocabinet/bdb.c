@@ -505,6 +505,7 @@ JNIEXPORT jobject JNICALL Java_tokyocabinet_BDB_range
     icbk = false;
     bksiz = (*env)->GetArrayLength(env, bkey);
   } else {
+    icbk = false;
     bkbuf = NULL;
     bksiz = -1;
   }
@@ -520,6 +521,7 @@ JNIEXPORT jobject JNICALL Java_tokyocabinet_BDB_range
     icek = false;
     eksiz = (*env)->GetArrayLength(env, ekey);
   } else {
+    icek = false;
     ekbuf = NULL;
     eksiz = -1;
   }
@@ -635,6 +637,14 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_optimize
 }
 
 
+/* defrag */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_defrag
+(JNIEnv *env, jobject self, jlong step){
+  TCBDB *bdb = (TCBDB *)(intptr_t)(*env)->GetLongField(env, self, bdb_fid_ptr);
+  return tcbdbdefrag(bdb, step);
+}
+
+
 /* vanish */
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_vanish
 (JNIEnv *env, jobject self){
@@ -722,6 +732,92 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_BDB_fsiz
 }
 
 
+/* getrecs */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDB_getrecs
+(JNIEnv *env, jobject self, jobjectArray keys){
+  if(!keys){
+    throwillarg(env);
+    return NULL;
+  }
+  TCBDB *bdb = (TCBDB *)(intptr_t)(*env)->GetLongField(env, self, bdb_fid_ptr);
+  int knum = (*env)->GetArrayLength(env, keys);
+  jobjectArray vals = (*env)->NewObjectArray(env, knum, (*env)->FindClass(env, "[B"), NULL);
+  if(!vals){
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < knum; i++){
+    jbyteArray key = (*env)->GetObjectArrayElement(env, keys, i);
+    if(!key){
+      throwillarg(env);
+      return NULL;
+    }
+    jboolean ick;
+    jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+    if(!kbuf){
+      throwoutmem(env);
+      return NULL;
+    }
+    int ksiz = (*env)->GetArrayLength(env, key);
+    int vsiz;
+    char *vbuf = tcbdbget(bdb, kbuf, ksiz, &vsiz);
+    if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+    if(vbuf){
+      jbyteArray val = (*env)->NewByteArray(env, vsiz);
+      if(!val){
+        tcfree(vbuf);
+        throwoutmem(env);
+        return NULL;
+      }
+      (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+      (*env)->SetObjectArrayElement(env, vals, i, val);
+      (*env)->DeleteLocalRef(env, val);
+      tcfree(vbuf);
+    }
+    (*env)->DeleteLocalRef(env, key);
+  }
+  return vals;
+}
+
+
+/* opaque */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_BDB_opaque
+(JNIEnv *env, jobject self){
+  TCBDB *bdb = (TCBDB *)(intptr_t)(*env)->GetLongField(env, self, bdb_fid_ptr);
+  return opaquetobyteary(env, tcbdbopaque(bdb), BDBOPQSIZ);
+}
+
+
+/* setopaque */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_setopaque
+(JNIEnv *env, jobject self, jbyteArray buf){
+  if(!buf){
+    throwillarg(env);
+    return false;
+  }
+  TCBDB *bdb = (TCBDB *)(intptr_t)(*env)->GetLongField(env, self, bdb_fid_ptr);
+  char *opq = tcbdbopaque(bdb);
+  if(!opq) return false;
+  if(!(tchdbomode(bdb->hdb) & HDBOWRITER)){
+    tcbdbsetecode(bdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    return false;
+  }
+  return bytearytoopaque(env, buf, opq, BDBOPQSIZ);
+}
+
+
+/* statsimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDB_statsimpl
+(JNIEnv *env, jobject self, jboolean full){
+  TCBDB *bdb = (TCBDB *)(intptr_t)(*env)->GetLongField(env, self, bdb_fid_ptr);
+  TCLIST *stats = tclistnew();
+  bdbstats(stats, bdb, "", full);
+  jobjectArray ary = listtobytearys(env, stats);
+  tclistdel(stats);
+  return ary;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL Java_tokyocabinet_BDB_initialize
 (JNIEnv *env, jobject self){
@@ -90,8 +90,8 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_next
 }
 
 
-/* put */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_put
+/* putimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_putimpl
 (JNIEnv *env, jobject self, jbyteArray val, jint cpmode){
   if(!val){
     throwillarg(env);
@@ -111,8 +111,8 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_put
 }
 
 
-/* out */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_out
+/* outimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_outimpl
 (JNIEnv *env, jobject self){
   BDBCUR *cur = (BDBCUR *)(intptr_t)(*env)->GetLongField(env, self, bdbcur_fid_ptr);
   return tcbdbcurout(cur);
@@ -163,6 +163,60 @@ JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_BDBCUR_val
 }
 
 
+/* recs */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDBCUR_recs
+(JNIEnv *env, jobject self, jint max, jbyteArray skey){
+  BDBCUR *cur = (BDBCUR *)(intptr_t)(*env)->GetLongField(env, self, bdbcur_fid_ptr);
+  jboolean ics;
+  jbyte *sbuf = NULL;
+  int ssiz = 0;
+  if(skey){
+    sbuf = (*env)->GetByteArrayElements(env, skey, &ics);
+    if(!sbuf){
+      throwoutmem(env);
+      return NULL;
+    }
+    ssiz = (*env)->GetArrayLength(env, skey);
+  }
+  TCLIST *tres = tclistnew2(max > 0 && max < 1024 ? max * 2 : 2048);
+  TCXSTR *kxstr = tcxstrnew();
+  TCXSTR *vxstr = tcxstrnew();
+  int num = 0;
+  while(num < max && tcbdbcurrec(cur, kxstr, vxstr)){
+    if(sbuf && tcxstrsize(kxstr) == ssiz && !memcmp(tcxstrptr(kxstr), sbuf, ssiz)) break;
+    tclistpush(tres, tcxstrptr(kxstr), tcxstrsize(kxstr));
+    tclistpush(tres, tcxstrptr(vxstr), tcxstrsize(vxstr));
+    num++;
+    if(!tcbdbcurnext(cur)) break;
+  }
+  tcxstrdel(vxstr);
+  tcxstrdel(kxstr);
+  if(sbuf && ics) (*env)->ReleaseByteArrayElements(env, skey, sbuf, JNI_ABORT);
+  int rnum = tclistnum(tres);
+  jobjectArray res = (*env)->NewObjectArray(env, rnum, (*env)->FindClass(env, "[B"), NULL);
+  if(!res){
+    tclistdel(tres);
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < rnum; i++){
+    int rsiz;
+    const char *rbuf = tclistval(tres, i, &rsiz);
+    jbyteArray ary = (*env)->NewByteArray(env, rsiz);
+    if(!ary){
+      tclistdel(tres);
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, ary, 0, rsiz, (jbyte *)rbuf);
+    (*env)->SetObjectArrayElement(env, res, i, ary);
+    (*env)->DeleteLocalRef(env, ary);
+  }
+  tclistdel(tres);
+  return res;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL Java_tokyocabinet_BDBCUR_initialize
 (JNIEnv *env, jobject self, jobject bdb){
@@ -465,6 +465,53 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_FDB_fsiz
 }
 
 
+/* opaque */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_FDB_opaque
+(JNIEnv *env, jobject self){
+  TCFDB *fdb = (TCFDB *)(intptr_t)(*env)->GetLongField(env, self, fdb_fid_ptr);
+  return opaquetobyteary(env, tcfdbopaque(fdb), FDBOPQSIZ);
+}
+
+
+/* setopaque */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_FDB_setopaque
+(JNIEnv *env, jobject self, jbyteArray buf){
+  if(!buf){
+    throwillarg(env);
+    return false;
+  }
+  TCFDB *fdb = (TCFDB *)(intptr_t)(*env)->GetLongField(env, self, fdb_fid_ptr);
+  char *opq = tcfdbopaque(fdb);
+  if(!opq) return false;
+  if(!(tcfdbomode(fdb) & FDBOWRITER)){
+    tcfdbsetecode(fdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    return false;
+  }
+  return bytearytoopaque(env, buf, opq, FDBOPQSIZ);
+}
+
+
+/* statsimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_FDB_statsimpl
+(JNIEnv *env, jobject self, jboolean full){
+  TCFDB *fdb = (TCFDB *)(intptr_t)(*env)->GetLongField(env, self, fdb_fid_ptr);
+  TCLIST *stats = tclistnew();
+  statput(stats, "", "rnum", fdb->rnum);
+  statput(stats, "", "fsiz", fdb->fsiz);
+  statput(stats, "", "width", fdb->width);
+  statput(stats, "", "limsiz", fdb->limsiz);
+  statput(stats, "", "limid", fdb->limid);
+  statput(stats, "", "min", fdb->min);
+  statput(stats, "", "max", fdb->max);
+  statput(stats, "", "cnt_writerec", fdb->cnt_writerec);
+  statput(stats, "", "cnt_readrec", fdb->cnt_readrec);
+  statput(stats, "", "cnt_truncfile", fdb->cnt_truncfile);
+  jobjectArray ary = listtobytearys(env, stats);
+  tclistdel(stats);
+  return ary;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL
 Java_tokyocabinet_FDB_initialize(JNIEnv *env, jobject self){
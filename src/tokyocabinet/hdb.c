@@ -431,6 +431,14 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_optimize
 }
 
 
+/* defrag */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_defrag
+(JNIEnv *env, jobject self, jlong step){
+  TCHDB *hdb = (TCHDB *)(intptr_t)(*env)->GetLongField(env, self, hdb_fid_ptr);
+  return tchdbdefrag(hdb, step);
+}
+
+
 /* vanish */
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_vanish
 (JNIEnv *env, jobject self){
@@ -518,6 +526,92 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_HDB_fsiz
 }
 
 
+/* getrecs */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_HDB_getrecs
+(JNIEnv *env, jobject self, jobjectArray keys){
+  if(!keys){
+    throwillarg(env);
+    return NULL;
+  }
+  TCHDB *hdb = (TCHDB *)(intptr_t)(*env)->GetLongField(env, self, hdb_fid_ptr);
+  int knum = (*env)->GetArrayLength(env, keys);
+  jobjectArray vals = (*env)->NewObjectArray(env, knum, (*env)->FindClass(env, "[B"), NULL);
+  if(!vals){
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < knum; i++){
+    jbyteArray key = (*env)->GetObjectArrayElement(env, keys, i);
+    if(!key){
+      throwillarg(env);
+      return NULL;
+    }
+    jboolean ick;
+    jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+    if(!kbuf){
+      throwoutmem(env);
+      return NULL;
+    }
+    int ksiz = (*env)->GetArrayLength(env, key);
+    int vsiz;
+    char *vbuf = tchdbget(hdb, kbuf, ksiz, &vsiz);
+    if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+    if(vbuf){
+      jbyteArray val = (*env)->NewByteArray(env, vsiz);
+      if(!val){
+        tcfree(vbuf);
+        throwoutmem(env);
+        return NULL;
+      }
+      (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+      (*env)->SetObjectArrayElement(env, vals, i, val);
+      (*env)->DeleteLocalRef(env, val);
+      tcfree(vbuf);
+    }
+    (*env)->DeleteLocalRef(env, key);
+  }
+  return vals;
+}
+
+
+/* opaque */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_HDB_opaque
+(JNIEnv *env, jobject self){
+  TCHDB *hdb = (TCHDB *)(intptr_t)(*env)->GetLongField(env, self, hdb_fid_ptr);
+  return opaquetobyteary(env, tchdbopaque(hdb), HDBOPQSIZ);
+}
+
+
+/* setopaque */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_setopaque
+(JNIEnv *env, jobject self, jbyteArray buf){
+  if(!buf){
+    throwillarg(env);
+    return false;
+  }
+  TCHDB *hdb = (TCHDB *)(intptr_t)(*env)->GetLongField(env, self, hdb_fid_ptr);
+  char *opq = tchdbopaque(hdb);
+  if(!opq) return false;
+  if(!(tchdbomode(hdb) & HDBOWRITER)){
+    tchdbsetecode(hdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    return false;
+  }
+  return bytearytoopaque(env, buf, opq, HDBOPQSIZ);
+}
+
+
+/* statsimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_HDB_statsimpl
+(JNIEnv *env, jobject self, jboolean full){
+  TCHDB *hdb = (TCHDB *)(intptr_t)(*env)->GetLongField(env, self, hdb_fid_ptr);
+  TCLIST *stats = tclistnew();
+  hdbstats(stats, hdb, "", full);
+  jobjectArray ary = listtobytearys(env, stats);
+  tclistdel(stats);
+  return ary;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL
 Java_tokyocabinet_HDB_initialize(JNIEnv *env, jobject self){
@@ -0,0 +1,501 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+#include "tokyocabinet_MDB.h"
+#include "myconf.h"
+
+
+/* private global variables */
+static jclass cls_mdb;
+static jfieldID mdb_fid_ptr;
+
+
+/* type of structure for a bounded on-memory hash database */
+typedef struct {
+  TCMDB *mdb;                            /* database object */
+  int64_t capnum;                        /* capacity number of records */
+  int64_t capsiz;                        /* capacity size of using memory */
+  uint32_t capcnt;                       /* counter of storing operations */
+} MDBCORE;
+
+
+/* private function prototypes */
+static void mdbcap(MDBCORE *core, bool force);
+
+
+
+/*************************************************************************************************
+ * public objects
+ *************************************************************************************************/
+
+
+/* init */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_init
+(JNIEnv *env, jclass cls){
+  cls_mdb = cls;
+  mdb_fid_ptr = (*env)->GetFieldID(env, cls, "ptr", "J");
+}
+
+
+/* capacity */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_capacity
+(JNIEnv *env, jobject self, jlong capnum, jlong capsiz){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  core->capnum = capnum;
+  core->capsiz = capsiz;
+  mdbcap(core, true);
+}
+
+
+/* put */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_put
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  if(core->capnum > 0 || core->capsiz > 0){
+    tcmdbput3(core->mdb, kbuf, ksiz, (char *)vbuf, vsiz);
+  } else {
+    tcmdbput(core->mdb, kbuf, ksiz, vbuf, vsiz);
+  }
+  mdbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return true;
+}
+
+
+/* putkeep */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_putkeep
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  bool rv = tcmdbputkeep(core->mdb, kbuf, ksiz, vbuf, vsiz);
+  if(rv) mdbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* putcat */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_putcat
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  if(core->capnum > 0 || core->capsiz > 0){
+    tcmdbputcat3(core->mdb, kbuf, ksiz, vbuf, vsiz);
+  } else {
+    tcmdbputcat(core->mdb, kbuf, ksiz, vbuf, vsiz);
+  }
+  mdbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return true;
+}
+
+
+/* out */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_out
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return false;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  bool rv = tcmdbout(core->mdb, kbuf, ksiz);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* get */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_MDB_get
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return NULL;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return NULL;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  int vsiz;
+  char *vbuf = (core->capnum > 0 || core->capsiz > 0) ?
+    tcmdbget3(core->mdb, kbuf, ksiz, &vsiz) : tcmdbget(core->mdb, kbuf, ksiz, &vsiz);
+  jbyteArray val;
+  if(vbuf){
+    val = (*env)->NewByteArray(env, vsiz);
+    if(!val){
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+    tcfree(vbuf);
+  } else {
+    val = NULL;
+  }
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return val;
+}
+
+
+/* vsiz */
+JNIEXPORT jint JNICALL Java_tokyocabinet_MDB_vsiz
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return -1;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return -1;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  int rv = tcmdbvsiz(core->mdb, kbuf, ksiz);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* iterinitimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_iterinitimpl
+(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  tcmdbiterinit(core->mdb);
+}
+
+
+/* iternext */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_MDB_iternext
+(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  int vsiz;
+  char *vbuf = tcmdbiternext(core->mdb, &vsiz);
+  jbyteArray val;
+  if(vbuf){
+    val = (*env)->NewByteArray(env, vsiz);
+    if(!val){
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+    tcfree(vbuf);
+  } else {
+    val = NULL;
+  }
+  return val;
+}
+
+
+/* fwmkeys */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_MDB_fwmkeys
+(JNIEnv *env, jobject self, jbyteArray prefix, jint max){
+  if(!prefix){
+    throwillarg(env);
+    return NULL;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean icp;
+  jbyte *pbuf = (*env)->GetByteArrayElements(env, prefix, &icp);
+  if(!pbuf){
+    throwoutmem(env);
+    return NULL;
+  }
+  int psiz = (*env)->GetArrayLength(env, prefix);
+  TCLIST *tkeys = tcmdbfwmkeys(core->mdb, pbuf, psiz, max);
+  jclass clslist = (*env)->FindClass(env, CLSARRAYLIST);
+  jmethodID midinit = (*env)->GetMethodID(env, clslist, "<init>", "()V");
+  jobject keys = (*env)->NewObject(env, clslist, midinit);
+  jmethodID midadd = (*env)->GetMethodID(env, clslist, "add", "(L" CLSOBJECT ";)Z");
+  for(int i = 0; i < tclistnum(tkeys); i++){
+    int ksiz;
+    const char *kbuf = tclistval(tkeys, i, &ksiz);
+    jbyteArray key = (*env)->NewByteArray(env, ksiz);
+    (*env)->SetByteArrayRegion(env, key, 0, ksiz, (jbyte *)kbuf);
+    (*env)->CallVoidMethod(env, keys, midadd, key);
+    (*env)->DeleteLocalRef(env, key);
+  }
+  tclistdel(tkeys);
+  if(icp) (*env)->ReleaseByteArrayElements(env, prefix, pbuf, JNI_ABORT);
+  return keys;
+}
+
+
+/* addint */
+JNIEXPORT jint JNICALL Java_tokyocabinet_MDB_addint
+(JNIEnv *env, jobject self, jbyteArray key, jint num){
+  if(!key){
+    throwillarg(env);
+    return 0;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return 0;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  num = tcmdbaddint(core->mdb, kbuf, ksiz, num);
+  mdbcap(core, false);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return num;
+}
+
+
+/* adddouble */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_MDB_adddouble
+(JNIEnv *env, jobject self, jbyteArray key, jdouble num){
+  if(!key){
+    throwillarg(env);
+    return 0.0;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return 0.0;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  num = tcmdbadddouble(core->mdb, kbuf, ksiz, num);
+  mdbcap(core, false);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return num;
+}
+
+
+/* vanish */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_vanish
+(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  tcmdbvanish(core->mdb);
+}
+
+
+/* cutfront */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_cutfront
+(JNIEnv *env, jobject self, jint num){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  tcmdbcutfront(core->mdb, num);
+}
+
+
+/* rnum */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_MDB_rnum
+(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  return tcmdbrnum(core->mdb);
+}
+
+
+/* msiz */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_MDB_msiz
+(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  return tcmdbmsiz(core->mdb);
+}
+
+
+/* putlistimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_putlistimpl
+(JNIEnv *env, jobject self, jobjectArray recs){
+  if(!recs){
+    throwillarg(env);
+    return;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  TCLIST *trecs = bytearystolist(env, recs);
+  if(!trecs) return;
+  int rnum = tclistnum(trecs);
+  for(int i = 0; i < rnum - 1; i += 2){
+    int ksiz, vsiz;
+    const char *kbuf = tclistval(trecs, i, &ksiz);
+    const char *vbuf = tclistval(trecs, i + 1, &vsiz);
+    if(core->capnum > 0 || core->capsiz > 0){
+      tcmdbput3(core->mdb, kbuf, ksiz, vbuf, vsiz);
+    } else {
+      tcmdbput(core->mdb, kbuf, ksiz, vbuf, vsiz);
+    }
+    mdbcap(core, false);
+  }
+  tclistdel(trecs);
+}
+
+
+/* getlistimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_MDB_getlistimpl
+(JNIEnv *env, jobject self, jobjectArray keys){
+  if(!keys){
+    throwillarg(env);
+    return NULL;
+  }
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  TCLIST *tkeys = bytearystolist(env, keys);
+  if(!tkeys) return NULL;
+  int knum = tclistnum(tkeys);
+  TCLIST *trecs = tclistnew2(knum * 2 + 1);
+  for(int i = 0; i < knum; i++){
+    int ksiz;
+    const char *kbuf = tclistval(tkeys, i, &ksiz);
+    int vsiz;
+    char *vbuf = (core->capnum > 0 || core->capsiz > 0) ?
+      tcmdbget3(core->mdb, kbuf, ksiz, &vsiz) : tcmdbget(core->mdb, kbuf, ksiz, &vsiz);
+    if(vbuf){
+      tclistpush(trecs, kbuf, ksiz);
+      tclistpushmalloc(trecs, vbuf, vsiz);
+    }
+  }
+  int rnum = tclistnum(trecs);
+  jobjectArray res = (*env)->NewObjectArray(env, rnum, (*env)->FindClass(env, "[B"), NULL);
+  if(!res){
+    tclistdel(trecs);
+    tclistdel(tkeys);
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < rnum; i++){
+    int rsiz;
+    const char *rbuf = tclistval(trecs, i, &rsiz);
+    jbyteArray ary = (*env)->NewByteArray(env, rsiz);
+    if(!ary){
+      tclistdel(trecs);
+      tclistdel(tkeys);
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, ary, 0, rsiz, (jbyte *)rbuf);
+    (*env)->SetObjectArrayElement(env, res, i, ary);
+    (*env)->DeleteLocalRef(env, ary);
+  }
+  tclistdel(trecs);
+  tclistdel(tkeys);
+  return res;
+}
+
+
+/* initialize */
+JNIEXPORT void JNICALL
+Java_tokyocabinet_MDB_initialize(JNIEnv *env, jobject self, jint bnum){
+  MDBCORE *core = tcmalloc(sizeof(*core));
+  core->mdb = bnum > 0 ? tcmdbnew2(bnum) : tcmdbnew();
+  core->capnum = -1;
+  core->capsiz = -1;
+  core->capcnt = 0;
+  (*env)->SetLongField(env, self, mdb_fid_ptr, (intptr_t)core);
+}
+
+
+/* destruct */
+JNIEXPORT void JNICALL
+Java_tokyocabinet_MDB_destruct(JNIEnv *env, jobject self){
+  MDBCORE *core = (MDBCORE *)(intptr_t)(*env)->GetLongField(env, self, mdb_fid_ptr);
+  tcmdbdel(core->mdb);
+  tcfree(core);
+}
+
+
+
+/*************************************************************************************************
+ * private objects
+ *************************************************************************************************/
+
+
+/* Remove the least recently used records spilled the capacity.
+   `core' specifies the bounded database object.
+   `force' specifies whether to check the capacity regardless of the counter. */
+static void mdbcap(MDBCORE *core, bool force){
+  if(core->capnum <= 0 && core->capsiz <= 0) return;
+  if(!force && (++core->capcnt & 0xff) != 0) return;
+  if(core->capnum > 0){
+    int64_t rnum = tcmdbrnum(core->mdb);
+    if(rnum > core->capnum) tcmdbcutfront(core->mdb, rnum - core->capnum);
+  }
+  if(core->capsiz > 0){
+    while(tcmdbmsiz(core->mdb) > core->capsiz && tcmdbrnum(core->mdb) > 0){
+      tcmdbcutfront(core->mdb, 0x100);
+    }
+  }
+}
+
+
+
+/* END OF FILE */
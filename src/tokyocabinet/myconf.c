@@ -40,5 +40,260 @@ void throwillarg(JNIEnv *env){
 }
 
 
+void xstrcatvnum(TCXSTR *xstr, int num){
+  char buf[sizeof(num)+2];
+  unsigned int rest = num;
+  int len = 0;
+  do {
+    int rem = rest & 0x7f;
+    rest >>= 7;
+    buf[len++] = rest > 0 ? -rem - 1 : rem;
+  } while(rest > 0);
+  tcxstrcat(xstr, buf, len);
+}
+
+
+TCLIST *bytearystolist(JNIEnv *env, jobjectArray arys){
+  jsize anum = (*env)->GetArrayLength(env, arys);
+  TCLIST *list = tclistnew2(anum + 1);
+  for(int i = 0; i < anum; i++){
+    jbyteArray ary = (*env)->GetObjectArrayElement(env, arys, i);
+    if(!ary){
+      tclistdel(list);
+      throwillarg(env);
+      return NULL;
+    }
+    jboolean ica;
+    jbyte *abuf = (*env)->GetByteArrayElements(env, ary, &ica);
+    if(!abuf){
+      tclistdel(list);
+      throwoutmem(env);
+      return NULL;
+    }
+    int asiz = (*env)->GetArrayLength(env, ary);
+    tclistpush(list, abuf, asiz);
+    if(ica) (*env)->ReleaseByteArrayElements(env, ary, abuf, JNI_ABORT);
+    (*env)->DeleteLocalRef(env, ary);
+  }
+  return list;
+}
+
+
+jbyteArray packrows(JNIEnv *env, TCTDB *tdb, const TCLIST *pkeys, int start, int end,
+                    const TCLIST *names, bool fixed){
+  int nnum = tclistnum(names);
+  TCXSTR *rows = tcxstrnew();
+  TCXSTR *row = tcxstrnew();
+  int rnum = 0;
+  for(int i = start; i < end; i++){
+    int pksiz;
+    const char *pkbuf = tclistval(pkeys, i, &pksiz);
+    TCMAP *cols = tctdbget(tdb, pkbuf, pksiz);
+    if(!cols) continue;
+    tcxstrclear(row);
+    if(fixed){
+      for(int j = 0; j < nnum; j++){
+        int nsiz;
+        const char *nbuf = tclistval(names, j, &nsiz);
+        int vsiz;
+        const char *vbuf = tcmapget(cols, nbuf, nsiz, &vsiz);
+        if(vbuf){
+          xstrcatvnum(row, vsiz + 1);
+          tcxstrcat(row, vbuf, vsiz);
+        } else {
+          xstrcatvnum(row, 0);
+        }
+      }
+    } else if(nnum > 0){
+      for(int j = 0; j < nnum; j++){
+        int nsiz;
+        const char *nbuf = tclistval(names, j, &nsiz);
+        int vsiz;
+        const char *vbuf = tcmapget(cols, nbuf, nsiz, &vsiz);
+        if(!vbuf) continue;
+        xstrcatvnum(row, nsiz);
+        tcxstrcat(row, nbuf, nsiz);
+        xstrcatvnum(row, vsiz);
+        tcxstrcat(row, vbuf, vsiz);
+      }
+    } else {
+      int dsiz;
+      char *dbuf = tcmapdump(cols, &dsiz);
+      tcxstrcat(row, dbuf, dsiz);
+      tcfree(dbuf);
+    }
+    tcmapdel(cols);
+    xstrcatvnum(rows, pksiz);
+    tcxstrcat(rows, pkbuf, pksiz);
+    if(!fixed) xstrcatvnum(rows, tcxstrsize(row));
+    tcxstrcat(rows, tcxstrptr(row), tcxstrsize(row));
+    rnum++;
+  }
+  TCXSTR *head = tcxstrnew();
+  xstrcatvnum(head, rnum);
+  int hsiz = tcxstrsize(head);
+  int rsiz = tcxstrsize(rows);
+  jbyteArray buf = (*env)->NewByteArray(env, hsiz + rsiz);
+  if(buf){
+    (*env)->SetByteArrayRegion(env, buf, 0, hsiz, (jbyte *)tcxstrptr(head));
+    (*env)->SetByteArrayRegion(env, buf, hsiz, rsiz, (jbyte *)tcxstrptr(rows));
+  } else {
+    throwoutmem(env);
+  }
+  tcxstrdel(head);
+  tcxstrdel(row);
+  tcxstrdel(rows);
+  return buf;
+}
+
+jobjectArray listtobytearys(JNIEnv *env, const TCLIST *list){
+  jclass clsbyteary = (*env)->FindClass(env, "[B");
+  int num = tclistnum(list);
+  jobjectArray ary = (*env)->NewObjectArray(env, num, clsbyteary, NULL);
+  if(!ary){
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < num; i++){
+    int vsiz;
+    const char *vbuf = tclistval(list, i, &vsiz);
+    jbyteArray val = (*env)->NewByteArray(env, vsiz);
+    if(!val){
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+    (*env)->SetObjectArrayElement(env, ary, i, val);
+    (*env)->DeleteLocalRef(env, val);
+  }
+  return ary;
+}
+
+
+void statput(TCLIST *stats, const char *prefix, const char *name, int64_t num){
+  tclistprintf(stats, "%s%s", prefix, name);
+  tclistprintf(stats, "%lld", (long long)num);
+}
+
+
+void hdbstats(TCLIST *stats, TCHDB *hdb, const char *prefix, bool full){
+  statput(stats, prefix, "rnum", hdb->rnum);
+  statput(stats, prefix, "fsiz", hdb->fsiz);
+  statput(stats, prefix, "bnum", hdb->bnum);
+  if(full) statput(stats, prefix, "bnumused", hdb->fd >= 0 ? tchdbbnumused(hdb) : 0);
+  statput(stats, prefix, "apow", hdb->apow);
+  statput(stats, prefix, "fpow", hdb->fpow);
+  statput(stats, prefix, "opts", hdb->opts);
+  statput(stats, prefix, "align", hdb->align);
+  statput(stats, prefix, "fbpmax", hdb->fbpmax);
+  statput(stats, prefix, "fbpnum", hdb->fbpnum);
+  statput(stats, prefix, "fbpmis", hdb->fbpmis);
+  statput(stats, prefix, "msiz", hdb->msiz);
+  statput(stats, prefix, "xmsiz", hdb->xmsiz);
+  statput(stats, prefix, "rcnum", hdb->rcnum);
+  statput(stats, prefix, "recc", hdb->recc ? tcmdbrnum(hdb->recc) : 0);
+  statput(stats, prefix, "reccsiz", hdb->recc ? tcmdbmsiz(hdb->recc) : 0);
+  statput(stats, prefix, "dfunit", hdb->dfunit);
+  statput(stats, prefix, "cnt_writerec", hdb->cnt_writerec);
+  statput(stats, prefix, "cnt_reuserec", hdb->cnt_reuserec);
+  statput(stats, prefix, "cnt_moverec", hdb->cnt_moverec);
+  statput(stats, prefix, "cnt_readrec", hdb->cnt_readrec);
+  statput(stats, prefix, "cnt_searchfbp", hdb->cnt_searchfbp);
+  statput(stats, prefix, "cnt_insertfbp", hdb->cnt_insertfbp);
+  statput(stats, prefix, "cnt_splicefbp", hdb->cnt_splicefbp);
+  statput(stats, prefix, "cnt_dividefbp", hdb->cnt_dividefbp);
+  statput(stats, prefix, "cnt_mergefbp", hdb->cnt_mergefbp);
+  statput(stats, prefix, "cnt_reducefbp", hdb->cnt_reducefbp);
+  statput(stats, prefix, "cnt_appenddrp", hdb->cnt_appenddrp);
+  statput(stats, prefix, "cnt_deferdrp", hdb->cnt_deferdrp);
+  statput(stats, prefix, "cnt_flushdrp", hdb->cnt_flushdrp);
+  statput(stats, prefix, "cnt_adjrecc", hdb->cnt_adjrecc);
+  statput(stats, prefix, "cnt_defrag", hdb->cnt_defrag);
+  statput(stats, prefix, "cnt_shiftrec", hdb->cnt_shiftrec);
+  statput(stats, prefix, "cnt_trunc", hdb->cnt_trunc);
+}
+
+
+void bdbstats(TCLIST *stats, TCBDB *bdb, const char *prefix, bool full){
+  statput(stats, prefix, "rnum", bdb->rnum);
+  statput(stats, prefix, "fsiz", bdb->hdb->fsiz);
+  statput(stats, prefix, "lmemb", bdb->lmemb);
+  statput(stats, prefix, "nmemb", bdb->nmemb);
+  statput(stats, prefix, "lnum", bdb->lnum);
+  statput(stats, prefix, "nnum", bdb->nnum);
+  statput(stats, prefix, "lcnum", bdb->lcnum);
+  statput(stats, prefix, "ncnum", bdb->ncnum);
+  statput(stats, prefix, "leafc", bdb->leafc ? tcmaprnum(bdb->leafc) : 0);
+  statput(stats, prefix, "nodec", bdb->nodec ? tcmaprnum(bdb->nodec) : 0);
+  statput(stats, prefix, "lsmax", bdb->lsmax);
+  statput(stats, prefix, "capnum", bdb->capnum);
+  statput(stats, prefix, "cnt_saveleaf", bdb->cnt_saveleaf);
+  statput(stats, prefix, "cnt_loadleaf", bdb->cnt_loadleaf);
+  statput(stats, prefix, "cnt_killleaf", bdb->cnt_killleaf);
+  statput(stats, prefix, "cnt_adjleafc", bdb->cnt_adjleafc);
+  statput(stats, prefix, "cnt_savenode", bdb->cnt_savenode);
+  statput(stats, prefix, "cnt_loadnode", bdb->cnt_loadnode);
+  statput(stats, prefix, "cnt_adjnodec", bdb->cnt_adjnodec);
+  char hprefix[256];
+  snprintf(hprefix, sizeof(hprefix), "%shdb.", prefix);
+  hdbstats(stats, bdb->hdb, hprefix, full);
+}
+
+
+int readvnum(const char *buf, int *np){
+  const signed char *rp = (const signed char *)buf;
+  int num = 0;
+  int base = 1;
+  while(true){
+    if(*rp >= 0){
+      num += *rp * base;
+      rp++;
+      break;
+    }
+    num += base * (-*rp - 1);
+    base <<= 7;
+    rp++;
+  }
+  *np = num;
+  return (const char *)rp - buf;
+}
+
+
+void tdblockmethod(TCTDB *tdb, bool wr){
+  if(!tdb->mmtx) return;
+  if(wr){
+    pthread_rwlock_wrlock(tdb->mmtx);
+  } else {
+    pthread_rwlock_rdlock(tdb->mmtx);
+  }
+}
+
+
+void tdbunlockmethod(TCTDB *tdb){
+  if(tdb->mmtx) pthread_rwlock_unlock(tdb->mmtx);
+}
+
+
+jbyteArray opaquetobyteary(JNIEnv *env, const char *opq, int size){
+  if(!opq) return NULL;
+  jbyteArray buf = (*env)->NewByteArray(env, size);
+  if(!buf){
+    throwoutmem(env);
+    return NULL;
+  }
+  (*env)->SetByteArrayRegion(env, buf, 0, size, (jbyte *)opq);
+  return buf;
+}
+
+
+bool bytearytoopaque(JNIEnv *env, jbyteArray buf, char *opq, int size){
+  if(!opq) return false;
+  int bsiz = (*env)->GetArrayLength(env, buf);
+  if(bsiz > size) bsiz = size;
+  (*env)->GetByteArrayRegion(env, buf, 0, bsiz, (jbyte *)opq);
+  return true;
+}
+
+
 
 /* END OF FILE */
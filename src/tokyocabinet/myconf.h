@@ -38,6 +38,7 @@
 #include <limits.h>
 #include <math.h>
 #include <unistd.h>
+#include <pthread.h>
 
 #define CLSOBJECT      "java/lang/Object"
 #define CLSSTRING      "java/lang/String"
@@ -55,6 +56,11 @@
 #define CLSBDBCUR      "tokyocabinet/BDBCUR"
 #define CLSBDBCMP      "tokyocabinet/BDBCMP"
 
+#define HDBOPQSIZ      128               /* size of the opaque region of a hash database */
+#define BDBOPQSIZ      64                /* size of the opaque region of a B+ tree database */
+#define FDBOPQSIZ      128               /* size of the opaque region of a fixed-length database */
+#define TDBOPQSIZ      64                /* size of the opaque region of a table database */
+
 
 int isinstanceof(JNIEnv *env, jobject obj, const char *name);
 
@@ -68,6 +74,43 @@ void throwoutmem(JNIEnv *env);
 void throwillarg(JNIEnv *env);
 
 
+void xstrcatvnum(TCXSTR *xstr, int num);
+
+
+TCLIST *bytearystolist(JNIEnv *env, jobjectArray arys);
+
+
+jbyteArray packrows(JNIEnv *env, TCTDB *tdb, const TCLIST *pkeys, int start, int end,
+                    const TCLIST *names, bool fixed);
+
+
+jobjectArray listtobytearys(JNIEnv *env, const TCLIST *list);
+
+
+void statput(TCLIST *stats, const char *prefix, const char *name, int64_t num);
+
+
+void hdbstats(TCLIST *stats, TCHDB *hdb, const char *prefix, bool full);
+
+
+void bdbstats(TCLIST *stats, TCBDB *bdb, const char *prefix, bool full);
+
+
+int readvnum(const char *buf, int *np);
+
+
+void tdblockmethod(TCTDB *tdb, bool wr);
+
+
+void tdbunlockmethod(TCTDB *tdb);
+
+
+jbyteArray opaquetobyteary(JNIEnv *env, const char *opq, int size);
+
+
+bool bytearytoopaque(JNIEnv *env, jbyteArray buf, char *opq, int size);
+
+
 
 #endif                                   /* duplication check */
 
@@ -0,0 +1,487 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+#include "tokyocabinet_NDB.h"
+#include "myconf.h"
+
+
+/* private global variables */
+static jclass cls_ndb;
+static jfieldID ndb_fid_ptr;
+
+
+/* type of structure for a bounded on-memory tree database */
+typedef struct {
+  TCNDB *ndb;                            /* database object */
+  int64_t capnum;                        /* capacity number of records */
+  int64_t capsiz;                        /* capacity size of using memory */
+  uint32_t capcnt;                       /* counter of storing operations */
+} NDBCORE;
+
+
+/* private function prototypes */
+static void ndbcap(NDBCORE *core, bool force);
+
+
+
+/*************************************************************************************************
+ * public objects
+ *************************************************************************************************/
+
+
+/* init */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_init
+(JNIEnv *env, jclass cls){
+  cls_ndb = cls;
+  ndb_fid_ptr = (*env)->GetFieldID(env, cls, "ptr", "J");
+}
+
+
+/* capacity */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_capacity
+(JNIEnv *env, jobject self, jlong capnum, jlong capsiz){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  core->capnum = capnum;
+  core->capsiz = capsiz;
+  ndbcap(core, true);
+}
+
+
+/* put */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_put
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  tcndbput(core->ndb, kbuf, ksiz, vbuf, vsiz);
+  ndbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return true;
+}
+
+
+/* putkeep */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_putkeep
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  bool rv = tcndbputkeep(core->ndb, kbuf, ksiz, vbuf, vsiz);
+  if(rv) ndbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* putcat */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_putcat
+(JNIEnv *env, jobject self, jbyteArray key, jbyteArray val){
+  if(!key || !val){
+    throwillarg(env);
+    return false;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  jboolean icv;
+  jbyte *vbuf = (*env)->GetByteArrayElements(env, val, &icv);
+  if(!vbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int vsiz = (*env)->GetArrayLength(env, val);
+  tcndbputcat(core->ndb, kbuf, ksiz, vbuf, vsiz);
+  ndbcap(core, false);
+  if(icv) (*env)->ReleaseByteArrayElements(env, val, vbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return true;
+}
+
+
+/* out */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_out
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return false;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  bool rv = tcndbout(core->ndb, kbuf, ksiz);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* get */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_NDB_get
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return NULL;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return NULL;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  int vsiz;
+  char *vbuf = tcndbget(core->ndb, kbuf, ksiz, &vsiz);
+  jbyteArray val;
+  if(vbuf){
+    val = (*env)->NewByteArray(env, vsiz);
+    if(!val){
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+    tcfree(vbuf);
+  } else {
+    val = NULL;
+  }
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return val;
+}
+
+
+/* vsiz */
+JNIEXPORT jint JNICALL Java_tokyocabinet_NDB_vsiz
+(JNIEnv *env, jobject self, jbyteArray key){
+  if(!key){
+    throwillarg(env);
+    return -1;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return -1;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  int rv = tcndbvsiz(core->ndb, kbuf, ksiz);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
+/* iterinitimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_iterinitimpl
+(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  tcndbiterinit(core->ndb);
+}
+
+
+/* iternext */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_NDB_iternext
+(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  int vsiz;
+  char *vbuf = tcndbiternext(core->ndb, &vsiz);
+  jbyteArray val;
+  if(vbuf){
+    val = (*env)->NewByteArray(env, vsiz);
+    if(!val){
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, val, 0, vsiz, (jbyte *)vbuf);
+    tcfree(vbuf);
+  } else {
+    val = NULL;
+  }
+  return val;
+}
+
+
+/* fwmkeys */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_NDB_fwmkeys
+(JNIEnv *env, jobject self, jbyteArray prefix, jint max){
+  if(!prefix){
+    throwillarg(env);
+    return NULL;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean icp;
+  jbyte *pbuf = (*env)->GetByteArrayElements(env, prefix, &icp);
+  if(!pbuf){
+    throwoutmem(env);
+    return NULL;
+  }
+  int psiz = (*env)->GetArrayLength(env, prefix);
+  TCLIST *tkeys = tcndbfwmkeys(core->ndb, pbuf, psiz, max);
+  jclass clslist = (*env)->FindClass(env, CLSARRAYLIST);
+  jmethodID midinit = (*env)->GetMethodID(env, clslist, "<init>", "()V");
+  jobject keys = (*env)->NewObject(env, clslist, midinit);
+  jmethodID midadd = (*env)->GetMethodID(env, clslist, "add", "(L" CLSOBJECT ";)Z");
+  for(int i = 0; i < tclistnum(tkeys); i++){
+    int ksiz;
+    const char *kbuf = tclistval(tkeys, i, &ksiz);
+    jbyteArray key = (*env)->NewByteArray(env, ksiz);
+    (*env)->SetByteArrayRegion(env, key, 0, ksiz, (jbyte *)kbuf);
+    (*env)->CallVoidMethod(env, keys, midadd, key);
+    (*env)->DeleteLocalRef(env, key);
+  }
+  tclistdel(tkeys);
+  if(icp) (*env)->ReleaseByteArrayElements(env, prefix, pbuf, JNI_ABORT);
+  return keys;
+}
+
+
+/* addint */
+JNIEXPORT jint JNICALL Java_tokyocabinet_NDB_addint
+(JNIEnv *env, jobject self, jbyteArray key, jint num){
+  if(!key){
+    throwillarg(env);
+    return 0;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return 0;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  num = tcndbaddint(core->ndb, kbuf, ksiz, num);
+  ndbcap(core, false);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return num;
+}
+
+
+/* adddouble */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_NDB_adddouble
+(JNIEnv *env, jobject self, jbyteArray key, jdouble num){
+  if(!key){
+    throwillarg(env);
+    return 0.0;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, key, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return 0.0;
+  }
+  int ksiz = (*env)->GetArrayLength(env, key);
+  num = tcndbadddouble(core->ndb, kbuf, ksiz, num);
+  ndbcap(core, false);
+  if(ick) (*env)->ReleaseByteArrayElements(env, key, kbuf, JNI_ABORT);
+  return num;
+}
+
+
+/* vanish */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_vanish
+(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  tcndbvanish(core->ndb);
+}
+
+
+/* cutfringe */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_cutfringe
+(JNIEnv *env, jobject self, jint num){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  tcndbcutfringe(core->ndb, num);
+}
+
+
+/* rnum */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_NDB_rnum
+(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  return tcndbrnum(core->ndb);
+}
+
+
+/* msiz */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_NDB_msiz
+(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  return tcndbmsiz(core->ndb);
+}
+
+
+/* putlistimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_putlistimpl
+(JNIEnv *env, jobject self, jobjectArray recs){
+  if(!recs){
+    throwillarg(env);
+    return;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  TCLIST *trecs = bytearystolist(env, recs);
+  if(!trecs) return;
+  int rnum = tclistnum(trecs);
+  for(int i = 0; i < rnum - 1; i += 2){
+    int ksiz, vsiz;
+    const char *kbuf = tclistval(trecs, i, &ksiz);
+    const char *vbuf = tclistval(trecs, i + 1, &vsiz);
+    tcndbput(core->ndb, kbuf, ksiz, vbuf, vsiz);
+    ndbcap(core, false);
+  }
+  tclistdel(trecs);
+}
+
+
+/* getlistimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_NDB_getlistimpl
+(JNIEnv *env, jobject self, jobjectArray keys){
+  if(!keys){
+    throwillarg(env);
+    return NULL;
+  }
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  TCLIST *tkeys = bytearystolist(env, keys);
+  if(!tkeys) return NULL;
+  int knum = tclistnum(tkeys);
+  TCLIST *trecs = tclistnew2(knum * 2 + 1);
+  for(int i = 0; i < knum; i++){
+    int ksiz;
+    const char *kbuf = tclistval(tkeys, i, &ksiz);
+    int vsiz;
+    char *vbuf = tcndbget(core->ndb, kbuf, ksiz, &vsiz);
+    if(vbuf){
+      tclistpush(trecs, kbuf, ksiz);
+      tclistpushmalloc(trecs, vbuf, vsiz);
+    }
+  }
+  int rnum = tclistnum(trecs);
+  jobjectArray res = (*env)->NewObjectArray(env, rnum, (*env)->FindClass(env, "[B"), NULL);
+  if(!res){
+    tclistdel(trecs);
+    tclistdel(tkeys);
+    throwoutmem(env);
+    return NULL;
+  }
+  for(int i = 0; i < rnum; i++){
+    int rsiz;
+    const char *rbuf = tclistval(trecs, i, &rsiz);
+    jbyteArray ary = (*env)->NewByteArray(env, rsiz);
+    if(!ary){
+      tclistdel(trecs);
+      tclistdel(tkeys);
+      throwoutmem(env);
+      return NULL;
+    }
+    (*env)->SetByteArrayRegion(env, ary, 0, rsiz, (jbyte *)rbuf);
+    (*env)->SetObjectArrayElement(env, res, i, ary);
+    (*env)->DeleteLocalRef(env, ary);
+  }
+  tclistdel(trecs);
+  tclistdel(tkeys);
+  return res;
+}
+
+
+/* initialize */
+JNIEXPORT void JNICALL
+Java_tokyocabinet_NDB_initialize(JNIEnv *env, jobject self){
+  NDBCORE *core = tcmalloc(sizeof(*core));
+  core->ndb = tcndbnew();
+  core->capnum = -1;
+  core->capsiz = -1;
+  core->capcnt = 0;
+  (*env)->SetLongField(env, self, ndb_fid_ptr, (intptr_t)core);
+}
+
+
+/* destruct */
+JNIEXPORT void JNICALL
+Java_tokyocabinet_NDB_destruct(JNIEnv *env, jobject self){
+  NDBCORE *core = (NDBCORE *)(intptr_t)(*env)->GetLongField(env, self, ndb_fid_ptr);
+  tcndbdel(core->ndb);
+  tcfree(core);
+}
+
+
+
+/*************************************************************************************************
+ * private objects
+ *************************************************************************************************/
+
+
+/* Remove the least recently accessed records spilled the capacity.
+   `core' specifies the bounded database object.
+   `force' specifies whether to check the capacity regardless of the counter. */
+static void ndbcap(NDBCORE *core, bool force){
+  if(core->capnum <= 0 && core->capsiz <= 0) return;
+  if(!force && (++core->capcnt & 0xff) != 0) return;
+  if(core->capnum > 0){
+    int64_t rnum = tcndbrnum(core->ndb);
+    if(rnum > core->capnum) tcndbcutfringe(core->ndb, rnum - core->capnum);
+  }
+  if(core->capsiz > 0){
+    while(tcndbmsiz(core->ndb) > core->capsiz && tcndbrnum(core->ndb) > 0){
+      tcndbcutfringe(core->ndb, 0x100);
+    }
+  }
+}
+
+
+
+/* END OF FILE */
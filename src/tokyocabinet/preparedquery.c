@@ -0,0 +1,276 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+#include "tokyocabinet_PreparedQuery.h"
+#include "myconf.h"
+
+#define PLACEHOLDER    "?"
+
+
+typedef struct {
+  char *name;
+  int op;
+  char *expr;
+  int slot;
+} TCPREPCOND;
+
+typedef struct {
+  TCTDB *tdb;
+  TCPREPCOND *conds;
+  int cnum;
+  char *oname;
+  int otype;
+  int max;
+  int maxslot;
+  int skip;
+  int skipslot;
+  int pnum;
+} TCPREPQRY;
+
+
+/* private global variables */
+static jclass cls_prepqry;
+static jfieldID prepqry_fid_ptr;
+
+
+/* private function prototypes */
+static TCPREPQRY *tcprepqrynew(TCTDB *tdb, const char *tmpl);
+static void tcprepqrydel(TCPREPQRY *prep);
+static int tcprepqryslot(TCPREPQRY *prep, const char *token);
+static TDBQRY *tcprepqrybind(JNIEnv *env, TCPREPQRY *prep, jobjectArray params);
+
+
+
+/*************************************************************************************************
+ * public objects
+ *************************************************************************************************/
+
+
+/* init */
+JNIEXPORT void JNICALL Java_tokyocabinet_PreparedQuery_init
+(JNIEnv *env, jclass cls){
+  cls_prepqry = cls;
+  prepqry_fid_ptr = (*env)->GetFieldID(env, cls, "ptr", "J");
+}
+
+
+/* initialize */
+JNIEXPORT jint JNICALL Java_tokyocabinet_PreparedQuery_initialize
+(JNIEnv *env, jobject self, jobject tdb, jstring tmpl){
+  if(!tdb || !tmpl){
+    throwillarg(env);
+    return 0;
+  }
+  jclass clstdb = (*env)->GetObjectClass(env, tdb);
+  jfieldID fidtdb = (*env)->GetFieldID(env, clstdb, "ptr", "J");
+  TCTDB *tdbptr = (TCTDB *)(intptr_t)(*env)->GetLongField(env, tdb, fidtdb);
+  jboolean ict;
+  const char *ttmpl = (*env)->GetStringUTFChars(env, tmpl, &ict);
+  if(!ttmpl){
+    throwoutmem(env);
+    return 0;
+  }
+  TCPREPQRY *prep = tcprepqrynew(tdbptr, ttmpl);
+  if(ict) (*env)->ReleaseStringUTFChars(env, tmpl, ttmpl);
+  if(!prep){
+    throwexception(env, CLSEILLARG, "illegal template");
+    return 0;
+  }
+  (*env)->SetLongField(env, self, prepqry_fid_ptr, (intptr_t)prep);
+  return prep->pnum;
+}
+
+
+/* destruct */
+JNIEXPORT void JNICALL Java_tokyocabinet_PreparedQuery_destruct
+(JNIEnv *env, jobject self){
+  TCPREPQRY *prep = (TCPREPQRY *)(intptr_t)(*env)->GetLongField(env, self, prepqry_fid_ptr);
+  if(!prep) return;
+  (*env)->SetLongField(env, self, prepqry_fid_ptr, 0);
+  tcprepqrydel(prep);
+}
+
+
+/* executeimpl */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_PreparedQuery_executeimpl
+(JNIEnv *env, jobject self, jobjectArray params){
+  TCPREPQRY *prep = (TCPREPQRY *)(intptr_t)(*env)->GetLongField(env, self, prepqry_fid_ptr);
+  TDBQRY *qry = tcprepqrybind(env, prep, params);
+  if(!qry) return NULL;
+  TCLIST *tkeys = tctdbqrysearch(qry);
+  jclass clslist = (*env)->FindClass(env, CLSARRAYLIST);
+  jmethodID midinit = (*env)->GetMethodID(env, clslist, "<init>", "(I)V");
+  jobject pkeys = (*env)->NewObject(env, clslist, midinit, tclistnum(tkeys));
+  jmethodID midadd = (*env)->GetMethodID(env, clslist, "add", "(L" CLSOBJECT ";)Z");
+  for(int i = 0; i < tclistnum(tkeys); i++){
+    int ksiz;
+    const char *kbuf = tclistval(tkeys, i, &ksiz);
+    jbyteArray pkey = (*env)->NewByteArray(env, ksiz);
+    (*env)->SetByteArrayRegion(env, pkey, 0, ksiz, (jbyte *)kbuf);
+    (*env)->CallVoidMethod(env, pkeys, midadd, pkey);
+    (*env)->DeleteLocalRef(env, pkey);
+  }
+  tclistdel(tkeys);
+  tctdbqrydel(qry);
+  return pkeys;
+}
+
+
+/* executerowsimpl */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_PreparedQuery_executerowsimpl
+(JNIEnv *env, jobject self, jobjectArray params, jobjectArray names){
+  if(!names){
+    throwillarg(env);
+    return NULL;
+  }
+  TCPREPQRY *prep = (TCPREPQRY *)(intptr_t)(*env)->GetLongField(env, self, prepqry_fid_ptr);
+  TCLIST *tnames = bytearystolist(env, names);
+  if(!tnames) return NULL;
+  TDBQRY *qry = tcprepqrybind(env, prep, params);
+  if(!qry){
+    tclistdel(tnames);
+    return NULL;
+  }
+  TCLIST *tkeys = tctdbqrysearch(qry);
+  jbyteArray rows = packrows(env, prep->tdb, tkeys, 0, tclistnum(tkeys), tnames, false);
+  tclistdel(tkeys);
+  tctdbqrydel(qry);
+  tclistdel(tnames);
+  return rows;
+}
+
+
+
+/*************************************************************************************************
+ * private objects
+ *************************************************************************************************/
+
+
+/* create a prepared query from a template */
+static TCPREPQRY *tcprepqrynew(TCTDB *tdb, const char *tmpl){
+  TCPREPQRY *prep = tcmalloc(sizeof(*prep));
+  prep->tdb = tdb;
+  prep->conds = NULL;
+  prep->cnum = 0;
+  prep->oname = NULL;
+  prep->otype = 0;
+  prep->max = -1;
+  prep->maxslot = -1;
+  prep->skip = 0;
+  prep->skipslot = -1;
+  prep->pnum = 0;
+  bool err = false;
+  TCLIST *clauses = tcstrsplit(tmpl, ";\n");
+  for(int i = 0; !err && i < tclistnum(clauses); i++){
+    TCLIST *tokens = tcstrsplit(tclistval2(clauses, i), " \t\r");
+    for(int j = tclistnum(tokens) - 1; j >= 0; j--){
+      if(*tclistval2(tokens, j) == '\0') tcfree(tclistremove2(tokens, j));
+    }
+    int tnum = tclistnum(tokens);
+    if(tnum < 1){
+      tclistdel(tokens);
+      continue;
+    }
+    const char *cmd = tclistval2(tokens, 0);
+    const char *name = tnum > 1 ? tclistval2(tokens, 1) : "";
+    if(!strcmp(name, "\"\"")) name = "";
+    if(!tcstricmp(cmd, "addcond") && tnum == 4){
+      int op = tctdbqrystrtocondop(tclistval2(tokens, 2));
+      if(op >= 0){
+        prep->conds = tcrealloc(prep->conds, sizeof(*prep->conds) * (prep->cnum + 1));
+        TCPREPCOND *cond = prep->conds + prep->cnum++;
+        const char *expr = tclistval2(tokens, 3);
+        cond->name = tcstrdup(name);
+        cond->op = op;
+        cond->slot = tcprepqryslot(prep, expr);
+        cond->expr = cond->slot < 0 ? tcstrdup(expr) : NULL;
+      } else {
+        err = true;
+      }
+    } else if(!tcstricmp(cmd, "setorder") && tnum == 3){
+      int type = tctdbqrystrtoordertype(tclistval2(tokens, 2));
+      if(type >= 0 && !prep->oname){
+        prep->oname = tcstrdup(name);
+        prep->otype = type;
+      } else {
+        err = true;
+      }
+    } else if(!tcstricmp(cmd, "setlimit") && (tnum == 2 || tnum == 3)){
+      prep->maxslot = tcprepqryslot(prep, tclistval2(tokens, 1));
+      if(prep->maxslot < 0) prep->max = tcatoi(tclistval2(tokens, 1));
+      if(tnum > 2){
+        prep->skipslot = tcprepqryslot(prep, tclistval2(tokens, 2));
+        if(prep->skipslot < 0) prep->skip = tcatoi(tclistval2(tokens, 2));
+      }
+    } else {
+      err = true;
+    }
+    tclistdel(tokens);
+  }
+  tclistdel(clauses);
+  if(err){
+    tcprepqrydel(prep);
+    return NULL;
+  }
+  return prep;
+}
+
+
+/* delete a prepared query */
+static void tcprepqrydel(TCPREPQRY *prep){
+  for(int i = 0; i < prep->cnum; i++){
+    TCPREPCOND *cond = prep->conds + i;
+    tcfree(cond->expr);
+    tcfree(cond->name);
+  }
+  tcfree(prep->conds);
+  tcfree(prep->oname);
+  tcfree(prep);
+}
+
+
+/* get the slot of a token if it is a placeholder */
+static int tcprepqryslot(TCPREPQRY *prep, const char *token){
+  if(strcmp(token, PLACEHOLDER)) return -1;
+  return prep->pnum++;
+}
+
+
+/* create a query object with bound parameters */
+static TDBQRY *tcprepqrybind(JNIEnv *env, TCPREPQRY *prep, jobjectArray params){
+  if(!prep || !params || (*env)->GetArrayLength(env, params) != prep->pnum){
+    throwillarg(env);
+    return NULL;
+  }
+  TCLIST *tparams = bytearystolist(env, params);
+  if(!tparams) return NULL;
+  TDBQRY *qry = tctdbqrynew(prep->tdb);
+  for(int i = 0; i < prep->cnum; i++){
+    TCPREPCOND *cond = prep->conds + i;
+    const char *expr = cond->slot < 0 ? cond->expr : tclistval2(tparams, cond->slot);
+    tctdbqryaddcond(qry, cond->name, cond->op, expr);
+  }
+  if(prep->oname) tctdbqrysetorder(qry, prep->oname, prep->otype);
+  int max = prep->maxslot < 0 ? prep->max : tcatoi(tclistval2(tparams, prep->maxslot));
+  int skip = prep->skipslot < 0 ? prep->skip : tcatoi(tclistval2(tparams, prep->skipslot));
+  tctdbqrysetlimit(qry, max, skip);
+  tclistdel(tparams);
+  return qry;
+}
+
+
+
+/* END OF FILE */
@@ -18,11 +18,24 @@
 #include "myconf.h"
 
 
+typedef struct {
+  const TCLIST *names;
+  const char *obuf;
+  int onum;
+  const char *cbuf;
+  int csiz;
+} TCPATCHOP;
+
+
 /* private global variables */
 static jclass cls_tdb;
 static jfieldID tdb_fid_ptr;
 
 
+/* private function prototypes */
+static int tcpatchrec(const void *pkbuf, int pksiz, TCMAP *cols, TCPATCHOP *patchop);
+
+
 
 /*************************************************************************************************
  * public objects
@@ -89,6 +102,14 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setdfunit
 }
 
 
+/* setinvcache */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setinvcache
+(JNIEnv *env, jobject self, jlong iccmax, jdouble iccsync){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  return tctdbsetinvcache(tdb, iccmax, iccsync);
+}
+
+
 /* open */
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_open
 (JNIEnv *env, jobject self, jstring path, jint omode){
@@ -109,16 +130,16 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_open
 }
 
 
-/* close */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_close
+/* closeimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_closeimpl
 (JNIEnv *env, jobject self){
   TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
   return tctdbclose(tdb);
 }
 
 
-/* out */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_out
+/* outimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_outimpl
 (JNIEnv *env, jobject self, jbyteArray pkey){
   if(!pkey){
     throwillarg(env);
@@ -223,8 +244,8 @@ JNIEXPORT jobject JNICALL Java_tokyocabinet_TDB_fwmkeys
 }
 
 
-/* addint */
-JNIEXPORT jint JNICALL Java_tokyocabinet_TDB_addint
+/* addintimpl */
+JNIEXPORT jint JNICALL Java_tokyocabinet_TDB_addintimpl
 (JNIEnv *env, jobject self, jbyteArray pkey, jint num){
   if(!pkey){
     throwillarg(env);
@@ -244,8 +265,8 @@ JNIEXPORT jint JNICALL Java_tokyocabinet_TDB_addint
 }
 
 
-/* adddouble */
-JNIEXPORT jdouble JNICALL Java_tokyocabinet_TDB_adddouble
+/* adddoubleimpl */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_TDB_adddoubleimpl
 (JNIEnv *env, jobject self, jbyteArray pkey, jdouble num){
   if(!pkey){
     throwillarg(env);
@@ -273,16 +294,24 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_sync
 }
 
 
-/* optimize */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_optimize
+/* optimizeimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_optimizeimpl
 (JNIEnv *env, jobject self, jlong bnum, jint apow, jint fpow, jint opts){
   TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
   return tctdboptimize(tdb, bnum, apow, fpow, opts);
 }
 
 
-/* vanish */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_vanish
+/* defrag */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_defrag
+(JNIEnv *env, jobject self, jlong step){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  return tctdbdefrag(tdb, step);
+}
+
+
+/* vanishimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_vanishimpl
 (JNIEnv *env, jobject self){
   TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
   return tctdbvanish(tdb);
@@ -325,8 +354,8 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_trancommit
 }
 
 
-/* tranabort */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_tranabort
+/* tranabortimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_tranabortimpl
 (JNIEnv *env, jobject self){
   TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
   return tctdbtranabort(tdb);
@@ -396,6 +425,90 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_genuid
 }
 
 
+/* uidseed */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_uidseed
+(JNIEnv *env, jobject self){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  return tctdbuidseed(tdb);
+}
+
+
+/* setuidseed */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setuidseed
+(JNIEnv *env, jobject self, jlong seed){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  return tctdbsetuidseed(tdb, seed);
+}
+
+
+/* opaque */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDB_opaque
+(JNIEnv *env, jobject self){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  return opaquetobyteary(env, tctdbopaque(tdb), TDBOPQSIZ);
+}
+
+
+/* setopaque */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setopaque
+(JNIEnv *env, jobject self, jbyteArray buf){
+  if(!buf){
+    throwillarg(env);
+    return false;
+  }
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  char *opq = tctdbopaque(tdb);
+  if(!opq) return false;
+  if(!(tchdbomode(tdb->hdb) & HDBOWRITER)){
+    tctdbsetecode(tdb, TCEINVALID, __FILE__, __LINE__, __func__);
+    return false;
+  }
+  return bytearytoopaque(env, buf, opq, TDBOPQSIZ);
+}
+
+
+/* statsimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_statsimpl
+(JNIEnv *env, jobject self, jboolean full){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  TCLIST *stats = tclistnew();
+  tdblockmethod(tdb, false);
+  uint64_t fsiz = tdb->hdb->fsiz;
+  for(int i = 0; i < tdb->inum; i++){
+    TDBIDX *idx = tdb->idxs + i;
+    fsiz += ((TCBDB *)idx->db)->hdb->fsiz;
+  }
+  statput(stats, "", "rnum", tdb->hdb->rnum);
+  statput(stats, "", "fsiz", fsiz);
+  statput(stats, "", "lcnum", tdb->lcnum);
+  statput(stats, "", "ncnum", tdb->ncnum);
+  statput(stats, "", "iccmax", tdb->iccmax);
+  statput(stats, "", "inum", tdb->inum);
+  for(int i = 0; i < tdb->inum; i++){
+    TDBIDX *idx = tdb->idxs + i;
+    char prefix[256];
+    snprintf(prefix, sizeof(prefix), "idx.%s.", idx->name);
+    statput(stats, prefix, "type", idx->type);
+    TCBDB *bdb = idx->db;
+    statput(stats, prefix, "rnum", bdb->rnum);
+    statput(stats, prefix, "fsiz", bdb->hdb->fsiz);
+    statput(stats, prefix, "lnum", bdb->lnum);
+    statput(stats, prefix, "nnum", bdb->nnum);
+    statput(stats, prefix, "leafc", bdb->leafc ? tcmaprnum(bdb->leafc) : 0);
+    statput(stats, prefix, "nodec", bdb->nodec ? tcmaprnum(bdb->nodec) : 0);
+    if(idx->type == TDBITTOKEN || idx->type == TDBITQGRAM){
+      statput(stats, prefix, "cc", tcmaprnum(idx->cc));
+      statput(stats, prefix, "ccsiz", tcmapmsiz(idx->cc));
+    }
+  }
+  hdbstats(stats, tdb->hdb, "hdb.", full);
+  tdbunlockmethod(tdb);
+  jobjectArray ary = listtobytearys(env, stats);
+  tclistdel(stats);
+  return ary;
+}
+
+
 /* initialize */
 JNIEXPORT void JNICALL
 Java_tokyocabinet_TDB_initialize(JNIEnv *env, jobject self){
@@ -473,6 +586,51 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_putimpl
 }
 
 
+/* putrowimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_putrowimpl
+(JNIEnv *env, jobject self, jbyteArray pkey, jbyteArray row, jint rsiz, jint dmode){
+  if(!pkey || !row || rsiz < 0 || rsiz > (*env)->GetArrayLength(env, row)){
+    throwillarg(env);
+    return false;
+  }
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  jboolean ick;
+  jbyte *kbuf = (*env)->GetByteArrayElements(env, pkey, &ick);
+  if(!kbuf){
+    throwoutmem(env);
+    return false;
+  }
+  int ksiz = (*env)->GetArrayLength(env, pkey);
+  jboolean icr;
+  jbyte *rbuf = (*env)->GetByteArrayElements(env, row, &icr);
+  if(!rbuf){
+    if(ick) (*env)->ReleaseByteArrayElements(env, pkey, kbuf, JNI_ABORT);
+    throwoutmem(env);
+    return false;
+  }
+  TCMAP *tcols = tcmapload(rbuf, rsiz);
+  bool rv;
+  switch(dmode){
+  case 0:
+    rv = tctdbput(tdb, kbuf, ksiz, tcols);
+    break;
+  case 1:
+    rv = tctdbputkeep(tdb, kbuf, ksiz, tcols);
+    break;
+  case 2:
+    rv = tctdbputcat(tdb, kbuf, ksiz, tcols);
+    break;
+  default:
+    rv = false;
+    break;
+  }
+  tcmapdel(tcols);
+  if(icr) (*env)->ReleaseByteArrayElements(env, row, rbuf, JNI_ABORT);
+  if(ick) (*env)->ReleaseByteArrayElements(env, pkey, kbuf, JNI_ABORT);
+  return rv;
+}
+
+
 /* getimpl */
 JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_getimpl
 (JNIEnv *env, jobject self, jbyteArray pkey){
@@ -524,5 +682,118 @@ JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_getimpl
 }
 
 
+/* patchimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_patchimpl
+(JNIEnv *env, jobject self, jobjectArray names, jbyteArray patch, jint psiz){
+  if(!names || !patch || psiz < 0 || psiz > (*env)->GetArrayLength(env, patch)){
+    throwillarg(env);
+    return false;
+  }
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  TCLIST *tnames = bytearystolist(env, names);
+  if(!tnames) return false;
+  jboolean icp;
+  jbyte *pbuf = (*env)->GetByteArrayElements(env, patch, &icp);
+  if(!pbuf){
+    tclistdel(tnames);
+    throwoutmem(env);
+    return false;
+  }
+  bool err = false;
+  const char *rp = (char *)pbuf;
+  const char *ep = rp + psiz;
+  while(!err && rp < ep){
+    int pksiz;
+    rp += readvnum(rp, &pksiz);
+    const char *pkbuf = rp;
+    rp += pksiz;
+    int mode;
+    rp += readvnum(rp, &mode);
+    if(mode == 1){
+      if(!tctdbout(tdb, pkbuf, pksiz) && tctdbecode(tdb) != TCENOREC) err = true;
+      continue;
+    }
+    TCPATCHOP patchop;
+    patchop.names = tnames;
+    rp += readvnum(rp, &patchop.onum);
+    patchop.obuf = rp;
+    for(int i = 0; i < patchop.onum; i++){
+      int col;
+      rp += readvnum(rp, &col);
+    }
+    rp += readvnum(rp, &patchop.csiz);
+    patchop.cbuf = rp;
+    if(!tctdbrecproc(tdb, pkbuf, pksiz, (TDBQRYPROC)tcpatchrec, &patchop) &&
+       tctdbecode(tdb) != TCENOREC) err = true;
+    rp += patchop.csiz;
+  }
+  if(icp) (*env)->ReleaseByteArrayElements(env, patch, pbuf, JNI_ABORT);
+  tclistdel(tnames);
+  return !err;
+}
+
+
+/* indexesimpl */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_indexesimpl
+(JNIEnv *env, jobject self){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  TCLIST *idxs = tclistnew();
+  tdblockmethod(tdb, false);
+  for(int i = 0; i < tdb->inum; i++){
+    TDBIDX *idx = tdb->idxs + i;
+    tclistpush2(idxs, idx->name);
+    tclistprintf(idxs, "%d", idx->type);
+  }
+  tdbunlockmethod(tdb);
+  jobjectArray ary = listtobytearys(env, idxs);
+  tclistdel(idxs);
+  return ary;
+}
+
+
+/* iccmaximpl */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_iccmaximpl
+(JNIEnv *env, jobject self, jlong iccmax){
+  TCTDB *tdb = (TCTDB *)(intptr_t)(*env)->GetLongField(env, self, tdb_fid_ptr);
+  tdblockmethod(tdb, true);
+  int64_t oiccmax = tdb->iccmax;
+  if(iccmax > 0) tdb->iccmax = iccmax;
+  tdbunlockmethod(tdb);
+  return oiccmax;
+}
+
+
+
+/*************************************************************************************************
+ * private objects
+ *************************************************************************************************/
+
+
+/* apply the patch of a record in the critical section of the database */
+static int tcpatchrec(const void *pkbuf, int pksiz, TCMAP *cols, TCPATCHOP *patchop){
+  const char *rp = patchop->obuf;
+  for(int i = 0; i < patchop->onum; i++){
+    int col;
+    rp += readvnum(rp, &col);
+    if(col < tclistnum(patchop->names)){
+      int nsiz;
+      const char *nbuf = tclistval(patchop->names, col, &nsiz);
+      tcmapout(cols, nbuf, nsiz);
+    }
+  }
+  TCMAP *ncols = tcmapload(patchop->cbuf, patchop->csiz);
+  tcmapiterinit(ncols);
+  const char *nbuf;
+  int nsiz;
+  while((nbuf = tcmapiternext(ncols, &nsiz)) != NULL){
+    int vsiz;
+    const char *vbuf = tcmapiterval(nbuf, &vsiz);
+    tcmapput(cols, nbuf, nsiz, vbuf, vsiz);
+  }
+  tcmapdel(ncols);
+  return TDBQPPUT;
+}
+
+
 
 /* END OF FILE */
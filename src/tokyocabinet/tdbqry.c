@@ -60,8 +60,8 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_init
 }
 
 
-/* addcond */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_addcond
+/* addcondimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_addcondimpl
 (JNIEnv *env, jobject self, jstring name, jint op, jstring expr){
   if(!name || !expr){
     throwillarg(env);
@@ -78,8 +78,8 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_addcond
 }
 
 
-/* setorder */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setorder
+/* setorderimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setorderimpl
 (JNIEnv *env, jobject self, jstring name, jint type){
   if(!name){
     throwillarg(env);
@@ -93,16 +93,16 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setorder
 }
 
 
-/* setlimit */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setlimit
+/* setlimitimpl */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setlimitimpl
 (JNIEnv *env, jobject self, jint max, jint skip){
   TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
   tctdbqrysetlimit(qry, max, skip);
 }
 
 
-/* search */
-JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_search
+/* searchimpl */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_searchimpl
 (JNIEnv *env, jobject self){
   TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
   TCLIST *tkeys = tctdbqrysearch(qry);
@@ -123,16 +123,16 @@ JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_search
 }
 
 
-/* searchout */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_searchout
+/* searchoutimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_searchoutimpl
 (JNIEnv *env, jobject self){
   TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
   return tctdbqrysearchout(qry);
 }
 
 
-/* proc */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_proc
+/* procimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_procimpl
 (JNIEnv *env, jobject self, jobject qp){
   if(!qp){
     throwillarg(env);
@@ -306,6 +306,134 @@ JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDBQRY_kwicimpl
 }
 
 
+/* searchrowsimpl */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRY_searchrowsimpl
+(JNIEnv *env, jobject self, jobjectArray names){
+  if(!names){
+    throwillarg(env);
+    return NULL;
+  }
+  TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
+  TCLIST *tnames = bytearystolist(env, names);
+  if(!tnames) return NULL;
+  TCLIST *tkeys = tctdbqrysearch(qry);
+  jbyteArray rows = packrows(env, qry->tdb, tkeys, 0, tclistnum(tkeys), tnames, false);
+  tclistdel(tkeys);
+  tclistdel(tnames);
+  return rows;
+}
+
+
+
+/* countimpl */
+JNIEXPORT jint JNICALL Java_tokyocabinet_TDBQRY_countimpl
+(JNIEnv *env, jobject self, jint sample){
+  TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
+  int max = qry->max;
+  int skip = qry->skip;
+  TDBQRY tqry = *qry;
+  tqry.oname = NULL;
+  tqry.hint = tcxstrnew();
+  if(sample > 0 && max < INT_MAX - skip && max + skip <= sample) sample = -1;
+  int64_t all;
+  if(sample > 0){
+    tqry.max = INT_MAX;
+    tqry.skip = 0;
+    TDBQRYCUR *cur = tctdbqrycurnew(&tqry);
+    all = tctdbqrycurskip(cur, sample);
+    if(all >= sample && !cur->end){
+      if(cur->mode == TDBQCURSCAN){
+        all = all * tctdbrnum(qry->tdb) / tclmax(cur->snum, 1);
+      } else {
+        int64_t num = tctdbqrycurskip(cur, INT64_MAX);
+        all = (num >= 0) ? all + num : -1;
+      }
+    }
+    tctdbqrycurdel(cur);
+    if(all >= 0) all = tclmin(tclmax(all - skip, 0), max);
+  } else {
+    TDBQRYCUR *cur = tctdbqrycurnew(&tqry);
+    all = tctdbqrycurskip(cur, INT64_MAX);
+    tctdbqrycurdel(cur);
+  }
+  all = tclmax(all, 0);
+  tcxstrclear(qry->hint);
+  tcxstrcat(qry->hint, tcxstrptr(tqry.hint), tcxstrsize(tqry.hint));
+  tcxstrdel(tqry.hint);
+  qry->count = tclmin(all, INT_MAX);
+  return qry->count;
+}
+
+
+/* searchkeysimpl */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRY_searchkeysimpl
+(JNIEnv *env, jobject self, jint max, jstring oname, jboolean num){
+  TDBQRY *qry = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, self, tdbqry_fid_ptr);
+  jboolean icn;
+  const char *tname = NULL;
+  if(oname){
+    tname = (*env)->GetStringUTFChars(env, oname, &icn);
+    if(!tname){
+      throwoutmem(env);
+      return NULL;
+    }
+  }
+  TDBQRY tqry = *qry;
+  tqry.max = max < 0 ? INT_MAX : max;
+  tqry.skip = 0;
+  tqry.hint = tcxstrnew();
+  TCLIST *tkeys = tctdbqrysearch(&tqry);
+  tcxstrclear(qry->hint);
+  tcxstrcat(qry->hint, tcxstrptr(tqry.hint), tcxstrsize(tqry.hint));
+  tcxstrdel(tqry.hint);
+  qry->count = tqry.count;
+  int knum = tclistnum(tkeys);
+  int onsiz = tname ? strlen(tname) : 0;
+  TCXSTR *keys = tcxstrnew();
+  xstrcatvnum(keys, knum);
+  for(int i = 0; i < knum; i++){
+    int pksiz;
+    const char *pkbuf = tclistval(tkeys, i, &pksiz);
+    xstrcatvnum(keys, pksiz);
+    tcxstrcat(keys, pkbuf, pksiz);
+    if(!tname) continue;
+    int csiz = pksiz;
+    char *cbuf = onsiz > 0 ? tctdbget4(qry->tdb, pkbuf, pksiz, tname, onsiz, &csiz) :
+      tcmemdup(pkbuf, pksiz);
+    if(cbuf){
+      if(num){
+        double dnum = tcatof(cbuf);
+        uint64_t bits;
+        memcpy(&bits, &dnum, sizeof(bits));
+        unsigned char nbuf[sizeof(bits)];
+        for(int j = sizeof(bits) - 1; j >= 0; j--){
+          nbuf[j] = bits & 0xff;
+          bits >>= 8;
+        }
+        xstrcatvnum(keys, sizeof(nbuf) + 1);
+        tcxstrcat(keys, nbuf, sizeof(nbuf));
+      } else {
+        xstrcatvnum(keys, csiz + 1);
+        tcxstrcat(keys, cbuf, csiz);
+      }
+      tcfree(cbuf);
+    } else {
+      xstrcatvnum(keys, 0);
+    }
+  }
+  tclistdel(tkeys);
+  if(tname && icn) (*env)->ReleaseStringUTFChars(env, oname, tname);
+  int ksiz = tcxstrsize(keys);
+  jbyteArray buf = (*env)->NewByteArray(env, ksiz);
+  if(buf){
+    (*env)->SetByteArrayRegion(env, buf, 0, ksiz, (jbyte *)tcxstrptr(keys));
+  } else {
+    throwoutmem(env);
+  }
+  tcxstrdel(keys);
+  return buf;
+}
+
 
 /*************************************************************************************************
  * private objects
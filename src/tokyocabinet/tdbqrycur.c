@@ -0,0 +1,126 @@
+/*************************************************************************************************
+ * Java binding of Tokyo Cabinet
+ *                                                               Copyright (C) 2006-2010 FAL Labs
+ * This file is part of Tokyo Cabinet.
+ * Tokyo Cabinet is free software; you can redistribute it and/or modify it under the terms of
+ * the GNU Lesser General Public License as published by the Free Software Foundation; either
+ * version 2.1 of the License or any later version.  Tokyo Cabinet is distributed in the hope
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+ * License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with Tokyo
+ * Cabinet; if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ *************************************************************************************************/
+
+
+#include "tokyocabinet_TDBQRYCUR.h"
+#include "myconf.h"
+
+
+/* private global variables */
+static jclass cls_tdbqrycur;
+static jfieldID tdbqrycur_fid_ptr;
+
+
+
+/*************************************************************************************************
+ * public objects
+ *************************************************************************************************/
+
+
+/* init */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_init
+(JNIEnv *env, jclass cls){
+  cls_tdbqrycur = cls;
+  tdbqrycur_fid_ptr = (*env)->GetFieldID(env, cls, "ptr", "J");
+}
+
+
+/* initialize */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_initialize
+(JNIEnv *env, jobject self, jobject qry){
+  if(!qry){
+    throwillarg(env);
+    return;
+  }
+  jclass clsqry = (*env)->GetObjectClass(env, qry);
+  jfieldID fidqry = (*env)->GetFieldID(env, clsqry, "ptr", "J");
+  TDBQRY *qryptr = (TDBQRY *)(intptr_t)(*env)->GetLongField(env, qry, fidqry);
+  TDBQRYCUR *cur = tctdbqrycurnew(qryptr);
+  (*env)->SetLongField(env, self, tdbqrycur_fid_ptr, (intptr_t)cur);
+}
+
+
+/* destruct */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_destruct
+(JNIEnv *env, jobject self){
+  TDBQRYCUR *cur = (TDBQRYCUR *)(intptr_t)(*env)->GetLongField(env, self, tdbqrycur_fid_ptr);
+  if(!cur) return;
+  (*env)->SetLongField(env, self, tdbqrycur_fid_ptr, 0);
+  tctdbqrycurdel(cur);
+}
+
+
+/* nextkeysimpl */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRYCUR_nextkeysimpl
+(JNIEnv *env, jobject self, jint max){
+  TDBQRYCUR *cur = (TDBQRYCUR *)(intptr_t)(*env)->GetLongField(env, self, tdbqrycur_fid_ptr);
+  if(!cur) return NULL;
+  TCLIST *pkeys = tctdbqrycurfetch(cur, max);
+  if(!pkeys) return NULL;
+  int num = tclistnum(pkeys);
+  if(num < 1){
+    tclistdel(pkeys);
+    return NULL;
+  }
+  jclass clslist = (*env)->FindClass(env, CLSARRAYLIST);
+  jmethodID midinit = (*env)->GetMethodID(env, clslist, "<init>", "(I)V");
+  jobject list = (*env)->NewObject(env, clslist, midinit, num);
+  jmethodID midadd = (*env)->GetMethodID(env, clslist, "add", "(L" CLSOBJECT ";)Z");
+  for(int i = 0; i < num; i++){
+    int ksiz;
+    const char *kbuf = tclistval(pkeys, i, &ksiz);
+    jbyteArray pkey = (*env)->NewByteArray(env, ksiz);
+    (*env)->SetByteArrayRegion(env, pkey, 0, ksiz, (jbyte *)kbuf);
+    (*env)->CallVoidMethod(env, list, midadd, pkey);
+    (*env)->DeleteLocalRef(env, pkey);
+  }
+  tclistdel(pkeys);
+  return list;
+}
+
+
+/* nextrowsimpl */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRYCUR_nextrowsimpl
+(JNIEnv *env, jobject self, jobjectArray names, jint max, jboolean fixed){
+  if(!names){
+    throwillarg(env);
+    return NULL;
+  }
+  TDBQRYCUR *cur = (TDBQRYCUR *)(intptr_t)(*env)->GetLongField(env, self, tdbqrycur_fid_ptr);
+  if(!cur) return NULL;
+  TCLIST *tnames = bytearystolist(env, names);
+  if(!tnames) return NULL;
+  TCLIST *pkeys = tctdbqrycurfetch(cur, max);
+  jbyteArray rows = NULL;
+  if(pkeys){
+    int num = tclistnum(pkeys);
+    if(num > 0) rows = packrows(env, cur->qry->tdb, pkeys, 0, num, tnames, fixed);
+    tclistdel(pkeys);
+  }
+  tclistdel(tnames);
+  return rows;
+}
+
+
+/* endimpl */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRYCUR_endimpl
+(JNIEnv *env, jobject self){
+  TDBQRYCUR *cur = (TDBQRYCUR *)(intptr_t)(*env)->GetLongField(env, self, tdbqrycur_fid_ptr);
+  return cur && cur->end;
+}
+
+
+
+/* END OF FILE */
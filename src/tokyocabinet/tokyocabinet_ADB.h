@@ -15,30 +15,6 @@ extern "C" {
 JNIEXPORT void JNICALL Java_tokyocabinet_ADB_init
   (JNIEnv *, jclass);
 
-/*
- * Class:     tokyocabinet_ADB
- * Method:    open
- * Signature: (Ljava/lang/String;)Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_open
-  (JNIEnv *, jobject, jstring);
-
-/*
- * Class:     tokyocabinet_ADB
- * Method:    close
- * Signature: ()Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_close
-  (JNIEnv *, jobject);
-
-/*
- * Class:     tokyocabinet_ADB
- * Method:    put
- * Signature: ([B[B)Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_put
-  (JNIEnv *, jobject, jbyteArray, jbyteArray);
-
 /*
  * Class:     tokyocabinet_ADB
  * Method:    putkeep
@@ -55,14 +31,6 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_putkeep
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_putcat
   (JNIEnv *, jobject, jbyteArray, jbyteArray);
 
-/*
- * Class:     tokyocabinet_ADB
- * Method:    out
- * Signature: ([B)Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_out
-  (JNIEnv *, jobject, jbyteArray);
-
 /*
  * Class:     tokyocabinet_ADB
  * Method:    get
@@ -199,6 +167,22 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_ADB_rnum
 JNIEXPORT jlong JNICALL Java_tokyocabinet_ADB_size
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    opaque
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_ADB_opaque
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    setopaque
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_setopaque
+  (JNIEnv *, jobject, jbyteArray);
+
 /*
  * Class:     tokyocabinet_ADB
  * Method:    initialize
@@ -223,6 +207,46 @@ JNIEXPORT void JNICALL Java_tokyocabinet_ADB_destruct
 JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_ADB_miscimpl
   (JNIEnv *, jobject, jstring, jobjectArray);
 
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    openimpl
+ * Signature: (Ljava/lang/String;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_openimpl
+  (JNIEnv *, jobject, jstring);
+
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    setskelmultiimpl
+ * Signature: (I)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_setskelmultiimpl
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    closeimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_closeimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    putimpl
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_putimpl
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_ADB
+ * Method:    outimpl
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_ADB_outimpl
+  (JNIEnv *, jobject, jbyteArray);
+
 #ifdef __cplusplus
 }
 #endif
@@ -85,6 +85,10 @@ extern "C" {
 #define tokyocabinet_BDB_OLCKNB 32L
 #undef tokyocabinet_BDB_OTSYNC
 #define tokyocabinet_BDB_OTSYNC 64L
+#undef tokyocabinet_BDB_OPREPOP
+#define tokyocabinet_BDB_OPREPOP 128L
+#undef tokyocabinet_BDB_OMLOCK
+#define tokyocabinet_BDB_OMLOCK 256L
 /*
  * Class:     tokyocabinet_BDB
  * Method:    errmsg
@@ -309,6 +313,14 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_sync
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_optimize
   (JNIEnv *, jobject, jint, jint, jlong, jint, jint, jint);
 
+/*
+ * Class:     tokyocabinet_BDB
+ * Method:    defrag
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_defrag
+  (JNIEnv *, jobject, jlong);
+
 /*
  * Class:     tokyocabinet_BDB
  * Method:    vanish
@@ -373,6 +385,30 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_BDB_rnum
 JNIEXPORT jlong JNICALL Java_tokyocabinet_BDB_fsiz
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_BDB
+ * Method:    getrecs
+ * Signature: ([[B)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDB_getrecs
+  (JNIEnv *, jobject, jobjectArray);
+
+/*
+ * Class:     tokyocabinet_BDB
+ * Method:    opaque
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_BDB_opaque
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_BDB
+ * Method:    setopaque
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDB_setopaque
+  (JNIEnv *, jobject, jbyteArray);
+
 /*
  * Class:     tokyocabinet_BDB
  * Method:    initialize
@@ -389,6 +425,14 @@ JNIEXPORT void JNICALL Java_tokyocabinet_BDB_initialize
 JNIEXPORT void JNICALL Java_tokyocabinet_BDB_destruct
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_BDB
+ * Method:    statsimpl
+ * Signature: (Z)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDB_statsimpl
+  (JNIEnv *, jobject, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
@@ -13,6 +13,8 @@ extern "C" {
 #define tokyocabinet_BDBCUR_CPBEFORE 1L
 #undef tokyocabinet_BDBCUR_CPAFTER
 #define tokyocabinet_BDBCUR_CPAFTER 2L
+#undef tokyocabinet_BDBCUR_CPCAT
+#define tokyocabinet_BDBCUR_CPCAT 3L
 /*
  * Class:     tokyocabinet_BDBCUR
  * Method:    init
@@ -61,22 +63,6 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_prev
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_next
   (JNIEnv *, jobject);
 
-/*
- * Class:     tokyocabinet_BDBCUR
- * Method:    put
- * Signature: ([BI)Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_put
-  (JNIEnv *, jobject, jbyteArray, jint);
-
-/*
- * Class:     tokyocabinet_BDBCUR
- * Method:    out
- * Signature: ()Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_out
-  (JNIEnv *, jobject);
-
 /*
  * Class:     tokyocabinet_BDBCUR
  * Method:    key
@@ -93,6 +79,14 @@ JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_BDBCUR_key
 JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_BDBCUR_val
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_BDBCUR
+ * Method:    recs
+ * Signature: (I[B)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_BDBCUR_recs
+  (JNIEnv *, jobject, jint, jbyteArray);
+
 /*
  * Class:     tokyocabinet_BDBCUR
  * Method:    initialize
@@ -109,6 +103,22 @@ JNIEXPORT void JNICALL Java_tokyocabinet_BDBCUR_initialize
 JNIEXPORT void JNICALL Java_tokyocabinet_BDBCUR_destruct
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_BDBCUR
+ * Method:    putimpl
+ * Signature: ([BI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_putimpl
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_BDBCUR
+ * Method:    outimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_BDBCUR_outimpl
+  (JNIEnv *, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -67,6 +67,10 @@ extern "C" {
 #define tokyocabinet_FDB_ONOLCK 16L
 #undef tokyocabinet_FDB_OLCKNB
 #define tokyocabinet_FDB_OLCKNB 32L
+#undef tokyocabinet_FDB_OPREPOP
+#define tokyocabinet_FDB_OPREPOP 128L
+#undef tokyocabinet_FDB_OMLOCK
+#define tokyocabinet_FDB_OMLOCK 256L
 /*
  * Class:     tokyocabinet_FDB
  * Method:    errmsg
@@ -283,6 +287,22 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_FDB_rnum
 JNIEXPORT jlong JNICALL Java_tokyocabinet_FDB_fsiz
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_FDB
+ * Method:    opaque
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_FDB_opaque
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_FDB
+ * Method:    setopaque
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_FDB_setopaque
+  (JNIEnv *, jobject, jbyteArray);
+
 /*
  * Class:     tokyocabinet_FDB
  * Method:    initialize
@@ -299,6 +319,14 @@ JNIEXPORT void JNICALL Java_tokyocabinet_FDB_initialize
 JNIEXPORT void JNICALL Java_tokyocabinet_FDB_destruct
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_FDB
+ * Method:    statsimpl
+ * Signature: (Z)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_FDB_statsimpl
+  (JNIEnv *, jobject, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
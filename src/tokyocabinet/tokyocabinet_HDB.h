@@ -77,6 +77,10 @@ extern "C" {
 #define tokyocabinet_HDB_OLCKNB 32L
 #undef tokyocabinet_HDB_OTSYNC
 #define tokyocabinet_HDB_OTSYNC 64L
+#undef tokyocabinet_HDB_OPREPOP
+#define tokyocabinet_HDB_OPREPOP 128L
+#undef tokyocabinet_HDB_OMLOCK
+#define tokyocabinet_HDB_OMLOCK 256L
 /*
  * Class:     tokyocabinet_HDB
  * Method:    errmsg
@@ -261,6 +265,14 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_sync
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_optimize
   (JNIEnv *, jobject, jlong, jint, jint, jint);
 
+/*
+ * Class:     tokyocabinet_HDB
+ * Method:    defrag
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_defrag
+  (JNIEnv *, jobject, jlong);
+
 /*
  * Class:     tokyocabinet_HDB
  * Method:    vanish
@@ -325,6 +337,30 @@ JNIEXPORT jlong JNICALL Java_tokyocabinet_HDB_rnum
 JNIEXPORT jlong JNICALL Java_tokyocabinet_HDB_fsiz
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_HDB
+ * Method:    getrecs
+ * Signature: ([[B)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_HDB_getrecs
+  (JNIEnv *, jobject, jobjectArray);
+
+/*
+ * Class:     tokyocabinet_HDB
+ * Method:    opaque
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_HDB_opaque
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_HDB
+ * Method:    setopaque
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_HDB_setopaque
+  (JNIEnv *, jobject, jbyteArray);
+
 /*
  * Class:     tokyocabinet_HDB
  * Method:    initialize
@@ -341,6 +377,14 @@ JNIEXPORT void JNICALL Java_tokyocabinet_HDB_initialize
 JNIEXPORT void JNICALL Java_tokyocabinet_HDB_destruct
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_HDB
+ * Method:    statsimpl
+ * Signature: (Z)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_HDB_statsimpl
+  (JNIEnv *, jobject, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
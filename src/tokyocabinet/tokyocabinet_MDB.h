@@ -0,0 +1,181 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class tokyocabinet_MDB */
+
+#ifndef _Included_tokyocabinet_MDB
+#define _Included_tokyocabinet_MDB
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    init
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_init
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    capacity
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_capacity
+  (JNIEnv *, jobject, jlong, jlong);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    put
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_put
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    putkeep
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_putkeep
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    putcat
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_putcat
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    out
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_MDB_out
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    get
+ * Signature: ([B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_MDB_get
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    vsiz
+ * Signature: ([B)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_MDB_vsiz
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    iternext
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_MDB_iternext
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    fwmkeys
+ * Signature: ([BI)Ljava/util/List;
+ */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_MDB_fwmkeys
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    addint
+ * Signature: ([BI)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_MDB_addint
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    adddouble
+ * Signature: ([BD)D
+ */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_MDB_adddouble
+  (JNIEnv *, jobject, jbyteArray, jdouble);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    vanish
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_vanish
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    cutfront
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_cutfront
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    rnum
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_MDB_rnum
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    msiz
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_MDB_msiz
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    initialize
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_initialize
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    destruct
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_destruct
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    iterinitimpl
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_iterinitimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    putlistimpl
+ * Signature: ([[B)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_MDB_putlistimpl
+  (JNIEnv *, jobject, jobjectArray);
+
+/*
+ * Class:     tokyocabinet_MDB
+ * Method:    getlistimpl
+ * Signature: ([[B)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_MDB_getlistimpl
+  (JNIEnv *, jobject, jobjectArray);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -0,0 +1,181 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class tokyocabinet_NDB */
+
+#ifndef _Included_tokyocabinet_NDB
+#define _Included_tokyocabinet_NDB
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    init
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_init
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    capacity
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_capacity
+  (JNIEnv *, jobject, jlong, jlong);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    put
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_put
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    putkeep
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_putkeep
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    putcat
+ * Signature: ([B[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_putcat
+  (JNIEnv *, jobject, jbyteArray, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    out
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_NDB_out
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    get
+ * Signature: ([B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_NDB_get
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    vsiz
+ * Signature: ([B)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_NDB_vsiz
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    iternext
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_NDB_iternext
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    fwmkeys
+ * Signature: ([BI)Ljava/util/List;
+ */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_NDB_fwmkeys
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    addint
+ * Signature: ([BI)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_NDB_addint
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    adddouble
+ * Signature: ([BD)D
+ */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_NDB_adddouble
+  (JNIEnv *, jobject, jbyteArray, jdouble);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    vanish
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_vanish
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    cutfringe
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_cutfringe
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    rnum
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_NDB_rnum
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    msiz
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_NDB_msiz
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    initialize
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_initialize
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    destruct
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_destruct
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    iterinitimpl
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_iterinitimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    putlistimpl
+ * Signature: ([[B)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_NDB_putlistimpl
+  (JNIEnv *, jobject, jobjectArray);
+
+/*
+ * Class:     tokyocabinet_NDB
+ * Method:    getlistimpl
+ * Signature: ([[B)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_NDB_getlistimpl
+  (JNIEnv *, jobject, jobjectArray);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
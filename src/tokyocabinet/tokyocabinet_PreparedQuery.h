@@ -0,0 +1,53 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class tokyocabinet_PreparedQuery */
+
+#ifndef _Included_tokyocabinet_PreparedQuery
+#define _Included_tokyocabinet_PreparedQuery
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     tokyocabinet_PreparedQuery
+ * Method:    init
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_PreparedQuery_init
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     tokyocabinet_PreparedQuery
+ * Method:    initialize
+ * Signature: (Ltokyocabinet/TDB;Ljava/lang/String;)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_PreparedQuery_initialize
+  (JNIEnv *, jobject, jobject, jstring);
+
+/*
+ * Class:     tokyocabinet_PreparedQuery
+ * Method:    destruct
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_PreparedQuery_destruct
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_PreparedQuery
+ * Method:    executeimpl
+ * Signature: ([[B)Ljava/util/List;
+ */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_PreparedQuery_executeimpl
+  (JNIEnv *, jobject, jobjectArray);
+
+/*
+ * Class:     tokyocabinet_PreparedQuery
+ * Method:    executerowsimpl
+ * Signature: ([[B[[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_PreparedQuery_executerowsimpl
+  (JNIEnv *, jobject, jobjectArray, jobjectArray);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
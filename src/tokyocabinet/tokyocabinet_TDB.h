@@ -149,27 +149,19 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setdfunit
 
 /*
  * Class:     tokyocabinet_TDB
- * Method:    open
- * Signature: (Ljava/lang/String;I)Z
+ * Method:    setinvcache
+ * Signature: (JD)Z
  */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_open
-  (JNIEnv *, jobject, jstring, jint);
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setinvcache
+  (JNIEnv *, jobject, jlong, jdouble);
 
 /*
  * Class:     tokyocabinet_TDB
- * Method:    close
- * Signature: ()Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_close
-  (JNIEnv *, jobject);
-
-/*
- * Class:     tokyocabinet_TDB
- * Method:    out
- * Signature: ([B)Z
+ * Method:    open
+ * Signature: (Ljava/lang/String;I)Z
  */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_out
-  (JNIEnv *, jobject, jbyteArray);
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_open
+  (JNIEnv *, jobject, jstring, jint);
 
 /*
  * Class:     tokyocabinet_TDB
@@ -203,22 +195,6 @@ JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDB_iternext
 JNIEXPORT jobject JNICALL Java_tokyocabinet_TDB_fwmkeys
   (JNIEnv *, jobject, jbyteArray, jint);
 
-/*
- * Class:     tokyocabinet_TDB
- * Method:    addint
- * Signature: ([BI)I
- */
-JNIEXPORT jint JNICALL Java_tokyocabinet_TDB_addint
-  (JNIEnv *, jobject, jbyteArray, jint);
-
-/*
- * Class:     tokyocabinet_TDB
- * Method:    adddouble
- * Signature: ([BD)D
- */
-JNIEXPORT jdouble JNICALL Java_tokyocabinet_TDB_adddouble
-  (JNIEnv *, jobject, jbyteArray, jdouble);
-
 /*
  * Class:     tokyocabinet_TDB
  * Method:    sync
@@ -229,19 +205,11 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_sync
 
 /*
  * Class:     tokyocabinet_TDB
- * Method:    optimize
- * Signature: (JIII)Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_optimize
-  (JNIEnv *, jobject, jlong, jint, jint, jint);
-
-/*
- * Class:     tokyocabinet_TDB
- * Method:    vanish
- * Signature: ()Z
+ * Method:    defrag
+ * Signature: (J)Z
  */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_vanish
-  (JNIEnv *, jobject);
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_defrag
+  (JNIEnv *, jobject, jlong);
 
 /*
  * Class:     tokyocabinet_TDB
@@ -267,14 +235,6 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_tranbegin
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_trancommit
   (JNIEnv *, jobject);
 
-/*
- * Class:     tokyocabinet_TDB
- * Method:    tranabort
- * Signature: ()Z
- */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_tranabort
-  (JNIEnv *, jobject);
-
 /*
  * Class:     tokyocabinet_TDB
  * Method:    path
@@ -315,6 +275,38 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setindex
 JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_genuid
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    uidseed
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_uidseed
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    setuidseed
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setuidseed
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    opaque
+ * Signature: ()[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDB_opaque
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    setopaque
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_setopaque
+  (JNIEnv *, jobject, jbyteArray);
+
 /*
  * Class:     tokyocabinet_TDB
  * Method:    initialize
@@ -331,6 +323,70 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDB_initialize
 JNIEXPORT void JNICALL Java_tokyocabinet_TDB_destruct
   (JNIEnv *, jobject);
 
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    statsimpl
+ * Signature: (Z)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_statsimpl
+  (JNIEnv *, jobject, jboolean);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    closeimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_closeimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    outimpl
+ * Signature: ([B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_outimpl
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    addintimpl
+ * Signature: ([BI)I
+ */
+JNIEXPORT jint JNICALL Java_tokyocabinet_TDB_addintimpl
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    adddoubleimpl
+ * Signature: ([BD)D
+ */
+JNIEXPORT jdouble JNICALL Java_tokyocabinet_TDB_adddoubleimpl
+  (JNIEnv *, jobject, jbyteArray, jdouble);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    optimizeimpl
+ * Signature: (JIII)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_optimizeimpl
+  (JNIEnv *, jobject, jlong, jint, jint, jint);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    vanishimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_vanishimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    tranabortimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_tranabortimpl
+  (JNIEnv *, jobject);
+
 /*
  * Class:     tokyocabinet_TDB
  * Method:    putimpl
@@ -339,6 +395,14 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDB_destruct
 JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_putimpl
   (JNIEnv *, jobject, jbyteArray, jobjectArray, jint);
 
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    putrowimpl
+ * Signature: ([B[BII)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_putrowimpl
+  (JNIEnv *, jobject, jbyteArray, jbyteArray, jint, jint);
+
 /*
  * Class:     tokyocabinet_TDB
  * Method:    getimpl
@@ -347,6 +411,30 @@ JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_putimpl
 JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_getimpl
   (JNIEnv *, jobject, jbyteArray);
 
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    patchimpl
+ * Signature: ([[B[BI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDB_patchimpl
+  (JNIEnv *, jobject, jobjectArray, jbyteArray, jint);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    indexesimpl
+ * Signature: ()[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDB_indexesimpl
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDB
+ * Method:    iccmaximpl
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_tokyocabinet_TDB_iccmaximpl
+  (JNIEnv *, jobject, jlong);
+
 #ifdef __cplusplus
 }
 #endif
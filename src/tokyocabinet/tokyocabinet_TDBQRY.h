@@ -83,91 +83,115 @@ JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_init
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    addcond
+ * Method:    hint
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_tokyocabinet_TDBQRY_hint
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDBQRY
+ * Method:    metasearch
+ * Signature: ([Ltokyocabinet/TDBQRY;I)Ljava/util/List;
+ */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_metasearch
+  (JNIEnv *, jobject, jobjectArray, jint);
+
+/*
+ * Class:     tokyocabinet_TDBQRY
+ * Method:    initialize
+ * Signature: (Ltokyocabinet/TDB;)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_initialize
+  (JNIEnv *, jobject, jobject);
+
+/*
+ * Class:     tokyocabinet_TDBQRY
+ * Method:    destruct
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_destruct
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDBQRY
+ * Method:    addcondimpl
  * Signature: (Ljava/lang/String;ILjava/lang/String;)V
  */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_addcond
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_addcondimpl
   (JNIEnv *, jobject, jstring, jint, jstring);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    setorder
+ * Method:    setorderimpl
  * Signature: (Ljava/lang/String;I)V
  */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setorder
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setorderimpl
   (JNIEnv *, jobject, jstring, jint);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    setlimit
+ * Method:    setlimitimpl
  * Signature: (II)V
  */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setlimit
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_setlimitimpl
   (JNIEnv *, jobject, jint, jint);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    search
+ * Method:    searchimpl
  * Signature: ()Ljava/util/List;
  */
-JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_search
+JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_searchimpl
   (JNIEnv *, jobject);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    searchout
+ * Method:    searchoutimpl
  * Signature: ()Z
  */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_searchout
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_searchoutimpl
   (JNIEnv *, jobject);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    proc
+ * Method:    procimpl
  * Signature: (Ltokyocabinet/TDBQRYPROC;)Z
  */
-JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_proc
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRY_procimpl
   (JNIEnv *, jobject, jobject);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    hint
- * Signature: ()Ljava/lang/String;
- */
-JNIEXPORT jstring JNICALL Java_tokyocabinet_TDBQRY_hint
-  (JNIEnv *, jobject);
-
-/*
- * Class:     tokyocabinet_TDBQRY
- * Method:    metasearch
- * Signature: ([Ltokyocabinet/TDBQRY;I)Ljava/util/List;
+ * Method:    kwicimpl
+ * Signature: ([[BLjava/lang/String;II)[Ljava/lang/String;
  */
-JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRY_metasearch
-  (JNIEnv *, jobject, jobjectArray, jint);
+JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDBQRY_kwicimpl
+  (JNIEnv *, jobject, jobjectArray, jstring, jint, jint);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    initialize
- * Signature: (Ltokyocabinet/TDB;)V
+ * Method:    searchrowsimpl
+ * Signature: ([[B)[B
  */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_initialize
-  (JNIEnv *, jobject, jobject);
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRY_searchrowsimpl
+  (JNIEnv *, jobject, jobjectArray);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    destruct
- * Signature: ()V
+ * Method:    countimpl
+ * Signature: (I)I
  */
-JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRY_destruct
-  (JNIEnv *, jobject);
+JNIEXPORT jint JNICALL Java_tokyocabinet_TDBQRY_countimpl
+  (JNIEnv *, jobject, jint);
 
 /*
  * Class:     tokyocabinet_TDBQRY
- * Method:    kwicimpl
- * Signature: ([[BLjava/lang/String;II)[Ljava/lang/String;
+ * Method:    searchkeysimpl
+ * Signature: (ILjava/lang/String;Z)[B
  */
-JNIEXPORT jobjectArray JNICALL Java_tokyocabinet_TDBQRY_kwicimpl
-  (JNIEnv *, jobject, jobjectArray, jstring, jint, jint);
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRY_searchkeysimpl
+  (JNIEnv *, jobject, jint, jstring, jboolean);
 
 #ifdef __cplusplus
 }
@@ -0,0 +1,61 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class tokyocabinet_TDBQRYCUR */
+
+#ifndef _Included_tokyocabinet_TDBQRYCUR
+#define _Included_tokyocabinet_TDBQRYCUR
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    init
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_init
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    initialize
+ * Signature: (Ltokyocabinet/TDBQRY;)V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_initialize
+  (JNIEnv *, jobject, jobject);
+
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    destruct
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_tokyocabinet_TDBQRYCUR_destruct
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    nextkeysimpl
+ * Signature: (I)Ljava/util/List;
+ */
+JNIEXPORT jobject JNICALL Java_tokyocabinet_TDBQRYCUR_nextkeysimpl
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    nextrowsimpl
+ * Signature: ([[BIZ)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_tokyocabinet_TDBQRYCUR_nextrowsimpl
+  (JNIEnv *, jobject, jobjectArray, jint, jboolean);
+
+/*
+ * Class:     tokyocabinet_TDBQRYCUR
+ * Method:    endimpl
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_tokyocabinet_TDBQRYCUR_endimpl
+  (JNIEnv *, jobject);
+
+#ifdef __cplusplus
+}
+#endif
+#endif